@@ -1,30 +1,183 @@
 package hospital.management;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents an appointment in the hospital management system.
  * Contains information about the appointment date, time, patient, and doctor.
+ * The date and time are parsed once into epoch minutes so that overlapping
+ * appointments can be detected with simple numeric comparisons.
  */
 public class Appointment {
+    /** Default length of an appointment in minutes. */
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    private static final DateTimeFormatter TWELVE_HOUR = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendPattern("h:mma")
+        .toFormatter(Locale.ENGLISH);
+    private static final DateTimeFormatter TWENTY_FOUR_HOUR = DateTimeFormatter.ofPattern("H:mm");
+
+    private final long id;
     private String date;
     private String time;
+    private long startMinute;
+    private int durationMinutes;
     private Patient patient;
     private Doctor doctor;
 
     /**
-     * Constructor to create an Appointment object.
+     * Constructor to create an Appointment object with the default duration.
      *
-     * @param date   The date of the appointment
-     * @param time   The time of the appointment
+     * @param date   The date of the appointment (YYYY-MM-DD)
+     * @param time   The time of the appointment (e.g. 10:00 AM or 14:30)
      * @param patient The patient for the appointment
      * @param doctor  The doctor for the appointment
+     * @throws IllegalArgumentException if the date or time cannot be parsed
      */
     public Appointment(String date, String time, Patient patient, Doctor doctor) {
+        this(date, time, DEFAULT_DURATION_MINUTES, patient, doctor);
+    }
+
+    /**
+     * Constructor to create an Appointment object.
+     *
+     * @param date            The date of the appointment (YYYY-MM-DD)
+     * @param time            The time of the appointment (e.g. 10:00 AM or 14:30)
+     * @param durationMinutes The length of the appointment in minutes
+     * @param patient         The patient for the appointment
+     * @param doctor          The doctor for the appointment
+     * @throws IllegalArgumentException if the date or time cannot be parsed,
+     *                                  or the duration is not positive
+     */
+    public Appointment(String date, String time, int durationMinutes, Patient patient, Doctor doctor) {
+        this(0, date, time, durationMinutes, patient, doctor);
+    }
+
+    /**
+     * Constructor to create an Appointment object with a known ID, used when
+     * restoring saved data. Later IDs are assigned above it.
+     *
+     * @param id              The ID of the appointment, or 0 to assign a new one
+     * @param date            The date of the appointment (YYYY-MM-DD)
+     * @param time            The time of the appointment (e.g. 10:00 AM or 14:30)
+     * @param durationMinutes The length of the appointment in minutes
+     * @param patient         The patient for the appointment
+     * @param doctor          The doctor for the appointment
+     * @throws IllegalArgumentException if the date or time cannot be parsed,
+     *                                  or the duration is not positive
+     */
+    Appointment(long id, String date, String time, int durationMinutes, Patient patient, Doctor doctor) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        this.startMinute = toEpochMinute(date, time);
+        if (id == 0) {
+            this.id = NEXT_ID.getAndIncrement();
+        } else {
+            reserveIdsThrough(id);
+            this.id = id;
+        }
         this.date = date;
         this.time = time;
+        this.durationMinutes = durationMinutes;
         this.patient = patient;
         this.doctor = doctor;
     }
 
+    /**
+     * Makes sure IDs assigned from now on are above an ID already in use,
+     * including by appointments that are only archived or in the history.
+     *
+     * @param id The highest ID in use
+     */
+    static void reserveIdsThrough(long id) {
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Converts a date and time into minutes since the epoch.
+     *
+     * @param date The date (YYYY-MM-DD)
+     * @param time The time (e.g. 10:00 AM, 10:00am or 14:30)
+     * @return The number of minutes since 1970-01-01 00:00
+     * @throws IllegalArgumentException if the date or time cannot be parsed
+     */
+    public static long toEpochMinute(String date, String time) {
+        return toEpochDay(date) * MINUTES_PER_DAY + toMinuteOfDay(time);
+    }
+
+    /**
+     * Parses a date into days since the epoch.
+     *
+     * @param date The date (YYYY-MM-DD)
+     * @return The number of days since 1970-01-01
+     * @throws IllegalArgumentException if the date cannot be parsed
+     */
+    static long toEpochDay(String date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        try {
+            return LocalDate.parse(date.trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + date, e);
+        }
+    }
+
+    /**
+     * Parses a time of day into minutes since midnight.
+     * Accepts 12-hour times with an AM/PM marker in any case and with or
+     * without a space, as well as 24-hour times.
+     *
+     * @param time The time to parse
+     * @return The number of minutes since midnight
+     * @throws IllegalArgumentException if the time cannot be parsed
+     */
+    static int toMinuteOfDay(String time) {
+        if (time == null) {
+            throw new IllegalArgumentException("Time cannot be null");
+        }
+        String compact = time.replace(" ", "");
+        try {
+            LocalTime parsed = hasMeridiem(compact)
+                ? LocalTime.parse(compact, TWELVE_HOUR)
+                : LocalTime.parse(compact, TWENTY_FOUR_HOUR);
+            return parsed.getHour() * 60 + parsed.getMinute();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time: " + time, e);
+        }
+    }
+
+    /**
+     * Checks whether a compacted time ends with an AM or PM marker.
+     *
+     * @param time The time without spaces
+     * @return true if the time ends with AM or PM in any case
+     */
+    private static boolean hasMeridiem(String time) {
+        return time.length() > 2
+            && (time.regionMatches(true, time.length() - 2, "AM", 0, 2)
+                || time.regionMatches(true, time.length() - 2, "PM", 0, 2));
+    }
+
+    /**
+     * Gets the unique ID of the appointment.
+     *
+     * @return The appointment ID
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Gets the date of the appointment.
      *
@@ -36,10 +189,14 @@ public class Appointment {
 
     /**
      * Sets the date of the appointment.
+     * Only for appointments that are not booked; a booked appointment is
+     * changed through HospitalManagementSystem so its indexes stay in step.
      *
      * @param date The date to set
+     * @throws IllegalArgumentException if the date cannot be parsed
      */
-    public void setDate(String date) {
+    void setDate(String date) {
+        this.startMinute = toEpochMinute(date, time);
         this.date = date;
     }
 
@@ -54,13 +211,69 @@ public class Appointment {
 
     /**
      * Sets the time of the appointment.
+     * Only for appointments that are not booked; a booked appointment is
+     * changed through HospitalManagementSystem so its indexes stay in step.
      *
      * @param time The time to set
+     * @throws IllegalArgumentException if the time cannot be parsed
      */
-    public void setTime(String time) {
+    void setTime(String time) {
+        this.startMinute = toEpochMinute(date, time);
         this.time = time;
     }
 
+    /**
+     * Gets the start of the appointment in minutes since the epoch.
+     *
+     * @return The start minute
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * Gets the end of the appointment in minutes since the epoch (exclusive).
+     *
+     * @return The end minute
+     */
+    public long getEndMinute() {
+        return startMinute + durationMinutes;
+    }
+
+    /**
+     * Gets the length of the appointment.
+     *
+     * @return The duration in minutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Sets the length of the appointment.
+     * Only for appointments that are not booked; a booked appointment is
+     * changed through HospitalManagementSystem so its indexes stay in step.
+     *
+     * @param durationMinutes The duration in minutes to set
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    void setDurationMinutes(int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Checks whether this appointment overlaps another one in time.
+     *
+     * @param other The other appointment
+     * @return true if the two time intervals overlap, false otherwise
+     */
+    public boolean overlaps(Appointment other) {
+        return startMinute < other.getEndMinute() && other.startMinute < getEndMinute();
+    }
+
     /**
      * Gets the patient for the appointment.
      *
@@ -72,10 +285,12 @@ public class Appointment {
 
     /**
      * Sets the patient for the appointment.
+     * Only for appointments that are not booked; a booked appointment is
+     * changed through HospitalManagementSystem so its indexes stay in step.
      *
      * @param patient The patient to set
      */
-    public void setPatient(Patient patient) {
+    void setPatient(Patient patient) {
         this.patient = patient;
     }
 
@@ -90,11 +305,12 @@ public class Appointment {
 
     /**
      * Sets the doctor for the appointment.
+     * Only for appointments that are not booked; a booked appointment is
+     * changed through HospitalManagementSystem so its indexes stay in step.
      *
      * @param doctor The doctor to set
      */
-    public void setDoctor(Doctor doctor) {
+    void setDoctor(Doctor doctor) {
         this.doctor = doctor;
     }
 }
-
@@ -0,0 +1,1005 @@
+package hospital.management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk, date-ordered index of past appointments, for history that does
+ * not fit in memory.
+ * <p>
+ * The index is a directory of immutable sorted run files. Each run is
+ * written in one pass, either from the off-heap archive or by merging older
+ * runs, and holds every appointment twice in fixed-size pages: once ordered
+ * by doctor, start and ID, and once ordered by patient, start and ID. Only
+ * the first key of each page is kept in memory, so a range query
+ * binary-searches that sparse index and reads just the pages overlapping
+ * the range. Pages that were read recently are kept in a shared
+ * least-recently-used cache of bounded size. The header of each run
+ * records the highest appointment ID it holds.
+ * <p>
+ * A query reads every run, so compact should be called from time to time
+ * to merge all runs into one. A run created by writeRun is not queried
+ * until it is published, which lets the caller record the run in its
+ * journal first. Queries may run in parallel; adding, merging and
+ * discarding runs wait for running queries to finish.
+ */
+public class AppointmentHistory implements AutoCloseable {
+    private static final int MAGIC = 0x484D5348;
+    private static final int VERSION = 1;
+    private static final int PAGE_SIZE = 4096;
+    /** id, patient ID, doctor ID and start as longs, then duration and status as ints. */
+    private static final int RECORD_SIZE = 40;
+    private static final int RECORDS_PER_PAGE = PAGE_SIZE / RECORD_SIZE;
+    private static final int DEFAULT_CACHE_PAGES = 1024;
+    private static final String RUN_PREFIX = "history-";
+    private static final String RUN_SUFFIX = ".run";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BY_DOCTOR = 0;
+    private static final int BY_PATIENT = 1;
+    private static final int ID = 0;
+    private static final int PATIENT_ID = 1;
+    private static final int DOCTOR_ID = 2;
+    private static final int START_MINUTE = 3;
+    private static final int DURATION = 4;
+    private static final int STATUS = 5;
+    private static final int FIELDS = 6;
+    private static final OffHeapAppointmentStore.Status[] STATUSES = OffHeapAppointmentStore.Status.values();
+
+    private final Path directory;
+    private final Map<Long, ByteBuffer> cache;
+    private final ReentrantReadWriteLock lock;
+    private final Object compactionLock;
+    private final AtomicLong nextRun;
+    private final AtomicLong pagesRead;
+    private final List<Run> runs;
+
+    /**
+     * Constructor to create an AppointmentHistory object over opened runs.
+     *
+     * @param directory  The directory holding the run files
+     * @param cachePages The number of pages to keep cached
+     * @param runs       The opened runs
+     */
+    private AppointmentHistory(Path directory, int cachePages, List<Run> runs) {
+        this.directory = directory;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest) {
+                return size() > cachePages;
+            }
+        };
+        this.lock = new ReentrantReadWriteLock();
+        this.compactionLock = new Object();
+        this.nextRun = new AtomicLong(runs.stream().mapToLong(run -> run.number).max().orElse(0) + 1);
+        this.pagesRead = new AtomicLong();
+        this.runs = runs;
+    }
+
+    /**
+     * Opens the history in a directory with the default page cache size,
+     * creating the directory if needed.
+     *
+     * @param directory The directory holding the run files
+     * @return The opened history
+     * @throws IOException if the directory or a run file cannot be read
+     */
+    public static AppointmentHistory open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens the history in a directory, creating the directory if needed.
+     * Unfinished files and runs that were already merged into a later run
+     * are deleted. The appointment IDs the runs hold are reserved, so
+     * appointments created later never reuse them.
+     *
+     * @param directory  The directory holding the run files
+     * @param cachePages The number of 4 KB pages to keep cached
+     * @return The opened history
+     * @throws IOException if the directory or a run file cannot be read
+     * @throws IllegalArgumentException if cachePages is less than 1
+     */
+    public static AppointmentHistory open(Path directory, int cachePages) throws IOException {
+        if (cachePages < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one page");
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path temp : files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .collect(Collectors.toList())) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        List<Run> runs = new ArrayList<>();
+        for (Path file : listRuns(directory)) {
+            runs.add(new Run(file));
+        }
+        Iterator<Run> iterator = runs.iterator();
+        while (iterator.hasNext()) {
+            Run run = iterator.next();
+            boolean merged = runs.stream()
+                .anyMatch(other -> other.number > run.number && other.firstRun <= run.number);
+            if (merged) {
+                run.channel.close();
+                Files.deleteIfExists(run.file);
+                iterator.remove();
+            }
+        }
+        for (Run run : runs) {
+            Appointment.reserveIdsThrough(run.maxId);
+        }
+        return new AppointmentHistory(directory, cachePages, runs);
+    }
+
+    /**
+     * Writes every appointment of an archive to a new run file. The run is
+     * durable when this returns but is not queried until it is published.
+     *
+     * @param source The archive to write
+     * @return The number of the new run
+     * @throws IOException if the run cannot be written
+     * @throws IllegalArgumentException if the archive has too many rows for one run
+     */
+    public long writeRun(OffHeapAppointmentStore source) throws IOException {
+        long count = source.size();
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many appointments for one run: " + count);
+        }
+        long number = nextRun.getAndIncrement();
+        writeRunFile(number, number, count, archiveCursor(source, (int) count, DOCTOR_ID),
+            archiveCursor(source, (int) count, PATIENT_ID));
+        return number;
+    }
+
+    /**
+     * Makes a run created by writeRun visible to queries.
+     *
+     * @param number The number of the run
+     * @throws IOException if the run file cannot be opened
+     */
+    public void publishRun(long number) throws IOException {
+        Run run = new Run(runPath(number));
+        lock.writeLock().lock();
+        try {
+            runs.add(run);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every run numbered above a given number, published or not.
+     * Used on recovery to drop runs whose creation was never recorded.
+     *
+     * @param number The highest run number to keep
+     * @throws IOException if a run file cannot be deleted
+     */
+    public void discardRunsAfter(long number) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Iterator<Run> iterator = runs.iterator();
+            while (iterator.hasNext()) {
+                Run run = iterator.next();
+                if (run.number > number) {
+                    run.channel.close();
+                    iterator.remove();
+                }
+            }
+            for (Path file : listRuns(directory)) {
+                if (runNumber(file) > number) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            synchronized (cache) {
+                cache.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges all published runs into one. Queries continue while the merged
+     * run is written.
+     *
+     * @return The number of runs merged, or 0 if there were fewer than two
+     * @throws IOException if the merged run cannot be written
+     */
+    public int compact() throws IOException {
+        synchronized (compactionLock) {
+            List<Run> inputs;
+            lock.readLock().lock();
+            try {
+                inputs = new ArrayList<>(runs);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (inputs.size() < 2) {
+                return 0;
+            }
+            long count = 0;
+            long firstRun = Long.MAX_VALUE;
+            long number = 0;
+            for (Run run : inputs) {
+                count += run.count;
+                firstRun = Math.min(firstRun, run.firstRun);
+                number = Math.max(number, run.number);
+            }
+            // The merged run replaces the newest input under the same name,
+            // so it keeps a number that was recorded when that input was published.
+            Path file = writeRunFile(number, firstRun, count, mergeCursor(inputs, BY_DOCTOR),
+                mergeCursor(inputs, BY_PATIENT));
+            Run merged = new Run(file);
+            lock.writeLock().lock();
+            try {
+                for (Run run : inputs) {
+                    run.channel.close();
+                    if (run.number != number) {
+                        Files.deleteIfExists(run.file);
+                    }
+                }
+                runs.removeAll(inputs);
+                runs.add(merged);
+                synchronized (cache) {
+                    cache.clear();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return inputs.size();
+        }
+    }
+
+    /**
+     * Finds the appointments of a doctor that start within a range.
+     *
+     * @param doctorId   The doctor ID
+     * @param fromMinute The earliest start to include, in minutes since the epoch
+     * @param toMinute   The first start to exclude, in minutes since the epoch
+     * @return The matching appointments ordered by start and ID
+     * @throws IOException if a page cannot be read
+     */
+    public List<Entry> findByDoctor(long doctorId, long fromMinute, long toMinute) throws IOException {
+        return find(BY_DOCTOR, doctorId, fromMinute, toMinute);
+    }
+
+    /**
+     * Finds the appointments of a patient that start within a range.
+     *
+     * @param patientId  The patient ID
+     * @param fromMinute The earliest start to include, in minutes since the epoch
+     * @param toMinute   The first start to exclude, in minutes since the epoch
+     * @return The matching appointments ordered by start and ID
+     * @throws IOException if a page cannot be read
+     */
+    public List<Entry> findByPatient(long patientId, long fromMinute, long toMinute) throws IOException {
+        return find(BY_PATIENT, patientId, fromMinute, toMinute);
+    }
+
+    /**
+     * Gets the number of appointments in published runs.
+     *
+     * @return The appointment count
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return runs.stream().mapToLong(run -> run.count).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of published runs.
+     *
+     * @return The run count
+     */
+    public int getRunCount() {
+        lock.readLock().lock();
+        try {
+            return runs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the highest number of a published run.
+     *
+     * @return The run number, or 0 if there are no runs
+     */
+    public long getLastRun() {
+        lock.readLock().lock();
+        try {
+            return runs.stream().mapToLong(run -> run.number).max().orElse(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of pages queries have read from disk because they
+     * were not cached.
+     *
+     * @return The number of pages read
+     */
+    public long getPagesRead() {
+        return pagesRead.get();
+    }
+
+    /**
+     * Closes every run file and empties the page cache.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Run run : runs) {
+                run.channel.close();
+            }
+            runs.clear();
+            synchronized (cache) {
+                cache.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the appointments of a doctor or patient that start within a range.
+     *
+     * @param section  BY_DOCTOR or BY_PATIENT
+     * @param key      The doctor or patient ID
+     * @param from     The earliest start to include
+     * @param to       The first start to exclude
+     * @return The matching appointments ordered by start and ID
+     * @throws IOException if a page cannot be read
+     */
+    private List<Entry> find(int section, long key, long from, long to) throws IOException {
+        List<Entry> found = new ArrayList<>();
+        if (from >= to) {
+            return found;
+        }
+        lock.readLock().lock();
+        try {
+            for (Run run : runs) {
+                scan(run, section, key, from, to, found);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparingLong(Entry::getStartMinute).thenComparingLong(Entry::getId));
+        return found;
+    }
+
+    /**
+     * Adds the matching appointments of one run to a list, reading only the
+     * pages that can hold them.
+     *
+     * @param run     The run
+     * @param section BY_DOCTOR or BY_PATIENT
+     * @param key     The doctor or patient ID
+     * @param from    The earliest start to include
+     * @param to      The first start to exclude
+     * @param found   Receives the matching appointments
+     * @throws IOException if a page cannot be read
+     */
+    private void scan(Run run, int section, long key, long from, long to, List<Entry> found) throws IOException {
+        long[] keys = run.firstKeys[section];
+        long[] starts = run.firstStarts[section];
+        // Start at the last page whose first record sorts before (key, from)
+        int first = 0;
+        int low = 0;
+        int high = run.pages - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key || (keys[mid] == key && starts[mid] < from)) {
+                first = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int keyOffset = (section == BY_DOCTOR ? DOCTOR_ID : PATIENT_ID) * Long.BYTES;
+        for (int page = first; page < run.pages; page++) {
+            ByteBuffer buffer = readCached(run, section, page);
+            int records = run.recordsOn(page);
+            for (int i = 0; i < records; i++) {
+                int offset = i * RECORD_SIZE;
+                long recordKey = buffer.getLong(offset + keyOffset);
+                long start = buffer.getLong(offset + START_MINUTE * Long.BYTES);
+                if (recordKey < key || (recordKey == key && start < from)) {
+                    continue;
+                }
+                if (recordKey > key || start >= to) {
+                    return;
+                }
+                found.add(new Entry(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES),
+                    buffer.getLong(offset + 2 * Long.BYTES), start, buffer.getInt(offset + 4 * Long.BYTES),
+                    STATUSES[buffer.getInt(offset + 4 * Long.BYTES + Integer.BYTES)]));
+            }
+        }
+    }
+
+    /**
+     * Gets a page of a run through the page cache. Cached pages are only
+     * read with absolute gets, so they can be shared between threads.
+     *
+     * @param run     The run
+     * @param section BY_DOCTOR or BY_PATIENT
+     * @param page    The page within the section
+     * @return The page
+     * @throws IOException if the page cannot be read
+     */
+    private ByteBuffer readCached(Run run, int section, int page) throws IOException {
+        long index = (long) section * run.pages + page;
+        Long key = (run.number << 32) | index;
+        synchronized (cache) {
+            ByteBuffer cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        run.read(buffer, (1 + index) * PAGE_SIZE);
+        pagesRead.incrementAndGet();
+        synchronized (cache) {
+            cache.put(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes a run file from two cursors over the same appointments, one in
+     * doctor order and one in patient order, replacing any file of the same
+     * name only once the new file is complete.
+     *
+     * @param number        The run number
+     * @param firstRun      The lowest run number whose appointments the run holds
+     * @param count         The number of appointments
+     * @param doctorOrder   The appointments ordered by doctor, start and ID
+     * @param patientOrder  The appointments ordered by patient, start and ID
+     * @return The run file
+     * @throws IOException if the file cannot be written or a cursor fails
+     */
+    private Path writeRunFile(long number, long firstRun, long count, RecordCursor doctorOrder,
+                              RecordCursor patientOrder) throws IOException {
+        Path target = runPath(number);
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        int pages = pageCount(count);
+        long[][] keys = new long[2][pages];
+        long[][] starts = new long[2][pages];
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            long maxId = writeSection(channel, buffer, BY_DOCTOR, doctorOrder, count, pages, keys[BY_DOCTOR],
+                starts[BY_DOCTOR]);
+            writeSection(channel, buffer, BY_PATIENT, patientOrder, count, pages, keys[BY_PATIENT],
+                starts[BY_PATIENT]);
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(firstRun).putLong(count).putLong(maxId);
+            buffer.flip();
+            writeFully(channel, buffer, 0);
+            long position = (1 + 2L * pages) * PAGE_SIZE;
+            ByteBuffer index = ByteBuffer.allocate(1 << 16);
+            for (int section = 0; section < 2; section++) {
+                for (int page = 0; page < pages; page++) {
+                    if (index.remaining() < 2 * Long.BYTES) {
+                        index.flip();
+                        position += writeFully(channel, index, position);
+                        index.clear();
+                    }
+                    index.putLong(keys[section][page]).putLong(starts[section][page]);
+                }
+            }
+            index.flip();
+            writeFully(channel, index, position);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * Writes one section of a run file page by page, noting the first key of
+     * every page.
+     *
+     * @param channel The file
+     * @param buffer  A page-sized buffer to reuse
+     * @param section BY_DOCTOR or BY_PATIENT
+     * @param cursor  The appointments in section order
+     * @param count   The number of appointments
+     * @param pages   The number of pages in the section
+     * @param keys    Receives the doctor or patient ID of the first record of each page
+     * @param starts  Receives the start of the first record of each page
+     * @return The highest appointment ID in the section, or 0 if it is empty
+     * @throws IOException if writing fails or the cursor ends early
+     */
+    private static long writeSection(FileChannel channel, ByteBuffer buffer, int section, RecordCursor cursor,
+                                     long count, int pages, long[] keys, long[] starts) throws IOException {
+        int keyField = section == BY_DOCTOR ? DOCTOR_ID : PATIENT_ID;
+        long[] record = new long[FIELDS];
+        long maxId = 0;
+        for (int page = 0; page < pages; page++) {
+            buffer.clear();
+            int records = (int) Math.min(RECORDS_PER_PAGE, count - (long) page * RECORDS_PER_PAGE);
+            for (int i = 0; i < records; i++) {
+                if (!cursor.next(record)) {
+                    throw new IOException("Run source ended after " + ((long) page * RECORDS_PER_PAGE + i)
+                        + " of " + count + " appointments");
+                }
+                if (i == 0) {
+                    keys[page] = record[keyField];
+                    starts[page] = record[START_MINUTE];
+                }
+                maxId = Math.max(maxId, record[ID]);
+                buffer.putLong(record[ID]).putLong(record[PATIENT_ID]).putLong(record[DOCTOR_ID])
+                    .putLong(record[START_MINUTE]).putInt((int) record[DURATION]).putInt((int) record[STATUS]);
+            }
+            buffer.flip();
+            writeFully(channel, buffer, (1 + (long) section * pages + page) * PAGE_SIZE);
+        }
+        return maxId;
+    }
+
+    /**
+     * Creates a cursor over the rows of an archive in doctor or patient order.
+     *
+     * @param source   The archive
+     * @param count    The number of rows to include
+     * @param keyField DOCTOR_ID or PATIENT_ID
+     * @return The cursor
+     */
+    private static RecordCursor archiveCursor(OffHeapAppointmentStore source, int count, int keyField) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        long[] left = new long[FIELDS];
+        long[] right = new long[FIELDS];
+        RowOrder order = (a, b) -> {
+            source.read(a, left);
+            source.read(b, right);
+            return compare(left, right, keyField);
+        };
+        int[] sorted = rows.clone();
+        mergeSort(rows, sorted, 0, count, order);
+        int[] next = {0};
+        return record -> {
+            if (next[0] == count) {
+                return false;
+            }
+            source.read(sorted[next[0]++], record);
+            return true;
+        };
+    }
+
+    /**
+     * Creates a cursor merging one section of several runs, reading each
+     * run sequentially without the page cache.
+     *
+     * @param inputs  The runs to merge
+     * @param section BY_DOCTOR or BY_PATIENT
+     * @return The cursor
+     * @throws IOException if a run cannot be read
+     */
+    private static RecordCursor mergeCursor(List<Run> inputs, int section) throws IOException {
+        int keyField = section == BY_DOCTOR ? DOCTOR_ID : PATIENT_ID;
+        PriorityQueue<SectionReader> queue = new PriorityQueue<>(
+            (a, b) -> compare(a.current, b.current, keyField));
+        for (Run run : inputs) {
+            SectionReader reader = new SectionReader(run, section);
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+        }
+        return record -> {
+            SectionReader reader = queue.poll();
+            if (reader == null) {
+                return false;
+            }
+            System.arraycopy(reader.current, 0, record, 0, FIELDS);
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Compares two records by doctor or patient, then start, then ID.
+     *
+     * @param a        The first record
+     * @param b        The second record
+     * @param keyField DOCTOR_ID or PATIENT_ID
+     * @return A negative number, zero or a positive number as a sorts before, with or after b
+     */
+    private static int compare(long[] a, long[] b, int keyField) {
+        int result = Long.compare(a[keyField], b[keyField]);
+        if (result == 0) {
+            result = Long.compare(a[START_MINUTE], b[START_MINUTE]);
+        }
+        return result != 0 ? result : Long.compare(a[ID], b[ID]);
+    }
+
+    /**
+     * Sorts a range of rows with a stable merge sort. Both arrays must hold
+     * the same rows on entry; the sorted rows end up in dest.
+     *
+     * @param source A copy of dest used as scratch space
+     * @param dest   The rows to sort
+     * @param low    The first index of the range
+     * @param high   The index after the range
+     * @param order  The order to sort by
+     */
+    private static void mergeSort(int[] source, int[] dest, int low, int high, RowOrder order) {
+        if (high - low < 2) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(dest, source, low, mid, order);
+        mergeSort(dest, source, mid, high, order);
+        int left = low;
+        int right = mid;
+        for (int i = low; i < high; i++) {
+            if (right >= high || (left < mid && order.compare(source[left], source[right]) <= 0)) {
+                dest[i] = source[left++];
+            } else {
+                dest[i] = source[right++];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of pages needed for a number of appointments.
+     *
+     * @param count The number of appointments
+     * @return The page count
+     * @throws IOException if the count needs too many pages
+     */
+    private static int pageCount(long count) throws IOException {
+        long pages = (count + RECORDS_PER_PAGE - 1) / RECORDS_PER_PAGE;
+        if (pages > Integer.MAX_VALUE / 2) {
+            throw new IOException("Too many appointments for one run: " + count);
+        }
+        return (int) pages;
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer at a position.
+     *
+     * @param channel  The file
+     * @param buffer   The bytes to write
+     * @param position The file position
+     * @return The number of bytes written
+     * @throws IOException if writing fails
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * Gets the file of a run.
+     *
+     * @param number The run number
+     * @return The run file
+     */
+    private Path runPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", RUN_PREFIX, number, RUN_SUFFIX));
+    }
+
+    /**
+     * Gets the number of a run from its file name.
+     *
+     * @param file The run file
+     * @return The run number
+     */
+    private static long runNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(RUN_PREFIX.length(), name.length() - RUN_SUFFIX.length()));
+    }
+
+    /**
+     * Lists the run files in a directory ordered by run number.
+     *
+     * @param directory The directory
+     * @return The run files
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Path> listRuns(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Source of records in sort order.
+     */
+    private interface RecordCursor {
+        /**
+         * Copies the next record into an array.
+         *
+         * @param record Receives the fields of the record
+         * @return true if there was a record, false at the end
+         * @throws IOException if the record cannot be read
+         */
+        boolean next(long[] record) throws IOException;
+    }
+
+    /**
+     * Order of archive rows.
+     */
+    private interface RowOrder {
+        /**
+         * Compares two archive rows.
+         *
+         * @param a The first row
+         * @param b The second row
+         * @return A negative number, zero or a positive number as a sorts before, with or after b
+         */
+        int compare(int a, int b);
+    }
+
+    /**
+     * One opened run file with its sparse page index.
+     */
+    private static final class Run {
+        private final Path file;
+        private final long number;
+        private final long firstRun;
+        private final long count;
+        private final long maxId;
+        private final int pages;
+        private final FileChannel channel;
+        private final long[][] firstKeys;
+        private final long[][] firstStarts;
+
+        /**
+         * Constructor to open a run file and read its header and page index.
+         *
+         * @param file The run file
+         * @throws IOException if the file cannot be read or is not a run file
+         */
+        Run(Path file) throws IOException {
+            this.file = file;
+            this.number = runNumber(file);
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(32);
+                read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Not a history run: " + file);
+                }
+                this.firstRun = header.getLong(8);
+                this.count = header.getLong(16);
+                this.maxId = header.getLong(24);
+                this.pages = pageCount(count);
+                this.firstKeys = new long[2][pages];
+                this.firstStarts = new long[2][pages];
+                ByteBuffer index = ByteBuffer.allocate(2 * Long.BYTES * pages);
+                for (int section = 0; section < 2; section++) {
+                    index.clear();
+                    read(index, (1 + 2L * pages) * PAGE_SIZE + (long) section * index.capacity());
+                    for (int page = 0; page < pages; page++) {
+                        firstKeys[section][page] = index.getLong(page * 2 * Long.BYTES);
+                        firstStarts[section][page] = index.getLong(page * 2 * Long.BYTES + Long.BYTES);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Gets the number of records on a page of a section.
+         *
+         * @param page The page within the section
+         * @return The record count
+         */
+        int recordsOn(int page) {
+            return (int) Math.min(RECORDS_PER_PAGE, count - (long) page * RECORDS_PER_PAGE);
+        }
+
+        /**
+         * Fills a buffer from a file position. The last page of a section may
+         * be shorter than the buffer only if the file ends there.
+         *
+         * @param buffer   The buffer to fill
+         * @param position The file position
+         * @throws IOException if reading fails or the file ends first
+         */
+        void read(ByteBuffer buffer, long position) throws IOException {
+            long at = position;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, at);
+                if (read < 0) {
+                    throw new IOException("Truncated history run: " + file);
+                }
+                at += read;
+            }
+        }
+    }
+
+    /**
+     * Sequential reader over one section of a run, used when merging runs.
+     */
+    private static final class SectionReader {
+        private final Run run;
+        private final int section;
+        private final ByteBuffer buffer;
+        private final long[] current;
+        private int page;
+        private int record;
+
+        /**
+         * Constructor to create a SectionReader object before the first record.
+         *
+         * @param run     The run
+         * @param section BY_DOCTOR or BY_PATIENT
+         */
+        SectionReader(Run run, int section) {
+            this.run = run;
+            this.section = section;
+            this.buffer = ByteBuffer.allocate(PAGE_SIZE);
+            this.current = new long[FIELDS];
+            this.page = -1;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return true if there is a record, false at the end of the section
+         * @throws IOException if a page cannot be read
+         */
+        boolean advance() throws IOException {
+            record++;
+            if (page < 0 || record == run.recordsOn(page)) {
+                if (page + 1 == run.pages) {
+                    return false;
+                }
+                page++;
+                record = 0;
+                buffer.clear();
+                buffer.limit(run.recordsOn(page) * RECORD_SIZE);
+                run.read(buffer, (1 + (long) section * run.pages + page) * PAGE_SIZE);
+            }
+            int offset = record * RECORD_SIZE;
+            current[ID] = buffer.getLong(offset);
+            current[PATIENT_ID] = buffer.getLong(offset + Long.BYTES);
+            current[DOCTOR_ID] = buffer.getLong(offset + 2 * Long.BYTES);
+            current[START_MINUTE] = buffer.getLong(offset + 3 * Long.BYTES);
+            current[DURATION] = buffer.getInt(offset + 4 * Long.BYTES);
+            current[STATUS] = buffer.getInt(offset + 4 * Long.BYTES + Integer.BYTES);
+            return true;
+        }
+    }
+
+    /**
+     * One appointment read from the history.
+     */
+    public static final class Entry {
+        private final long id;
+        private final long patientId;
+        private final long doctorId;
+        private final long startMinute;
+        private final int durationMinutes;
+        private final OffHeapAppointmentStore.Status status;
+
+        /**
+         * Constructor to create an Entry object.
+         *
+         * @param id              The appointment ID
+         * @param patientId       The patient ID
+         * @param doctorId        The doctor ID
+         * @param startMinute     The start in minutes since the epoch
+         * @param durationMinutes The length in minutes
+         * @param status          The status
+         */
+        private Entry(long id, long patientId, long doctorId, long startMinute, int durationMinutes,
+                      OffHeapAppointmentStore.Status status) {
+            this.id = id;
+            this.patientId = patientId;
+            this.doctorId = doctorId;
+            this.startMinute = startMinute;
+            this.durationMinutes = durationMinutes;
+            this.status = status;
+        }
+
+        /**
+         * Gets the appointment ID.
+         *
+         * @return The appointment ID
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Gets the patient ID.
+         *
+         * @return The patient ID
+         */
+        public long getPatientId() {
+            return patientId;
+        }
+
+        /**
+         * Gets the doctor ID.
+         *
+         * @return The doctor ID
+         */
+        public long getDoctorId() {
+            return doctorId;
+        }
+
+        /**
+         * Gets the start of the appointment.
+         *
+         * @return The start in minutes since the epoch
+         */
+        public long getStartMinute() {
+            return startMinute;
+        }
+
+        /**
+         * Gets the length of the appointment.
+         *
+         * @return The length in minutes
+         */
+        public int getDurationMinutes() {
+            return durationMinutes;
+        }
+
+        /**
+         * Gets the status of the appointment.
+         *
+         * @return The status
+         */
+        public OffHeapAppointmentStore.Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Creates an Appointment from the entry, with its date as YYYY-MM-DD
+         * and its time as HH:mm.
+         *
+         * @param system The system to look up the patient and doctor in
+         * @return The appointment, or null if the patient or doctor is not registered
+         */
+        public Appointment toAppointment(HospitalManagementSystem system) {
+            return OffHeapAppointmentStore.toAppointment(system, id, patientId, doctorId, startMinute,
+                durationMinutes);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package hospital.management;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Working hours of a doctor, as one bitmap per day with one bit per minute.
+ * <p>
+ * A calendar has a weekly template of shifts, such as Monday to Wednesday
+ * from 9:00 to 17:00, and exceptions for single dates that replace the
+ * template on that date, such as a day off or an extra evening shift. Each
+ * day is 23 64-bit words, the same layout the booking index uses, so
+ * checking whether an appointment falls inside the working hours is a mask
+ * test on at most two words per day, after a binary search of the dated
+ * exceptions. Shift times accept the same formats as appointment times and
+ * the end of a shift is exclusive; a shift ending at or before its start
+ * runs past midnight into the next day.
+ * <p>
+ * Calendars are immutable: every change returns a new calendar, so a
+ * doctor's calendar can be read while it is being replaced.
+ */
+public final class AvailabilityCalendar {
+    private static final int MINUTES_PER_DAY = DoctorSlotIndex.MINUTES_PER_DAY;
+    private static final int WORDS_PER_DAY = DoctorSlotIndex.WORDS_PER_DAY;
+    private static final int DAYS_PER_WEEK = 7;
+    private static final AvailabilityCalendar EMPTY =
+        new AvailabilityCalendar(new long[DAYS_PER_WEEK][WORDS_PER_DAY], Collections.emptyMap());
+
+    /** Bitmaps of the weekly template, indexed from Monday. */
+    private final long[][] template;
+    /** Epoch day to the bitmap replacing the template on that date. */
+    private final Map<Long, long[]> exceptions;
+    /** Epoch days of the exceptions in ascending order, searched when booking. */
+    private final long[] exceptionDays;
+    /** Bitmaps of the exceptions, in the order of exceptionDays. */
+    private final long[][] exceptionBits;
+
+    /**
+     * Constructor to create an AvailabilityCalendar object.
+     *
+     * @param template   The weekly template bitmaps, which are not copied
+     * @param exceptions The exception bitmaps, which are not copied
+     */
+    private AvailabilityCalendar(long[][] template, Map<Long, long[]> exceptions) {
+        this.template = template;
+        this.exceptions = exceptions;
+        this.exceptionDays = new long[exceptions.size()];
+        this.exceptionBits = new long[exceptions.size()][];
+        int i = 0;
+        for (Map.Entry<Long, long[]> exception : new TreeMap<>(exceptions).entrySet()) {
+            exceptionDays[i] = exception.getKey();
+            exceptionBits[i++] = exception.getValue();
+        }
+    }
+
+    /**
+     * Gets a calendar with no working hours at all.
+     *
+     * @return The empty calendar
+     */
+    public static AvailabilityCalendar empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Adds a weekly shift on a range of days.
+     *
+     * @param firstDay The first day of the week the shift is worked
+     * @param lastDay  The last day of the week the shift is worked, which may
+     *                 come before firstDay to wrap around the weekend
+     * @param start    The start time of the shift
+     * @param end      The end time of the shift, exclusive
+     * @return The new calendar
+     * @throws IllegalArgumentException if a time cannot be parsed
+     */
+    public AvailabilityCalendar withWeeklyShift(DayOfWeek firstDay, DayOfWeek lastDay, String start, String end) {
+        int from = Appointment.toMinuteOfDay(start);
+        int to = Appointment.toMinuteOfDay(end);
+        long[][] days = copyTemplate();
+        int count = Math.floorMod(lastDay.ordinal() - firstDay.ordinal(), DAYS_PER_WEEK) + 1;
+        for (int i = 0; i < count; i++) {
+            int day = (firstDay.ordinal() + i) % DAYS_PER_WEEK;
+            if (from < to) {
+                set(days[day], from, to, true);
+            } else {
+                set(days[day], from, MINUTES_PER_DAY, true);
+                set(days[(day + 1) % DAYS_PER_WEEK], 0, to, true);
+            }
+        }
+        return new AvailabilityCalendar(days, exceptions);
+    }
+
+    /**
+     * Adds a weekly shift on one day.
+     *
+     * @param day   The day of the week the shift is worked
+     * @param start The start time of the shift
+     * @param end   The end time of the shift, exclusive
+     * @return The new calendar
+     * @throws IllegalArgumentException if a time cannot be parsed
+     */
+    public AvailabilityCalendar withWeeklyShift(DayOfWeek day, String start, String end) {
+        return withWeeklyShift(day, day, start, end);
+    }
+
+    /**
+     * Adds an extra shift on one date, on top of that date's usual hours.
+     *
+     * @param date  The date (YYYY-MM-DD)
+     * @param start The start time of the shift
+     * @param end   The end time of the shift, exclusive
+     * @return The new calendar
+     * @throws IllegalArgumentException if the date or a time cannot be parsed
+     */
+    public AvailabilityCalendar withShift(String date, String start, String end) {
+        return change(date, start, end, true);
+    }
+
+    /**
+     * Removes working hours on one date, such as an afternoon off.
+     *
+     * @param date  The date (YYYY-MM-DD)
+     * @param start The start of the time off
+     * @param end   The end of the time off, exclusive
+     * @return The new calendar
+     * @throws IllegalArgumentException if the date or a time cannot be parsed
+     */
+    public AvailabilityCalendar withoutShift(String date, String start, String end) {
+        return change(date, start, end, false);
+    }
+
+    /**
+     * Removes all working hours on one date.
+     *
+     * @param date The date (YYYY-MM-DD)
+     * @return The new calendar
+     * @throws IllegalArgumentException if the date cannot be parsed
+     */
+    public AvailabilityCalendar withDayOff(String date) {
+        Map<Long, long[]> changed = new HashMap<>(exceptions);
+        changed.put(Appointment.toEpochDay(date), new long[WORDS_PER_DAY]);
+        return new AvailabilityCalendar(template, Collections.unmodifiableMap(changed));
+    }
+
+    /**
+     * Removes the exception for one date, so the weekly template applies again.
+     *
+     * @param date The date (YYYY-MM-DD)
+     * @return The new calendar
+     * @throws IllegalArgumentException if the date cannot be parsed
+     */
+    public AvailabilityCalendar withoutException(String date) {
+        long day = Appointment.toEpochDay(date);
+        if (!exceptions.containsKey(day)) {
+            return this;
+        }
+        Map<Long, long[]> changed = new HashMap<>(exceptions);
+        changed.remove(day);
+        return new AvailabilityCalendar(template, Collections.unmodifiableMap(changed));
+    }
+
+    /**
+     * Checks whether every minute of an interval is within working hours.
+     *
+     * @param startMinute     The start of the interval in epoch minutes
+     * @param durationMinutes The length of the interval in minutes
+     * @return true if the whole interval is worked, false otherwise
+     */
+    public boolean isAvailable(long startMinute, int durationMinutes) {
+        long end = startMinute + durationMinutes;
+        for (long m = startMinute; m < end; ) {
+            long day = Math.floorDiv(m, MINUTES_PER_DAY);
+            int minute = (int) (m - day * MINUTES_PER_DAY);
+            int span = DoctorSlotIndex.span(minute, end - m);
+            long mask = DoctorSlotIndex.mask(minute, span);
+            if ((dayBits(day)[minute >>> 6] & mask) != mask) {
+                return false;
+            }
+            m += span;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an appointment is within working hours.
+     *
+     * @param appointment The appointment to check
+     * @return true if the whole appointment is worked, false otherwise
+     */
+    public boolean isAvailable(Appointment appointment) {
+        return isAvailable(appointment.getStartMinute(), appointment.getDurationMinutes());
+    }
+
+    /**
+     * Finds the first working minute at or after a minute, skipping
+     * non-working words and days without testing each minute.
+     *
+     * @param minute The minute to search from, in epoch minutes
+     * @param limit  The minute to stop searching at, exclusive
+     * @return The first working minute before limit, or -1 if there is none
+     */
+    long nextWorkingMinute(long minute, long limit) {
+        long m = minute;
+        while (m < limit) {
+            long day = Math.floorDiv(m, MINUTES_PER_DAY);
+            int from = (int) (m - day * MINUTES_PER_DAY);
+            long[] bits = dayBits(day);
+            for (int word = from >>> 6; word < WORDS_PER_DAY; word++) {
+                long working = word == from >>> 6 ? bits[word] & (-1L << (from & 63)) : bits[word];
+                if (working != 0) {
+                    long found = day * MINUTES_PER_DAY + word * 64L + Long.numberOfTrailingZeros(working);
+                    return found < limit ? found : -1;
+                }
+            }
+            m = (day + 1) * MINUTES_PER_DAY;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the working minutes of one date. The array must not be changed.
+     *
+     * @param epochDay The date in days since the epoch
+     * @return The bitmap of 23 words, one bit per minute of the day
+     */
+    long[] dayBits(long epochDay) {
+        if (exceptionDays.length > 0) {
+            int index = Arrays.binarySearch(exceptionDays, epochDay);
+            if (index >= 0) {
+                return exceptionBits[index];
+            }
+        }
+        return template[dayOfWeek(epochDay)];
+    }
+
+    /**
+     * Encodes the calendar as strings: the seven template days from Monday,
+     * then the epoch day and hours of each exception in date order. Hours
+     * are comma-separated start-end pairs of minutes of the day, end exclusive.
+     *
+     * @return The encoded fields
+     */
+    List<String> encode() {
+        List<String> fields = new ArrayList<>();
+        for (long[] day : template) {
+            fields.add(encodeDay(day));
+        }
+        for (int i = 0; i < exceptionDays.length; i++) {
+            fields.add(String.valueOf(exceptionDays[i]));
+            fields.add(encodeDay(exceptionBits[i]));
+        }
+        return fields;
+    }
+
+    /**
+     * Decodes a calendar written by encode.
+     *
+     * @param fields The encoded fields
+     * @return The calendar
+     * @throws IllegalArgumentException if the fields are malformed
+     */
+    static AvailabilityCalendar decode(List<String> fields) {
+        if (fields.size() < DAYS_PER_WEEK || (fields.size() - DAYS_PER_WEEK) % 2 != 0) {
+            throw new IllegalArgumentException("Malformed calendar of " + fields.size() + " fields");
+        }
+        long[][] days = new long[DAYS_PER_WEEK][];
+        for (int i = 0; i < DAYS_PER_WEEK; i++) {
+            days[i] = decodeDay(fields.get(i));
+        }
+        Map<Long, long[]> exceptions = new HashMap<>();
+        for (int i = DAYS_PER_WEEK; i < fields.size(); i += 2) {
+            exceptions.put(Long.parseLong(fields.get(i)), decodeDay(fields.get(i + 1)));
+        }
+        return new AvailabilityCalendar(days, Collections.unmodifiableMap(exceptions));
+    }
+
+    /**
+     * Sets or clears working hours on one date, running past midnight into
+     * the next date if the end is not after the start.
+     *
+     * @param date    The date (YYYY-MM-DD)
+     * @param start   The start time
+     * @param end     The end time, exclusive
+     * @param working true to add working hours, false to remove them
+     * @return The new calendar
+     * @throws IllegalArgumentException if the date or a time cannot be parsed
+     */
+    private AvailabilityCalendar change(String date, String start, String end, boolean working) {
+        long day = Appointment.toEpochDay(date);
+        int from = Appointment.toMinuteOfDay(start);
+        int to = Appointment.toMinuteOfDay(end);
+        Map<Long, long[]> changed = new HashMap<>(exceptions);
+        if (from < to) {
+            set(exceptionFor(changed, day), from, to, working);
+        } else {
+            set(exceptionFor(changed, day), from, MINUTES_PER_DAY, working);
+            set(exceptionFor(changed, day + 1), 0, to, working);
+        }
+        return new AvailabilityCalendar(template, Collections.unmodifiableMap(changed));
+    }
+
+    /**
+     * Gets the bitmap of a date in a map of exceptions being changed,
+     * copying the date's current hours into it first.
+     *
+     * @param changed The exceptions of the new calendar
+     * @param day     The date in days since the epoch
+     * @return The bitmap, which may be changed
+     */
+    private long[] exceptionFor(Map<Long, long[]> changed, long day) {
+        long[] bits = changed.get(day);
+        if (bits == null || bits == exceptions.get(day)) {
+            bits = dayBits(day).clone();
+            changed.put(day, bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Copies the weekly template so it can be changed.
+     *
+     * @return The copy
+     */
+    private long[][] copyTemplate() {
+        long[][] days = new long[DAYS_PER_WEEK][];
+        for (int i = 0; i < DAYS_PER_WEEK; i++) {
+            days[i] = template[i].clone();
+        }
+        return days;
+    }
+
+    /**
+     * Sets or clears the bits of a range of minutes in one day.
+     *
+     * @param bits    The bitmap of the day
+     * @param from    The first minute of the day
+     * @param to      The minute after the last one, at most the length of a day
+     * @param working true to set the bits, false to clear them
+     */
+    private static void set(long[] bits, int from, int to, boolean working) {
+        for (int m = from; m < to; ) {
+            int span = DoctorSlotIndex.span(m, to - m);
+            long mask = DoctorSlotIndex.mask(m, span);
+            bits[m >>> 6] = working ? bits[m >>> 6] | mask : bits[m >>> 6] & ~mask;
+            m += span;
+        }
+    }
+
+    /**
+     * Gets the day of the week of a date, counting from Monday as 0.
+     *
+     * @param epochDay The date in days since the epoch
+     * @return The day of the week, from 0 to 6
+     */
+    private static int dayOfWeek(long epochDay) {
+        return Math.floorMod(epochDay + 3, DAYS_PER_WEEK);
+    }
+
+    /**
+     * Encodes the working minutes of one day as start-end pairs.
+     *
+     * @param bits The bitmap of the day
+     * @return The comma-separated intervals, or an empty string for none
+     */
+    private static String encodeDay(long[] bits) {
+        StringBuilder intervals = new StringBuilder();
+        int m = 0;
+        while (m < MINUTES_PER_DAY) {
+            if ((bits[m >>> 6] & (1L << (m & 63))) == 0) {
+                m++;
+                continue;
+            }
+            int from = m;
+            while (m < MINUTES_PER_DAY && (bits[m >>> 6] & (1L << (m & 63))) != 0) {
+                m++;
+            }
+            if (intervals.length() > 0) {
+                intervals.append(',');
+            }
+            intervals.append(from).append('-').append(m);
+        }
+        return intervals.toString();
+    }
+
+    /**
+     * Decodes the working minutes of one day written by encodeDay.
+     *
+     * @param intervals The comma-separated intervals
+     * @return The bitmap of the day
+     * @throws IllegalArgumentException if an interval is malformed
+     */
+    private static long[] decodeDay(String intervals) {
+        long[] bits = new long[WORDS_PER_DAY];
+        if (intervals.isEmpty()) {
+            return bits;
+        }
+        for (String interval : intervals.split(",")) {
+            int dash = interval.indexOf('-');
+            if (dash < 0) {
+                throw new IllegalArgumentException("Invalid working hours: " + interval);
+            }
+            int from = Integer.parseInt(interval.substring(0, dash));
+            int to = Integer.parseInt(interval.substring(dash + 1));
+            if (from < 0 || to > MINUTES_PER_DAY || from >= to) {
+                throw new IllegalArgumentException("Invalid working hours: " + interval);
+            }
+            set(bits, from, to, true);
+        }
+        return bits;
+    }
+
+    /**
+     * Gets the calendar as text, listing the weekly hours and the exceptions.
+     *
+     * @return The text form of the calendar
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("AvailabilityCalendar{");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            text.append(day).append('=').append(encodeDay(template[day.ordinal()])).append("; ");
+        }
+        for (int i = 0; i < exceptionDays.length; i++) {
+            text.append(LocalDate.ofEpochDay(exceptionDays[i])).append('=')
+                .append(encodeDay(exceptionBits[i])).append("; ");
+        }
+        text.setLength(text.length() - 2);
+        return text.append('}').toString();
+    }
+}
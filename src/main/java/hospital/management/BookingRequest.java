@@ -0,0 +1,87 @@
+package hospital.management;
+
+/**
+ * Request to book one appointment, used for batch booking.
+ * Contains the patient, the doctor and the requested date, time and length.
+ */
+public class BookingRequest {
+    private final Patient patient;
+    private final Doctor doctor;
+    private final String date;
+    private final String time;
+    private final int durationMinutes;
+
+    /**
+     * Constructor to create a BookingRequest with the default appointment length.
+     *
+     * @param patient The patient booking the appointment
+     * @param doctor  The doctor for the appointment
+     * @param date    The date of the appointment (YYYY-MM-DD)
+     * @param time    The time of the appointment (e.g. 10:00 AM)
+     */
+    public BookingRequest(Patient patient, Doctor doctor, String date, String time) {
+        this(patient, doctor, date, time, Appointment.DEFAULT_DURATION_MINUTES);
+    }
+
+    /**
+     * Constructor to create a BookingRequest object.
+     *
+     * @param patient         The patient booking the appointment
+     * @param doctor          The doctor for the appointment
+     * @param date            The date of the appointment (YYYY-MM-DD)
+     * @param time            The time of the appointment (e.g. 10:00 AM)
+     * @param durationMinutes The length of the appointment in minutes
+     */
+    public BookingRequest(Patient patient, Doctor doctor, String date, String time, int durationMinutes) {
+        this.patient = patient;
+        this.doctor = doctor;
+        this.date = date;
+        this.time = time;
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Gets the patient.
+     *
+     * @return The patient
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * Gets the doctor.
+     *
+     * @return The doctor
+     */
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    /**
+     * Gets the requested date.
+     *
+     * @return The date
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the requested time.
+     *
+     * @return The time
+     */
+    public String getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the requested length of the appointment.
+     *
+     * @return The duration in minutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+}
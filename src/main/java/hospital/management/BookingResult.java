@@ -0,0 +1,109 @@
+package hospital.management;
+
+/**
+ * Result of an attempt to book an appointment.
+ * Holds the outcome and, when the booking succeeded, the new appointment.
+ */
+public class BookingResult {
+    /**
+     * Possible outcomes of a booking attempt.
+     */
+    public enum Status {
+        /** The appointment was booked. */
+        BOOKED,
+        /**
+         * The doctor already has an appointment overlapping the slot, or,
+         * rarely, a booking racing for an overlapping slot held part of it.
+         */
+        SLOT_TAKEN,
+        /** The doctor is not available. */
+        DOCTOR_UNAVAILABLE,
+        /** The patient or doctor is missing or not registered. */
+        NOT_REGISTERED,
+        /** The date or time could not be parsed. */
+        INVALID_TIME,
+        /** The booking was valid, but its all-or-nothing batch was rolled back. */
+        NOT_COMMITTED
+    }
+
+    private static final BookingResult SLOT_TAKEN = new BookingResult(Status.SLOT_TAKEN, null);
+    private static final BookingResult DOCTOR_UNAVAILABLE = new BookingResult(Status.DOCTOR_UNAVAILABLE, null);
+    private static final BookingResult NOT_REGISTERED = new BookingResult(Status.NOT_REGISTERED, null);
+    private static final BookingResult INVALID_TIME = new BookingResult(Status.INVALID_TIME, null);
+    private static final BookingResult NOT_COMMITTED = new BookingResult(Status.NOT_COMMITTED, null);
+
+    private final Status status;
+    private final Appointment appointment;
+
+    /**
+     * Constructor to create a BookingResult object.
+     *
+     * @param status      The outcome of the booking
+     * @param appointment The booked appointment, or null if booking failed
+     */
+    private BookingResult(Status status, Appointment appointment) {
+        this.status = status;
+        this.appointment = appointment;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param appointment The booked appointment
+     * @return The result
+     */
+    static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Status.BOOKED, appointment);
+    }
+
+    /**
+     * Gets the shared result for a failed booking.
+     *
+     * @param status The reason the booking failed
+     * @return The result
+     * @throws IllegalArgumentException if the status is BOOKED
+     */
+    static BookingResult failed(Status status) {
+        switch (status) {
+            case SLOT_TAKEN:
+                return SLOT_TAKEN;
+            case DOCTOR_UNAVAILABLE:
+                return DOCTOR_UNAVAILABLE;
+            case NOT_REGISTERED:
+                return NOT_REGISTERED;
+            case INVALID_TIME:
+                return INVALID_TIME;
+            case NOT_COMMITTED:
+                return NOT_COMMITTED;
+            default:
+                throw new IllegalArgumentException("Not a failure: " + status);
+        }
+    }
+
+    /**
+     * Gets the outcome of the booking.
+     *
+     * @return The status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the booked appointment.
+     *
+     * @return The appointment, or null if booking failed
+     */
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    /**
+     * Checks whether the booking succeeded.
+     *
+     * @return true if the appointment was booked, false otherwise
+     */
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+}
@@ -0,0 +1,432 @@
+package hospital.management;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Streaming importer for patients, doctors and staff from CSV or JSON Lines files.
+ * <p>
+ * The file is read line by line and cut into chunks. Chunks are parsed and
+ * validated in parallel, and registered in file order in one batch per
+ * chunk, so the journal is waited on once per chunk. At most twice as many
+ * chunks as threads are in flight, which bounds memory use regardless of
+ * the file size.
+ * <p>
+ * Each row has the fields name, age and contactDetails, plus medicalHistory
+ * and diagnosis for patients, specialization and availability for doctors,
+ * and role and department for staff. A CSV file starts with a header line
+ * naming its columns; a JSON Lines file holds one flat object per line.
+ * Blank lines are ignored.
+ */
+public class BulkImporter {
+    /**
+     * Kinds of person the importer registers.
+     */
+    public enum Kind {
+        /** Rows are patients. */
+        PATIENT,
+        /** Rows are doctors. */
+        DOCTOR,
+        /** Rows are staff members. */
+        STAFF
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 5000;
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_AGE = 150;
+
+    private final HospitalManagementSystem system;
+    private final Staff registrar;
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructor to create a BulkImporter object using one thread per processor.
+     *
+     * @param system    The system to import into
+     * @param registrar The staff member registering patients and doctors
+     */
+    public BulkImporter(HospitalManagementSystem system, Staff registrar) {
+        this(system, registrar, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor to create a BulkImporter object.
+     *
+     * @param system    The system to import into
+     * @param registrar The staff member registering patients and doctors
+     * @param threads   The number of parsing threads
+     * @param chunkSize The number of lines parsed and registered together
+     * @throws IllegalArgumentException if threads or chunkSize is not positive
+     */
+    public BulkImporter(HospitalManagementSystem system, Staff registrar, int threads, int chunkSize) {
+        if (threads <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Threads and chunk size must be positive");
+        }
+        this.system = system;
+        this.registrar = registrar;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a file, choosing the format from its extension.
+     * Files ending in .jsonl or .json are read as JSON Lines, others as CSV.
+     *
+     * @param file The file to import
+     * @param kind The kind of person in the file
+     * @return The import report
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importFile(Path file, Kind kind) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        DataFormat format = name.endsWith(".jsonl") || name.endsWith(".json") ? DataFormat.JSONL : DataFormat.CSV;
+        return importFile(file, kind, format);
+    }
+
+    /**
+     * Imports a UTF-8 file.
+     *
+     * @param file   The file to import
+     * @param kind   The kind of person in the file
+     * @param format The format of the file
+     * @return The import report
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importFile(Path file, Kind kind, DataFormat format) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, kind, format);
+        }
+    }
+
+    /**
+     * Imports rows from a reader.
+     *
+     * @param reader The source of rows
+     * @param kind   The kind of person in the rows
+     * @param format The format of the rows
+     * @return The import report
+     * @throws IOException if the reader fails or a CSV header is missing
+     * @throws IllegalStateException if patients or doctors are imported and
+     *                               the registrar is not a registered staff member
+     */
+    public ImportReport importFrom(Reader reader, Kind kind, DataFormat format) throws IOException {
+        switch (kind) {
+            case PATIENT:
+                requireRegistrar();
+                return run(reader, format, BulkImporter::toPatient,
+                    batch -> system.registerPatients(registrar, batch));
+            case DOCTOR:
+                requireRegistrar();
+                return run(reader, format, BulkImporter::toDoctor,
+                    batch -> system.registerDoctors(registrar, batch));
+            default:
+                return run(reader, format, BulkImporter::toStaff, system::registerStaffMembers);
+        }
+    }
+
+    /**
+     * Checks that the registrar may register patients and doctors.
+     *
+     * @throws IllegalStateException if the registrar is not a registered staff member
+     */
+    private void requireRegistrar() {
+        if (registrar == null || system.findStaffById(registrar.getId()) != registrar) {
+            throw new IllegalStateException("Registrar is not a registered staff member");
+        }
+    }
+
+    /**
+     * Reads, parses and registers all rows.
+     *
+     * @param <T>      The type of person created
+     * @param reader   The source of rows
+     * @param format   The format of the rows
+     * @param convert  Creates a person from a row, throwing IllegalArgumentException if invalid
+     * @param register Registers a batch and returns how many were registered
+     * @return The import report
+     * @throws IOException if the reader fails or a CSV header is missing
+     */
+    private <T extends Person> ImportReport run(Reader reader, DataFormat format,
+                                                Function<Map<String, String>, T> convert,
+                                                Function<List<T>, Integer> register) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader lines = reader instanceof BufferedReader
+            ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        long lineNumber = 0;
+        List<String> header = null;
+        if (format == DataFormat.CSV) {
+            String first;
+            do {
+                first = lines.readLine();
+                lineNumber++;
+                if (first == null) {
+                    throw new IOException("Missing CSV header");
+                }
+            } while (first.isBlank());
+            if (first.startsWith("\uFEFF")) {
+                first = first.substring(1);
+            }
+            header = new ArrayList<>();
+            for (String column : Csv.parseLine(first)) {
+                header.add(column.trim());
+            }
+        }
+
+        Tally tally = new Tally();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<Chunk<T>>> inFlight = new ArrayDeque<>();
+            List<String> chunk = new ArrayList<>(chunkSize);
+            long chunkStart = lineNumber + 1;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    inFlight.add(submit(pool, chunk, chunkStart, format, header, convert));
+                    chunk = new ArrayList<>(chunkSize);
+                    chunkStart = lineNumber + 1;
+                    if (inFlight.size() >= threads * 2) {
+                        tally.add(await(inFlight.poll()), register);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(pool, chunk, chunkStart, format, header, convert));
+            }
+            while (!inFlight.isEmpty()) {
+                tally.add(await(inFlight.poll()), register);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new ImportReport(tally.rows, tally.imported, tally.invalid, tally.rows - tally.imported - tally.invalid,
+            tally.errors, System.nanoTime() - start, tally.peakHeap);
+    }
+
+    /**
+     * Submits a chunk of lines for parsing.
+     *
+     * @param <T>       The type of person created
+     * @param pool      The parsing threads
+     * @param lines     The lines of the chunk
+     * @param firstLine The line number of the first line
+     * @param format    The format of the lines
+     * @param header    The CSV column names, or null for JSON Lines
+     * @param convert   Creates a person from a row
+     * @return The pending parsed chunk
+     */
+    private static <T extends Person> Future<Chunk<T>> submit(ExecutorService pool, List<String> lines,
+                                                              long firstLine, DataFormat format, List<String> header,
+                                                              Function<Map<String, String>, T> convert) {
+        return pool.submit(() -> {
+            Chunk<T> parsed = new Chunk<>();
+            long lineNumber = firstLine;
+            for (String line : lines) {
+                if (!line.isBlank()) {
+                    parsed.rows++;
+                    try {
+                        Map<String, String> row = format == DataFormat.CSV
+                            ? toRow(header, Csv.parseLine(line)) : Json.parseObject(line);
+                        parsed.people.add(convert.apply(row));
+                    } catch (IllegalArgumentException e) {
+                        parsed.errors.add("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                lineNumber++;
+            }
+            return parsed;
+        });
+    }
+
+    /**
+     * Waits for a chunk to be parsed.
+     *
+     * @param <T>    The type of person created
+     * @param future The pending chunk
+     * @return The parsed chunk
+     * @throws IOException if parsing failed unexpectedly or was interrupted
+     */
+    private static <T extends Person> Chunk<T> await(Future<Chunk<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Import failed", e.getCause());
+        }
+    }
+
+    /**
+     * Pairs CSV fields with their column names.
+     *
+     * @param header The column names
+     * @param fields The fields of a line
+     * @return The row
+     * @throws IllegalArgumentException if the number of fields differs from the header
+     */
+    private static Map<String, String> toRow(List<String> header, List<String> fields) {
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " fields but found " + fields.size());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            row.put(header.get(i), fields.get(i));
+        }
+        return row;
+    }
+
+    /**
+     * Creates a patient from a row.
+     *
+     * @param row The row
+     * @return The patient
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Patient toPatient(Map<String, String> row) {
+        return new Patient(required(row, "name"), age(row), required(row, "contactDetails"),
+            optional(row, "medicalHistory"), optional(row, "diagnosis"));
+    }
+
+    /**
+     * Creates a doctor from a row.
+     *
+     * @param row The row
+     * @return The doctor
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Doctor toDoctor(Map<String, String> row) {
+        String availability = required(row, "availability");
+        if (!availability.equalsIgnoreCase("true") && !availability.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("availability must be true or false: " + availability);
+        }
+        return new Doctor(required(row, "name"), age(row), required(row, "contactDetails"),
+            required(row, "specialization"), Boolean.parseBoolean(availability));
+    }
+
+    /**
+     * Creates a staff member from a row.
+     *
+     * @param row The row
+     * @return The staff member
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Staff toStaff(Map<String, String> row) {
+        return new Staff(required(row, "name"), age(row), required(row, "contactDetails"),
+            required(row, "role"), required(row, "department"));
+    }
+
+    /**
+     * Gets a field that must be present and not blank.
+     *
+     * @param row   The row
+     * @param field The field name
+     * @return The trimmed value
+     * @throws IllegalArgumentException if the field is missing or blank
+     */
+    private static String required(Map<String, String> row, String field) {
+        String value = row.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value.trim();
+    }
+
+    /**
+     * Gets a field that may be missing.
+     *
+     * @param row   The row
+     * @param field The field name
+     * @return The trimmed value, or an empty string if missing
+     */
+    private static String optional(Map<String, String> row, String field) {
+        String value = row.get(field);
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * Gets and checks the age field.
+     *
+     * @param row The row
+     * @return The age
+     * @throws IllegalArgumentException if the age is missing, not a number or out of range
+     */
+    private static int age(Map<String, String> row) {
+        String value = required(row, "age");
+        int age;
+        try {
+            age = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("age is not a number: " + value);
+        }
+        if (age < 0 || age > MAX_AGE) {
+            throw new IllegalArgumentException("age out of range: " + age);
+        }
+        return age;
+    }
+
+    /**
+     * Parsed and validated rows of one chunk.
+     *
+     * @param <T> The type of person created
+     */
+    private static class Chunk<T> {
+        private final List<T> people = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private int rows;
+    }
+
+    /**
+     * Running totals of an import, updated by the reading thread only.
+     */
+    private static class Tally {
+        private final List<String> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long invalid;
+        private long peakHeap;
+
+        /**
+         * Registers a parsed chunk and adds its counts.
+         *
+         * @param <T>      The type of person created
+         * @param chunk    The parsed chunk
+         * @param register Registers a batch and returns how many were registered
+         */
+        <T> void add(Chunk<T> chunk, Function<List<T>, Integer> register) {
+            rows += chunk.rows;
+            invalid += chunk.errors.size();
+            for (String error : chunk.errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(error);
+                }
+            }
+            if (!chunk.people.isEmpty()) {
+                imported += register.apply(chunk.people);
+            }
+            Runtime runtime = Runtime.getRuntime();
+            peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package hospital.management;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered feed of the changes made to a hospital management system, for
+ * downstream consumers that only want to process what changed.
+ * <p>
+ * The feed reads the segment files of the system's journal, so every entry
+ * is a change that was acknowledged, its sequence number is the journal's,
+ * and its type says what kind of change it was. A consumer reads from any
+ * sequence number onwards and only ever sees durable entries, so the feed
+ * never shows a change that could be lost in a crash. To start reading
+ * near a sequence number rather than at the start of its segment, the feed
+ * remembers the file position of every 256th entry it has read.
+ * <p>
+ * Named consumers can commit the last sequence number they processed. The
+ * committed offsets are saved next to the journal, and the journal keeps
+ * every segment a committed consumer still needs when snapshots delete old
+ * segments. Entries that no committed consumer needs may be deleted. Only
+ * one ChangeFeed should be created per journal.
+ */
+public class ChangeFeed {
+    private static final String OFFSETS_FILE = "changefeed.offsets";
+    private static final int INDEX_INTERVAL = 256;
+
+    private final Journal journal;
+    private final Path directory;
+    /** Sequence number to first sequence number of its segment and file position of its frame. */
+    private final ConcurrentSkipListMap<Long, long[]> positions;
+    private final Map<String, Long> offsets;
+
+    /**
+     * Constructor to create a ChangeFeed over the journal of a system.
+     *
+     * @param system The system whose changes are read
+     * @throws IOException if the committed offsets cannot be read
+     * @throws IllegalStateException if the system has no journal
+     */
+    public ChangeFeed(HospitalManagementSystem system) throws IOException {
+        this(requireJournal(system));
+    }
+
+    /**
+     * Constructor to create a ChangeFeed over a journal.
+     *
+     * @param journal The journal whose entries are read
+     * @throws IOException if the committed offsets cannot be read
+     */
+    public ChangeFeed(Journal journal) throws IOException {
+        this.journal = journal;
+        this.directory = journal.getDirectory();
+        this.positions = new ConcurrentSkipListMap<>();
+        this.offsets = new TreeMap<>();
+        Path file = directory.resolve(OFFSETS_FILE);
+        if (Files.exists(file)) {
+            Properties saved = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                saved.load(reader);
+            }
+            for (String consumer : saved.stringPropertyNames()) {
+                offsets.put(consumer, Long.parseLong(saved.getProperty(consumer)));
+            }
+        }
+        updateRetention();
+    }
+
+    /**
+     * Reads entries from a sequence number onwards, in order.
+     *
+     * @param fromSequence The first sequence number to return
+     * @param maxEntries   The most entries to return
+     * @return The entries, or an empty list if there are no durable entries from fromSequence yet
+     * @throws IOException if a segment cannot be read
+     * @throws IllegalArgumentException if fromSequence is less than 1, maxEntries is less
+     *                                  than 1, or the entries from fromSequence were deleted
+     */
+    public List<JournalEntry> read(long fromSequence, int maxEntries) throws IOException {
+        if (fromSequence < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Sequence and entry count must be positive");
+        }
+        List<JournalEntry> entries = new ArrayList<>();
+        long durable = journal.getDurableSequence();
+        if (fromSequence > durable) {
+            return entries;
+        }
+        List<Path> segments = Journal.listSegments(directory);
+        int segment = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            if (Journal.firstSequenceOf(segments.get(i)) <= fromSequence) {
+                segment = i;
+            }
+        }
+        if (segment < 0) {
+            throw new IllegalArgumentException("Change feed no longer holds sequence " + fromSequence
+                + "; the earliest is " + getFirstSequence());
+        }
+        positions.headMap(Journal.firstSequenceOf(segments.get(0))).clear();
+        long position = 0;
+        Map.Entry<Long, long[]> known = positions.floorEntry(fromSequence);
+        if (known != null && known.getValue()[0] == Journal.firstSequenceOf(segments.get(segment))) {
+            position = known.getValue()[1];
+        }
+        for (int i = segment; i < segments.size(); i++) {
+            if (!readSegment(segments.get(i), position, fromSequence, durable, maxEntries, entries)) {
+                break;
+            }
+            position = 0;
+        }
+        return entries;
+    }
+
+    /**
+     * Reads entries from a sequence number onwards, waiting for them if
+     * there are none yet.
+     *
+     * @param fromSequence The first sequence number to return
+     * @param maxEntries   The most entries to return
+     * @param timeout      The longest time to wait for an entry
+     * @param unit         The unit of the timeout
+     * @return The entries, or an empty list if none became durable in time
+     * @throws IOException if a segment cannot be read
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IllegalArgumentException if fromSequence is less than 1, maxEntries is less
+     *                                  than 1, or the entries from fromSequence were deleted
+     */
+    public List<JournalEntry> poll(long fromSequence, int maxEntries, long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        List<JournalEntry> entries = read(fromSequence, maxEntries);
+        if (entries.isEmpty() && journal.waitForDurable(fromSequence, timeout, unit)) {
+            entries = read(fromSequence, maxEntries);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the sequence number of the last durable entry.
+     *
+     * @return The last sequence number, or 0 if nothing was written yet
+     */
+    public long getLastSequence() {
+        return journal.getDurableSequence();
+    }
+
+    /**
+     * Gets the earliest sequence number the feed still holds.
+     *
+     * @return The first sequence number of the oldest segment
+     * @throws IOException if the journal directory cannot be listed
+     */
+    public long getFirstSequence() throws IOException {
+        List<Path> segments = Journal.listSegments(directory);
+        return segments.isEmpty() ? getLastSequence() + 1 : Journal.firstSequenceOf(segments.get(0));
+    }
+
+    /**
+     * Records that a consumer has processed every entry up to a sequence
+     * number, so it can resume after it and the entries after it are kept.
+     *
+     * @param consumer The name of the consumer
+     * @param sequence The last sequence number processed
+     * @throws IOException if the offsets cannot be saved
+     * @throws IllegalArgumentException if the name is empty or the sequence is negative
+     */
+    public synchronized void commit(String consumer, long sequence) throws IOException {
+        if (consumer == null || consumer.isEmpty() || sequence < 0) {
+            throw new IllegalArgumentException("Consumer name and sequence are required");
+        }
+        offsets.put(consumer, sequence);
+        saveOffsets();
+    }
+
+    /**
+     * Gets the last sequence number a consumer committed.
+     *
+     * @param consumer The name of the consumer
+     * @return The committed sequence number, or 0 if the consumer never committed
+     */
+    public synchronized long getCommittedSequence(String consumer) {
+        return offsets.getOrDefault(consumer, 0L);
+    }
+
+    /**
+     * Forgets a consumer, so the entries it had not processed are no
+     * longer kept for it.
+     *
+     * @param consumer The name of the consumer
+     * @throws IOException if the offsets cannot be saved
+     */
+    public synchronized void removeConsumer(String consumer) throws IOException {
+        if (offsets.remove(consumer) != null) {
+            saveOffsets();
+        }
+    }
+
+    /**
+     * Adds the entries of one segment to a list, starting at a file position.
+     *
+     * @param segment      The segment file
+     * @param position     The file position of a frame at or before fromSequence
+     * @param fromSequence The first sequence number to add
+     * @param durable      The last durable sequence number
+     * @param maxEntries   The most entries the list may hold
+     * @param entries      Receives the entries
+     * @return true if the next segment should be read too
+     * @throws IOException if the segment cannot be read
+     */
+    private boolean readSegment(Path segment, long position, long fromSequence, long durable, int maxEntries,
+                                List<JournalEntry> entries) throws IOException {
+        long segmentFirst = Journal.firstSequenceOf(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            channel.position(position);
+            CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 1 << 16), position);
+            DataInputStream in = new DataInputStream(counter);
+            while (true) {
+                long framePosition = counter.count;
+                JournalEntry entry = Journal.readFrame(in);
+                if (entry == null) {
+                    return true;
+                }
+                long sequence = entry.getSequence();
+                if (sequence > durable) {
+                    return false;
+                }
+                if (sequence % INDEX_INTERVAL == 0) {
+                    positions.putIfAbsent(sequence, new long[] {segmentFirst, framePosition});
+                }
+                if (sequence >= fromSequence) {
+                    entries.add(entry);
+                    if (entries.size() == maxEntries) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the committed offsets, replacing the file only once the new one
+     * is complete, and updates which segments the journal keeps.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void saveOffsets() throws IOException {
+        Properties saved = new Properties();
+        offsets.forEach((consumer, sequence) -> saved.setProperty(consumer, String.valueOf(sequence)));
+        Path file = directory.resolve(OFFSETS_FILE);
+        Path temp = directory.resolve(OFFSETS_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            saved.store(writer, "Change feed consumer offsets");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        updateRetention();
+    }
+
+    /**
+     * Tells the journal to keep every entry after the lowest committed offset.
+     */
+    private void updateRetention() {
+        long lowest = offsets.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE - 1);
+        journal.retainFrom(lowest + 1);
+    }
+
+    /**
+     * Gets the journal of a system.
+     *
+     * @param system The system
+     * @return The journal
+     * @throws IllegalStateException if the system has no journal
+     */
+    private static Journal requireJournal(HospitalManagementSystem system) {
+        Journal journal = system.getJournal();
+        if (journal == null) {
+            throw new IllegalStateException("System has no journal");
+        }
+        return journal;
+    }
+
+    /**
+     * Input stream that counts the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        /**
+         * Constructor to create a CountingInputStream object.
+         *
+         * @param in    The stream to read from
+         * @param start The count to start from
+         */
+        CountingInputStream(InputStream in, long start) {
+            super(in);
+            this.count = start;
+        }
+
+        /**
+         * Reads one byte.
+         *
+         * @return The byte, or -1 at the end of the stream
+         * @throws IOException if reading fails
+         */
+        @Override
+        public int read() throws IOException {
+            int value = in.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        /**
+         * Reads bytes into an array.
+         *
+         * @param bytes  The array to fill
+         * @param offset The first index to fill
+         * @param length The most bytes to read
+         * @return The number of bytes read, or -1 at the end of the stream
+         * @throws IOException if reading fails
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = in.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        /**
+         * Skips bytes.
+         *
+         * @param n The most bytes to skip
+         * @return The number of bytes skipped
+         * @throws IOException if skipping fails
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented store for large numbers of medical records.
+ * <p>
+ * Instead of one object per record, each field is kept in its own
+ * primitive array: the record ID, the patient ID, a type tag, the room
+ * number and duration of stay as ints, and the diagnosis, treatment plan
+ * and record date as int codes into a shared StringDictionary, so each
+ * distinct string is stored once. A record takes about 37 bytes plus its
+ * share of the dictionary, and scans over one field read a single
+ * contiguous array.
+ * <p>
+ * Records are read through flyweight views: get returns an InpatientRecord
+ * or OutpatientRecord whose getters and setters read and write the
+ * columns, so views can be passed to code expecting ordinary records. Two
+ * views of the same row are equal. All methods are synchronized.
+ */
+public class ColumnarRecordStore {
+    private static final byte INPATIENT = 0;
+    private static final byte OUTPATIENT = 1;
+    private static final int DIAGNOSIS = 0;
+    private static final int TREATMENT_PLAN = 1;
+    private static final int RECORD_DATE = 2;
+    private static final int ROOM_NUMBER = 0;
+    private static final int DURATION_OF_STAY = 1;
+
+    private final StringDictionary dictionary;
+    private long[] ids;
+    private long[] patientIds;
+    private byte[] types;
+    private int[][] textCodes;
+    private int[][] numbers;
+    private int size;
+
+    /**
+     * Constructor to create an empty ColumnarRecordStore object.
+     */
+    public ColumnarRecordStore() {
+        this(new StringDictionary());
+    }
+
+    /**
+     * Constructor to create an empty ColumnarRecordStore object sharing a dictionary.
+     *
+     * @param dictionary The dictionary for the string columns
+     */
+    ColumnarRecordStore(StringDictionary dictionary) {
+        int capacity = 1024;
+        this.dictionary = dictionary;
+        this.ids = new long[capacity];
+        this.patientIds = new long[capacity];
+        this.types = new byte[capacity];
+        this.textCodes = new int[3][capacity];
+        this.numbers = new int[2][capacity];
+    }
+
+    /**
+     * Copies a record into the store. The record keeps its ID.
+     *
+     * @param patient The patient owning the record
+     * @param record  The record to copy
+     * @return The row of the record
+     */
+    public synchronized int add(Patient patient, MedicalRecord record) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size;
+        ids[row] = record.getId();
+        patientIds[row] = patient.getId();
+        textCodes[DIAGNOSIS][row] = dictionary.encode(record.getDiagnosis());
+        textCodes[TREATMENT_PLAN][row] = dictionary.encode(record.getTreatmentPlan());
+        textCodes[RECORD_DATE][row] = dictionary.encode(record.getRecordDate());
+        if (record instanceof InpatientRecord) {
+            InpatientRecord inpatient = (InpatientRecord) record;
+            types[row] = INPATIENT;
+            numbers[ROOM_NUMBER][row] = inpatient.getRoomNumber();
+            numbers[DURATION_OF_STAY][row] = inpatient.getDurationOfStay();
+        } else {
+            types[row] = OUTPATIENT;
+            numbers[ROOM_NUMBER][row] = 0;
+            numbers[DURATION_OF_STAY][row] = 0;
+        }
+        size++;
+        return row;
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return The record count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets a view of a record.
+     *
+     * @param row The row of the record
+     * @return An InpatientRecord or OutpatientRecord backed by the columns
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public synchronized MedicalRecord get(int row) {
+        checkRow(row);
+        if (types[row] == INPATIENT) {
+            return new InpatientView(row);
+        }
+        return new OutpatientView(row);
+    }
+
+    /**
+     * Gets the ID of the patient owning a record.
+     *
+     * @param row The row of the record
+     * @return The patient ID
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public synchronized long getPatientId(int row) {
+        checkRow(row);
+        return patientIds[row];
+    }
+
+    /**
+     * Gets views of all records of a patient, in the order they were added.
+     *
+     * @param patient The patient
+     * @return The records
+     */
+    public synchronized List<MedicalRecord> getByPatient(Patient patient) {
+        List<MedicalRecord> result = new ArrayList<>();
+        long patientId = patient.getId();
+        for (int row = 0; row < size; row++) {
+            if (patientIds[row] == patientId) {
+                result.add(get(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the records with a diagnosis, comparing dictionary codes.
+     *
+     * @param diagnosis The diagnosis
+     * @return The number of records
+     */
+    public synchronized int countByDiagnosis(String diagnosis) {
+        int code = dictionary.find(diagnosis);
+        if (code < 0) {
+            return 0;
+        }
+        int[] column = textCodes[DIAGNOSIS];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (column[row] == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds up the duration of stay of all inpatient records.
+     *
+     * @return The total in days
+     */
+    public synchronized long getTotalDaysOfStay() {
+        int[] column = numbers[DURATION_OF_STAY];
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the heap used by the store, including unused capacity and
+     * the dictionary.
+     *
+     * @return The estimated size in bytes
+     */
+    public synchronized long estimateBytes() {
+        long perRow = 8 + 8 + 1 + 4L * (textCodes.length + numbers.length);
+        return perRow * ids.length + dictionary.estimateBytes();
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        patientIds = Arrays.copyOf(patientIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        for (int i = 0; i < textCodes.length; i++) {
+            textCodes[i] = Arrays.copyOf(textCodes[i], capacity);
+        }
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = Arrays.copyOf(numbers[i], capacity);
+        }
+    }
+
+    /**
+     * Checks that a row exists.
+     *
+     * @param row The row
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * Reads a string column.
+     *
+     * @param column The string column
+     * @param row    The row
+     * @return The value
+     */
+    private synchronized String text(int column, int row) {
+        return dictionary.decode(textCodes[column][row]);
+    }
+
+    /**
+     * Writes a string column.
+     *
+     * @param column The string column
+     * @param row    The row
+     * @param value  The value
+     */
+    private synchronized void setText(int column, int row, String value) {
+        textCodes[column][row] = dictionary.encode(value);
+    }
+
+    /**
+     * Reads an int column.
+     *
+     * @param column The int column
+     * @param row    The row
+     * @return The value
+     */
+    private synchronized int number(int column, int row) {
+        return numbers[column][row];
+    }
+
+    /**
+     * Writes an int column.
+     *
+     * @param column The int column
+     * @param row    The row
+     * @param value  The value
+     */
+    private synchronized void setNumber(int column, int row, int value) {
+        numbers[column][row] = value;
+    }
+
+    /**
+     * Inpatient record backed by a row of the store.
+     */
+    private class InpatientView extends InpatientRecord {
+        private final int row;
+
+        /**
+         * Constructor to create an InpatientView object.
+         *
+         * @param row The row of the record
+         */
+        InpatientView(int row) {
+            super(ids[row], null, null, null, 0, 0);
+            this.row = row;
+        }
+
+        /**
+         * Gets the diagnosis from the column.
+         *
+         * @return The diagnosis
+         */
+        @Override
+        public String getDiagnosis() {
+            return text(DIAGNOSIS, row);
+        }
+
+        /**
+         * Gets the treatment plan from the column.
+         *
+         * @return The treatment plan
+         */
+        @Override
+        public String getTreatmentPlan() {
+            return text(TREATMENT_PLAN, row);
+        }
+
+        /**
+         * Gets the record date from the column.
+         *
+         * @return The record date (YYYY-MM-DD)
+         */
+        @Override
+        public String getRecordDate() {
+            return text(RECORD_DATE, row);
+        }
+
+        /**
+         * Sets the diagnosis in the column.
+         *
+         * @param d The diagnosis to set
+         */
+        @Override
+        public void setDiagnosis(String d) {
+            setText(DIAGNOSIS, row, d);
+        }
+
+        /**
+         * Sets the treatment plan in the column.
+         *
+         * @param tp The treatment plan to set
+         */
+        @Override
+        public void setTreatmentPlan(String tp) {
+            setText(TREATMENT_PLAN, row, tp);
+        }
+
+        /**
+         * Sets the record date in the column.
+         *
+         * @param rd The record date (YYYY-MM-DD) to set
+         */
+        @Override
+        public void setRecordDate(String rd) {
+            String oldDate = getRecordDate();
+            setText(RECORD_DATE, row, rd);
+            firePropertyChange("recordDate", oldDate, rd);
+        }
+
+        /**
+         * Gets the room number from the column.
+         *
+         * @return The room number
+         */
+        @Override
+        public int getRoomNumber() {
+            return number(ROOM_NUMBER, row);
+        }
+
+        /**
+         * Gets the duration of stay from the column.
+         *
+         * @return The duration of stay in days
+         */
+        @Override
+        public int getDurationOfStay() {
+            return number(DURATION_OF_STAY, row);
+        }
+
+        /**
+         * Sets the room number in the column.
+         *
+         * @param r The room number to set
+         */
+        @Override
+        public void setRoomNumber(int r) {
+            setNumber(ROOM_NUMBER, row, r);
+        }
+
+        /**
+         * Sets the duration of stay in the column.
+         *
+         * @param ds The duration of stay in days to set
+         */
+        @Override
+        public void setDurationOfStay(int ds) {
+            setNumber(DURATION_OF_STAY, row, ds);
+        }
+
+        /**
+         * Checks whether another object is a view of the same row of the same store.
+         *
+         * @param other The object to compare with
+         * @return true if both views show the same record
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof InpatientView && ((InpatientView) other).row == row
+                && ((InpatientView) other).store() == store();
+        }
+
+        /**
+         * Gets a hash code based on the row.
+         *
+         * @return The hash code
+         */
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(row);
+        }
+
+        /**
+         * Gets the store holding the row.
+         *
+         * @return The store
+         */
+        private ColumnarRecordStore store() {
+            return ColumnarRecordStore.this;
+        }
+    }
+
+    /**
+     * Outpatient record backed by a row of the store.
+     */
+    private class OutpatientView extends OutpatientRecord {
+        private final int row;
+
+        /**
+         * Constructor to create an OutpatientView object.
+         *
+         * @param row The row of the record
+         */
+        OutpatientView(int row) {
+            super(ids[row], null, null, null);
+            this.row = row;
+        }
+
+        /**
+         * Gets the diagnosis from the column.
+         *
+         * @return The diagnosis
+         */
+        @Override
+        public String getDiagnosis() {
+            return text(DIAGNOSIS, row);
+        }
+
+        /**
+         * Gets the treatment plan from the column.
+         *
+         * @return The treatment plan
+         */
+        @Override
+        public String getTreatmentPlan() {
+            return text(TREATMENT_PLAN, row);
+        }
+
+        /**
+         * Gets the visit date from the record date column.
+         *
+         * @return The visit date
+         */
+        @Override
+        public String getVisitDate() {
+            return text(RECORD_DATE, row);
+        }
+
+        /**
+         * Gets the record date from the column.
+         *
+         * @return The record date (YYYY-MM-DD)
+         */
+        @Override
+        public String getRecordDate() {
+            return text(RECORD_DATE, row);
+        }
+
+        /**
+         * Sets the diagnosis in the column.
+         *
+         * @param d The diagnosis to set
+         */
+        @Override
+        public void setDiagnosis(String d) {
+            setText(DIAGNOSIS, row, d);
+        }
+
+        /**
+         * Sets the treatment plan in the column.
+         *
+         * @param tp The treatment plan to set
+         */
+        @Override
+        public void setTreatmentPlan(String tp) {
+            setText(TREATMENT_PLAN, row, tp);
+        }
+
+        /**
+         * Sets the visit date in the record date column.
+         *
+         * @param vd The visit date to set
+         */
+        @Override
+        public void setVisitDate(String vd) {
+            String oldDate = getRecordDate();
+            setText(RECORD_DATE, row, vd);
+            firePropertyChange("recordDate", oldDate, vd);
+        }
+
+        /**
+         * Checks whether another object is a view of the same row of the same store.
+         *
+         * @param other The object to compare with
+         * @return true if both views show the same record
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof OutpatientView && ((OutpatientView) other).row == row
+                && ((OutpatientView) other).store() == store();
+        }
+
+        /**
+         * Gets a hash code based on the row.
+         *
+         * @return The hash code
+         */
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(row);
+        }
+
+        /**
+         * Gets the store holding the row.
+         *
+         * @return The store
+         */
+        private ColumnarRecordStore store() {
+            return ColumnarRecordStore.this;
+        }
+    }
+}
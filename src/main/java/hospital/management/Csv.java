@@ -0,0 +1,86 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading and writing of single-line CSV records.
+ * Fields are separated by commas and may be enclosed in double quotes, with
+ * a doubled quote standing for a quote inside a quoted field. A record must
+ * fit on one line.
+ */
+final class Csv {
+    /**
+     * Not instantiable.
+     */
+    private Csv() {
+    }
+
+    /**
+     * Splits a line into its fields.
+     *
+     * @param line The line to split
+     * @return The fields, unquoted
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = line.length();
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Quotes a field if it contains a comma, quote, line break or
+     * surrounding whitespace.
+     *
+     * @param field The field, or null for an empty field
+     * @return The field as it should be written
+     */
+    static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        boolean needsQuotes = !field.isEmpty()
+            && (Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1)));
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? '"' + field.replace("\"", "\"\"") + '"' : field;
+    }
+}
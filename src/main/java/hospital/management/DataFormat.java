@@ -0,0 +1,11 @@
+package hospital.management;
+
+/**
+ * Text formats used for importing and exporting data.
+ */
+public enum DataFormat {
+    /** Comma-separated values with a header line. */
+    CSV,
+    /** One JSON object per line. */
+    JSONL
+}
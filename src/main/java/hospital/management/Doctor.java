@@ -1,18 +1,23 @@
 package hospital.management;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a doctor in the hospital management system.
  * Inherits from Person and includes doctor-specific attributes
- * such as specialization and availability.
+ * such as specialization and availability. The specialization is held as
+ * a code in the shared string dictionary. A doctor who is available may
+ * also have a calendar of working hours; without one they can be booked
+ * at any time.
  * Implements Schedulable interface to manage appointments.
  */
 public class Doctor extends Person implements Schedulable {
-    private String specialization;
-    private boolean availability;
-    private List<Appointment> appointments;
+    private volatile int specialization;
+    private volatile boolean availability;
+    private volatile AvailabilityCalendar calendar;
+    private final SnapshotArrayList<Appointment> appointments;
 
     /**
      * Constructor to create a Doctor object.
@@ -24,10 +29,25 @@ public class Doctor extends Person implements Schedulable {
      * @param availability   The availability status of the doctor
      */
     public Doctor(String name, int age, String contactDetails, String specialization, boolean availability) {
-        super(name, age, contactDetails);
-        this.specialization = specialization;
+        this(nextId(), name, age, contactDetails, specialization, availability);
+    }
+
+    /**
+     * Constructor to create a Doctor object with a known ID, used when
+     * restoring saved data.
+     *
+     * @param id             The ID of the doctor
+     * @param name           The name of the doctor
+     * @param age            The age of the doctor
+     * @param contactDetails The contact details of the doctor
+     * @param specialization The specialization of the doctor
+     * @param availability   The availability status of the doctor
+     */
+    Doctor(long id, String name, int age, String contactDetails, String specialization, boolean availability) {
+        super(id, name, age, contactDetails);
+        this.specialization = StringDictionary.SHARED.encode(specialization);
         this.availability = availability;
-        this.appointments = new ArrayList<>();
+        this.appointments = new SnapshotArrayList<>();
     }
 
     /**
@@ -36,16 +56,43 @@ public class Doctor extends Person implements Schedulable {
      * @return The specialization
      */
     public String getSpecialization() {
-        return specialization;
+        return StringDictionary.SHARED.decode(specialization);
     }
 
     /**
      * Sets the specialization of the doctor.
+     * Listeners are told of the change.
      *
      * @param specialization The specialization to set
      */
     public void setSpecialization(String specialization) {
-        this.specialization = specialization;
+        String oldSpecialization = getSpecialization();
+        this.specialization = StringDictionary.SHARED.encode(specialization);
+        firePropertyChange("specialization", oldSpecialization, specialization);
+    }
+
+    /**
+     * Checks if the doctor has a specialization, ignoring case and extra
+     * whitespace like {@link HospitalManagementSystem#findDoctorsBySpecialization}.
+     * An exact match is found by comparing dictionary codes, without
+     * comparing strings.
+     *
+     * @param specialization The specialization to check
+     * @return true if the doctor has the specialization
+     */
+    public boolean hasSpecialization(String specialization) {
+        int code = this.specialization;
+        return StringDictionary.SHARED.find(specialization) == code
+            || NameIndex.normalize(specialization).equals(NameIndex.normalize(StringDictionary.SHARED.decode(code)));
+    }
+
+    /**
+     * Gets the dictionary code of the specialization.
+     *
+     * @return The code in the shared dictionary
+     */
+    int getSpecializationCode() {
+        return specialization;
     }
 
     /**
@@ -59,11 +106,57 @@ public class Doctor extends Person implements Schedulable {
 
     /**
      * Sets the availability status of the doctor.
+     * Listeners are told of the change.
      *
      * @param availability The availability status to set
      */
     public void setAvailability(boolean availability) {
+        boolean oldAvailability = this.availability;
         this.availability = availability;
+        firePropertyChange("availability", oldAvailability, availability);
+    }
+
+    /**
+     * Gets the working hours of the doctor.
+     *
+     * @return The calendar, or null if the doctor has no set hours
+     */
+    public AvailabilityCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Sets the working hours of the doctor. Use
+     * HospitalManagementSystem.setDoctorCalendar so the change is journaled.
+     *
+     * @param calendar The calendar, or null for no set hours
+     */
+    void setCalendar(AvailabilityCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * Checks if the doctor is available and working for a whole interval.
+     *
+     * @param startMinute     The start of the interval in epoch minutes
+     * @param durationMinutes The length of the interval in minutes
+     * @return true if the doctor is available and every minute is within
+     *         their working hours, false otherwise
+     */
+    public boolean isAvailableAt(long startMinute, int durationMinutes) {
+        AvailabilityCalendar hours = calendar;
+        return availability && (hours == null || hours.isAvailable(startMinute, durationMinutes));
+    }
+
+    /**
+     * Checks if the doctor is available and working at the current time.
+     *
+     * @return true if the doctor is available now, false otherwise
+     */
+    public boolean isAvailableNow() {
+        LocalDateTime now = LocalDateTime.now();
+        long minute = now.toLocalDate().toEpochDay() * 24 * 60 + now.getHour() * 60 + now.getMinute();
+        return isAvailableAt(minute, 1);
     }
 
     /**
@@ -74,7 +167,7 @@ public class Doctor extends Person implements Schedulable {
         String content = "Name: " + getName() + "\n" +
                         "Age: " + getAge() + "\n" +
                         "Contact: " + getContactDetails() + "\n" +
-                        "Specialization: " + specialization + "\n" +
+                        "Specialization: " + getSpecialization() + "\n" +
                         "Available: " + (availability ? "Yes" : "No");
         DisplayUtility.printBox("Doctor Information", content);
     }
@@ -120,13 +213,14 @@ public class Doctor extends Person implements Schedulable {
     @Override
     public void viewSchedule() {
         DisplayUtility.printHeader("Schedule for Doctor: " + getName());
-        if (appointments.isEmpty()) {
+        List<Appointment> scheduled = appointments.snapshot();
+        if (scheduled.isEmpty()) {
             DisplayUtility.printMessage("No appointments scheduled", false);
         } else {
             String[] headers = {"#", "Date", "Time", "Patient", "Diagnosis"};
             List<String[]> rows = new ArrayList<>();
-            for (int i = 0; i < appointments.size(); i++) {
-                Appointment apt = appointments.get(i);
+            for (int i = 0; i < scheduled.size(); i++) {
+                Appointment apt = scheduled.get(i);
                 rows.add(new String[]{
                     String.valueOf(i + 1),
                     apt.getDate(),
@@ -141,34 +235,49 @@ public class Doctor extends Person implements Schedulable {
     
     /**
      * Gets the list of appointments for the doctor.
+     * The list is a read-only snapshot shared until the next change, so it
+     * can be iterated while appointments are being booked or cancelled.
      *
-     * @return List of appointments
+     * @return Read-only list of appointments
      */
     public List<Appointment> getAppointments() {
+        return appointments.snapshot();
+    }
+
+    /**
+     * Gets the changeable list of appointments, for the system to keep in
+     * step with its indexes while holding the doctor's lock.
+     *
+     * @return The list of appointments
+     */
+    SnapshotArrayList<Appointment> getAppointmentList() {
         return appointments;
     }
     
     /**
-     * Updates the diagnosis of a patient.
-     * Validates that the doctor is available before updating.
+     * Checks whether updatePatientDiagnosis would accept a diagnosis update.
+     *
+     * @param patient The patient whose diagnosis is being updated
+     * @param newDiagnosis The new diagnosis
+     * @return true if the patient is given and the diagnosis is not empty
+     */
+    boolean acceptsDiagnosis(Patient patient, String newDiagnosis) {
+        return patient != null && newDiagnosis != null && !newDiagnosis.trim().isEmpty();
+    }
+    
+    /**
+     * Updates the diagnosis of a patient. Whether the doctor may do so now
+     * is checked by HospitalManagementSystem.updatePatientDiagnosis, which
+     * journals the change; this only applies it.
      *
      * @param patient The patient whose diagnosis is being updated
      * @param newDiagnosis The new diagnosis
      * @return true if update successful, false otherwise
      */
     public boolean updatePatientDiagnosis(Patient patient, String newDiagnosis) {
-        if (patient == null) {
-            System.out.println("Error: Patient cannot be null");
-            return false;
-        }
-        
-        if (newDiagnosis == null || newDiagnosis.trim().isEmpty()) {
-            System.out.println("Error: Diagnosis cannot be empty");
-            return false;
-        }
-        
-        if (!availability) {
-            System.out.println("Error: Doctor " + getName() + " is not available");
+        if (!acceptsDiagnosis(patient, newDiagnosis)) {
+            System.out.println(patient == null ? "Error: Patient cannot be null"
+                : "Error: Diagnosis cannot be empty");
             return false;
         }
         
@@ -0,0 +1,309 @@
+package hospital.management;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free index of booked minutes for each doctor.
+ * Every day a doctor has bookings on is a bitmap with one bit per minute,
+ * stored as 23 atomic 64-bit words.
+ * <p>
+ * Reserving an interval first reads its words and fails at once, without
+ * setting anything, if any minute is taken, so the many losers of a race
+ * for a popular slot never disturb each other. Otherwise it sets the bits
+ * word by word with compare-and-set. If it then meets a bit set by a
+ * reservation racing it, it clears the words it claimed, and if the
+ * interval has become free again, because that reservation failed and
+ * rolled back too, it tries again. {@link #tryReserve(Appointment)} gives
+ * up after a few attempts, so it can still fail spuriously, but only when
+ * it keeps colliding with overlapping reservations made at the same
+ * moment; callers may simply try again. {@link #reserve(Appointment)}
+ * keeps trying until it either succeeds or finds a minute taken.
+ * <p>
+ * An interval of d minutes touches at most d / 64 + 2 words, so checks
+ * cost O(d / 64) regardless of how many appointments exist: O(1) for the
+ * usual appointments of an hour or less.
+ */
+class DoctorSlotIndex {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int WORDS_PER_DAY = (MINUTES_PER_DAY + 63) / 64;
+    /** Most attempts at a reservation that keeps meeting racing claims. */
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final Map<Long, Map<Long, AtomicLongArray>> slots;
+
+    /**
+     * Constructor to create an empty slot index.
+     */
+    DoctorSlotIndex() {
+        this.slots = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks whether a doctor already has a booking overlapping an interval.
+     *
+     * @param doctor          The doctor
+     * @param startMinute     The start of the interval in epoch minutes
+     * @param durationMinutes The length of the interval in minutes
+     * @return true if any minute of the interval is booked, false otherwise
+     */
+    boolean hasConflict(Doctor doctor, long startMinute, int durationMinutes) {
+        Map<Long, AtomicLongArray> calendar = slots.get(doctor.getId());
+        return calendar != null && taken(calendar, startMinute, startMinute + durationMinutes, 0, 0);
+    }
+
+    /**
+     * Checks whether an appointment overlaps a booking of its doctor.
+     *
+     * @param appointment The appointment to check
+     * @return true if the appointment clashes with a booked one, false otherwise
+     */
+    boolean hasConflict(Appointment appointment) {
+        return hasConflict(appointment.getDoctor(), appointment.getStartMinute(),
+            appointment.getDurationMinutes());
+    }
+
+    /**
+     * Atomically claims every minute of an appointment for its doctor.
+     *
+     * @param appointment The appointment to reserve
+     * @return true if the interval was free and is now reserved, false if
+     *         any minute was already taken (nothing is reserved then)
+     */
+    boolean tryReserve(Appointment appointment) {
+        return tryReserve(appointment, null);
+    }
+
+    /**
+     * Atomically claims the minutes of an appointment that another
+     * reservation of the same doctor does not already hold. Used to move an
+     * appointment to a new time: the minutes the two intervals share stay
+     * reserved throughout, and the old interval is released afterwards with
+     * {@link #release(Appointment, Appointment)}.
+     *
+     * @param appointment The appointment to reserve
+     * @param held        The reservation whose minutes count as the caller's, or null for none
+     * @return true if the rest of the interval was free and is now reserved,
+     *         false if any of it was already taken (nothing is reserved then)
+     */
+    boolean tryReserve(Appointment appointment, Appointment held) {
+        Map<Long, AtomicLongArray> calendar = slots.computeIfAbsent(
+            appointment.getDoctor().getId(), id -> new ConcurrentHashMap<>());
+        return claim(calendar, appointment.getStartMinute(), appointment.getEndMinute(),
+            held == null ? 0 : held.getStartMinute(), held == null ? 0 : held.getEndMinute(),
+            MAX_ATTEMPTS);
+    }
+
+    /**
+     * Claims every minute of an appointment for its doctor, retrying for as
+     * long as racing claims get in the way.
+     *
+     * @param appointment The appointment to reserve
+     * @return true if the interval is now reserved, false if a minute of it
+     *         was taken (nothing is reserved then)
+     */
+    boolean reserve(Appointment appointment) {
+        return reserve(appointment, null);
+    }
+
+    /**
+     * Claims the minutes of an appointment that another reservation of the
+     * same doctor does not already hold, retrying for as long as racing
+     * claims get in the way.
+     *
+     * @param appointment The appointment to reserve
+     * @param held        The reservation whose minutes count as the caller's, or null for none
+     * @return true if the rest of the interval is now reserved, false if a
+     *         minute of it was taken (nothing is reserved then)
+     */
+    boolean reserve(Appointment appointment, Appointment held) {
+        Map<Long, AtomicLongArray> calendar = slots.computeIfAbsent(
+            appointment.getDoctor().getId(), id -> new ConcurrentHashMap<>());
+        return claim(calendar, appointment.getStartMinute(), appointment.getEndMinute(),
+            held == null ? 0 : held.getStartMinute(), held == null ? 0 : held.getEndMinute(),
+            Integer.MAX_VALUE);
+    }
+
+    /**
+     * Frees the minutes used by an appointment.
+     * The appointment must not have been moved since it was reserved.
+     *
+     * @param appointment The appointment whose interval is freed
+     */
+    void release(Appointment appointment) {
+        release(appointment, null);
+    }
+
+    /**
+     * Frees the minutes used by an appointment, except those another
+     * reservation of the same doctor still needs.
+     *
+     * @param appointment The appointment whose interval is freed
+     * @param kept        The reservation whose minutes stay reserved, or null for none
+     */
+    void release(Appointment appointment, Appointment kept) {
+        Map<Long, AtomicLongArray> calendar = slots.get(appointment.getDoctor().getId());
+        if (calendar != null) {
+            clear(calendar, appointment.getStartMinute(), appointment.getEndMinute(),
+                kept == null ? 0 : kept.getStartMinute(), kept == null ? 0 : kept.getEndMinute());
+        }
+    }
+
+    /**
+     * Sets the bits of a range of minutes, skipping minutes the caller
+     * already holds. Nothing is set if a minute is seen taken beforehand.
+     * If a claim racing this one sets a bit first, the bits set so far are
+     * cleared again, and the claim is retried if the range is free by then.
+     *
+     * @param calendar  The doctor's day bitmaps
+     * @param start     The first minute to claim
+     * @param end       The minute after the last one to claim
+     * @param heldStart The first minute already held by the caller
+     * @param heldEnd   The minute after the last one already held
+     * @param attempts  The most attempts to make
+     * @return true if every minute is now claimed, false if nothing was
+     */
+    private static boolean claim(Map<Long, AtomicLongArray> calendar, long start, long end,
+                                 long heldStart, long heldEnd, int attempts) {
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            if (taken(calendar, start, end, heldStart, heldEnd)) {
+                return false;
+            }
+            if (trySet(calendar, start, end, heldStart, heldEnd)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bits of a range of minutes word by word with compare-and-set,
+     * skipping minutes the caller already holds. If a bit to be set is
+     * already taken, the bits set so far are cleared again.
+     *
+     * @param calendar  The doctor's day bitmaps
+     * @param start     The first minute to claim
+     * @param end       The minute after the last one to claim
+     * @param heldStart The first minute already held by the caller
+     * @param heldEnd   The minute after the last one already held
+     * @return true if every minute is now claimed, false if nothing was
+     */
+    private static boolean trySet(Map<Long, AtomicLongArray> calendar, long start, long end,
+                                  long heldStart, long heldEnd) {
+        for (long m = start; m < end; ) {
+            long day = Math.floorDiv(m, MINUTES_PER_DAY);
+            int minute = (int) (m - day * MINUTES_PER_DAY);
+            int span = span(minute, end - m);
+            long mask = mask(minute, span) & ~overlap(day, m, span, heldStart, heldEnd);
+            AtomicLongArray words = calendar.computeIfAbsent(day, d -> new AtomicLongArray(WORDS_PER_DAY));
+            int word = minute >>> 6;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    clear(calendar, start, m, heldStart, heldEnd);
+                    return false;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+            m += span;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether any minute of a range is taken, other than those the
+     * caller already holds.
+     *
+     * @param calendar  The doctor's day bitmaps
+     * @param start     The first minute to check
+     * @param end       The minute after the last one to check
+     * @param heldStart The first minute already held by the caller
+     * @param heldEnd   The minute after the last one already held
+     * @return true if a minute is taken, false otherwise
+     */
+    private static boolean taken(Map<Long, AtomicLongArray> calendar, long start, long end,
+                                 long heldStart, long heldEnd) {
+        for (long m = start; m < end; ) {
+            long day = Math.floorDiv(m, MINUTES_PER_DAY);
+            int minute = (int) (m - day * MINUTES_PER_DAY);
+            int span = span(minute, end - m);
+            AtomicLongArray words = calendar.get(day);
+            if (words != null && (words.get(minute >>> 6) & mask(minute, span)
+                    & ~overlap(day, m, span, heldStart, heldEnd)) != 0) {
+                return true;
+            }
+            m += span;
+        }
+        return false;
+    }
+
+    /**
+     * Clears the bits of a range of minutes, leaving alone minutes that
+     * are to stay reserved.
+     * Day bitmaps are kept even when empty, since another thread may be
+     * reserving into them.
+     *
+     * @param calendar  The doctor's day bitmaps
+     * @param start     The first minute to clear
+     * @param end       The minute after the last one to clear
+     * @param keepStart The first minute to keep
+     * @param keepEnd   The minute after the last one to keep
+     */
+    private static void clear(Map<Long, AtomicLongArray> calendar, long start, long end,
+                              long keepStart, long keepEnd) {
+        for (long m = start; m < end; ) {
+            long day = Math.floorDiv(m, MINUTES_PER_DAY);
+            int minute = (int) (m - day * MINUTES_PER_DAY);
+            int span = span(minute, end - m);
+            long keep = ~mask(minute, span) | overlap(day, m, span, keepStart, keepEnd);
+            AtomicLongArray words = calendar.get(day);
+            if (words != null) {
+                words.getAndUpdate(minute >>> 6, bits -> bits & keep);
+            }
+            m += span;
+        }
+    }
+
+    /**
+     * Builds the mask of the minutes of a run inside one word that also lie
+     * in another interval.
+     *
+     * @param day   The epoch day of the run
+     * @param m     The first minute of the run in epoch minutes
+     * @param span  The number of minutes in the run
+     * @param start The first minute of the other interval
+     * @param end   The minute after the last one of the other interval
+     * @return The mask of the shared minutes, or 0 if there are none
+     */
+    private static long overlap(long day, long m, int span, long start, long end) {
+        long lo = Math.max(m, start);
+        long hi = Math.min(m + span, end);
+        return lo < hi ? mask((int) (lo - day * MINUTES_PER_DAY), (int) (hi - lo)) : 0;
+    }
+
+    /**
+     * Gets how many minutes from a position fit in the same word and day.
+     *
+     * @param minute    The minute of the day
+     * @param remaining The number of minutes left in the interval
+     * @return The number of minutes covered by this word
+     */
+    static int span(int minute, long remaining) {
+        int toWordEnd = 64 - (minute & 63);
+        int toDayEnd = MINUTES_PER_DAY - minute;
+        return (int) Math.min(remaining, Math.min(toWordEnd, toDayEnd));
+    }
+
+    /**
+     * Builds the bit mask for a run of minutes inside one word.
+     *
+     * @param minute The first minute of the day in the run
+     * @param span   The number of minutes in the run
+     * @return The mask with one bit set per minute
+     */
+    static long mask(int minute, int span) {
+        long bits = span == 64 ? -1L : (1L << span) - 1;
+        return bits << (minute & 63);
+    }
+}
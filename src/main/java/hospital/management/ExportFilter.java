@@ -0,0 +1,105 @@
+package hospital.management;
+
+/**
+ * Selection of the rows to export: optionally one patient and optionally
+ * a range of dates. Medical records are dated by their record date (the
+ * visit date for outpatient records) and appointments by their date.
+ * Rows without a valid date are only exported when no date range is set.
+ */
+public class ExportFilter {
+    private static final ExportFilter ALL = new ExportFilter(null, null, null);
+
+    private final Patient patient;
+    private final String fromDate;
+    private final String toDate;
+    private final long fromDay;
+    private final long toDay;
+
+    /**
+     * Constructor to create an ExportFilter object.
+     *
+     * @param patient  The patient to export, or null for all patients
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate   The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @throws IllegalArgumentException if a date cannot be parsed
+     */
+    public ExportFilter(Patient patient, String fromDate, String toDate) {
+        this.patient = patient;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.fromDay = fromDate == null ? Long.MIN_VALUE : Appointment.toEpochDay(fromDate);
+        this.toDay = toDate == null ? Long.MAX_VALUE : Appointment.toEpochDay(toDate);
+    }
+
+    /**
+     * Gets the filter that selects everything.
+     *
+     * @return The filter
+     */
+    public static ExportFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Gets the patient to export.
+     *
+     * @return The patient, or null for all patients
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * Gets the first date to include.
+     *
+     * @return The date (YYYY-MM-DD), or null for no lower bound
+     */
+    public String getFromDate() {
+        return fromDate;
+    }
+
+    /**
+     * Gets the last date to include.
+     *
+     * @return The date (YYYY-MM-DD), or null for no upper bound
+     */
+    public String getToDate() {
+        return toDate;
+    }
+
+    /**
+     * Checks whether a date range is set.
+     *
+     * @return true if rows are filtered by date
+     */
+    boolean hasDateRange() {
+        return fromDate != null || toDate != null;
+    }
+
+    /**
+     * Checks whether a date passes the filter.
+     *
+     * @param date The date (YYYY-MM-DD), possibly invalid or null
+     * @return true if the date is selected
+     */
+    boolean matchesDate(String date) {
+        if (!hasDateRange()) {
+            return true;
+        }
+        try {
+            return matchesDay(Appointment.toEpochDay(date));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a day passes the filter.
+     *
+     * @param epochDay The day as days since the epoch
+     * @return true if the day is selected
+     */
+    boolean matchesDay(long epochDay) {
+        return epochDay >= fromDay && epochDay <= toDay;
+    }
+}
@@ -0,0 +1,85 @@
+package hospital.management;
+
+import java.time.LocalDate;
+
+/**
+ * A free appointment slot with a doctor, found by searching the doctors'
+ * calendars and bookings. The slot is not reserved; booking it may still
+ * fail if another booking takes it first.
+ */
+public class FreeSlot {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final Doctor doctor;
+    private final long startMinute;
+    private final int durationMinutes;
+
+    /**
+     * Constructor to create a FreeSlot object.
+     *
+     * @param doctor          The doctor who is free
+     * @param startMinute     The start of the slot in minutes since the epoch
+     * @param durationMinutes The length of the slot in minutes
+     */
+    FreeSlot(Doctor doctor, long startMinute, int durationMinutes) {
+        this.doctor = doctor;
+        this.startMinute = startMinute;
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Gets the doctor who is free.
+     *
+     * @return The doctor
+     */
+    public Doctor getDoctor() {
+        return doctor;
+    }
+
+    /**
+     * Gets the date of the slot.
+     *
+     * @return The date as YYYY-MM-DD
+     */
+    public String getDate() {
+        return LocalDate.ofEpochDay(Math.floorDiv(startMinute, MINUTES_PER_DAY)).toString();
+    }
+
+    /**
+     * Gets the start time of the slot.
+     *
+     * @return The time as HH:mm
+     */
+    public String getTime() {
+        int minuteOfDay = Math.floorMod(startMinute, MINUTES_PER_DAY);
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Gets the start of the slot.
+     *
+     * @return The start in minutes since the epoch
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * Gets the length of the slot.
+     *
+     * @return The duration in minutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Creates a request to book this slot for a patient.
+     *
+     * @param patient The patient to book
+     * @return The booking request
+     */
+    public BookingRequest toBookingRequest(Patient patient) {
+        return new BookingRequest(patient, doctor, getDate(), getTime(), durationMinutes);
+    }
+}
@@ -1,29 +1,157 @@
 package hospital.management;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Central management class for the Hospital Management System.
  * Manages all entities: patients, doctors, staff, appointments, and medical records.
+ * Patients, doctors and staff are kept in insertion order for display,
+ * indexed by ID for constant-time membership checks, and indexed by
+ * normalized name for exact and prefix searches. Doctors are also
+ * partitioned by normalized specialization, with the available doctors of
+ * each specialization kept apart.
+ * The list getters return read-only snapshots without copying the lists,
+ * and the snapshots are safe to iterate while the system is being modified.
+ * A system recovered from a snapshot may leave patients and doctors in the
+ * snapshot's registry file until they are needed: a lookup by ID loads and
+ * registers just that person, and the first query over all patients or
+ * doctors loads the rest.
+ * <p>
+ * The system is safe to use from several threads. Each doctor's bookings
+ * are guarded by one of a fixed set of striped locks, so bookings for
+ * different doctors proceed in parallel. Which booking gets a slot is
+ * decided by an atomic compare-and-set on the doctor's minute bitmap, which
+ * also lets tryBookAppointment fail fast without taking any lock. Changes to a patient's
+ * appointments are guarded by the patient object itself, always taken
+ * after the doctor lock. Bookings do not write to the global appointment
+ * list: each records its change under the doctor lock it already holds,
+ * and the global list applies the recorded changes when it is read, with
+ * every doctor lock held briefly so it sees no booking half done. Every
+ * appointment in the global list can therefore also be found through both
+ * people. A change to a booked appointment looks it up again by ID once
+ * its doctor's lock is held, so it acts on the appointment's current form
+ * even if it was moved meanwhile. A reassignment to another doctor claims
+ * the new slot by compare-and-set, then commits the move with both
+ * doctors' locks held, taken in stripe order, as a single journal entry.
+ * <p>
+ * When created with a Journal, every registration, booking, cancellation,
+ * diagnosis update and medical record is written to the journal, and the
+ * call only returns once its entry is durable. Entries are appended while
+ * the relevant lock is held, so the journal order matches the order in
+ * which changes to the same doctor or patient were applied, but the wait for
+ * the disk happens after the lock is released so concurrent callers share
+ * one group commit. Each change is appended before it is applied, and a
+ * slot claimed to check it is released if the append fails, so no change
+ * becomes visible without its entry. In particular a person cannot be
+ * found by ID, and so cannot be booked, before their registration is
+ * appended. A rescheduled appointment keeps the minutes it shares with its
+ * old time reserved throughout, and the rest of the old time is freed only
+ * once the move is appended. Each change holds the journal lock shared from its append until
+ * it is applied, and a snapshot holds it exclusively while it rotates the
+ * journal, so every entry a snapshot covers is already in the state it
+ * reads; archiving is held off by the archive lock instead, which a
+ * snapshot also holds. If the journal fails, the call
+ * throws an UncheckedIOException and the change must be treated as not
+ * acknowledged.
  */
 public class HospitalManagementSystem {
-    private List<Patient> patients;
-    private List<Doctor> doctors;
-    private List<Staff> staffMembers;
-    private List<Appointment> appointments;
-    private List<MedicalRecord> medicalRecords;
+    private static final int DOCTOR_LOCK_STRIPES = 64;
+    private static final int RECORD_BATCH = 1024;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private SnapshotList<Patient> patients;
+    private SnapshotList<Doctor> doctors;
+    private SnapshotList<Staff> staffMembers;
+    private Map<Long, Patient> patientsById;
+    private Map<Long, Doctor> doctorsById;
+    private Map<Long, Staff> staffById;
+    private NameIndex<Patient> patientNames;
+    private NameIndex<Doctor> doctorNames;
+    private NameIndex<Staff> staffNames;
+    private SpecializationIndex doctorSpecializations;
+    private PersonChangeListener indexListener;
+    private SnapshotSet<Appointment> appointments;
+    private SnapshotList<MedicalRecord> medicalRecords;
+    private SnapshotList<Patient> recordOwners;
+    private DoctorSlotIndex doctorSlots;
+    private SlotSearch slotSearch;
+    private Waitlist waitlist;
+    private Map<Long, List<Appointment>> appointmentsByPatient;
+    private Map<Long, List<Appointment>> appointmentsByDoctor;
+    private MedicalRecordIndex recordIndex;
+    private ReentrantLock[] doctorLocks;
+    private Journal journal;
+    private volatile OffHeapAppointmentStore archive;
+    private volatile AppointmentHistory history;
+    private ReentrantReadWriteLock archiveLock;
+    private ReentrantReadWriteLock journalLock;
+    private volatile RegistryFile registry;
     
     /**
-     * Constructor to initialize the Hospital Management System.
+     * Constructor to initialize the Hospital Management System without a journal.
+     * All data is kept in memory only.
      */
     public HospitalManagementSystem() {
-        this.patients = new ArrayList<>();
-        this.doctors = new ArrayList<>();
-        this.staffMembers = new ArrayList<>();
-        this.appointments = new ArrayList<>();
-        this.medicalRecords = new ArrayList<>();
+        this(null);
+    }
+    
+    /**
+     * Constructor to initialize the Hospital Management System with a journal.
+     * 
+     * @param journal The journal every change is written to, or null for none
+     */
+    public HospitalManagementSystem(Journal journal) {
+        this.journal = journal;
+        this.patients = new SnapshotList<>();
+        this.doctors = new SnapshotList<>();
+        this.staffMembers = new SnapshotList<>();
+        this.patientsById = new ConcurrentHashMap<>();
+        this.doctorsById = new ConcurrentHashMap<>();
+        this.staffById = new ConcurrentHashMap<>();
+        this.patientNames = new NameIndex<>();
+        this.doctorNames = new NameIndex<>();
+        this.staffNames = new NameIndex<>();
+        this.doctorSpecializations = new SpecializationIndex();
+        this.indexListener = this::personChanged;
+        this.medicalRecords = new SnapshotList<>();
+        this.recordOwners = new SnapshotList<>();
+        this.doctorSlots = new DoctorSlotIndex();
+        this.slotSearch = new SlotSearch(doctorSlots);
+        this.waitlist = new Waitlist();
+        this.appointmentsByPatient = new ConcurrentHashMap<>();
+        this.appointmentsByDoctor = new ConcurrentHashMap<>();
+        this.recordIndex = new MedicalRecordIndex();
+        this.doctorLocks = new ReentrantLock[DOCTOR_LOCK_STRIPES];
+        for (int i = 0; i < doctorLocks.length; i++) {
+            this.doctorLocks[i] = new ReentrantLock();
+        }
+        this.appointments = new SnapshotSet<>(doctorLocks, Appointment::getId);
+        this.archiveLock = new ReentrantReadWriteLock();
+        this.journalLock = new ReentrantReadWriteLock();
     }
     
     // ========== Registration Methods ==========
@@ -52,21 +180,25 @@ public class HospitalManagementSystem {
             return false;
         }
         
-        if (!staffMembers.contains(staff)) {
+        if (!isRegistered(staff)) {
             if (showMessage) {
                 DisplayUtility.printMessage("Error: Staff member not found in system", false);
             }
             return false;
         }
         
-        if (patients.contains(patient)) {
-            if (showMessage) {
-                DisplayUtility.printMessage("Patient already registered", false);
+        long sequence;
+        synchronized (patient) {
+            sequence = register(patientsById, patient.getId(), patient,
+                () -> JournalEntry.patientRegistered(staff, patient), this::indexPatient);
+            if (sequence < 0) {
+                if (showMessage) {
+                    DisplayUtility.printMessage("Patient already registered", false);
+                }
+                return false;
             }
-            return false;
         }
-        
-        patients.add(patient);
+        awaitJournal(sequence);
         if (showMessage) {
             DisplayUtility.printMessage("Patient registered successfully by " + staff.getName(), true);
         }
@@ -97,21 +229,29 @@ public class HospitalManagementSystem {
             return false;
         }
         
-        if (!staffMembers.contains(staff)) {
+        if (!isRegistered(staff)) {
             if (showMessage) {
                 DisplayUtility.printMessage("Error: Staff member not found in system", false);
             }
             return false;
         }
         
-        if (doctors.contains(doctor)) {
-            if (showMessage) {
-                DisplayUtility.printMessage("Doctor already registered", false);
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            sequence = register(doctorsById, doctor.getId(), doctor,
+                () -> JournalEntry.doctorRegistered(staff, doctor), this::indexDoctor);
+            if (sequence < 0) {
+                if (showMessage) {
+                    DisplayUtility.printMessage("Doctor already registered", false);
+                }
+                return false;
             }
-            return false;
+        } finally {
+            lock.unlock();
         }
-        
-        doctors.add(doctor);
+        awaitJournal(sequence);
         if (showMessage) {
             DisplayUtility.printMessage("Doctor registered successfully by " + staff.getName(), true);
         }
@@ -140,20 +280,230 @@ public class HospitalManagementSystem {
             return false;
         }
         
-        if (staffMembers.contains(staff)) {
-            if (showMessage) {
-                DisplayUtility.printMessage("Staff member already registered", false);
+        long sequence;
+        synchronized (staff) {
+            sequence = register(staffById, staff.getId(), staff,
+                () -> JournalEntry.staffRegistered(staff), this::indexStaff);
+            if (sequence < 0) {
+                if (showMessage) {
+                    DisplayUtility.printMessage("Staff member already registered", false);
+                }
+                return false;
             }
-            return false;
         }
-        
-        staffMembers.add(staff);
+        awaitJournal(sequence);
         if (showMessage) {
             DisplayUtility.printMessage("Staff member registered successfully", true);
         }
         return true;
     }
     
+    /**
+     * Registers a batch of patients without messages, waiting for the
+     * journal once for the whole batch. Can only be called by staff.
+     * Patients that are null or already registered are skipped.
+     * 
+     * @param staff The staff member registering the patients
+     * @param batch The patients to register
+     * @return The number of patients registered
+     */
+    public int registerPatients(Staff staff, Collection<Patient> batch) {
+        if (staff == null || !isRegistered(staff)) {
+            return 0;
+        }
+        int registered = 0;
+        long sequence = 0;
+        for (Patient patient : batch) {
+            if (patient == null) {
+                continue;
+            }
+            synchronized (patient) {
+                long appended = register(patientsById, patient.getId(), patient,
+                    () -> JournalEntry.patientRegistered(staff, patient), this::indexPatient);
+                if (appended >= 0) {
+                    sequence = appended;
+                    registered++;
+                }
+            }
+        }
+        awaitJournal(sequence);
+        return registered;
+    }
+    
+    /**
+     * Registers a batch of doctors without messages, waiting for the
+     * journal once for the whole batch. Can only be called by staff.
+     * Doctors that are null or already registered are skipped.
+     * 
+     * @param staff The staff member registering the doctors
+     * @param batch The doctors to register
+     * @return The number of doctors registered
+     */
+    public int registerDoctors(Staff staff, Collection<Doctor> batch) {
+        if (staff == null || !isRegistered(staff)) {
+            return 0;
+        }
+        int registered = 0;
+        long sequence = 0;
+        for (Doctor doctor : batch) {
+            if (doctor == null) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(doctor);
+            lock.lock();
+            try {
+                long appended = register(doctorsById, doctor.getId(), doctor,
+                    () -> JournalEntry.doctorRegistered(staff, doctor), this::indexDoctor);
+                if (appended >= 0) {
+                    sequence = appended;
+                    registered++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        awaitJournal(sequence);
+        return registered;
+    }
+    
+    /**
+     * Registers a batch of staff members without messages, waiting for the
+     * journal once for the whole batch.
+     * Staff members that are null or already registered are skipped.
+     * 
+     * @param batch The staff members to register
+     * @return The number of staff members registered
+     */
+    public int registerStaffMembers(Collection<Staff> batch) {
+        int registered = 0;
+        long sequence = 0;
+        for (Staff staff : batch) {
+            if (staff == null) {
+                continue;
+            }
+            synchronized (staff) {
+                long appended = register(staffById, staff.getId(), staff,
+                    () -> JournalEntry.staffRegistered(staff), this::indexStaff);
+                if (appended >= 0) {
+                    sequence = appended;
+                    registered++;
+                }
+            }
+        }
+        awaitJournal(sequence);
+        return registered;
+    }
+    
+    /**
+     * Adds a patient to the registry and name index unless already present.
+     * 
+     * @param patient The patient to add
+     * @return true if added, false if a patient with the same ID exists
+     */
+    private boolean addPatient(Patient patient) {
+        if (patientsById.putIfAbsent(patient.getId(), patient) != null) {
+            return false;
+        }
+        indexPatient(patient);
+        return true;
+    }
+    
+    /**
+     * Adds a patient already published by ID to the registry list and name
+     * index.
+     * 
+     * @param patient The patient to add
+     */
+    private void indexPatient(Patient patient) {
+        patients.add(patient);
+        patient.addChangeListener(indexListener);
+        patientNames.add(patient, patient.getName());
+    }
+    
+    /**
+     * Adds a doctor to the registry and name index unless already present.
+     * 
+     * @param doctor The doctor to add
+     * @return true if added, false if a doctor with the same ID exists
+     */
+    private boolean addDoctor(Doctor doctor) {
+        if (doctorsById.putIfAbsent(doctor.getId(), doctor) != null) {
+            return false;
+        }
+        indexDoctor(doctor);
+        return true;
+    }
+    
+    /**
+     * Adds a doctor already published by ID to the registry list, name
+     * index and specialization index.
+     * 
+     * @param doctor The doctor to add
+     */
+    private void indexDoctor(Doctor doctor) {
+        doctors.add(doctor);
+        doctor.addChangeListener(indexListener);
+        doctorNames.add(doctor, doctor.getName());
+        doctorSpecializations.update(doctor);
+    }
+    
+    /**
+     * Adds a staff member to the registry and name index unless already present.
+     * 
+     * @param staff The staff member to add
+     * @return true if added, false if a staff member with the same ID exists
+     */
+    private boolean addStaff(Staff staff) {
+        if (staffById.putIfAbsent(staff.getId(), staff) != null) {
+            return false;
+        }
+        indexStaff(staff);
+        return true;
+    }
+    
+    /**
+     * Adds a staff member already published by ID to the registry list
+     * and name index.
+     * 
+     * @param staff The staff member to add
+     */
+    private void indexStaff(Staff staff) {
+        staffMembers.add(staff);
+        staff.addChangeListener(indexListener);
+        staffNames.add(staff, staff.getName());
+    }
+    
+    /**
+     * Journals a person's registration, then publishes and indexes them.
+     * Must be called while holding the person's monitor, or the doctor's lock.
+     * 
+     * @param byId The registry of people by ID
+     * @param id The ID of the person
+     * @param person The person being registered
+     * @param entry Creates the journal entry for the registration
+     * @param index Adds the published person to the lists and indexes
+     * @param <T> The type of person
+     * @return The sequence number of the entry, or -1 if the ID is already registered
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private <T> long register(Map<Long, T> byId, long id, T person, Supplier<JournalEntry> entry,
+                              Consumer<T> index) {
+        if (byId.containsKey(id)) {
+            return -1;
+        }
+        journalLock.readLock().lock();
+        try {
+            long sequence = appendJournal(entry.get());
+            if (byId.putIfAbsent(id, person) != null) {
+                return -1;
+            }
+            index.accept(person);
+            return sequence;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+    
     // ========== Appointment Methods ==========
     
     /**
@@ -161,8 +511,8 @@ public class HospitalManagementSystem {
      * 
      * @param patient The patient booking the appointment
      * @param doctor The doctor for the appointment
-     * @param date The date of the appointment
-     * @param time The time of the appointment
+     * @param date The date of the appointment (YYYY-MM-DD)
+     * @param time The time of the appointment (e.g. 10:00 AM)
      * @return The created appointment, or null if booking failed
      */
     public Appointment bookAppointment(Patient patient, Doctor doctor, String date, String time) {
@@ -171,12 +521,12 @@ public class HospitalManagementSystem {
             return null;
         }
         
-        if (!patients.contains(patient)) {
+        if (!isRegistered(patient)) {
             DisplayUtility.printMessage("Error: Patient not registered", false);
             return null;
         }
         
-        if (!doctors.contains(doctor)) {
+        if (!isRegistered(doctor)) {
             DisplayUtility.printMessage("Error: Doctor not registered", false);
             return null;
         }
@@ -186,20 +536,32 @@ public class HospitalManagementSystem {
             return null;
         }
         
-        // Check for conflicting appointments
-        for (Appointment apt : appointments) {
-            if (apt.getDoctor().equals(doctor) && 
-                apt.getDate().equals(date) && 
-                apt.getTime().equals(time)) {
+        Appointment appointment;
+        try {
+            appointment = new Appointment(date, time, patient, doctor);
+        } catch (IllegalArgumentException e) {
+            DisplayUtility.printMessage("Error: " + e.getMessage(), false);
+            return null;
+        }
+        
+        if (!doctor.isAvailableAt(appointment.getStartMinute(), appointment.getDurationMinutes())) {
+            DisplayUtility.printMessage("Error: Doctor is not working at this time", false);
+            return null;
+        }
+        
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            if (!doctorSlots.reserve(appointment)) {
                 DisplayUtility.printMessage("Error: Doctor already has an appointment at this time", false);
                 return null;
             }
+            sequence = commitBooking(appointment, true);
+        } finally {
+            lock.unlock();
         }
-        
-        Appointment appointment = new Appointment(date, time, patient, doctor);
-        appointments.add(appointment);
-        patient.scheduleAppointment(appointment);
-        doctor.scheduleAppointment(appointment);
+        awaitJournal(sequence);
         
         DisplayUtility.printMessage("Appointment booked successfully", true);
         return appointment;
@@ -215,11 +577,26 @@ public class HospitalManagementSystem {
      * @return The created appointment, or null if booking failed
      */
     public Appointment bookAppointmentSilent(Patient patient, Doctor doctor, String date, String time) {
+        return bookSilently(patient, doctor, date, time, Appointment.DEFAULT_DURATION_MINUTES);
+    }
+    
+    /**
+     * Books an appointment of any length without messages. This is the
+     * silent commit path shared by bookAppointmentSilent and waitlist backfill.
+     * 
+     * @param patient The patient booking the appointment
+     * @param doctor The doctor for the appointment
+     * @param date The date of the appointment
+     * @param time The time of the appointment
+     * @param durationMinutes The length of the appointment in minutes
+     * @return The created appointment, or null if booking failed
+     */
+    private Appointment bookSilently(Patient patient, Doctor doctor, String date, String time, int durationMinutes) {
         if (patient == null || doctor == null) {
             return null;
         }
         
-        if (!patients.contains(patient) || !doctors.contains(doctor)) {
+        if (!isRegistered(patient) || !isRegistered(doctor)) {
             return null;
         }
         
@@ -227,206 +604,1709 @@ public class HospitalManagementSystem {
             return null;
         }
         
-        // Check for conflicting appointments
-        for (Appointment apt : appointments) {
-            if (apt.getDoctor().equals(doctor) && 
-                apt.getDate().equals(date) && 
-                apt.getTime().equals(time)) {
+        Appointment appointment;
+        try {
+            appointment = new Appointment(date, time, durationMinutes, patient, doctor);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        if (!doctor.isAvailableAt(appointment.getStartMinute(), appointment.getDurationMinutes())) {
+            return null;
+        }
+        
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            if (!doctorSlots.reserve(appointment)) {
                 return null;
             }
+            sequence = commitBooking(appointment, false);
+        } finally {
+            lock.unlock();
         }
-        
-        Appointment appointment = new Appointment(date, time, patient, doctor);
-        appointments.add(appointment);
-        // Add directly to lists without printing
-        patient.getAppointments().add(appointment);
-        doctor.getAppointments().add(appointment);
+        awaitJournal(sequence);
         
         return appointment;
     }
     
     /**
-     * Cancels an appointment.
+     * Books an appointment optimistically, without waiting for other bookings.
+     * The slot is claimed with an atomic compare-and-set on the doctor's
+     * minute bitmap. If another booking already holds any part of it, this
+     * returns SLOT_TAKEN at once without taking a lock; only a successful
+     * booking briefly takes the doctor's lock to publish the appointment.
+     * Intended for bursts of clients competing for the same doctor. Under
+     * such a burst a booking may rarely get SLOT_TAKEN because of an
+     * overlapping booking that was itself failing at the same moment, and
+     * trying again may then succeed.
      * 
-     * @param patient The patient canceling the appointment
-     * @param appointmentIndex The index of the appointment in patient's list
-     * @return true if cancellation successful, false otherwise
+     * @param patient The patient booking the appointment
+     * @param doctor The doctor for the appointment
+     * @param date The date of the appointment (YYYY-MM-DD)
+     * @param time The time of the appointment (e.g. 10:00 AM)
+     * @return The result of the booking, holding the appointment if booked
      */
-    public boolean cancelAppointment(Patient patient, int appointmentIndex) {
-        if (patient == null) {
-            DisplayUtility.printMessage("Error: Patient cannot be null", false);
-            return false;
+    public BookingResult tryBookAppointment(Patient patient, Doctor doctor, String date, String time) {
+        if (patient == null || doctor == null || !isRegistered(patient) || !isRegistered(doctor)) {
+            return BookingResult.failed(BookingResult.Status.NOT_REGISTERED);
         }
         
-        if (!patients.contains(patient)) {
-            DisplayUtility.printMessage("Error: Patient not registered", false);
-            return false;
+        if (!doctor.isAvailable()) {
+            return BookingResult.failed(BookingResult.Status.DOCTOR_UNAVAILABLE);
         }
         
-        List<Appointment> patientAppointments = getPatientAppointments(patient);
-        if (appointmentIndex < 0 || appointmentIndex >= patientAppointments.size()) {
-            DisplayUtility.printMessage("Error: Invalid appointment index", false);
-            return false;
+        Appointment appointment;
+        try {
+            appointment = new Appointment(date, time, patient, doctor);
+        } catch (IllegalArgumentException e) {
+            return BookingResult.failed(BookingResult.Status.INVALID_TIME);
         }
         
-        Appointment appointment = patientAppointments.get(appointmentIndex);
-        appointments.remove(appointment);
-        patient.cancelAppointment(appointment);
-        appointment.getDoctor().cancelAppointment(appointment);
+        if (!doctor.isAvailableAt(appointment.getStartMinute(), appointment.getDurationMinutes())) {
+            return BookingResult.failed(BookingResult.Status.DOCTOR_UNAVAILABLE);
+        }
         
-        DisplayUtility.printMessage("Appointment cancelled successfully", true);
-        return true;
+        if (!doctorSlots.tryReserve(appointment)) {
+            return BookingResult.failed(BookingResult.Status.SLOT_TAKEN);
+        }
+        
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            sequence = commitBooking(appointment, false);
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(sequence);
+        return BookingResult.booked(appointment);
     }
     
-    // ========== Diagnosis Update Methods ==========
-    
     /**
-     * Updates a patient's diagnosis. Can only be called by doctors.
+     * Books a batch of appointments silently in a single pass.
+     * Registration and availability are checked once per distinct patient
+     * and doctor, and working hours once per request. Each valid request then reserves its slot in order, which
+     * detects clashes with existing appointments and with earlier requests
+     * in the same batch at once. Reserved appointments are published with
+     * one lock acquisition per doctor.
      * 
-     * @param doctor The doctor updating the diagnosis
-     * @param patient The patient whose diagnosis is being updated
-     * @param newDiagnosis The new diagnosis
-     * @return true if update successful, false otherwise
+     * @param requests The booking requests
+     * @param allOrNothing If true, nothing is booked unless every request
+     *                     succeeds, and valid requests report NOT_COMMITTED;
+     *                     if false, every request that can be booked is booked
+     * @return One result per request, in request order
      */
-    public boolean updatePatientDiagnosis(Doctor doctor, Patient patient, String newDiagnosis) {
-        if (doctor == null || patient == null) {
-            DisplayUtility.printMessage("Error: Doctor or patient cannot be null", false);
-            return false;
-        }
+    public BookingResult[] bookAppointments(Collection<BookingRequest> requests, boolean allOrNothing) {
+        BookingResult[] results = new BookingResult[requests.size()];
+        Appointment[] reserved = new Appointment[results.length];
+        Map<Person, Boolean> validPeople = new IdentityHashMap<>();
+        boolean anyFailed = false;
         
-        if (!doctors.contains(doctor)) {
-            DisplayUtility.printMessage("Error: Doctor not registered", false);
-            return false;
+        int i = 0;
+        for (BookingRequest request : requests) {
+            BookingResult.Status status = validateBooking(request, validPeople);
+            if (status == null) {
+                try {
+                    Appointment appointment = new Appointment(request.getDate(), request.getTime(),
+                        request.getDurationMinutes(), request.getPatient(), request.getDoctor());
+                    if (!request.getDoctor().isAvailableAt(appointment.getStartMinute(),
+                            appointment.getDurationMinutes())) {
+                        status = BookingResult.Status.DOCTOR_UNAVAILABLE;
+                    } else if (doctorSlots.reserve(appointment)) {
+                        reserved[i] = appointment;
+                    } else {
+                        status = BookingResult.Status.SLOT_TAKEN;
+                    }
+                } catch (IllegalArgumentException e) {
+                    status = BookingResult.Status.INVALID_TIME;
+                }
+            }
+            if (status != null) {
+                results[i] = BookingResult.failed(status);
+                anyFailed = true;
+            }
+            i++;
         }
         
-        if (!patients.contains(patient)) {
-            DisplayUtility.printMessage("Error: Patient not registered", false);
-            return false;
+        if (allOrNothing && anyFailed) {
+            for (int j = 0; j < reserved.length; j++) {
+                if (reserved[j] != null) {
+                    doctorSlots.release(reserved[j]);
+                    results[j] = BookingResult.failed(BookingResult.Status.NOT_COMMITTED);
+                }
+            }
+            return results;
         }
         
-        if (!doctor.isAvailable()) {
-            DisplayUtility.printMessage("Error: Doctor is not available", false);
-            return false;
+        Map<Doctor, List<Appointment>> byDoctor = new LinkedHashMap<>();
+        for (int j = 0; j < reserved.length; j++) {
+            if (reserved[j] != null) {
+                byDoctor.computeIfAbsent(reserved[j].getDoctor(), d -> new ArrayList<>()).add(reserved[j]);
+                results[j] = BookingResult.booked(reserved[j]);
+            }
         }
-        
-        doctor.updatePatientDiagnosis(patient, newDiagnosis);
-        DisplayUtility.printMessage("Diagnosis updated successfully by " + doctor.getName(), true);
-        return true;
+        long sequence = 0;
+        int attempted = 0;
+        try {
+            for (Map.Entry<Doctor, List<Appointment>> entry : byDoctor.entrySet()) {
+                ReentrantLock lock = lockFor(entry.getKey());
+                lock.lock();
+                try {
+                    for (Appointment appointment : entry.getValue()) {
+                        attempted++;
+                        sequence = commitBooking(appointment, false);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            int skip = attempted;
+            for (List<Appointment> unjournaled : byDoctor.values()) {
+                for (Appointment appointment : unjournaled) {
+                    if (skip-- <= 0) {
+                        doctorSlots.release(appointment);
+                    }
+                }
+            }
+            throw e;
+        }
+        awaitJournal(sequence);
+        return results;
     }
     
-    // ========== Medical Record Methods ==========
-    
     /**
-     * Adds a medical record to the system and links it to a patient.
+     * Checks the patient and doctor of a batch booking request, caching the
+     * outcome for each person so it is computed once per batch.
      * 
-     * @param patient The patient for the medical record
-     * @param record The medical record to add
-     * @return true if addition successful, false otherwise
+     * @param request The booking request
+     * @param validPeople The registration results computed so far in the batch
+     * @return The reason the request is invalid, or null if it is valid
      */
-    public boolean addMedicalRecord(Patient patient, MedicalRecord record) {
-        return addMedicalRecord(patient, record, true);
+    private BookingResult.Status validateBooking(BookingRequest request, Map<Person, Boolean> validPeople) {
+        Patient patient = request.getPatient();
+        Doctor doctor = request.getDoctor();
+        if (patient == null || doctor == null
+                || !validPeople.computeIfAbsent(patient, p -> isRegistered(patient))
+                || !validPeople.computeIfAbsent(doctor, d -> isRegistered(doctor))) {
+            return BookingResult.Status.NOT_REGISTERED;
+        }
+        if (!doctor.isAvailable()) {
+            return BookingResult.Status.DOCTOR_UNAVAILABLE;
+        }
+        return null;
     }
     
     /**
-     * Adds a medical record to the system and links it to a patient with optional message display.
+     * Cancels an appointment, even if it was moved to another time or
+     * doctor meanwhile. A slot still in the future is offered to the
+     * waitlists of the doctor and the doctor's specialization.
      * 
-     * @param patient The patient for the medical record
-     * @param record The medical record to add
-     * @param showMessage Whether to display success/error messages
-     * @return true if addition successful, false otherwise
+     * @param patient The patient canceling the appointment
+     * @param appointmentIndex The index of the appointment in patient's list
+     * @return true if cancellation successful, false otherwise
      */
-    public boolean addMedicalRecord(Patient patient, MedicalRecord record, boolean showMessage) {
-        if (patient == null || record == null) {
-            if (showMessage) {
-                DisplayUtility.printMessage("Error: Patient or record cannot be null", false);
-            }
+    public boolean cancelAppointment(Patient patient, int appointmentIndex) {
+        if (patient == null) {
+            DisplayUtility.printMessage("Error: Patient cannot be null", false);
             return false;
         }
         
-        if (!patients.contains(patient)) {
-            if (showMessage) {
-                DisplayUtility.printMessage("Error: Patient not registered", false);
-            }
+        if (!isRegistered(patient)) {
+            DisplayUtility.printMessage("Error: Patient not registered", false);
             return false;
         }
         
-        medicalRecords.add(record);
-        patient.addMedicalRecord(record);
-        if (showMessage) {
-            DisplayUtility.printMessage("Medical record added successfully", true);
+        Appointment appointment;
+        synchronized (patient) {
+            List<Appointment> patientAppointments = appointmentsByPatient.getOrDefault(
+                patient.getId(), Collections.emptyList());
+            if (appointmentIndex < 0 || appointmentIndex >= patientAppointments.size()) {
+                DisplayUtility.printMessage("Error: Invalid appointment index", false);
+                return false;
+            }
+            appointment = patientAppointments.get(appointmentIndex);
+        }
+        
+        long sequence = -1;
+        while (sequence < 0) {
+            Doctor doctor = appointment.getDoctor();
+            ReentrantLock lock = lockFor(doctor);
+            lock.lock();
+            try {
+                Appointment current = findBooked(patient, appointment.getId());
+                if (current == null) {
+                    DisplayUtility.printMessage("Error: Appointment was already cancelled", false);
+                    return false;
+                }
+                appointment = current;
+                if (stripeOf(current.getDoctor()) == stripeOf(doctor)) {
+                    sequence = journalAndApply(JournalEntry.appointmentCancelled(current),
+                        () -> unindexAppointment(current, true));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        awaitJournal(sequence);
+        
+        DisplayUtility.printMessage("Appointment cancelled successfully", true);
+        Appointment backfilled = backfill(appointment);
+        if (backfilled != null) {
+            DisplayUtility.printMessage("Freed slot booked for waitlisted patient: "
+                + backfilled.getPatient().getName(), true);
         }
         return true;
     }
     
-    // ========== Getter Methods ==========
-    
     /**
-     * Gets all patients.
+     * Moves a booked appointment to another time with the same doctor.
+     * The appointment keeps its ID and patient and is replaced, in the same
+     * place in every list, by a new Appointment at the new time; the object
+     * passed in is left unchanged.
      * 
-     * @return List of all patients
+     * @param appointment The booked appointment to move
+     * @param date The new date (YYYY-MM-DD)
+     * @param time The new time (e.g. 10:00 AM)
+     * @param durationMinutes The new length in minutes
+     * @return The appointment at its new time, or null if it is no longer
+     *         booked, the new time is invalid or outside the doctor's hours,
+     *         or the doctor has another booking then
      */
-    public List<Patient> getPatients() {
-        return new ArrayList<>(patients);
+    public Appointment rescheduleAppointment(Appointment appointment, String date, String time,
+                                             int durationMinutes) {
+        if (appointment == null) {
+            return null;
+        }
+        Doctor doctor = appointment.getDoctor();
+        Appointment moved;
+        try {
+            moved = new Appointment(appointment.getId(), date, time, durationMinutes,
+                appointment.getPatient(), doctor);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        if (!doctor.isAvailableAt(moved.getStartMinute(), moved.getDurationMinutes())) {
+            return null;
+        }
+        
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            List<Appointment> booked = appointmentsByDoctor.get(doctor.getId());
+            if (booked == null || !booked.contains(appointment)) {
+                return null;
+            }
+            if (!doctorSlots.reserve(moved, appointment)) {
+                return null;
+            }
+            try {
+                sequence = journalAndApply(JournalEntry.appointmentRescheduled(moved), () -> {
+                    doctorSlots.release(appointment, moved);
+                    replaceAppointment(appointment, moved);
+                });
+            } catch (UncheckedIOException e) {
+                doctorSlots.release(moved, appointment);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(sequence);
+        return moved;
     }
     
     /**
-     * Gets all doctors.
+     * Finds the earliest free slots with any available doctor of a
+     * specialization. Slots start on a 15-minute grid, fit the doctors'
+     * working hours and do not overlap their bookings; the search covers a
+     * year from the start date. The slots are not reserved, so booking one
+     * can still fail if it is taken in the meantime.
      * 
-     * @return List of all doctors
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @param fromDate The first date to search (YYYY-MM-DD)
+     * @param durationMinutes The length of the appointment in minutes
+     * @param maxSlots The most slots to return
+     * @return The slots in order of start time and then doctor ID
+     * @throws IllegalArgumentException if the date cannot be parsed or the
+     *                                  duration or slot count is not positive
      */
-    public List<Doctor> getDoctors() {
-        return new ArrayList<>(doctors);
+    public List<FreeSlot> findEarliestSlots(String specialization, String fromDate, int durationMinutes,
+                                            int maxSlots) {
+        if (durationMinutes <= 0 || maxSlots <= 0) {
+            throw new IllegalArgumentException("Duration and slot count must be positive");
+        }
+        long fromMinute = Appointment.toEpochMinute(fromDate, "00:00");
+        return slotSearch.find(getAvailableDoctors(specialization), fromMinute, durationMinutes, maxSlots);
     }
     
     /**
-     * Gets all staff members.
+     * Finds the earliest free slot with any available doctor of a
+     * specialization.
      * 
-     * @return List of all staff members
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @param fromDate The first date to search (YYYY-MM-DD)
+     * @param durationMinutes The length of the appointment in minutes
+     * @return The slot, or null if no doctor is free within a year
+     * @throws IllegalArgumentException if the date cannot be parsed or the
+     *                                  duration is not positive
      */
-    public List<Staff> getStaffMembers() {
-        return new ArrayList<>(staffMembers);
+    public FreeSlot findEarliestSlot(String specialization, String fromDate, int durationMinutes) {
+        List<FreeSlot> slots = findEarliestSlots(specialization, fromDate, durationMinutes, 1);
+        return slots.isEmpty() ? null : slots.get(0);
     }
     
     /**
-     * Gets all appointments.
+     * Moves a doctor's appointments in a date range to other available
+     * doctors of the same specialization, in parallel. The doctor's
+     * availability is not changed.
      * 
-     * @return List of all appointments
+     * @param doctor The doctor whose appointments are moved
+     * @param fromDate The first date whose appointments are moved (YYYY-MM-DD)
+     * @param toDate The last date whose appointments are moved (YYYY-MM-DD)
+     * @return The moved appointments and the ones no substitute could take
+     * @throws IllegalArgumentException if the doctor is not registered or a
+     *                                  date cannot be parsed
+     * @throws UncheckedIOException if the journal cannot be written; moves
+     *                              already journaled stay in place
      */
-    public List<Appointment> getAppointments() {
-        return new ArrayList<>(appointments);
+    public ReassignmentReport reassignAppointments(Doctor doctor, String fromDate, String toDate) {
+        if (doctor == null || !isRegistered(doctor)) {
+            throw new IllegalArgumentException("Doctor not registered");
+        }
+        long from = Appointment.toEpochDay(fromDate) * MINUTES_PER_DAY;
+        long to = (Appointment.toEpochDay(toDate) + 1) * MINUTES_PER_DAY;
+        List<Appointment> affected = new ArrayList<>();
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            for (Appointment appointment : appointmentsByDoctor.getOrDefault(doctor.getId(),
+                    Collections.emptyList())) {
+                if (appointment.getStartMinute() >= from && appointment.getStartMinute() < to) {
+                    affected.add(appointment);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        affected.sort(Comparator.comparingLong(Appointment::getStartMinute).thenComparingLong(Appointment::getId));
+        
+        List<Doctor> substitutes = getAvailableDoctors(doctor.getSpecialization());
+        substitutes.remove(doctor);
+        Appointment[] outcomes = new Appointment[affected.size()];
+        LongAccumulator sequence = new LongAccumulator(Math::max, 0);
+        IntStream.range(0, outcomes.length).parallel().forEach(i ->
+            outcomes[i] = reassign(affected.get(i), substitutes, sequence));
+        awaitJournal(sequence.get());
+        
+        List<Appointment> moved = new ArrayList<>();
+        List<Appointment> unplaced = new ArrayList<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == affected.get(i)) {
+                unplaced.add(outcomes[i]);
+            } else if (outcomes[i] != null) {
+                moved.add(outcomes[i]);
+            }
+        }
+        return new ReassignmentReport(moved, unplaced);
     }
     
     /**
-     * Gets all medical records.
+     * Moves one appointment to the first substitute who can take it.
      * 
-     * @return List of all medical records
+     * @param original The appointment to move
+     * @param substitutes The doctors who may take it
+     * @param sequence Receives the journal sequence number of the move
+     * @return The appointment booked with its new doctor, the original if
+     *         no substitute could take it, or null if it was cancelled or
+     *         rescheduled meanwhile
      */
-    public List<MedicalRecord> getMedicalRecords() {
-        return new ArrayList<>(medicalRecords);
+    private Appointment reassign(Appointment original, List<Doctor> substitutes, LongAccumulator sequence) {
+        int count = substitutes.size();
+        for (int k = 0; k < count; k++) {
+            Doctor substitute = substitutes.get((int) ((original.getId() + k) % count));
+            if (!substitute.isAvailableAt(original.getStartMinute(), original.getDurationMinutes())) {
+                continue;
+            }
+            Appointment moved = new Appointment(original.getId(), original.getDate(), original.getTime(),
+                original.getDurationMinutes(), original.getPatient(), substitute);
+            if (!doctorSlots.reserve(moved)) {
+                continue;
+            }
+            int stripeA = stripeOf(original.getDoctor());
+            int stripeB = stripeOf(substitute);
+            ReentrantLock first = doctorLocks[Math.min(stripeA, stripeB)];
+            ReentrantLock second = doctorLocks[Math.max(stripeA, stripeB)];
+            first.lock();
+            second.lock();
+            try {
+                if (findBooked(original.getPatient(), original.getId()) != original) {
+                    doctorSlots.release(moved);
+                    return null;
+                }
+                long appended;
+                try {
+                    JournalEntry entry = JournalEntry.appointmentReassigned(moved, original.getDoctor());
+                    appended = journalAndApply(entry, () -> {
+                        unindexAppointment(original, false);
+                        indexAppointment(moved, false);
+                    });
+                } catch (UncheckedIOException e) {
+                    doctorSlots.release(moved);
+                    throw e;
+                }
+                sequence.accumulate(appended);
+                return moved;
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+        return original;
     }
     
     /**
-     * Gets appointments for a specific patient.
+     * Finds the booked version of a patient's appointment by ID. The result
+     * only stays booked while its doctor's lock is held.
      * 
      * @param patient The patient
-     * @return List of appointments for the patient
+     * @param id The appointment ID
+     * @return The appointment as currently booked, or null if it is not booked
      */
-    public List<Appointment> getPatientAppointments(Patient patient) {
-        return appointments.stream()
-            .filter(apt -> apt.getPatient().equals(patient))
-            .collect(Collectors.toList());
+    private Appointment findBooked(Patient patient, long id) {
+        synchronized (patient) {
+            for (Appointment appointment : appointmentsByPatient.getOrDefault(patient.getId(),
+                    Collections.emptyList())) {
+                if (appointment.getId() == id) {
+                    return appointment;
+                }
+            }
+            return null;
+        }
     }
     
     /**
-     * Gets appointments for a specific doctor.
+     * Gets the striped lock guarding a doctor's bookings. If the global
+     * appointment list has many changes buffered for that lock, they are
+     * applied first, so this must be called without holding any doctor lock.
      * 
      * @param doctor The doctor
-     * @return List of appointments for the doctor
+     * @return The lock for the doctor
      */
-    public List<Appointment> getDoctorAppointments(Doctor doctor) {
-        return appointments.stream()
-            .filter(apt -> apt.getDoctor().equals(doctor))
-            .collect(Collectors.toList());
+    private ReentrantLock lockFor(Doctor doctor) {
+        int stripe = stripeOf(doctor);
+        appointments.drainIfFull(stripe);
+        return doctorLocks[stripe];
+    }
+    
+    /**
+     * Gets the index of the striped lock guarding a doctor's bookings.
+     * 
+     * @param doctor The doctor
+     * @return The stripe index
+     */
+    private static int stripeOf(Doctor doctor) {
+        return (int) (doctor.getId() & (DOCTOR_LOCK_STRIPES - 1));
+    }
+    
+    /**
+     * Adds a booked appointment to the patient, the doctor, all appointment
+     * indexes and the global list.
+     * Must be called while holding the doctor's lock, after the slot has
+     * been reserved.
+     * 
+     * @param appointment The appointment to add
+     * @param showMessage Whether the patient and doctor should print scheduling messages
+     */
+    private void indexAppointment(Appointment appointment, boolean showMessage) {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = appointment.getDoctor();
+        appointmentsByDoctor.computeIfAbsent(doctor.getId(), id -> new ArrayList<>()).add(appointment);
+        synchronized (patient) {
+            appointmentsByPatient.computeIfAbsent(patient.getId(), id -> new ArrayList<>()).add(appointment);
+            if (showMessage) {
+                patient.scheduleAppointment(appointment);
+            } else {
+                patient.getAppointmentList().add(appointment);
+            }
+        }
+        if (showMessage) {
+            doctor.scheduleAppointment(appointment);
+        } else {
+            doctor.getAppointmentList().add(appointment);
+        }
+        appointments.add(stripeOf(doctor), appointment);
+    }
+    
+    /**
+     * Removes a cancelled appointment from all appointment indexes, the
+     * global list, the doctor and the patient. The doctor's index decides
+     * whether the appointment is still booked.
+     * Must be called while holding the doctor's lock.
+     * 
+     * @param appointment The appointment to remove
+     * @param showMessage Whether the patient and doctor should print cancellation messages
+     * @return true if the appointment was removed, false if it was no longer booked
+     */
+    private boolean unindexAppointment(Appointment appointment, boolean showMessage) {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = appointment.getDoctor();
+        if (!removeFromIndex(appointmentsByDoctor, doctor.getId(), appointment)) {
+            return false;
+        }
+        appointments.remove(stripeOf(doctor), appointment);
+        doctorSlots.release(appointment);
+        if (showMessage) {
+            doctor.cancelAppointment(appointment);
+        } else {
+            doctor.getAppointmentList().remove(appointment);
+        }
+        synchronized (patient) {
+            removeFromIndex(appointmentsByPatient, patient.getId(), appointment);
+            if (showMessage) {
+                patient.cancelAppointment(appointment);
+            } else {
+                patient.getAppointmentList().remove(appointment);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Puts an appointment moved to another time in the place of the
+     * original in all appointment indexes, the doctor, the patient and the
+     * global list. The slot index is left to the caller.
+     * Must be called while holding the doctor's lock.
+     * 
+     * @param original The appointment as booked before
+     * @param moved The same appointment at its new time
+     */
+    private void replaceAppointment(Appointment original, Appointment moved) {
+        Patient patient = original.getPatient();
+        Doctor doctor = original.getDoctor();
+        replaceIn(appointmentsByDoctor.get(doctor.getId()), original, moved);
+        doctor.getAppointmentList().replace(original, moved);
+        synchronized (patient) {
+            replaceIn(appointmentsByPatient.get(patient.getId()), original, moved);
+            patient.getAppointmentList().replace(original, moved);
+        }
+        appointments.remove(stripeOf(doctor), original);
+        appointments.add(stripeOf(doctor), moved);
+    }
+    
+    /**
+     * Replaces an appointment in a list, keeping its position.
+     * 
+     * @param list The list, or null
+     * @param original The appointment to replace
+     * @param moved The appointment to put in its place
+     */
+    private static void replaceIn(List<Appointment> list, Appointment original, Appointment moved) {
+        int index = list == null ? -1 : list.indexOf(original);
+        if (index >= 0) {
+            list.set(index, moved);
+        }
+    }
+    
+    /**
+     * Removes an appointment from one entry of a person-keyed index.
+     * 
+     * @param index The index to update
+     * @param personId The ID of the patient or doctor
+     * @param appointment The appointment to remove
+     * @return true if the appointment was in the index, false otherwise
+     */
+    private static boolean removeFromIndex(Map<Long, List<Appointment>> index, long personId,
+                                           Appointment appointment) {
+        List<Appointment> list = index.get(personId);
+        if (list == null || !list.remove(appointment)) {
+            return false;
+        }
+        if (list.isEmpty()) {
+            index.remove(personId);
+        }
+        return true;
+    }
+    
+    // ========== Journal Methods ==========
+    
+    /**
+     * Journals and publishes a booking whose slot is reserved, releasing the
+     * reservation if the journal cannot be written.
+     * Must be called while holding the doctor's lock.
+     * 
+     * @param appointment The reserved appointment
+     * @param showMessage Whether the patient and doctor should print scheduling messages
+     * @return The sequence number of the entry, or 0 without a journal
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private long commitBooking(Appointment appointment, boolean showMessage) {
+        try {
+            return journalAndApply(JournalEntry.appointmentBooked(appointment),
+                () -> indexAppointment(appointment, showMessage));
+        } catch (UncheckedIOException e) {
+            doctorSlots.release(appointment);
+            throw e;
+        }
+    }
+    
+    /**
+     * Appends an entry and then applies its change, holding the journal
+     * lock shared so a snapshot cannot rotate the journal in between.
+     * 
+     * @param entry The entry to append
+     * @param apply Applies the change once the entry is appended
+     * @return The sequence number of the entry, or 0 without a journal
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private long journalAndApply(JournalEntry entry, Runnable apply) {
+        journalLock.readLock().lock();
+        try {
+            long sequence = appendJournal(entry);
+            apply.run();
+            return sequence;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Appends an entry to the journal, if there is one.
+     * 
+     * @param entry The entry to append
+     * @return The sequence number of the entry, or 0 without a journal
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private long appendJournal(JournalEntry entry) {
+        if (journal == null) {
+            return 0;
+        }
+        try {
+            return journal.append(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to journal", e);
+        }
+    }
+    
+    /**
+     * Waits until a journal entry is durable, if there is a journal.
+     * 
+     * @param sequence The sequence number to wait for
+     * @throws UncheckedIOException if the journal cannot be flushed
+     */
+    private void awaitJournal(long sequence) {
+        if (journal == null || sequence == 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush journal", e);
+        }
+    }
+    
+    // ========== Archive Methods ==========
+    
+    /**
+     * Sets the off-heap store that past appointments are archived to.
+     * 
+     * @param archive The archive, or null for none
+     */
+    public void setAppointmentArchive(OffHeapAppointmentStore archive) {
+        archiveLock.writeLock().lock();
+        try {
+            this.archive = archive;
+        } finally {
+            archiveLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets the off-heap store that past appointments are archived to.
+     * The store is replaced, and the old one closed, when it is flushed to
+     * the history.
+     * 
+     * @return The archive, or null if there is none
+     */
+    public OffHeapAppointmentStore getAppointmentArchive() {
+        return archive;
+    }
+    
+    /**
+     * Sets the on-disk index that the archive is flushed to.
+     * 
+     * @param history The history, or null for none
+     */
+    public void setAppointmentHistory(AppointmentHistory history) {
+        archiveLock.writeLock().lock();
+        try {
+            this.history = history;
+        } finally {
+            archiveLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets the on-disk index that the archive is flushed to.
+     * 
+     * @return The history, or null if there is none
+     */
+    public AppointmentHistory getAppointmentHistory() {
+        return history;
+    }
+    
+    /**
+     * Moves appointments that ended before a date from the live lists and
+     * indexes into the archive as completed, freeing their heap objects.
+     * Each doctor's appointments are archived together under one lock,
+     * with one pass over each list they are removed from.
+     * 
+     * @param date The first date to keep live (YYYY-MM-DD)
+     * @return The number of appointments archived
+     * @throws IllegalArgumentException if the date cannot be parsed
+     * @throws IllegalStateException if there is no archive
+     */
+    public int archiveAppointmentsBefore(String date) {
+        long cutoff = Appointment.toEpochDay(date) * MINUTES_PER_DAY;
+        int archived = 0;
+        long sequence = 0;
+        archiveLock.writeLock().lock();
+        try {
+            OffHeapAppointmentStore target = archive;
+            if (target == null) {
+                throw new IllegalStateException("No appointment archive");
+            }
+            Map<Long, Doctor> doctorsWithEnded = new LinkedHashMap<>();
+            for (Appointment appointment : appointments.snapshot()) {
+                if (appointment.getEndMinute() <= cutoff) {
+                    doctorsWithEnded.putIfAbsent(appointment.getDoctor().getId(), appointment.getDoctor());
+                }
+            }
+            for (Doctor doctor : doctorsWithEnded.values()) {
+                ReentrantLock lock = lockFor(doctor);
+                lock.lock();
+                try {
+                    List<Appointment> journaled = new ArrayList<>();
+                    try {
+                        for (Appointment appointment : endedBefore(doctor, cutoff)) {
+                            sequence = appendJournal(JournalEntry.appointmentArchived(appointment.getId(),
+                                appointment.getPatient().getId(), doctor.getId(),
+                                appointment.getStartMinute(), appointment.getDurationMinutes()));
+                            journaled.add(appointment);
+                        }
+                    } finally {
+                        unindexEnded(doctor, journaled);
+                        for (Appointment appointment : journaled) {
+                            target.add(appointment, OffHeapAppointmentStore.Status.COMPLETED);
+                        }
+                        archived += journaled.size();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            archiveLock.writeLock().unlock();
+        }
+        awaitJournal(sequence);
+        return archived;
+    }
+    
+    /**
+     * Finds a doctor's booked appointments that ended before a minute.
+     * Must be called while holding the doctor's lock.
+     * 
+     * @param doctor The doctor
+     * @param cutoff The first minute to keep, in minutes since the epoch
+     * @return The ended appointments
+     */
+    private List<Appointment> endedBefore(Doctor doctor, long cutoff) {
+        List<Appointment> ended = new ArrayList<>();
+        List<Appointment> booked = appointmentsByDoctor.get(doctor.getId());
+        if (booked != null) {
+            for (Appointment appointment : booked) {
+                if (appointment.getEndMinute() <= cutoff) {
+                    ended.add(appointment);
+                }
+            }
+        }
+        return ended;
+    }
+    
+    /**
+     * Removes a doctor's ended appointments from all appointment indexes,
+     * the global list, the doctor and their patients. Each list is
+     * filtered once for the whole batch rather than once per appointment.
+     * Must be called while holding the doctor's lock.
+     * 
+     * @param doctor The doctor
+     * @param ended The appointments to remove, all booked with the doctor
+     */
+    private void unindexEnded(Doctor doctor, List<Appointment> ended) {
+        List<Appointment> booked = appointmentsByDoctor.get(doctor.getId());
+        if (booked == null || ended.isEmpty()) {
+            return;
+        }
+        Set<Long> endedIds = new HashSet<>();
+        Map<Long, Patient> patientsOfEnded = new LinkedHashMap<>();
+        for (Appointment appointment : ended) {
+            endedIds.add(appointment.getId());
+            patientsOfEnded.putIfAbsent(appointment.getPatient().getId(), appointment.getPatient());
+        }
+        Predicate<Appointment> isEnded = appointment -> endedIds.contains(appointment.getId());
+        booked.removeIf(isEnded);
+        if (booked.isEmpty()) {
+            appointmentsByDoctor.remove(doctor.getId());
+        }
+        doctor.getAppointmentList().removeIf(isEnded);
+        int stripe = stripeOf(doctor);
+        for (Appointment appointment : ended) {
+            appointments.remove(stripe, appointment);
+            doctorSlots.release(appointment);
+        }
+        for (Patient patient : patientsOfEnded.values()) {
+            synchronized (patient) {
+                List<Appointment> ofPatient = appointmentsByPatient.get(patient.getId());
+                if (ofPatient != null) {
+                    ofPatient.removeIf(isEnded);
+                    if (ofPatient.isEmpty()) {
+                        appointmentsByPatient.remove(patient.getId());
+                    }
+                }
+                patient.getAppointmentList().removeIf(isEnded);
+            }
+        }
+    }
+    
+    /**
+     * Writes every archived appointment to a new run of the on-disk history
+     * and replaces the archive with an empty one, freeing its native memory.
+     * The run is durable and recorded in the journal before it becomes
+     * visible, so after a crash an unrecorded run is discarded and its
+     * appointments are recovered into the archive instead.
+     * 
+     * @return The number of appointments moved to the history
+     * @throws IllegalStateException if there is no archive or no history
+     * @throws UncheckedIOException if the run or the journal cannot be written
+     */
+    public long flushArchiveToHistory() {
+        archiveLock.writeLock().lock();
+        try {
+            OffHeapAppointmentStore source = archive;
+            AppointmentHistory target = history;
+            if (source == null || target == null) {
+                throw new IllegalStateException("No appointment archive or history");
+            }
+            long count = source.size();
+            if (count == 0) {
+                return 0;
+            }
+            long run;
+            try {
+                run = target.writeRun(source);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write appointment history", e);
+            }
+            awaitJournal(appendJournal(JournalEntry.archiveFlushed(run)));
+            try {
+                target.publishRun(run);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open appointment history run", e);
+            }
+            archive = new OffHeapAppointmentStore();
+            source.close();
+            return count;
+        } finally {
+            archiveLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets all appointments of a patient, including archived ones and those
+     * in the on-disk history, ordered by start. Archived appointments are
+     * created anew on every call.
+     * 
+     * @param patient The patient
+     * @return List of past and live appointments for the patient
+     * @throws UncheckedIOException if the history cannot be read
+     */
+    public List<Appointment> getPatientAppointmentHistory(Patient patient) {
+        return getPatientAppointments(patient, null, null);
+    }
+    
+    /**
+     * Gets all appointments of a doctor, including archived ones and those
+     * in the on-disk history, ordered by start. Archived appointments are
+     * created anew on every call.
+     * 
+     * @param doctor The doctor
+     * @return List of past and live appointments for the doctor
+     * @throws UncheckedIOException if the history cannot be read
+     */
+    public List<Appointment> getDoctorAppointmentHistory(Doctor doctor) {
+        return getDoctorAppointments(doctor, null, null);
+    }
+    
+    /**
+     * Gets the appointments of a patient on dates within a range, including
+     * archived ones and those in the on-disk history, ordered by start.
+     * Only the history pages covering the patient and range are read.
+     * 
+     * @param patient The patient
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @return List of matching appointments for the patient
+     * @throws IllegalArgumentException if a date bound cannot be parsed
+     * @throws UncheckedIOException if the history cannot be read
+     */
+    public List<Appointment> getPatientAppointments(Patient patient, String fromDate, String toDate) {
+        return collectAppointments(patient.getId(), true, () -> getPatientAppointments(patient), fromDate, toDate);
+    }
+    
+    /**
+     * Gets the appointments of a doctor on dates within a range, including
+     * archived ones and those in the on-disk history, ordered by start.
+     * Only the history pages covering the doctor and range are read.
+     * 
+     * @param doctor The doctor
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @return List of matching appointments for the doctor
+     * @throws IllegalArgumentException if a date bound cannot be parsed
+     * @throws UncheckedIOException if the history cannot be read
+     */
+    public List<Appointment> getDoctorAppointments(Doctor doctor, String fromDate, String toDate) {
+        return collectAppointments(doctor.getId(), false, () -> getDoctorAppointments(doctor), fromDate, toDate);
+    }
+    
+    /**
+     * Collects the appointments of a patient or doctor within a date range
+     * from the history, the archive and the live lists.
+     * 
+     * @param personId The ID of the patient or doctor
+     * @param byPatient Whether personId is a patient ID rather than a doctor ID
+     * @param live Supplies the live appointments of the patient or doctor
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @return List of matching appointments ordered by start
+     * @throws IllegalArgumentException if a date bound cannot be parsed
+     * @throws UncheckedIOException if the history cannot be read
+     */
+    private List<Appointment> collectAppointments(long personId, boolean byPatient,
+                                                  Supplier<List<Appointment>> live,
+                                                  String fromDate, String toDate) {
+        long from = fromDate == null ? Long.MIN_VALUE : Appointment.toEpochDay(fromDate) * MINUTES_PER_DAY;
+        long to = toDate == null ? Long.MAX_VALUE : (Appointment.toEpochDay(toDate) + 1) * MINUTES_PER_DAY;
+        List<Appointment> result = new ArrayList<>();
+        List<Appointment> current;
+        // Reading the live list under the same lock keeps an appointment being
+        // archived from showing up twice or not at all
+        archiveLock.readLock().lock();
+        try {
+            current = live.get();
+            if (history != null) {
+                List<AppointmentHistory.Entry> entries = byPatient
+                    ? history.findByPatient(personId, from, to) : history.findByDoctor(personId, from, to);
+                for (AppointmentHistory.Entry entry : entries) {
+                    Appointment appointment = entry.toAppointment(this);
+                    if (appointment != null) {
+                        result.add(appointment);
+                    }
+                }
+            }
+            if (archive != null) {
+                Consumer<OffHeapAppointmentStore.View> collect = view -> {
+                    long start = view.getStartMinute();
+                    if (start >= from && start < to) {
+                        Appointment appointment = view.toAppointment(this);
+                        if (appointment != null) {
+                            result.add(appointment);
+                        }
+                    }
+                };
+                if (byPatient) {
+                    archive.forEachOfPatient(personId, collect);
+                } else {
+                    archive.forEachOfDoctor(personId, collect);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read appointment history", e);
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+        for (Appointment appointment : current) {
+            if (appointment.getStartMinute() >= from && appointment.getStartMinute() < to) {
+                result.add(appointment);
+            }
+        }
+        result.sort(Comparator.comparingLong(Appointment::getStartMinute).thenComparingLong(Appointment::getId));
+        return result;
+    }
+    
+    /**
+     * Passes archived appointments to an action while the archive is held
+     * unchanged. The same view object is moved from row to row, so the
+     * action must not keep it.
+     * 
+     * @param patient The patient whose appointments to pass, or null for all
+     * @param action Receives the view of each archived appointment
+     */
+    void forEachArchivedAppointment(Patient patient, Consumer<OffHeapAppointmentStore.View> action) {
+        archiveLock.readLock().lock();
+        try {
+            if (archive == null) {
+                return;
+            }
+            if (patient == null) {
+                archive.forEach(action);
+            } else {
+                archive.forEachOfPatient(patient.getId(), action);
+            }
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets the lock that holds off changes between their journal append and
+     * their apply while held.
+     * 
+     * @return The lock
+     */
+    Lock getJournalLock() {
+        return journalLock.writeLock();
+    }
+    
+    /**
+     * Gets the lock that keeps the archive and history unchanged while held.
+     * Snapshots hold it while rotating the journal and writing the archive,
+     * so the two agree.
+     * 
+     * @return The lock
+     */
+    Lock getArchiveLock() {
+        return archiveLock.readLock();
+    }
+    
+    // ========== Calendar Methods ==========
+    
+    /**
+     * Sets the working hours of a doctor. Appointments already booked are
+     * kept even if they fall outside the new hours; new bookings must fit
+     * inside them.
+     * 
+     * @param doctor The doctor
+     * @param calendar The calendar, or null to let the doctor be booked at any time
+     * @return true if the calendar was set, false if the doctor is null or not registered
+     */
+    public boolean setDoctorCalendar(Doctor doctor, AvailabilityCalendar calendar) {
+        if (doctor == null || !isRegistered(doctor)) {
+            return false;
+        }
+        long sequence;
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            sequence = journalAndApply(JournalEntry.calendarSet(doctor, calendar),
+                () -> doctor.setCalendar(calendar));
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(sequence);
+        return true;
+    }
+    
+    // ========== Waitlist Methods ==========
+    
+    /**
+     * Puts a patient on a doctor's waitlist. When one of the doctor's
+     * appointments is cancelled, the freed slot is booked for the waiting
+     * patient with the highest priority whose appointment fits in it. A
+     * patient also waiting for the doctor's specialization is then taken
+     * off that waitlist too, so one wanted appointment is booked once.
+     * Waitlists are kept in memory only and are not journaled.
+     * 
+     * @param patient The waiting patient
+     * @param doctor The doctor
+     * @param priority The priority, higher served first; equal priorities are served in joining order
+     * @param durationMinutes The length of appointment wanted in minutes
+     * @return true if the patient was added, false if the patient or doctor is null or not registered
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public boolean joinWaitlist(Patient patient, Doctor doctor, int priority, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        if (patient == null || doctor == null || !isRegistered(patient) || !isRegistered(doctor)) {
+            return false;
+        }
+        waitlist.add(patient, doctor, priority, durationMinutes);
+        return true;
+    }
+    
+    /**
+     * Puts a patient on the waitlist of a specialization. A slot freed with
+     * any doctor of the specialization may be booked for the patient.
+     * Waitlists are kept in memory only and are not journaled.
+     * 
+     * @param patient The waiting patient
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @param priority The priority, higher served first; equal priorities are served in joining order
+     * @param durationMinutes The length of appointment wanted in minutes
+     * @return true if the patient was added, false if the patient is null or not registered
+     * @throws IllegalArgumentException if the duration is not positive
+     */
+    public boolean joinWaitlist(Patient patient, String specialization, int priority, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        if (patient == null || specialization == null || !isRegistered(patient)) {
+            return false;
+        }
+        waitlist.add(patient, specialization, priority, durationMinutes);
+        return true;
+    }
+    
+    /**
+     * Takes a patient off every waitlist.
+     * 
+     * @param patient The patient
+     * @return The number of waitlist entries removed
+     */
+    public int leaveWaitlists(Patient patient) {
+        return patient == null ? 0 : waitlist.remove(patient);
+    }
+    
+    /**
+     * Gets the number of patients on a doctor's own waitlist.
+     * 
+     * @param doctor The doctor
+     * @return The number of waiting entries
+     */
+    public int getWaitlistSize(Doctor doctor) {
+        return doctor == null ? 0 : waitlist.size(doctor);
+    }
+    
+    /**
+     * Gets the number of patients on a specialization's waitlist.
+     * 
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @return The number of waiting entries
+     */
+    public int getWaitlistSize(String specialization) {
+        return waitlist.size(specialization);
+    }
+    
+    /**
+     * Books a slot freed by a cancellation for the next waiting patient,
+     * through the silent commit path. Slots that have already started are
+     * not offered. The patient's other entries for the same doctor or
+     * specialization are used up with the one served. If the booking fails,
+     * for example because the slot was taken first, the patient keeps their
+     * places.
+     * 
+     * @param freed The cancelled appointment
+     * @return The new appointment, or null if nobody was booked
+     */
+    private Appointment backfill(Appointment freed) {
+        LocalDateTime now = LocalDateTime.now();
+        if (freed.getStartMinute() <= now.toLocalDate().toEpochDay() * MINUTES_PER_DAY
+                + now.getHour() * 60 + now.getMinute()) {
+            return null;
+        }
+        Doctor doctor = freed.getDoctor();
+        Waitlist.Entry next = waitlist.poll(doctor, freed.getDurationMinutes());
+        if (next == null) {
+            return null;
+        }
+        Appointment booked = bookSilently(next.getPatient(), doctor, freed.getDate(), freed.getTime(),
+            next.getDurationMinutes());
+        if (booked == null) {
+            waitlist.restore(next);
+        }
+        return booked;
+    }
+    
+    // ========== Diagnosis Update Methods ==========
+    
+    /**
+     * Updates a patient's diagnosis. Can only be called by doctors who are
+     * available and, if they have a calendar, within their working hours.
+     * 
+     * @param doctor The doctor updating the diagnosis
+     * @param patient The patient whose diagnosis is being updated
+     * @param newDiagnosis The new diagnosis
+     * @return true if update successful, false otherwise
+     */
+    public boolean updatePatientDiagnosis(Doctor doctor, Patient patient, String newDiagnosis) {
+        if (doctor == null || patient == null) {
+            DisplayUtility.printMessage("Error: Doctor or patient cannot be null", false);
+            return false;
+        }
+        
+        if (!isRegistered(doctor)) {
+            DisplayUtility.printMessage("Error: Doctor not registered", false);
+            return false;
+        }
+        
+        if (!isRegistered(patient)) {
+            DisplayUtility.printMessage("Error: Patient not registered", false);
+            return false;
+        }
+        
+        if (!doctor.acceptsDiagnosis(patient, newDiagnosis)) {
+            DisplayUtility.printMessage("Error: Diagnosis cannot be empty", false);
+            return false;
+        }
+        
+        if (!doctor.isAvailableNow()) {
+            DisplayUtility.printMessage("Error: Doctor is not available", false);
+            return false;
+        }
+        
+        long sequence;
+        boolean updated;
+        synchronized (patient) {
+            journalLock.readLock().lock();
+            try {
+                sequence = appendJournal(JournalEntry.diagnosisUpdated(doctor, patient, newDiagnosis));
+                updated = doctor.updatePatientDiagnosis(patient, newDiagnosis);
+            } finally {
+                journalLock.readLock().unlock();
+            }
+        }
+        awaitJournal(sequence);
+        if (!updated) {
+            DisplayUtility.printMessage("Error: Diagnosis was not updated", false);
+            return false;
+        }
+        DisplayUtility.printMessage("Diagnosis updated successfully by " + doctor.getName(), true);
+        return true;
+    }
+    
+    // ========== Medical Record Methods ==========
+    
+    /**
+     * Adds a medical record to the system and links it to a patient.
+     * 
+     * @param patient The patient for the medical record
+     * @param record The medical record to add
+     * @return true if addition successful, false otherwise
+     */
+    public boolean addMedicalRecord(Patient patient, MedicalRecord record) {
+        return addMedicalRecord(patient, record, true);
+    }
+    
+    /**
+     * Adds a medical record to the system and links it to a patient with optional message display.
+     * 
+     * @param patient The patient for the medical record
+     * @param record The medical record to add
+     * @param showMessage Whether to display success/error messages
+     * @return true if addition successful, false otherwise
+     */
+    public boolean addMedicalRecord(Patient patient, MedicalRecord record, boolean showMessage) {
+        if (patient == null || record == null) {
+            if (showMessage) {
+                DisplayUtility.printMessage("Error: Patient or record cannot be null", false);
+            }
+            return false;
+        }
+        
+        if (!isRegistered(patient)) {
+            if (showMessage) {
+                DisplayUtility.printMessage("Error: Patient not registered", false);
+            }
+            return false;
+        }
+        
+        long sequence;
+        synchronized (patient) {
+            sequence = journalAndApply(JournalEntry.medicalRecordAdded(patient, record),
+                () -> addRecord(patient, record));
+        }
+        awaitJournal(sequence);
+        if (showMessage) {
+            DisplayUtility.printMessage("Medical record added successfully", true);
+        }
+        return true;
+    }
+    
+    /**
+     * Adds a medical record to the patient, the record index and the global list.
+     * The record is refiled in the index whenever its date changes.
+     * Must be called while holding the patient's monitor.
+     * 
+     * @param patient The patient for the medical record
+     * @param record The medical record to add
+     */
+    private void addRecord(Patient patient, MedicalRecord record) {
+        record.setChangeListener((changed, property, oldValue, newValue) ->
+            recordIndex.redate(patient, changed, (String) oldValue));
+        recordIndex.add(patient, record);
+        patient.addMedicalRecord(record);
+        synchronized (medicalRecords) {
+            medicalRecords.add(record);
+            recordOwners.add(patient);
+        }
+    }
+    
+    /**
+     * Gets the number of medical records added so far.
+     * Records are never removed, so the first records up to this count
+     * form a fixed point-in-time view.
+     * 
+     * @return The number of medical records
+     */
+    int getMedicalRecordCount() {
+        return medicalRecords.size();
+    }
+    
+    /**
+     * Passes the first medical records, in the order they were added, to an
+     * action together with their patient. Records are copied out in small
+     * batches, so records added meanwhile are not blocked for long.
+     * 
+     * @param count The number of records to visit, at most getMedicalRecordCount()
+     * @param action Receives each patient and record
+     */
+    void forEachMedicalRecord(int count, BiConsumer<Patient, MedicalRecord> action) {
+        List<Patient> owners = new ArrayList<>(RECORD_BATCH);
+        List<MedicalRecord> batch = new ArrayList<>(RECORD_BATCH);
+        for (int start = 0; start < count; start += RECORD_BATCH) {
+            int end = Math.min(count, start + RECORD_BATCH);
+            synchronized (medicalRecords) {
+                for (int i = start; i < end; i++) {
+                    batch.add(medicalRecords.get(i));
+                    owners.add(recordOwners.get(i));
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                action.accept(owners.get(i), batch.get(i));
+            }
+            batch.clear();
+            owners.clear();
+        }
+    }
+    
+    // ========== Restore Methods ==========
+    
+    /**
+     * Adds a restored patient without checks or journaling.
+     * 
+     * @param patient The patient to restore
+     */
+    void restorePatient(Patient patient) {
+        addPatient(patient);
+    }
+    
+    /**
+     * Adds a restored doctor without checks or journaling.
+     * 
+     * @param doctor The doctor to restore
+     */
+    void restoreDoctor(Doctor doctor) {
+        addDoctor(doctor);
+    }
+    
+    /**
+     * Adds a restored staff member without checks or journaling.
+     * 
+     * @param staff The staff member to restore
+     */
+    void restoreStaff(Staff staff) {
+        addStaff(staff);
+    }
+    
+    /**
+     * Adds a restored appointment without availability checks or journaling.
+     * 
+     * @param appointment The appointment to restore
+     */
+    void restoreAppointment(Appointment appointment) {
+        ReentrantLock lock = lockFor(appointment.getDoctor());
+        lock.lock();
+        try {
+            doctorSlots.tryReserve(appointment);
+            indexAppointment(appointment, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds a restored medical record without checks or journaling.
+     * 
+     * @param patient The patient owning the record
+     * @param record The record to restore
+     */
+    void restoreMedicalRecord(Patient patient, MedicalRecord record) {
+        synchronized (patient) {
+            addRecord(patient, record);
+        }
+    }
+    
+    /**
+     * Starts writing changes to a journal, typically after a restore.
+     * 
+     * @param journal The journal to write to
+     */
+    void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+    
+    /**
+     * Serves patients and doctors not yet restored from a registry file,
+     * typically after a restore. They are already durable, so loading them
+     * writes nothing to the journal.
+     * 
+     * @param registry The registry file
+     */
+    void attachRegistry(RegistryFile registry) {
+        this.registry = registry;
+    }
+    
+    /**
+     * Gets the registry file still serving patients and doctors that have
+     * not been loaded.
+     * 
+     * @return The registry file, or null if everyone is loaded
+     */
+    RegistryFile getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Gets the patients loaded so far, without loading those still only in
+     * the registry file.
+     * 
+     * @return A read-only snapshot of the loaded patients
+     */
+    List<Patient> getLoadedPatients() {
+        return patients.snapshot();
+    }
+    
+    /**
+     * Gets the doctors loaded so far, without loading those still only in
+     * the registry file.
+     * 
+     * @return A read-only snapshot of the loaded doctors
+     */
+    List<Doctor> getLoadedDoctors() {
+        return doctors.snapshot();
+    }
+    
+    /**
+     * Registers every patient and doctor still only in the registry file,
+     * once, before a query that needs all of them.
+     */
+    private void loadRegistry() {
+        RegistryFile file = registry;
+        if (file == null) {
+            return;
+        }
+        synchronized (file) {
+            if (registry == file) {
+                file.restoreInto(this);
+                registry = null;
+            }
+        }
+    }
+    
+    /**
+     * Gets the journal changes are written to.
+     * 
+     * @return The journal, or null if there is none
+     */
+    Journal getJournal() {
+        return journal;
+    }
+    
+    // ========== Lookup Methods ==========
+    
+    /**
+     * Checks whether this exact patient is registered.
+     * 
+     * @param patient The patient to check
+     * @return true if registered, false otherwise
+     */
+    private boolean isRegistered(Patient patient) {
+        return patientsById.get(patient.getId()) == patient;
+    }
+    
+    /**
+     * Checks whether this exact doctor is registered.
+     * 
+     * @param doctor The doctor to check
+     * @return true if registered, false otherwise
+     */
+    private boolean isRegistered(Doctor doctor) {
+        return doctorsById.get(doctor.getId()) == doctor;
+    }
+    
+    /**
+     * Checks whether this exact staff member is registered.
+     * 
+     * @param staff The staff member to check
+     * @return true if registered, false otherwise
+     */
+    private boolean isRegistered(Staff staff) {
+        return staffById.get(staff.getId()) == staff;
+    }
+    
+    /**
+     * Keeps the name indexes in sync when a registered person is renamed,
+     * and the specialization index when a registered doctor's specialization
+     * or availability changes.
+     * 
+     * @param person The person that changed
+     * @param property The name of the changed property
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    private void personChanged(Person person, String property, Object oldValue, Object newValue) {
+        if (("specialization".equals(property) || "availability".equals(property))
+                && person instanceof Doctor && isRegistered((Doctor) person)) {
+            doctorSpecializations.update((Doctor) person);
+            return;
+        }
+        if (!"name".equals(property)) {
+            return;
+        }
+        String oldName = (String) oldValue;
+        String newName = (String) newValue;
+        if (person instanceof Patient && isRegistered((Patient) person)) {
+            patientNames.rename((Patient) person, oldName, newName);
+        } else if (person instanceof Doctor && isRegistered((Doctor) person)) {
+            doctorNames.rename((Doctor) person, oldName, newName);
+        } else if (person instanceof Staff && isRegistered((Staff) person)) {
+            staffNames.rename((Staff) person, oldName, newName);
+        }
+    }
+    
+    /**
+     * Finds a patient by ID, loading them from the registry file if they
+     * have not been yet.
+     * 
+     * @param id The patient ID
+     * @return The patient if found, null otherwise
+     */
+    public Patient findPatientById(long id) {
+        Patient patient = patientsById.get(id);
+        RegistryFile file = registry;
+        if (patient == null && file != null && (patient = file.findPatient(id)) != null) {
+            addPatient(patient);
+        }
+        return patient;
+    }
+    
+    /**
+     * Finds a doctor by ID, loading them from the registry file if they
+     * have not been yet.
+     * 
+     * @param id The doctor ID
+     * @return The doctor if found, null otherwise
+     */
+    public Doctor findDoctorById(long id) {
+        Doctor doctor = doctorsById.get(id);
+        RegistryFile file = registry;
+        if (doctor == null && file != null && (doctor = file.findDoctor(id)) != null) {
+            addDoctor(doctor);
+        }
+        return doctor;
+    }
+    
+    /**
+     * Finds a staff member by ID.
+     * 
+     * @param id The staff ID
+     * @return The staff member if found, null otherwise
+     */
+    public Staff findStaffById(long id) {
+        return staffById.get(id);
+    }
+    
+    // ========== Getter Methods ==========
+    
+    /**
+     * Gets all patients.
+     * 
+     * @return Read-only snapshot of all patients
+     */
+    public List<Patient> getPatients() {
+        loadRegistry();
+        return patients.snapshot();
+    }
+    
+    /**
+     * Gets all doctors.
+     * 
+     * @return Read-only snapshot of all doctors
+     */
+    public List<Doctor> getDoctors() {
+        loadRegistry();
+        return doctors.snapshot();
+    }
+    
+    /**
+     * Gets all staff members.
+     * 
+     * @return Read-only snapshot of all staff members
+     */
+    public List<Staff> getStaffMembers() {
+        return staffMembers.snapshot();
+    }
+    
+    /**
+     * Gets all appointments. The snapshot is built from the changes made
+     * since the previous one, so it costs little even right after bookings.
+     * 
+     * @return Read-only snapshot of all appointments in ID order, which is booking order
+     */
+    public List<Appointment> getAppointments() {
+        return appointments.snapshot();
+    }
+    
+    /**
+     * Gets all medical records.
+     * 
+     * @return Read-only snapshot of all medical records
+     */
+    public List<MedicalRecord> getMedicalRecords() {
+        return medicalRecords.snapshot();
+    }
+    
+    /**
+     * Gets appointments for a specific patient.
+     * 
+     * @param patient The patient
+     * @return List of appointments for the patient
+     */
+    public List<Appointment> getPatientAppointments(Patient patient) {
+        synchronized (patient) {
+            return new ArrayList<>(appointmentsByPatient.getOrDefault(patient.getId(), Collections.emptyList()));
+        }
+    }
+    
+    /**
+     * Gets appointments for a specific doctor.
+     * 
+     * @param doctor The doctor
+     * @return List of appointments for the doctor
+     */
+    public List<Appointment> getDoctorAppointments(Doctor doctor) {
+        ReentrantLock lock = lockFor(doctor);
+        lock.lock();
+        try {
+            return new ArrayList<>(appointmentsByDoctor.getOrDefault(doctor.getId(), Collections.emptyList()));
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
@@ -436,48 +2316,203 @@ public class HospitalManagementSystem {
      * @return List of medical records for the patient
      */
     public List<MedicalRecord> getPatientMedicalRecords(Patient patient) {
-        return medicalRecords.stream()
-            .filter(record -> patient.getMedicalRecords().contains(record))
-            .collect(Collectors.toList());
+        return recordIndex.get(patient);
+    }
+    
+    /**
+     * Gets medical records of one type for a patient within a date range.
+     * Inpatient records are dated by their record date and outpatient
+     * records by their visit date.
+     * 
+     * @param patient The patient
+     * @param type The record type, such as InpatientRecord.class or MedicalRecord.class
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @param <T> The record type
+     * @return New list of the matching medical records ordered by date
+     * @throws IllegalArgumentException if a date bound cannot be parsed
+     */
+    public <T extends MedicalRecord> List<T> getPatientMedicalRecords(Patient patient, Class<T> type,
+                                                                     String fromDate, String toDate) {
+        return recordIndex.get(patient, type, fromDate, toDate);
     }
     
     /**
-     * Finds a patient by name.
+     * Finds a patient by name, ignoring case and extra whitespace.
+     * If several patients share the name, the one with the lowest ID is returned.
      * 
      * @param name The name to search for
      * @return The patient if found, null otherwise
      */
     public Patient findPatientByName(String name) {
-        return patients.stream()
-            .filter(p -> p.getName().equalsIgnoreCase(name))
-            .findFirst()
-            .orElse(null);
+        loadRegistry();
+        return patientNames.findFirst(name);
+    }
+    
+    /**
+     * Finds all patients with a name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to search for
+     * @return List of matching patients in ID order
+     */
+    public List<Patient> findPatientsByName(String name) {
+        loadRegistry();
+        return patientNames.findExact(name);
+    }
+    
+    /**
+     * Finds one page of patients whose name starts with a prefix.
+     * 
+     * @param prefix The name prefix to search for
+     * @param offset The number of matches to skip
+     * @param limit The maximum number of matches to return
+     * @return List of matching patients ordered by name
+     */
+    public List<Patient> findPatientsByNamePrefix(String prefix, int offset, int limit) {
+        loadRegistry();
+        return patientNames.findByPrefix(prefix, offset, limit);
     }
     
     /**
-     * Finds a doctor by name.
+     * Finds a doctor by name, ignoring case and extra whitespace.
+     * If several doctors share the name, the one with the lowest ID is returned.
      * 
      * @param name The name to search for
      * @return The doctor if found, null otherwise
      */
     public Doctor findDoctorByName(String name) {
-        return doctors.stream()
-            .filter(d -> d.getName().equalsIgnoreCase(name))
-            .findFirst()
-            .orElse(null);
+        loadRegistry();
+        return doctorNames.findFirst(name);
+    }
+    
+    /**
+     * Finds all doctors with a name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to search for
+     * @return List of matching doctors in ID order
+     */
+    public List<Doctor> findDoctorsByName(String name) {
+        loadRegistry();
+        return doctorNames.findExact(name);
+    }
+    
+    /**
+     * Finds one page of doctors whose name starts with a prefix.
+     * 
+     * @param prefix The name prefix to search for
+     * @param offset The number of matches to skip
+     * @param limit The maximum number of matches to return
+     * @return List of matching doctors ordered by name
+     */
+    public List<Doctor> findDoctorsByNamePrefix(String prefix, int offset, int limit) {
+        loadRegistry();
+        return doctorNames.findByPrefix(prefix, offset, limit);
     }
     
     /**
-     * Finds a staff member by name.
+     * Finds a staff member by name, ignoring case and extra whitespace.
+     * If several staff members share the name, the one with the lowest ID is returned.
      * 
      * @param name The name to search for
      * @return The staff member if found, null otherwise
      */
     public Staff findStaffByName(String name) {
-        return staffMembers.stream()
-            .filter(s -> s.getName().equalsIgnoreCase(name))
-            .findFirst()
-            .orElse(null);
+        return staffNames.findFirst(name);
+    }
+    
+    /**
+     * Finds all staff members with a name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to search for
+     * @return List of matching staff members in ID order
+     */
+    public List<Staff> findStaffMembersByName(String name) {
+        return staffNames.findExact(name);
+    }
+    
+    /**
+     * Finds one page of staff members whose name starts with a prefix.
+     * 
+     * @param prefix The name prefix to search for
+     * @param offset The number of matches to skip
+     * @param limit The maximum number of matches to return
+     * @return List of matching staff members ordered by name
+     */
+    public List<Staff> findStaffMembersByNamePrefix(String prefix, int offset, int limit) {
+        return staffNames.findByPrefix(prefix, offset, limit);
+    }
+    
+    /**
+     * Finds doctors with a specialization, ignoring case and extra
+     * whitespace. Uses the specialization index, so the cost depends on
+     * the number of matches rather than the number of doctors.
+     * 
+     * @param specialization The specialization to search for
+     * @return List of matching doctors in ID order
+     */
+    public List<Doctor> findDoctorsBySpecialization(String specialization) {
+        loadRegistry();
+        return doctorSpecializations.find(specialization);
+    }
+    
+    /**
+     * Finds staff members with a role, matched exactly by comparing
+     * dictionary codes.
+     * 
+     * @param role The role to search for
+     * @return List of matching staff members in registration order
+     */
+    public List<Staff> findStaffMembersByRole(String role) {
+        return filterByCode(staffMembers.snapshot(), role, Staff::getRoleCode);
+    }
+    
+    /**
+     * Finds staff members in a department, matched exactly by comparing
+     * dictionary codes.
+     * 
+     * @param department The department to search for
+     * @return List of matching staff members in registration order
+     */
+    public List<Staff> findStaffMembersByDepartment(String department) {
+        return filterByCode(staffMembers.snapshot(), department, Staff::getDepartmentCode);
+    }
+    
+    /**
+     * Finds patients with a diagnosis, matched exactly. Diagnoses are too
+     * varied to share a dictionary, so each patient's is compared as a string.
+     * 
+     * @param diagnosis The diagnosis to search for
+     * @return List of matching patients in registration order
+     */
+    public List<Patient> findPatientsByDiagnosis(String diagnosis) {
+        return getPatients().stream()
+            .filter(patient -> patient.hasDiagnosis(diagnosis))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Filters people by the dictionary code of one of their fields. The
+     * value is looked up once; a value the dictionary has never seen
+     * cannot match anyone.
+     * 
+     * @param people The people to filter
+     * @param value The field value to match
+     * @param field Gets the code of the field
+     * @param <T> The type of person
+     * @return List of matching people
+     */
+    private static <T> List<T> filterByCode(List<T> people, String value, ToIntFunction<T> field) {
+        int code = StringDictionary.SHARED.find(value);
+        List<T> matches = new ArrayList<>();
+        if (code < 0) {
+            return matches;
+        }
+        for (T person : people) {
+            if (field.applyAsInt(person) == code) {
+                matches.add(person);
+            }
+        }
+        return matches;
     }
     
     /**
@@ -486,9 +2521,22 @@ public class HospitalManagementSystem {
      * @return List of available doctors
      */
     public List<Doctor> getAvailableDoctors() {
-        return doctors.stream()
+        return getDoctors().stream()
             .filter(Doctor::isAvailable)
             .collect(Collectors.toList());
     }
+    
+    /**
+     * Gets the available doctors with a specialization, ignoring case and
+     * extra whitespace. Uses the specialization index, so the cost depends
+     * on the number of matches rather than the number of doctors.
+     * 
+     * @param specialization The specialization to search for
+     * @return List of available doctors in ID order
+     */
+    public List<Doctor> getAvailableDoctors(String specialization) {
+        loadRegistry();
+        return doctorSpecializations.findAvailable(specialization);
+    }
 }
 
@@ -0,0 +1,125 @@
+package hospital.management;
+
+import java.util.List;
+
+/**
+ * Result of a bulk import.
+ * Counts the rows read, registered and rejected, keeps the first error
+ * messages, and records the time taken and the peak heap use sampled
+ * after each batch.
+ */
+public class ImportReport {
+    private final long rowsRead;
+    private final long imported;
+    private final long invalid;
+    private final long skipped;
+    private final List<String> errors;
+    private final long elapsedNanos;
+    private final long peakHeapBytes;
+
+    /**
+     * Constructor to create an ImportReport object.
+     *
+     * @param rowsRead      The number of data rows read
+     * @param imported      The number of rows registered
+     * @param invalid       The number of rows that failed validation
+     * @param skipped       The number of valid rows that could not be registered
+     * @param errors        The first validation error messages
+     * @param elapsedNanos  The time the import took
+     * @param peakHeapBytes The highest heap use sampled during the import
+     */
+    ImportReport(long rowsRead, long imported, long invalid, long skipped, List<String> errors,
+                 long elapsedNanos, long peakHeapBytes) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.invalid = invalid;
+        this.skipped = skipped;
+        this.errors = List.copyOf(errors);
+        this.elapsedNanos = elapsedNanos;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /**
+     * Gets the number of data rows read.
+     *
+     * @return The row count
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Gets the number of rows registered.
+     *
+     * @return The imported count
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Gets the number of rows that failed validation.
+     *
+     * @return The invalid count
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Gets the number of valid rows that could not be registered.
+     *
+     * @return The skipped count
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the first validation error messages, each prefixed with its line number.
+     *
+     * @return Read-only list of error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the time the import took.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the import throughput.
+     *
+     * @return Rows read per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets the highest heap use sampled after each batch.
+     *
+     * @return The peak heap use in bytes
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * Returns a one-line summary of the import.
+     *
+     * @return The summary
+     */
+    @Override
+    public String toString() {
+        return String.format("%d rows read, %d imported, %d invalid, %d skipped in %d ms (%.0f rows/s, peak heap %d MB)",
+            rowsRead, imported, invalid, skipped, elapsedNanos / 1_000_000, getRowsPerSecond(),
+            peakHeapBytes / (1024 * 1024));
+    }
+}
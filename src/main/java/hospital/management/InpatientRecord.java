@@ -18,7 +18,37 @@ public class InpatientRecord extends MedicalRecord{
      * @param ds The duration of stay in days
      */
     public InpatientRecord(String d, String tp, int r, int ds){
-        super(d, tp);
+        this(nextId(), d, tp, r, ds);
+    }
+
+    /**
+     * Constructor to create an InpatientRecord object with a known ID, used
+     * when restoring saved data.
+     *
+     * @param id The ID of the record
+     * @param d  The diagnosis
+     * @param tp The treatment plan
+     * @param r  The room number
+     * @param ds The duration of stay in days
+     */
+    InpatientRecord(long id, String d, String tp, int r, int ds){
+        super(id, d, tp);
+        roomNumber = r;
+        durationOfStay = ds;
+    }
+
+    /**
+     * Constructor to create an InpatientRecord object with a known ID and date.
+     *
+     * @param id The ID of the record
+     * @param d  The diagnosis
+     * @param tp The treatment plan
+     * @param rd The record date (YYYY-MM-DD)
+     * @param r  The room number
+     * @param ds The duration of stay in days
+     */
+    InpatientRecord(long id, String d, String tp, String rd, int r, int ds){
+        super(id, d, tp, rd);
         roomNumber = r;
         durationOfStay = ds;
     }
@@ -67,8 +97,8 @@ public class InpatientRecord extends MedicalRecord{
         String content = "Record Type: Inpatient\n" +
                         "Diagnosis: " + getDiagnosis() + "\n" +
                         "Treatment Plan: " + getTreatmentPlan() + "\n" +
-                        "Room Number: " + roomNumber + "\n" +
-                        "Duration of Stay: " + durationOfStay + " days";
+                        "Room Number: " + getRoomNumber() + "\n" +
+                        "Duration of Stay: " + getDurationOfStay() + " days";
         DisplayUtility.printBox("Inpatient Medical Record", content);
     }
 }
\ No newline at end of file
@@ -0,0 +1,534 @@
+package hospital.management;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of mutations.
+ * Entries are written to segment files named after the first sequence
+ * number they hold, each framed with its length and a CRC32 checksum so a
+ * torn write at the end of a segment is detected and ignored on reading.
+ * <p>
+ * In GROUP_COMMIT mode, append only buffers the entry. The first caller of
+ * awaitDurable becomes the leader: it writes every buffered entry and
+ * forces the file once, while callers arriving meanwhile wait and are
+ * covered by that flush or the next one. One fsync therefore acknowledges
+ * many concurrent operations. In PER_OPERATION mode every append is
+ * written and forced before it returns.
+ * <p>
+ * A write or force that fails may leave a torn frame behind, and replay
+ * stops at a torn frame. The journal therefore fails for good: every later
+ * append, rotate and awaitDurable throws the same exception, so nothing is
+ * acknowledged after an entry that may be lost.
+ * <p>
+ * rotate starts a new segment, so that once a snapshot covers everything
+ * up to a sequence number the older segments can be deleted and recovery
+ * only has to replay the tail. Segments still needed by a change feed
+ * consumer are kept; see retainFrom.
+ */
+public class Journal implements Closeable {
+    /**
+     * How appended entries are made durable.
+     */
+    public enum SyncMode {
+        /** Force the file after every entry. */
+        PER_OPERATION,
+        /** Force the file once for every batch of concurrently appended entries. */
+        GROUP_COMMIT
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** Largest entry body a frame may hold; a longer length field marks a torn or corrupt frame. */
+    static final int MAX_FRAME_LENGTH = 16 << 20;
+
+    private final Path directory;
+    private final SyncMode syncMode;
+    private final Object appendLock;
+    private final Object writeLock;
+    private final ByteArrayOutputStream pending;
+    private final ReentrantLock syncLock;
+    private final Condition synced;
+    private FileChannel channel;
+    private long lastSequence;
+    private volatile long durableSequence;
+    private volatile long retainedSequence;
+    private boolean syncing;
+    private IOException failure;
+
+    /**
+     * Constructor to create a Journal that continues after a given sequence number.
+     *
+     * @param directory    The directory holding the segment files
+     * @param syncMode     How entries are made durable
+     * @param lastSequence The last sequence number already in the journal
+     * @throws IOException if the new segment cannot be created
+     */
+    private Journal(Path directory, SyncMode syncMode, long lastSequence) throws IOException {
+        this.directory = directory;
+        this.syncMode = syncMode;
+        this.appendLock = new Object();
+        this.writeLock = new Object();
+        this.pending = new ByteArrayOutputStream();
+        this.syncLock = new ReentrantLock();
+        this.synced = syncLock.newCondition();
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.retainedSequence = Long.MAX_VALUE;
+        this.channel = openSegment(lastSequence + 1);
+    }
+
+    /**
+     * Opens a journal directory, creating it if needed.
+     * New entries go to a fresh segment numbered after the last entry found.
+     *
+     * @param directory The directory holding the segment files
+     * @param syncMode  How entries are made durable
+     * @return The opened journal
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static Journal open(Path directory, SyncMode syncMode) throws IOException {
+        Files.createDirectories(directory);
+        return new Journal(directory, syncMode, findLastSequence(directory));
+    }
+
+    /**
+     * Appends an entry and assigns it the next sequence number.
+     * In GROUP_COMMIT mode the entry is not durable until awaitDurable
+     * returns for its sequence number.
+     *
+     * @param entry The entry to append
+     * @return The sequence number of the entry
+     * @throws IOException if the journal has failed or cannot be written
+     */
+    public long append(JournalEntry entry) throws IOException {
+        long sequence;
+        synchronized (appendLock) {
+            if (failure != null) {
+                throw failure;
+            }
+            sequence = lastSequence + 1;
+            byte[] frame = frame(entry.withSequence(sequence, System.currentTimeMillis()));
+            if (syncMode == SyncMode.PER_OPERATION) {
+                try {
+                    write(frame);
+                    channel.force(false);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                durableSequence = sequence;
+            } else {
+                pending.write(frame, 0, frame.length);
+            }
+            lastSequence = sequence;
+        }
+        if (syncMode == SyncMode.PER_OPERATION) {
+            // Wake readers following the journal; awaitDurable does this after a group commit
+            syncLock.lock();
+            try {
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until an entry and all entries before it are durable.
+     *
+     * @param sequence The sequence number to wait for
+     * @throws IOException if flushing the journal failed
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                long flushed = 0;
+                IOException error = null;
+                try {
+                    flushed = flushPending();
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    syncLock.lock();
+                }
+                syncing = false;
+                if (error != null) {
+                    synchronized (appendLock) {
+                        failure = error;
+                    }
+                } else {
+                    durableSequence = Math.max(durableSequence, flushed);
+                }
+                synced.signalAll();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until an entry is durable without flushing anything, for
+     * readers following the journal while writers make entries durable.
+     *
+     * @param sequence The sequence number to wait for
+     * @param timeout  The longest time to wait
+     * @param unit     The unit of the timeout
+     * @return true if the entry is durable, false if the time ran out
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    boolean waitForDurable(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        syncLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = synced.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last durable entry.
+     *
+     * @return The last durable sequence number
+     */
+    long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Keeps every segment holding entries from a sequence number onwards
+     * when old segments are deleted.
+     *
+     * @param sequence The first sequence number to keep, or Long.MAX_VALUE to keep nothing extra
+     */
+    void retainFrom(long sequence) {
+        this.retainedSequence = sequence;
+    }
+
+    /**
+     * Gets the directory holding the segment files.
+     *
+     * @return The directory
+     */
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the sequence number of the last appended entry.
+     *
+     * @return The last sequence number
+     */
+    public long getLastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Makes every appended entry durable and starts a new segment.
+     * Appends are paused only while the old segment is forced and closed.
+     *
+     * @return The last sequence number in the old segments
+     * @throws IOException if the journal has failed, or the old segment cannot
+     *                     be flushed or the new one created
+     */
+    public long rotate() throws IOException {
+        synchronized (writeLock) {
+            synchronized (appendLock) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    write(pending.toByteArray());
+                    pending.reset();
+                    channel.force(false);
+                    channel.close();
+                    channel = openSegment(lastSequence + 1);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                return lastSequence;
+            }
+        }
+    }
+
+    /**
+     * Deletes segments that only hold entries up to a sequence number.
+     * The current segment is never deleted, and neither is a segment holding
+     * entries at or after the retained sequence number.
+     *
+     * @param sequence The last sequence number that is no longer needed
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsThrough(long sequence) throws IOException {
+        long limit = Math.min(sequence, retainedSequence - 1);
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequenceOf(segments.get(i + 1)) <= limit + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Flushes all buffered entries and closes the journal.
+     *
+     * @throws IOException if flushing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitDurable(getLastSequence());
+        } finally {
+            synchronized (writeLock) {
+                synchronized (appendLock) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads all entries from a sequence number onwards, in order.
+     * Segments that end before the sequence number are skipped without
+     * being read.
+     *
+     * @param directory    The directory holding the segment files
+     * @param fromSequence The first sequence number to deliver
+     * @param consumer     Receives each entry
+     * @throws IOException if a segment cannot be read
+     */
+    public static void replay(Path directory, long fromSequence, Consumer<JournalEntry> consumer)
+            throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            readSegment(segments.get(i), entry -> {
+                if (entry.getSequence() >= fromSequence) {
+                    consumer.accept(entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the pending buffer to the segment and forces it to disk.
+     *
+     * @return The last sequence number included in the flush
+     * @throws IOException if writing fails
+     */
+    private long flushPending() throws IOException {
+        synchronized (writeLock) {
+            byte[] batch;
+            long batchEnd;
+            synchronized (appendLock) {
+                batch = pending.toByteArray();
+                pending.reset();
+                batchEnd = lastSequence;
+            }
+            if (batch.length > 0) {
+                write(batch);
+                channel.force(false);
+            }
+            return batchEnd;
+        }
+    }
+
+    /**
+     * Writes bytes to the end of the current segment.
+     *
+     * @param bytes The bytes to write
+     * @throws IOException if writing fails
+     */
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Creates a new segment file.
+     *
+     * @param firstSequence The sequence number of the first entry it will hold
+     * @return The channel to write to
+     * @throws IOException if the file cannot be created
+     */
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Encodes an entry as a length-prefixed, checksummed frame.
+     *
+     * @param entry The entry to encode
+     * @return The frame bytes
+     * @throws IOException if encoding fails or the entry is longer than MAX_FRAME_LENGTH
+     */
+    static byte[] frame(JournalEntry entry) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entry.writeTo(new DataOutputStream(body));
+        byte[] bodyBytes = body.toByteArray();
+        if (bodyBytes.length > MAX_FRAME_LENGTH) {
+            throw new IOException("Journal entry too large: " + bodyBytes.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(bodyBytes.length + 8);
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeInt(bodyBytes.length);
+        out.write(bodyBytes);
+        out.writeInt((int) crc.getValue());
+        return frame.toByteArray();
+    }
+
+    /**
+     * Reads every intact entry of a segment, stopping at a torn or corrupt frame.
+     *
+     * @param segment  The segment file
+     * @param consumer Receives each entry
+     * @throws IOException if the file cannot be read
+     */
+    private static void readSegment(Path segment, Consumer<JournalEntry> consumer) throws IOException {
+        try (InputStream stream = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            JournalEntry entry;
+            while ((entry = readFrame(in)) != null) {
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Reads the next frame written by frame.
+     * The length field is checked against MAX_FRAME_LENGTH and the body is
+     * read in chunks, so a corrupt length never allocates more than the
+     * bytes actually left in the input.
+     *
+     * @param in The input to read from
+     * @return The entry, or null at the end of input or at a torn or corrupt frame
+     * @throws IOException if the input cannot be read
+     */
+    static JournalEntry readFrame(DataInputStream in) throws IOException {
+        byte[] body;
+        int checksum;
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                return null;
+            }
+            body = in.readNBytes(length);
+            if (body.length < length) {
+                return null;
+            }
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return JournalEntry.readFrom(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Finds the sequence number of the last entry in a journal directory.
+     *
+     * @param directory The directory holding the segment files
+     * @return The last sequence number, or 0 if the journal is empty
+     * @throws IOException if a segment cannot be read
+     */
+    private static long findLastSequence(Path directory) throws IOException {
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        Path newest = segments.get(segments.size() - 1);
+        long[] last = {firstSequenceOf(newest) - 1};
+        readSegment(newest, entry -> last[0] = entry.getSequence());
+        return last[0];
+    }
+
+    /**
+     * Lists the segment files of a journal ordered by first sequence number.
+     *
+     * @param directory The directory holding the segment files
+     * @return The segment files
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Gets the first sequence number of a segment from its file name.
+     *
+     * @param segment The segment file
+     * @return The first sequence number
+     */
+    static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,350 @@
+package hospital.management;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One mutation recorded in the journal.
+ * An entry holds its sequence number, the time it was written, the kind of
+ * mutation and the values needed to apply it again, stored as strings.
+ * The static factory methods define the field layout for each mutation type.
+ */
+public class JournalEntry {
+    /** Record type stored for inpatient records. */
+    static final String INPATIENT = "INPATIENT";
+    /** Record type stored for outpatient records. */
+    static final String OUTPATIENT = "OUTPATIENT";
+
+    private final long sequence;
+    private final long timestamp;
+    private final MutationType type;
+    private final String[] fields;
+
+    /**
+     * Constructor to create a JournalEntry object.
+     *
+     * @param sequence  The sequence number of the entry
+     * @param timestamp The time the entry was written, in epoch milliseconds
+     * @param type      The kind of mutation
+     * @param fields    The values describing the mutation
+     */
+    JournalEntry(long sequence, long timestamp, MutationType type, String[] fields) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.fields = fields;
+    }
+
+    /**
+     * Creates an unsequenced entry for a patient registration.
+     *
+     * @param staff   The staff member who registered the patient, or null if unknown
+     * @param patient The registered patient
+     * @return The entry
+     */
+    static JournalEntry patientRegistered(Staff staff, Patient patient) {
+        return of(MutationType.PATIENT_REGISTERED, String.valueOf(patient.getId()), patient.getName(),
+            String.valueOf(patient.getAge()), patient.getContactDetails(), patient.getMedicalHistory(),
+            patient.getDiagnosis(), idOf(staff));
+    }
+
+    /**
+     * Creates an unsequenced entry for a doctor registration.
+     *
+     * @param staff  The staff member who registered the doctor, or null if unknown
+     * @param doctor The registered doctor
+     * @return The entry
+     */
+    static JournalEntry doctorRegistered(Staff staff, Doctor doctor) {
+        return of(MutationType.DOCTOR_REGISTERED, String.valueOf(doctor.getId()), doctor.getName(),
+            String.valueOf(doctor.getAge()), doctor.getContactDetails(), doctor.getSpecialization(),
+            String.valueOf(doctor.isAvailable()), idOf(staff));
+    }
+
+    /**
+     * Creates an unsequenced entry for a staff registration.
+     *
+     * @param staff The registered staff member
+     * @return The entry
+     */
+    static JournalEntry staffRegistered(Staff staff) {
+        return of(MutationType.STAFF_REGISTERED, String.valueOf(staff.getId()), staff.getName(),
+            String.valueOf(staff.getAge()), staff.getContactDetails(), staff.getRole(), staff.getDepartment());
+    }
+
+    /**
+     * Creates an unsequenced entry for a booked appointment.
+     *
+     * @param appointment The booked appointment
+     * @return The entry
+     */
+    static JournalEntry appointmentBooked(Appointment appointment) {
+        return of(MutationType.APPOINTMENT_BOOKED, String.valueOf(appointment.getId()),
+            String.valueOf(appointment.getPatient().getId()), String.valueOf(appointment.getDoctor().getId()),
+            appointment.getDate(), appointment.getTime(), String.valueOf(appointment.getDurationMinutes()));
+    }
+
+    /**
+     * Creates an unsequenced entry for a cancelled appointment.
+     *
+     * @param appointment The cancelled appointment
+     * @return The entry
+     */
+    static JournalEntry appointmentCancelled(Appointment appointment) {
+        return of(MutationType.APPOINTMENT_CANCELLED, String.valueOf(appointment.getId()),
+            String.valueOf(appointment.getPatient().getId()), String.valueOf(appointment.getDoctor().getId()));
+    }
+
+    /**
+     * Creates an unsequenced entry for an appointment moved to another
+     * doctor. The first six fields match an APPOINTMENT_BOOKED entry for
+     * the moved appointment.
+     *
+     * @param moved The appointment as booked with its new doctor
+     * @param from  The doctor it was moved from
+     * @return The entry
+     */
+    static JournalEntry appointmentReassigned(Appointment moved, Doctor from) {
+        return of(MutationType.APPOINTMENT_REASSIGNED, String.valueOf(moved.getId()),
+            String.valueOf(moved.getPatient().getId()), String.valueOf(moved.getDoctor().getId()),
+            moved.getDate(), moved.getTime(), String.valueOf(moved.getDurationMinutes()),
+            String.valueOf(from.getId()));
+    }
+
+    /**
+     * Creates an unsequenced entry for an appointment moved to another
+     * time. The fields match an APPOINTMENT_BOOKED entry for the appointment
+     * at its new time.
+     *
+     * @param moved The appointment as booked at its new time
+     * @return The entry
+     */
+    static JournalEntry appointmentRescheduled(Appointment moved) {
+        return of(MutationType.APPOINTMENT_RESCHEDULED, String.valueOf(moved.getId()),
+            String.valueOf(moved.getPatient().getId()), String.valueOf(moved.getDoctor().getId()),
+            moved.getDate(), moved.getTime(), String.valueOf(moved.getDurationMinutes()));
+    }
+
+    /**
+     * Creates an unsequenced entry for an archived appointment.
+     *
+     * @param id              The appointment ID
+     * @param patientId       The patient ID
+     * @param doctorId        The doctor ID
+     * @param startMinute     The start in minutes since the epoch
+     * @param durationMinutes The length in minutes
+     * @return The entry
+     */
+    static JournalEntry appointmentArchived(long id, long patientId, long doctorId, long startMinute,
+                                            int durationMinutes) {
+        return of(MutationType.APPOINTMENT_ARCHIVED, String.valueOf(id), String.valueOf(patientId),
+            String.valueOf(doctorId), String.valueOf(startMinute), String.valueOf(durationMinutes));
+    }
+
+    /**
+     * Creates an unsequenced entry for the archive being flushed to a
+     * history run.
+     *
+     * @param run The number of the history run
+     * @return The entry
+     */
+    static JournalEntry archiveFlushed(long run) {
+        return of(MutationType.ARCHIVE_FLUSHED, String.valueOf(run));
+    }
+
+    /**
+     * Creates an unsequenced entry for the working hours of a doctor.
+     *
+     * @param doctor   The doctor
+     * @param calendar The doctor's calendar, or null for none
+     * @return The entry
+     */
+    static JournalEntry calendarSet(Doctor doctor, AvailabilityCalendar calendar) {
+        List<String> fields = new ArrayList<>();
+        fields.add(String.valueOf(doctor.getId()));
+        if (calendar != null) {
+            fields.addAll(calendar.encode());
+        }
+        return of(MutationType.CALENDAR_SET, fields.toArray(new String[0]));
+    }
+
+    /**
+     * Creates an unsequenced entry for a diagnosis update.
+     *
+     * @param doctor    The doctor who updated the diagnosis
+     * @param patient   The patient whose diagnosis changed
+     * @param diagnosis The new diagnosis
+     * @return The entry
+     */
+    static JournalEntry diagnosisUpdated(Doctor doctor, Patient patient, String diagnosis) {
+        return of(MutationType.DIAGNOSIS_UPDATED, String.valueOf(patient.getId()),
+            String.valueOf(doctor.getId()), diagnosis);
+    }
+
+    /**
+     * Creates an unsequenced entry for a medical record added to a patient.
+     *
+     * @param patient The patient owning the record
+     * @param record  The added record
+     * @return The entry
+     */
+    static JournalEntry medicalRecordAdded(Patient patient, MedicalRecord record) {
+        if (record instanceof InpatientRecord) {
+            InpatientRecord inpatient = (InpatientRecord) record;
+            return of(MutationType.MEDICAL_RECORD_ADDED, String.valueOf(record.getId()),
+                String.valueOf(patient.getId()), INPATIENT,
+                record.getDiagnosis(), record.getTreatmentPlan(), record.getRecordDate(),
+                String.valueOf(inpatient.getRoomNumber()), String.valueOf(inpatient.getDurationOfStay()));
+        }
+        return of(MutationType.MEDICAL_RECORD_ADDED, String.valueOf(record.getId()),
+            String.valueOf(patient.getId()), OUTPATIENT,
+            record.getDiagnosis(), record.getTreatmentPlan(), record.getRecordDate());
+    }
+
+    /**
+     * Gets the ID of an optional staff member as a field value.
+     *
+     * @param staff The staff member, or null
+     * @return The ID, or "0" for null
+     */
+    private static String idOf(Staff staff) {
+        return staff == null ? "0" : String.valueOf(staff.getId());
+    }
+
+    /**
+     * Creates an unsequenced entry.
+     *
+     * @param type   The kind of mutation
+     * @param fields The values describing the mutation
+     * @return The entry
+     */
+    private static JournalEntry of(MutationType type, String... fields) {
+        return new JournalEntry(0, 0, type, fields);
+    }
+
+    /**
+     * Creates a copy of this entry with its sequence number and timestamp set.
+     *
+     * @param sequence  The sequence number
+     * @param timestamp The time in epoch milliseconds
+     * @return The sequenced entry
+     */
+    JournalEntry withSequence(long sequence, long timestamp) {
+        return new JournalEntry(sequence, timestamp, type, fields);
+    }
+
+    /**
+     * Gets the sequence number of the entry.
+     *
+     * @return The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the time the entry was written.
+     *
+     * @return The time in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the kind of mutation.
+     *
+     * @return The mutation type
+     */
+    public MutationType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of fields in the entry.
+     *
+     * @return The field count
+     */
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    /**
+     * Gets a field as a string.
+     *
+     * @param index The index of the field
+     * @return The field value, possibly null
+     */
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Gets a field as a long.
+     *
+     * @param index The index of the field
+     * @return The field value
+     */
+    long getLong(int index) {
+        return Long.parseLong(fields[index]);
+    }
+
+    /**
+     * Gets a field as an int.
+     *
+     * @param index The index of the field
+     * @return The field value
+     */
+    int getInt(int index) {
+        return Integer.parseInt(fields[index]);
+    }
+
+    /**
+     * Writes the entry body.
+     *
+     * @param out The output to write to
+     * @throws IOException if writing fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeByte(type.ordinal());
+        out.writeShort(fields.length);
+        for (String field : fields) {
+            if (field == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads an entry body written by writeTo.
+     *
+     * @param in The input to read from
+     * @return The entry
+     * @throws IOException if reading fails
+     */
+    static JournalEntry readFrom(DataInput in) throws IOException {
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        MutationType type = MutationType.values()[in.readUnsignedByte()];
+        String[] fields = new String[in.readUnsignedShort()];
+        for (int i = 0; i < fields.length; i++) {
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return new JournalEntry(sequence, timestamp, type, fields);
+    }
+}
@@ -0,0 +1,234 @@
+package hospital.management;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reading and writing of flat JSON objects, one per line.
+ * Values may be strings, numbers, booleans or null; nested objects and
+ * arrays are rejected. Every value is returned as its text, with null for
+ * a JSON null.
+ */
+final class Json {
+    /**
+     * Not instantiable.
+     */
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param text The JSON text
+     * @return The members in order of appearance
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> members = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                members.put(key, parser.value());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.skipWhitespace();
+        if (parser.position < text.length()) {
+            throw new IllegalArgumentException("Unexpected text after object");
+        }
+        return members;
+    }
+
+    /**
+     * Appends a string as a quoted JSON string.
+     *
+     * @param out   The builder to append to
+     * @param value The string, or null for a JSON null
+     */
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Cursor over JSON text.
+     */
+    private static class Parser {
+        private final String text;
+        private int position;
+
+        /**
+         * Constructor to create a Parser object.
+         *
+         * @param text The text to parse
+         */
+        Parser(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Skips spaces, tabs and line breaks.
+         */
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Consumes a character if it is next.
+         *
+         * @param c The character
+         * @return true if it was consumed
+         */
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes a character that must be next.
+         *
+         * @param c The character
+         * @throws IllegalArgumentException if another character is next
+         */
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + position);
+            }
+        }
+
+        /**
+         * Reads a member value.
+         *
+         * @return The value text, or null for a JSON null
+         * @throws IllegalArgumentException if the value is malformed or nested
+         */
+        String value() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Missing value");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                    && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Missing value at position " + start);
+            }
+            return literal;
+        }
+
+        /**
+         * Reads a string, decoding escapes.
+         *
+         * @return The string
+         * @throws IllegalArgumentException if the string is malformed
+         */
+        String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated escape");
+                }
+                char escape = text.charAt(position++);
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        out.append(escape);
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Truncated unicode escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid escape: \\" + escape);
+                }
+            }
+        }
+    }
+}
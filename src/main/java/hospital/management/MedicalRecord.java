@@ -1,23 +1,79 @@
 package hospital.management;
 
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Abstract base class representing a medical record in the hospital management system.
  * Contains common medical information such as diagnosis and treatment plan.
  * Subclasses must implement the displayRecord() method to provide specific display behavior.
+ * A change of the record date is reported to the record's change listener,
+ * if it has one.
  */
 public abstract class MedicalRecord {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id;
     private String diagnosis;
     private String treatmentPlan;
+    private String recordDate;
+    private volatile MedicalRecordChangeListener listener;
 
     /**
-     * Constructor to create a MedicalRecord object.
+     * Constructor to create a MedicalRecord object dated today.
      *
      * @param d  The diagnosis
      * @param tp The treatment plan
      */
     public MedicalRecord(String d, String tp){
+        this(NEXT_ID.getAndIncrement(), d, tp);
+    }
+
+    /**
+     * Constructor to create a MedicalRecord object with a known ID, used when
+     * restoring saved data. Later IDs are assigned above it.
+     *
+     * @param id The ID of the record
+     * @param d  The diagnosis
+     * @param tp The treatment plan
+     */
+    MedicalRecord(long id, String d, String tp){
+        this(id, d, tp, LocalDate.now().toString());
+    }
+
+    /**
+     * Constructor to create a MedicalRecord object with a known ID and date.
+     * Later IDs are assigned above it.
+     *
+     * @param id The ID of the record
+     * @param d  The diagnosis
+     * @param tp The treatment plan
+     * @param rd The record date (YYYY-MM-DD)
+     */
+    MedicalRecord(long id, String d, String tp, String rd){
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+        this.id = id;
         diagnosis = d;
         treatmentPlan = tp;
+        recordDate = rd;
+    }
+
+    /**
+     * Assigns a new unique record ID.
+     *
+     * @return The ID
+     */
+    static long nextId(){
+        return NEXT_ID.getAndIncrement();
+    }
+
+    /**
+     * Gets the unique ID of the record.
+     *
+     * @return The record ID
+     */
+    public long getId(){
+        return id;
     }
 
     /**
@@ -38,6 +94,15 @@ public abstract class MedicalRecord {
         return treatmentPlan;
     }
 
+    /**
+     * Gets the date of the record.
+     *
+     * @return The record date (YYYY-MM-DD)
+     */
+    public String getRecordDate(){
+        return recordDate;
+    }
+
     /**
      * Sets the diagnosis.
      *
@@ -56,6 +121,44 @@ public abstract class MedicalRecord {
         treatmentPlan = tp;
     }
 
+    /**
+     * Sets the date of the record.
+     *
+     * @param rd The record date (YYYY-MM-DD) to set
+     */
+    public void setRecordDate(String rd){
+        String oldDate = getRecordDate();
+        recordDate = rd;
+        firePropertyChange("recordDate", oldDate, getRecordDate());
+    }
+
+    /**
+     * Sets the listener to be notified when a property of this record
+     * changes. A record has at most one listener, the system holding it,
+     * so that millions of records do not each carry a listener list.
+     *
+     * @param listener The listener, or null for none
+     */
+    void setChangeListener(MedicalRecordChangeListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Notifies the listener that a property has changed.
+     * Nothing is sent if the value did not actually change.
+     *
+     * @param property The name of the property
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    protected void firePropertyChange(String property, Object oldValue, Object newValue){
+        MedicalRecordChangeListener current = listener;
+        if (current == null || oldValue == newValue || (oldValue != null && oldValue.equals(newValue))) {
+            return;
+        }
+        current.recordChanged(this, property, oldValue, newValue);
+    }
+
     /**
      * Displays the medical record information.
      * Must be implemented by subclasses to provide specific display formatting.
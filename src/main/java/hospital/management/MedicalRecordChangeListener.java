@@ -0,0 +1,18 @@
+package hospital.management;
+
+/**
+ * Interface for objects that need to know when a property of a medical
+ * record changes. Used by the hospital system to keep its record index in
+ * sync with changes made directly through a record's setters.
+ */
+interface MedicalRecordChangeListener {
+    /**
+     * Called after a property of a medical record has changed.
+     *
+     * @param record   The record that changed
+     * @param property The name of the property, such as "recordDate"
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    void recordChanged(MedicalRecord record, String property, Object oldValue, Object newValue);
+}
@@ -0,0 +1,131 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index of medical records by owning patient.
+ * Each patient's records are kept both in the order they were added and in
+ * a tree keyed by record date, so that records can be fetched by type and
+ * date range without scanning the records of other patients. A record
+ * whose date changes after it was added must be refiled with redate.
+ * All methods are synchronized.
+ */
+class MedicalRecordIndex {
+    /** Tree key used for records whose date cannot be parsed. */
+    private static final long UNDATED = Long.MIN_VALUE;
+
+    private final Map<Long, List<MedicalRecord>> recordsByPatient;
+    private final Map<Long, NavigableMap<Long, List<MedicalRecord>>> recordsByPatientAndDay;
+
+    /**
+     * Constructor to create an empty record index.
+     */
+    MedicalRecordIndex() {
+        this.recordsByPatient = new HashMap<>();
+        this.recordsByPatientAndDay = new HashMap<>();
+    }
+
+    /**
+     * Adds a record to a patient's entries.
+     * The record is filed under its current date.
+     *
+     * @param patient The patient owning the record
+     * @param record  The record to add
+     */
+    synchronized void add(Patient patient, MedicalRecord record) {
+        recordsByPatient.computeIfAbsent(patient.getId(), id -> new ArrayList<>()).add(record);
+        recordsByPatientAndDay.computeIfAbsent(patient.getId(), id -> new TreeMap<>())
+            .computeIfAbsent(dayOf(record.getRecordDate()), day -> new ArrayList<>())
+            .add(record);
+    }
+
+    /**
+     * Moves a record of a patient from its old date to its current one.
+     *
+     * @param patient The patient owning the record
+     * @param record  The record whose date changed
+     * @param oldDate The date the record was filed under (YYYY-MM-DD)
+     */
+    synchronized void redate(Patient patient, MedicalRecord record, String oldDate) {
+        NavigableMap<Long, List<MedicalRecord>> byDay = recordsByPatientAndDay.get(patient.getId());
+        if (byDay == null) {
+            return;
+        }
+        long oldDay = dayOf(oldDate);
+        List<MedicalRecord> filed = byDay.get(oldDay);
+        if (filed == null || !filed.remove(record)) {
+            return;
+        }
+        if (filed.isEmpty()) {
+            byDay.remove(oldDay);
+        }
+        byDay.computeIfAbsent(dayOf(record.getRecordDate()), day -> new ArrayList<>()).add(record);
+    }
+
+    /**
+     * Gets a copy of all records of a patient in the order they were added.
+     *
+     * @param patient The patient
+     * @return The patient's records, never null
+     */
+    synchronized List<MedicalRecord> get(Patient patient) {
+        return new ArrayList<>(recordsByPatient.getOrDefault(patient.getId(), Collections.emptyList()));
+    }
+
+    /**
+     * Gets the records of a patient of a given type within a date range.
+     * Records whose date cannot be parsed are only returned when both ends
+     * of the range are open.
+     *
+     * @param patient  The patient
+     * @param type     The record type, such as InpatientRecord.class
+     * @param fromDate The first date to include (YYYY-MM-DD), or null for no lower bound
+     * @param toDate   The last date to include (YYYY-MM-DD), or null for no upper bound
+     * @param <T>      The record type
+     * @return The matching records ordered by date
+     * @throws IllegalArgumentException if a bound cannot be parsed
+     */
+    synchronized <T extends MedicalRecord> List<T> get(Patient patient, Class<T> type, String fromDate, String toDate) {
+        NavigableMap<Long, List<MedicalRecord>> byDay = recordsByPatientAndDay.get(patient.getId());
+        List<T> result = new ArrayList<>();
+        if (byDay == null) {
+            return result;
+        }
+        boolean includeUndated = fromDate == null && toDate == null;
+        long from = fromDate == null ? UNDATED + 1 : Appointment.toEpochDay(fromDate);
+        long to = toDate == null ? Long.MAX_VALUE : Appointment.toEpochDay(toDate);
+        if (from > to) {
+            return result;
+        }
+        NavigableMap<Long, List<MedicalRecord>> range =
+            byDay.subMap(includeUndated ? UNDATED : from, true, to, true);
+        for (List<MedicalRecord> records : range.values()) {
+            for (MedicalRecord record : records) {
+                if (type.isInstance(record)) {
+                    result.add(type.cast(record));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the tree key for a record date.
+     *
+     * @param date The record date (YYYY-MM-DD)
+     * @return The date in days since the epoch, or UNDATED
+     */
+    private static long dayOf(String date) {
+        try {
+            return Appointment.toEpochDay(date);
+        } catch (IllegalArgumentException e) {
+            return UNDATED;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package hospital.management;
+
+/**
+ * Kinds of changes that can be made to the hospital management system.
+ * Each journal entry records one of these mutations. The entry fields for
+ * each kind are listed in order; IDs, numbers and booleans are stored as
+ * their string form.
+ */
+public enum MutationType {
+    /** A patient was registered: ID, name, age, contact details, medical history, diagnosis, staff ID. */
+    PATIENT_REGISTERED,
+    /** A doctor was registered: ID, name, age, contact details, specialization, availability, staff ID. */
+    DOCTOR_REGISTERED,
+    /** A staff member was registered: ID, name, age, contact details, role, department. */
+    STAFF_REGISTERED,
+    /** An appointment was booked: ID, patient ID, doctor ID, date, time, duration in minutes. */
+    APPOINTMENT_BOOKED,
+    /** An appointment was cancelled: ID, patient ID, doctor ID. */
+    APPOINTMENT_CANCELLED,
+    /** A patient's diagnosis was updated: patient ID, doctor ID, new diagnosis. */
+    DIAGNOSIS_UPDATED,
+    /**
+     * A medical record was added to a patient: ID, patient ID, INPATIENT or
+     * OUTPATIENT, diagnosis, treatment plan, date, then room number and
+     * length of stay for inpatient records.
+     */
+    MEDICAL_RECORD_ADDED,
+    /**
+     * A past appointment was moved to the off-heap archive: ID, patient ID,
+     * doctor ID, start in minutes since the epoch, duration in minutes.
+     */
+    APPOINTMENT_ARCHIVED,
+    /** The archive was written to a run of the on-disk history and emptied: run number. */
+    ARCHIVE_FLUSHED,
+    /**
+     * A doctor's working hours were set: doctor ID, then nothing if the
+     * calendar was removed, or the hours of each day of the week from Monday
+     * followed by an epoch day and its hours for each exception. Hours are
+     * comma-separated start-end minutes of the day, end exclusive.
+     */
+    CALENDAR_SET,
+    /**
+     * A booked appointment was moved to another doctor: ID, patient ID, new
+     * doctor ID, date, time, duration in minutes, old doctor ID.
+     */
+    APPOINTMENT_REASSIGNED,
+    /**
+     * A booked appointment was moved to another time with the same doctor:
+     * ID, patient ID, doctor ID, new date, new time, new duration in minutes.
+     */
+    APPOINTMENT_RESCHEDULED
+}
@@ -0,0 +1,176 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Sorted index of persons by normalized name.
+ * Names are compared without regard to case or repeated whitespace.
+ * Persons sharing a name are kept in ID order, so a rename does not move
+ * anyone ahead of the others, and the sorted keys allow prefix searches
+ * without scanning every registered person. A person is indexed at most
+ * once under each name, so adding a person and indexing a rename racing
+ * it may happen in either order. All methods are synchronized.
+ *
+ * @param <T> The type of person indexed
+ */
+class NameIndex<T extends Person> {
+    private final NavigableMap<String, List<T>> byName;
+
+    /**
+     * Constructor to create an empty name index.
+     */
+    NameIndex() {
+        this.byName = new TreeMap<>();
+    }
+
+    /**
+     * Normalizes a name for indexing: trimmed, single-spaced and lower case.
+     *
+     * @param name The name to normalize
+     * @return The normalized name, empty for null
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a person under a name unless already indexed under it.
+     *
+     * @param person The person to add
+     * @param name   The name to index the person under
+     */
+    synchronized void add(T person, String name) {
+        List<T> list = byName.computeIfAbsent(normalize(name), key -> new ArrayList<>());
+        int position = position(list, person.getId());
+        if (position < 0) {
+            list.add(-position - 1, person);
+        }
+    }
+
+    /**
+     * Moves a person from their old name to their new name.
+     *
+     * @param person  The person that was renamed
+     * @param oldName The name the person was indexed under
+     * @param newName The name the person now has
+     */
+    synchronized void rename(T person, String oldName, String newName) {
+        String oldKey = normalize(oldName);
+        List<T> list = byName.get(oldKey);
+        if (list != null) {
+            int position = position(list, person.getId());
+            if (position >= 0) {
+                list.remove(position);
+                if (list.isEmpty()) {
+                    byName.remove(oldKey);
+                }
+            }
+        }
+        add(person, newName);
+    }
+
+    /**
+     * Finds a person in a list sorted by ID.
+     *
+     * @param list The persons sharing a name, in ID order
+     * @param id   The ID to look for
+     * @return The index of the person if present, otherwise
+     *         (-(insertion point) - 1) as for a binary search
+     */
+    private static int position(List<? extends Person> list, long id) {
+        int low = 0;
+        int high = list.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = list.get(middle).getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Finds all persons with a name, ignoring case and extra whitespace.
+     *
+     * @param name The name to search for
+     * @return The matching persons in ID order
+     */
+    synchronized List<T> findExact(String name) {
+        return new ArrayList<>(byName.getOrDefault(normalize(name), Collections.emptyList()));
+    }
+
+    /**
+     * Finds the person with the lowest ID among those with a name.
+     *
+     * @param name The name to search for
+     * @return The person if found, null otherwise
+     */
+    synchronized T findFirst(String name) {
+        List<T> list = byName.get(normalize(name));
+        return list == null ? null : list.get(0);
+    }
+
+    /**
+     * Finds one page of persons whose name starts with a prefix.
+     * Results are ordered by name, then by ID.
+     *
+     * @param prefix The name prefix to search for
+     * @param offset The number of matches to skip
+     * @param limit  The maximum number of matches to return
+     * @return The matching persons
+     */
+    synchronized List<T> findByPrefix(String prefix, int offset, int limit) {
+        List<T> result = new ArrayList<>();
+        if (offset < 0 || limit <= 0) {
+            return result;
+        }
+        String key = normalize(prefix);
+        int skipped = 0;
+        for (Map.Entry<String, List<T>> entry : byName.tailMap(key, true).entrySet()) {
+            if (!entry.getKey().startsWith(key)) {
+                break;
+            }
+            List<T> persons = entry.getValue();
+            if (skipped + persons.size() <= offset) {
+                skipped += persons.size();
+                continue;
+            }
+            for (int i = Math.max(0, offset - skipped); i < persons.size(); i++) {
+                result.add(persons.get(i));
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+            skipped += persons.size();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,439 @@
+package hospital.management;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Appointment store kept outside the Java heap.
+ * <p>
+ * Each appointment is a fixed-width 40-byte record in native memory: the
+ * appointment ID, patient ID, doctor ID and start as epoch minutes as
+ * longs, then the duration in minutes and a status code as ints. Records
+ * are allocated in chunks of a shared arena, so growing the store never
+ * copies existing records and the garbage collector never scans them.
+ * <p>
+ * Records are read through View objects holding only a row number, and
+ * forEach reuses a single view for a whole scan. The rows of each patient
+ * and each doctor are also listed on the heap, at 8 bytes per row per
+ * list, so the records of one person are visited without scanning the
+ * others. A view can be turned back
+ * into an Appointment by looking up its patient and doctor in a
+ * HospitalManagementSystem. Appending and changing status are
+ * synchronized; reads of appended rows do not lock. close frees the
+ * native memory, after which the store must not be used.
+ */
+public class OffHeapAppointmentStore implements AutoCloseable {
+    /**
+     * Status of a stored appointment.
+     */
+    public enum Status {
+        /** The appointment is booked. */
+        BOOKED,
+        /** The appointment took place. */
+        COMPLETED,
+        /** The appointment was cancelled. */
+        CANCELLED
+    }
+
+    private static final long RECORD_SIZE = 40;
+    private static final long ID = 0;
+    private static final long PATIENT_ID = 8;
+    private static final long DOCTOR_ID = 16;
+    private static final long START_MINUTE = 24;
+    private static final long DURATION = 32;
+    private static final long STATUS = 36;
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final Status[] STATUSES = Status.values();
+
+    private final Arena arena;
+    private volatile MemorySegment[] chunks;
+    private volatile long size;
+    private final Map<Long, RowList> rowsByPatient;
+    private final Map<Long, RowList> rowsByDoctor;
+
+    /**
+     * Constructor to create an empty OffHeapAppointmentStore object.
+     */
+    public OffHeapAppointmentStore() {
+        this.arena = Arena.ofShared();
+        this.chunks = new MemorySegment[0];
+        this.rowsByPatient = new ConcurrentHashMap<>();
+        this.rowsByDoctor = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Appends an appointment.
+     *
+     * @param appointment The appointment to store
+     * @param status      The status to store it with
+     * @return The row of the record
+     */
+    public long add(Appointment appointment, Status status) {
+        return add(appointment.getId(), appointment.getPatient().getId(), appointment.getDoctor().getId(),
+            appointment.getStartMinute(), appointment.getDurationMinutes(), status);
+    }
+
+    /**
+     * Appends an appointment record. Appointment IDs assigned later are
+     * above its ID, so a restored record is never given a new
+     * appointment's ID.
+     *
+     * @param id              The appointment ID
+     * @param patientId       The patient ID
+     * @param doctorId        The doctor ID
+     * @param startMinute     The start in minutes since the epoch
+     * @param durationMinutes The length in minutes
+     * @param status          The status
+     * @return The row of the record
+     */
+    public synchronized long add(long id, long patientId, long doctorId, long startMinute,
+                                 int durationMinutes, Status status) {
+        Appointment.reserveIdsThrough(id);
+        long row = size;
+        int chunk = (int) (row / CHUNK_RECORDS);
+        if (chunk == chunks.length) {
+            MemorySegment[] grown = new MemorySegment[chunk + 1];
+            System.arraycopy(chunks, 0, grown, 0, chunk);
+            grown[chunk] = arena.allocate(RECORD_SIZE * CHUNK_RECORDS, Long.BYTES);
+            chunks = grown;
+        }
+        MemorySegment segment = chunks[chunk];
+        long offset = (row % CHUNK_RECORDS) * RECORD_SIZE;
+        segment.set(ValueLayout.JAVA_LONG, offset + ID, id);
+        segment.set(ValueLayout.JAVA_LONG, offset + PATIENT_ID, patientId);
+        segment.set(ValueLayout.JAVA_LONG, offset + DOCTOR_ID, doctorId);
+        segment.set(ValueLayout.JAVA_LONG, offset + START_MINUTE, startMinute);
+        segment.set(ValueLayout.JAVA_INT, offset + DURATION, durationMinutes);
+        segment.set(ValueLayout.JAVA_INT, offset + STATUS, status.ordinal());
+        size = row + 1;
+        rowsByPatient.computeIfAbsent(patientId, key -> new RowList()).add(row);
+        rowsByDoctor.computeIfAbsent(doctorId, key -> new RowList()).add(row);
+        return row;
+    }
+
+    /**
+     * Gets the number of stored appointments.
+     *
+     * @return The record count
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Changes the status of a record.
+     *
+     * @param row    The row of the record
+     * @param status The new status
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public synchronized void setStatus(long row, Status status) {
+        checkRow(row);
+        segment(row).set(ValueLayout.JAVA_INT, offset(row) + STATUS, status.ordinal());
+    }
+
+    /**
+     * Gets a view of a record.
+     *
+     * @param row The row of the record
+     * @return The view
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public View get(long row) {
+        checkRow(row);
+        View view = new View();
+        view.row = row;
+        return view;
+    }
+
+    /**
+     * Copies the fields of a record into an array, in the order ID,
+     * patient ID, doctor ID, start minute, duration and status ordinal.
+     *
+     * @param row    The row of the record
+     * @param fields Receives the six fields
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    void read(long row, long[] fields) {
+        checkRow(row);
+        MemorySegment segment = segment(row);
+        long offset = offset(row);
+        fields[0] = segment.get(ValueLayout.JAVA_LONG, offset + ID);
+        fields[1] = segment.get(ValueLayout.JAVA_LONG, offset + PATIENT_ID);
+        fields[2] = segment.get(ValueLayout.JAVA_LONG, offset + DOCTOR_ID);
+        fields[3] = segment.get(ValueLayout.JAVA_LONG, offset + START_MINUTE);
+        fields[4] = segment.get(ValueLayout.JAVA_INT, offset + DURATION);
+        fields[5] = segment.get(ValueLayout.JAVA_INT, offset + STATUS);
+    }
+
+    /**
+     * Passes every record to an action, in the order they were added.
+     * The same view object is moved from row to row, so the action must
+     * not keep it.
+     *
+     * @param action Receives the view of each record
+     */
+    public void forEach(Consumer<View> action) {
+        View view = new View();
+        long count = size;
+        for (long row = 0; row < count; row++) {
+            view.row = row;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Passes every record of a patient to an action, in the order they were
+     * added. The same view object is moved from row to row, so the action
+     * must not keep it.
+     *
+     * @param patientId The patient ID
+     * @param action    Receives the view of each record
+     */
+    public void forEachOfPatient(long patientId, Consumer<View> action) {
+        forEachRow(rowsByPatient.get(patientId), action);
+    }
+
+    /**
+     * Passes every record of a doctor to an action, in the order they were
+     * added. The same view object is moved from row to row, so the action
+     * must not keep it.
+     *
+     * @param doctorId The doctor ID
+     * @param action   Receives the view of each record
+     */
+    public void forEachOfDoctor(long doctorId, Consumer<View> action) {
+        forEachRow(rowsByDoctor.get(doctorId), action);
+    }
+
+    /**
+     * Passes the records in a row list to an action.
+     *
+     * @param rows   The rows, or null for none
+     * @param action Receives the view of each record
+     */
+    private void forEachRow(RowList rows, Consumer<View> action) {
+        if (rows == null) {
+            return;
+        }
+        View view = new View();
+        int count = rows.size;
+        long[] items = rows.rows;
+        for (int i = 0; i < count; i++) {
+            view.row = items[i];
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Gets the native memory allocated for records.
+     *
+     * @return The allocated size in bytes
+     */
+    public long getAllocatedBytes() {
+        return chunks.length * RECORD_SIZE * CHUNK_RECORDS;
+    }
+
+    /**
+     * Frees the native memory. The store must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    /**
+     * Checks that a row exists.
+     *
+     * @param row The row
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private void checkRow(long row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * Gets the chunk holding a row.
+     *
+     * @param row The row
+     * @return The chunk
+     */
+    private MemorySegment segment(long row) {
+        return chunks[(int) (row / CHUNK_RECORDS)];
+    }
+
+    /**
+     * Gets the offset of a row within its chunk.
+     *
+     * @param row The row
+     * @return The byte offset
+     */
+    private static long offset(long row) {
+        return (row % CHUNK_RECORDS) * RECORD_SIZE;
+    }
+
+    /**
+     * Creates an Appointment from stored fields, with its date as YYYY-MM-DD
+     * and its time as HH:mm.
+     *
+     * @param system          The system to look up the patient and doctor in
+     * @param id              The appointment ID
+     * @param patientId       The patient ID
+     * @param doctorId        The doctor ID
+     * @param startMinute     The start in minutes since the epoch
+     * @param durationMinutes The length in minutes
+     * @return The appointment, or null if the patient or doctor is not registered
+     */
+    static Appointment toAppointment(HospitalManagementSystem system, long id, long patientId, long doctorId,
+                                     long startMinute, int durationMinutes) {
+        Patient patient = system.findPatientById(patientId);
+        Doctor doctor = system.findDoctorById(doctorId);
+        if (patient == null || doctor == null) {
+            return null;
+        }
+        return new Appointment(id, dateOf(startMinute), timeOf(startMinute), durationMinutes, patient, doctor);
+    }
+
+    /**
+     * Gets the date of a start minute.
+     *
+     * @param startMinute The start in minutes since the epoch
+     * @return The date (YYYY-MM-DD)
+     */
+    static String dateOf(long startMinute) {
+        return LocalDate.ofEpochDay(Math.floorDiv(startMinute, MINUTES_PER_DAY)).toString();
+    }
+
+    /**
+     * Gets the time of day of a start minute.
+     *
+     * @param startMinute The start in minutes since the epoch
+     * @return The time (HH:mm)
+     */
+    static String timeOf(long startMinute) {
+        int minuteOfDay = Math.floorMod(startMinute, MINUTES_PER_DAY);
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * Growable list of rows, appended to only while the store is locked.
+     * The array is replaced before the size covers the new row, so readers
+     * that read the size first need no lock.
+     */
+    private static final class RowList {
+        private volatile long[] rows = new long[4];
+        private volatile int size;
+
+        /**
+         * Appends a row.
+         *
+         * @param row The row
+         */
+        void add(long row) {
+            long[] items = rows;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                rows = items;
+            }
+            items[size] = row;
+            size = size + 1;
+        }
+    }
+
+    /**
+     * Lightweight view of one stored appointment.
+     */
+    public final class View {
+        private long row;
+
+        /**
+         * Constructor to create a View object.
+         */
+        private View() {
+        }
+
+        /**
+         * Gets the row of the record.
+         *
+         * @return The row
+         */
+        public long getRow() {
+            return row;
+        }
+
+        /**
+         * Gets the appointment ID.
+         *
+         * @return The appointment ID
+         */
+        public long getId() {
+            return segment(row).get(ValueLayout.JAVA_LONG, offset(row) + ID);
+        }
+
+        /**
+         * Gets the patient ID.
+         *
+         * @return The patient ID
+         */
+        public long getPatientId() {
+            return segment(row).get(ValueLayout.JAVA_LONG, offset(row) + PATIENT_ID);
+        }
+
+        /**
+         * Gets the doctor ID.
+         *
+         * @return The doctor ID
+         */
+        public long getDoctorId() {
+            return segment(row).get(ValueLayout.JAVA_LONG, offset(row) + DOCTOR_ID);
+        }
+
+        /**
+         * Gets the start of the appointment.
+         *
+         * @return The start in minutes since the epoch
+         */
+        public long getStartMinute() {
+            return segment(row).get(ValueLayout.JAVA_LONG, offset(row) + START_MINUTE);
+        }
+
+        /**
+         * Gets the length of the appointment.
+         *
+         * @return The length in minutes
+         */
+        public int getDurationMinutes() {
+            return segment(row).get(ValueLayout.JAVA_INT, offset(row) + DURATION);
+        }
+
+        /**
+         * Gets the status of the appointment.
+         *
+         * @return The status
+         */
+        public Status getStatus() {
+            return STATUSES[segment(row).get(ValueLayout.JAVA_INT, offset(row) + STATUS)];
+        }
+
+        /**
+         * Creates an Appointment from the record, with its date as YYYY-MM-DD
+         * and its time as HH:mm.
+         *
+         * @param system The system to look up the patient and doctor in
+         * @return The appointment, or null if the patient or doctor is not registered
+         */
+        public Appointment toAppointment(HospitalManagementSystem system) {
+            return OffHeapAppointmentStore.toAppointment(system, getId(), getPatientId(), getDoctorId(),
+                getStartMinute(), getDurationMinutes());
+        }
+    }
+}
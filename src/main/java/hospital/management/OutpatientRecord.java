@@ -16,7 +16,20 @@ public class OutpatientRecord extends MedicalRecord{
      * @param vd The visit date
      */
     public OutpatientRecord(String d, String tp, String vd){
-        super(d, tp);
+        this(nextId(), d, tp, vd);
+    }
+
+    /**
+     * Constructor to create an OutpatientRecord object with a known ID, used
+     * when restoring saved data.
+     *
+     * @param id The ID of the record
+     * @param d  The diagnosis
+     * @param tp The treatment plan
+     * @param vd The visit date
+     */
+    OutpatientRecord(long id, String d, String tp, String vd){
+        super(id, d, tp, vd);
         visitDate = vd;
     }
 
@@ -35,7 +48,19 @@ public class OutpatientRecord extends MedicalRecord{
      * @param vd The visit date to set
      */
     public void setVisitDate(String vd){
+        String oldDate = visitDate;
         visitDate = vd;
+        firePropertyChange("recordDate", oldDate, vd);
+    }
+
+    /**
+     * Gets the date of the record, which is the visit date.
+     *
+     * @return The visit date
+     */
+    @Override
+    public String getRecordDate(){
+        return visitDate;
     }
 
     /**
@@ -46,7 +71,7 @@ public class OutpatientRecord extends MedicalRecord{
         String content = "Record Type: Outpatient\n" +
                         "Diagnosis: " + getDiagnosis() + "\n" +
                         "Treatment Plan: " + getTreatmentPlan() + "\n" +
-                        "Visit Date: " + visitDate;
+                        "Visit Date: " + getVisitDate();
         DisplayUtility.printBox("Outpatient Medical Record", content);
     }
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package hospital.management;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents a patient in the hospital management system.
@@ -12,8 +16,9 @@ import java.util.List;
 public class Patient extends Person implements Schedulable {
     private String medicalHistory;
     private String diagnosis;
-    private List<Appointment> appointments;
-    private List<MedicalRecord> medicalRecords;
+    private final SnapshotArrayList<Appointment> appointments;
+    private SnapshotList<MedicalRecord> medicalRecords;
+    private Set<MedicalRecord> medicalRecordSet;
 
     /**
      * Constructor to create a Patient object.
@@ -25,11 +30,27 @@ public class Patient extends Person implements Schedulable {
      * @param diagnosis      The current diagnosis of the patient
      */
     public Patient(String name, int age, String contactDetails, String medicalHistory, String diagnosis) {
-        super(name, age, contactDetails);
+        this(nextId(), name, age, contactDetails, medicalHistory, diagnosis);
+    }
+
+    /**
+     * Constructor to create a Patient object with a known ID, used when
+     * restoring saved data.
+     *
+     * @param id             The ID of the patient
+     * @param name           The name of the patient
+     * @param age            The age of the patient
+     * @param contactDetails The contact details of the patient
+     * @param medicalHistory The medical history of the patient
+     * @param diagnosis      The current diagnosis of the patient
+     */
+    Patient(long id, String name, int age, String contactDetails, String medicalHistory, String diagnosis) {
+        super(id, name, age, contactDetails);
         this.medicalHistory = medicalHistory;
         this.diagnosis = diagnosis;
-        this.appointments = new ArrayList<>();
-        this.medicalRecords = new ArrayList<>();
+        this.appointments = new SnapshotArrayList<>();
+        this.medicalRecords = new SnapshotList<>();
+        this.medicalRecordSet = Collections.newSetFromMap(new IdentityHashMap<>());
     }
 
     /**
@@ -67,23 +88,46 @@ public class Patient extends Person implements Schedulable {
     public void setDiagnosis(String diagnosis) {
         this.diagnosis = diagnosis;
     }
+
+    /**
+     * Checks if the patient has a diagnosis.
+     *
+     * @param diagnosis The diagnosis to check, matched exactly
+     * @return true if the patient has the diagnosis
+     */
+    public boolean hasDiagnosis(String diagnosis) {
+        return Objects.equals(this.diagnosis, diagnosis);
+    }
     
     /**
      * Gets the list of appointments for the patient.
+     * The list is a read-only snapshot shared until the next change, so it
+     * can be iterated while appointments are being booked or cancelled.
      *
-     * @return List of appointments
+     * @return Read-only list of appointments
      */
     public List<Appointment> getAppointments() {
+        return appointments.snapshot();
+    }
+
+    /**
+     * Gets the changeable list of appointments, for the system to keep in
+     * step with its indexes while holding the patient's monitor.
+     *
+     * @return The list of appointments
+     */
+    SnapshotArrayList<Appointment> getAppointmentList() {
         return appointments;
     }
     
     /**
      * Gets the list of medical records for the patient.
+     * The list is a read-only snapshot shared until the next record is added.
      *
-     * @return List of medical records
+     * @return Read-only list of medical records
      */
     public List<MedicalRecord> getMedicalRecords() {
-        return new ArrayList<>(medicalRecords);
+        return medicalRecords.snapshot();
     }
     
     /**
@@ -91,8 +135,8 @@ public class Patient extends Person implements Schedulable {
      *
      * @param record The medical record to add
      */
-    public void addMedicalRecord(MedicalRecord record) {
-        if (record != null && !medicalRecords.contains(record)) {
+    public synchronized void addMedicalRecord(MedicalRecord record) {
+        if (record != null && medicalRecordSet.add(record)) {
             medicalRecords.add(record);
         }
     }
@@ -146,13 +190,14 @@ public class Patient extends Person implements Schedulable {
     @Override
     public void viewSchedule() {
         DisplayUtility.printHeader("Schedule for Patient: " + getName());
-        if (appointments.isEmpty()) {
+        List<Appointment> scheduled = appointments.snapshot();
+        if (scheduled.isEmpty()) {
             DisplayUtility.printMessage("No appointments scheduled", false);
         } else {
             String[] headers = {"#", "Date", "Time", "Doctor", "Specialization"};
             List<String[]> rows = new ArrayList<>();
-            for (int i = 0; i < appointments.size(); i++) {
-                Appointment apt = appointments.get(i);
+            for (int i = 0; i < scheduled.size(); i++) {
+                Appointment apt = scheduled.get(i);
                 rows.add(new String[]{
                     String.valueOf(i + 1),
                     apt.getDate(),
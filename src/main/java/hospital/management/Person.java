@@ -1,14 +1,22 @@
 package hospital.management;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Base class representing a person in the hospital management system.
  * This class contains common properties shared by all hospital members
  * such as patients, doctors, and staff.
  */
 public class Person {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id;
     private String name;
     private int age;
     private String contactDetails;
+    private final List<PersonChangeListener> listeners;
 
     /**
      * Constructor to create a Person object.
@@ -18,9 +26,54 @@ public class Person {
      * @param contactDetails The contact details of the person
      */
     public Person(String name, int age, String contactDetails) {
+        this(nextId(), name, age, contactDetails);
+    }
+
+    /**
+     * Constructor to create a Person object with a known ID, used when
+     * restoring saved data. Later IDs are assigned above it.
+     *
+     * @param id             The ID of the person
+     * @param name           The name of the person
+     * @param age            The age of the person
+     * @param contactDetails The contact details of the person
+     */
+    Person(long id, String name, int age, String contactDetails) {
+        reserveIdsThrough(id);
+        this.id = id;
         this.name = name;
         this.age = age;
         this.contactDetails = contactDetails;
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Assigns a new unique person ID.
+     *
+     * @return The ID
+     */
+    static long nextId() {
+        return NEXT_ID.getAndIncrement();
+    }
+
+    /**
+     * Makes sure IDs assigned from now on are above an ID already in use,
+     * including by people that are saved but not yet loaded.
+     *
+     * @param id The highest ID in use
+     */
+    static void reserveIdsThrough(long id) {
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Gets the unique ID of the person.
+     * IDs are assigned on creation and never change.
+     *
+     * @return The ID of the person
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -38,7 +91,9 @@ public class Person {
      * @param name The name to set
      */
     public void setName(String name) {
+        String oldName = this.name;
         this.name = name;
+        firePropertyChange("name", oldName, name);
     }
 
     /**
@@ -77,6 +132,43 @@ public class Person {
         this.contactDetails = contactDetails;
     }
 
+    /**
+     * Adds a listener to be notified when a property of this person changes.
+     *
+     * @param listener The listener to add
+     */
+    public void addChangeListener(PersonChangeListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a previously added change listener.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeChangeListener(PersonChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies all listeners that a property has changed.
+     * Nothing is sent if the value did not actually change.
+     *
+     * @param property The name of the property
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    protected void firePropertyChange(String property, Object oldValue, Object newValue) {
+        if (oldValue == newValue || (oldValue != null && oldValue.equals(newValue))) {
+            return;
+        }
+        for (PersonChangeListener listener : listeners) {
+            listener.personChanged(this, property, oldValue, newValue);
+        }
+    }
+
     /**
      * Displays the basic information of the person.
      */
@@ -85,4 +177,31 @@ public class Person {
         System.out.println("Age: " + age);
         System.out.println("Contact: " + contactDetails);
     }
+
+    /**
+     * Two persons are equal when they share the same ID.
+     *
+     * @param o The object to compare with
+     * @return true if the object is a person with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Person)) {
+            return false;
+        }
+        return id == ((Person) o).id;
+    }
+
+    /**
+     * Gets the hash code of the person, derived from the ID.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
 }
\ No newline at end of file
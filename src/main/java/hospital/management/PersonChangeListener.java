@@ -0,0 +1,18 @@
+package hospital.management;
+
+/**
+ * Interface for objects that need to know when a property of a person changes.
+ * Used by the hospital system to keep its lookup indexes in sync with
+ * changes made directly through a person's setters.
+ */
+public interface PersonChangeListener {
+    /**
+     * Called after a property of a person has changed.
+     *
+     * @param person   The person that changed
+     * @param property The name of the property, such as "name"
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    void personChanged(Person person, String property, Object oldValue, Object newValue);
+}
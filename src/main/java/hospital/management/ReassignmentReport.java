@@ -0,0 +1,55 @@
+package hospital.management;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of moving a doctor's appointments to other doctors.
+ * Holds the appointments as they are now booked with their new doctors,
+ * and the original appointments that no other doctor could take, which
+ * are still booked with the original doctor. Appointments cancelled or
+ * rescheduled while the move was running are in neither list.
+ */
+public class ReassignmentReport {
+    private final List<Appointment> moved;
+    private final List<Appointment> unplaced;
+
+    /**
+     * Constructor to create a ReassignmentReport object.
+     *
+     * @param moved    The appointments booked with their new doctors
+     * @param unplaced The appointments left with the original doctor
+     */
+    ReassignmentReport(List<Appointment> moved, List<Appointment> unplaced) {
+        this.moved = Collections.unmodifiableList(moved);
+        this.unplaced = Collections.unmodifiableList(unplaced);
+    }
+
+    /**
+     * Gets the appointments that were moved, with their new doctors.
+     * Each keeps the ID, patient, date, time and length of the original.
+     *
+     * @return The moved appointments in order of start time
+     */
+    public List<Appointment> getMoved() {
+        return moved;
+    }
+
+    /**
+     * Gets the appointments that could not be moved.
+     *
+     * @return The appointments still booked with the original doctor, in order of start time
+     */
+    public List<Appointment> getUnplaced() {
+        return unplaced;
+    }
+
+    /**
+     * Checks whether every appointment was moved.
+     *
+     * @return true if no appointment was left unplaced
+     */
+    public boolean isComplete() {
+        return unplaced.isEmpty();
+    }
+}
@@ -0,0 +1,268 @@
+package hospital.management;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Streaming export of medical records and appointments as CSV or JSON Lines.
+ * <p>
+ * Rows are written one at a time through a buffered writer on a channel.
+ * Medical records are never removed, so an export of all records visits
+ * exactly the records that existed when it started, in the order they were
+ * added, copying them out in fixed-size batches while new records keep
+ * being added. An export of all appointments iterates the snapshot returned
+ * by {@link HospitalManagementSystem#getAppointments()}, which is taken
+ * without copying; bookings and cancellations made while it runs allocate
+ * new tree nodes instead of changing the ones it reads, so the export keeps
+ * O(log n) replaced nodes alive per change made during it. An export for
+ * one patient copies the references to that patient's matching records or
+ * appointments when it starts. Memory use is therefore bounded by the
+ * batch size, one patient's rows and the changes made during the export,
+ * not by the number of rows exported.
+ * Appointment exports also include the appointments in the off-heap
+ * archive, read straight from their records before the live ones; those
+ * already flushed to the on-disk history are not exported.
+ */
+public class RecordExporter {
+    private static final String[] RECORD_COLUMNS = {"id", "patientId", "type", "diagnosis",
+        "treatmentPlan", "recordDate", "roomNumber", "durationOfStay"};
+    private static final String[] APPOINTMENT_COLUMNS = {"id", "patientId", "doctorId", "date",
+        "time", "durationMinutes"};
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final HospitalManagementSystem system;
+
+    /**
+     * Constructor to create a RecordExporter object.
+     *
+     * @param system The system to export from
+     */
+    public RecordExporter(HospitalManagementSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Exports medical records to a file, replacing its contents.
+     *
+     * @param file   The file to write
+     * @param format The output format
+     * @param filter The records to export
+     * @return The number of records exported
+     * @throws IOException if the file cannot be written
+     */
+    public long exportMedicalRecords(Path file, DataFormat format, ExportFilter filter) throws IOException {
+        try (FileChannel channel = openForWriting(file)) {
+            return exportMedicalRecords(channel, format, filter);
+        }
+    }
+
+    /**
+     * Exports medical records to a channel. The channel is not closed.
+     *
+     * @param channel The channel to write to
+     * @param format  The output format
+     * @param filter  The records to export
+     * @return The number of records exported
+     * @throws IOException if writing fails
+     */
+    public long exportMedicalRecords(WritableByteChannel channel, DataFormat format, ExportFilter filter)
+            throws IOException {
+        RowWriter out = new RowWriter(channel, format, RECORD_COLUMNS);
+        Patient patient = filter.getPatient();
+        if (patient != null) {
+            for (MedicalRecord record : system.getPatientMedicalRecords(patient, MedicalRecord.class,
+                    filter.getFromDate(), filter.getToDate())) {
+                writeRecord(out, patient, record);
+            }
+        } else {
+            try {
+                system.forEachMedicalRecord(system.getMedicalRecordCount(), (owner, record) -> {
+                    if (filter.matchesDate(record.getRecordDate())) {
+                        try {
+                            writeRecord(out, owner, record);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        out.flush();
+        return out.rows;
+    }
+
+    /**
+     * Exports appointments to a file, replacing its contents.
+     *
+     * @param file   The file to write
+     * @param format The output format
+     * @param filter The appointments to export
+     * @return The number of appointments exported
+     * @throws IOException if the file cannot be written
+     */
+    public long exportAppointments(Path file, DataFormat format, ExportFilter filter) throws IOException {
+        try (FileChannel channel = openForWriting(file)) {
+            return exportAppointments(channel, format, filter);
+        }
+    }
+
+    /**
+     * Exports appointments to a channel. The channel is not closed.
+     *
+     * @param channel The channel to write to
+     * @param format  The output format
+     * @param filter  The appointments to export
+     * @return The number of appointments exported
+     * @throws IOException if writing fails
+     */
+    public long exportAppointments(WritableByteChannel channel, DataFormat format, ExportFilter filter)
+            throws IOException {
+        RowWriter out = new RowWriter(channel, format, APPOINTMENT_COLUMNS);
+        Patient patient = filter.getPatient();
+        try {
+            system.forEachArchivedAppointment(patient, archived -> {
+                long start = archived.getStartMinute();
+                if (filter.matchesDay(Math.floorDiv(start, MINUTES_PER_DAY))) {
+                    try {
+                        out.row(archived.getId(), archived.getPatientId(), archived.getDoctorId(),
+                            OffHeapAppointmentStore.dateOf(start), OffHeapAppointmentStore.timeOf(start),
+                            archived.getDurationMinutes());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        List<Appointment> view = patient != null
+            ? system.getPatientAppointments(patient) : system.getAppointments();
+        for (Appointment appointment : view) {
+            if (filter.matchesDay(Math.floorDiv(appointment.getStartMinute(), MINUTES_PER_DAY))) {
+                out.row(appointment.getId(), appointment.getPatient().getId(), appointment.getDoctor().getId(),
+                    appointment.getDate(), appointment.getTime(), appointment.getDurationMinutes());
+            }
+        }
+        out.flush();
+        return out.rows;
+    }
+
+    /**
+     * Writes one medical record row.
+     *
+     * @param out     The row writer
+     * @param patient The patient owning the record
+     * @param record  The record
+     * @throws IOException if writing fails
+     */
+    private static void writeRecord(RowWriter out, Patient patient, MedicalRecord record) throws IOException {
+        if (record instanceof InpatientRecord) {
+            InpatientRecord inpatient = (InpatientRecord) record;
+            out.row(record.getId(), patient.getId(), JournalEntry.INPATIENT, record.getDiagnosis(),
+                record.getTreatmentPlan(), record.getRecordDate(), inpatient.getRoomNumber(),
+                inpatient.getDurationOfStay());
+        } else {
+            out.row(record.getId(), patient.getId(), JournalEntry.OUTPATIENT, record.getDiagnosis(),
+                record.getTreatmentPlan(), record.getRecordDate(), null, null);
+        }
+    }
+
+    /**
+     * Opens a file for writing, replacing its contents.
+     *
+     * @param file The file
+     * @return The channel
+     * @throws IOException if the file cannot be opened
+     */
+    private static FileChannel openForWriting(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes rows in one format to a channel through a buffer.
+     */
+    private static class RowWriter {
+        private final Writer writer;
+        private final DataFormat format;
+        private final String[] columns;
+        private final StringBuilder line;
+        private long rows;
+
+        /**
+         * Constructor to create a RowWriter object, writing the CSV header if needed.
+         *
+         * @param channel The channel to write to
+         * @param format  The output format
+         * @param columns The column names
+         * @throws IOException if writing the header fails
+         */
+        RowWriter(WritableByteChannel channel, DataFormat format, String[] columns) throws IOException {
+            this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+            this.format = format;
+            this.columns = columns;
+            this.line = new StringBuilder();
+            if (format == DataFormat.CSV) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+        }
+
+        /**
+         * Writes one row. Numbers are written as JSON numbers and null as
+         * JSON null or an empty CSV field.
+         *
+         * @param values The values, one per column
+         * @throws IOException if writing fails
+         */
+        void row(Object... values) throws IOException {
+            line.setLength(0);
+            if (format == DataFormat.CSV) {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    line.append(Csv.quote(values[i] == null ? null : values[i].toString()));
+                }
+            } else {
+                line.append('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    Json.appendString(line, columns[i]);
+                    line.append(':');
+                    if (values[i] instanceof Number) {
+                        line.append(values[i]);
+                    } else {
+                        Json.appendString(line, values[i] == null ? null : values[i].toString());
+                    }
+                }
+                line.append('}');
+            }
+            line.append('\n');
+            writer.append(line);
+            rows++;
+        }
+
+        /**
+         * Writes any buffered output to the channel.
+         *
+         * @throws IOException if writing fails
+         */
+        void flush() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hospital state rebuilt from a snapshot and the journal entries after it.
+ * Applying an entry is idempotent: a registration, booking or record that
+ * is already known is ignored, a cancellation of an unknown appointment is
+ * ignored and a diagnosis update, calendar change or move of an
+ * appointment to another doctor or time simply sets the value. This allows a
+ * snapshot taken while bookings continue to contain changes that are also
+ * in the journal tail replayed after it. Archived appointments are rebuilt
+ * into a new off-heap archive. Flushing the archive to a history run empties
+ * it, so the entries archived before a flush are dropped; a flush of a run
+ * that is already known is ignored.
+ * <p>
+ * Patients and doctors saved in a snapshot's registry file are looked up
+ * there by ID and created only when an entry refers to them. The system
+ * built keeps the file and loads the others when they are needed, so a
+ * registration replayed from the journal for someone already in the file
+ * is ignored like any other repeat.
+ */
+class RecoveryState {
+    private final Map<Long, Staff> staff;
+    private final Map<Long, Doctor> doctors;
+    private final Map<Long, Patient> patients;
+    private final Map<Long, JournalEntry> bookings;
+    private final Map<Long, JournalEntry> records;
+    private final Map<Long, JournalEntry> archived;
+    private long lastHistoryRun;
+    private RegistryFile registry;
+
+    /**
+     * Constructor to create an empty RecoveryState object.
+     */
+    RecoveryState() {
+        this.staff = new LinkedHashMap<>();
+        this.doctors = new LinkedHashMap<>();
+        this.patients = new LinkedHashMap<>();
+        this.bookings = new LinkedHashMap<>();
+        this.records = new TreeMap<>();
+        this.archived = new LinkedHashMap<>();
+    }
+
+    /**
+     * Applies one snapshot or journal entry.
+     *
+     * @param entry The entry to apply
+     */
+    void apply(JournalEntry entry) {
+        switch (entry.getType()) {
+            case STAFF_REGISTERED:
+                staff.computeIfAbsent(entry.getLong(0), id -> new Staff(id, entry.getField(1),
+                    entry.getInt(2), entry.getField(3), entry.getField(4), entry.getField(5)));
+                break;
+            case DOCTOR_REGISTERED:
+                if (doctor(entry.getLong(0)) == null) {
+                    doctors.put(entry.getLong(0), new Doctor(entry.getLong(0), entry.getField(1),
+                        entry.getInt(2), entry.getField(3), entry.getField(4),
+                        Boolean.parseBoolean(entry.getField(5))));
+                }
+                break;
+            case PATIENT_REGISTERED:
+                if (patient(entry.getLong(0)) == null) {
+                    patients.put(entry.getLong(0), new Patient(entry.getLong(0), entry.getField(1),
+                        entry.getInt(2), entry.getField(3), entry.getField(4), entry.getField(5)));
+                }
+                break;
+            case APPOINTMENT_BOOKED:
+                bookings.putIfAbsent(entry.getLong(0), entry);
+                break;
+            case APPOINTMENT_REASSIGNED:
+            case APPOINTMENT_RESCHEDULED:
+                bookings.put(entry.getLong(0), entry);
+                break;
+            case APPOINTMENT_CANCELLED:
+                bookings.remove(entry.getLong(0));
+                break;
+            case DIAGNOSIS_UPDATED:
+                Patient patient = patient(entry.getLong(0));
+                if (patient != null) {
+                    patient.setDiagnosis(entry.getField(2));
+                }
+                break;
+            case CALENDAR_SET:
+                Doctor doctor = doctor(entry.getLong(0));
+                if (doctor != null) {
+                    List<String> hours = new ArrayList<>();
+                    for (int i = 1; i < entry.getFieldCount(); i++) {
+                        hours.add(entry.getField(i));
+                    }
+                    doctor.setCalendar(hours.isEmpty() ? null : AvailabilityCalendar.decode(hours));
+                }
+                break;
+            case MEDICAL_RECORD_ADDED:
+                records.putIfAbsent(entry.getLong(0), entry);
+                break;
+            case APPOINTMENT_ARCHIVED:
+                bookings.remove(entry.getLong(0));
+                archived.putIfAbsent(entry.getLong(0), entry);
+                break;
+            case ARCHIVE_FLUSHED:
+                if (entry.getLong(0) > lastHistoryRun) {
+                    archived.clear();
+                    lastHistoryRun = entry.getLong(0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Looks up patients and doctors not registered by an entry in a
+     * registry file.
+     *
+     * @param registry The registry file saved with the snapshot
+     */
+    void setRegistry(RegistryFile registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Finds a patient registered by an entry or saved in the registry file.
+     *
+     * @param id The ID of the patient
+     * @return The patient, or null if unknown
+     */
+    private Patient patient(long id) {
+        Patient patient = patients.get(id);
+        return patient != null || registry == null ? patient : registry.findPatient(id);
+    }
+
+    /**
+     * Finds a doctor registered by an entry or saved in the registry file.
+     *
+     * @param id The ID of the doctor
+     * @return The doctor, or null if unknown
+     */
+    private Doctor doctor(long id) {
+        Doctor doctor = doctors.get(id);
+        return doctor != null || registry == null ? doctor : registry.findDoctor(id);
+    }
+
+    /**
+     * Gets the number of the last history run recorded as flushed.
+     *
+     * @return The run number, or 0 if no run was recorded
+     */
+    long getLastHistoryRun() {
+        return lastHistoryRun;
+    }
+
+    /**
+     * Creates a hospital management system holding the recovered state.
+     * Appointments or records whose patient or doctor is unknown are skipped.
+     * People from the registry file are registered only if an appointment
+     * or record refers to them.
+     *
+     * @param journal The journal further changes are written to, or null
+     * @return The recovered system
+     */
+    HospitalManagementSystem build(Journal journal) {
+        HospitalManagementSystem system = new HospitalManagementSystem();
+        staff.values().forEach(system::restoreStaff);
+        doctors.values().forEach(system::restoreDoctor);
+        patients.values().forEach(system::restorePatient);
+        for (JournalEntry entry : bookings.values()) {
+            Patient patient = patient(entry.getLong(1));
+            Doctor doctor = doctor(entry.getLong(2));
+            if (patient != null && doctor != null) {
+                system.restorePatient(patient);
+                system.restoreDoctor(doctor);
+                system.restoreAppointment(new Appointment(entry.getLong(0), entry.getField(3),
+                    entry.getField(4), entry.getInt(5), patient, doctor));
+            }
+        }
+        for (JournalEntry entry : records.values()) {
+            Patient patient = patient(entry.getLong(1));
+            if (patient != null) {
+                system.restorePatient(patient);
+                system.restoreMedicalRecord(patient, toRecord(entry));
+            }
+        }
+        if (!archived.isEmpty()) {
+            OffHeapAppointmentStore archive = new OffHeapAppointmentStore();
+            for (JournalEntry entry : archived.values()) {
+                archive.add(entry.getLong(0), entry.getLong(1), entry.getLong(2), entry.getLong(3),
+                    entry.getInt(4), OffHeapAppointmentStore.Status.COMPLETED);
+            }
+            system.setAppointmentArchive(archive);
+        }
+        if (registry != null) {
+            system.attachRegistry(registry);
+        }
+        system.attachJournal(journal);
+        return system;
+    }
+
+    /**
+     * Creates the medical record described by a MEDICAL_RECORD_ADDED entry.
+     *
+     * @param entry The entry
+     * @return The record
+     */
+    private static MedicalRecord toRecord(JournalEntry entry) {
+        if (JournalEntry.INPATIENT.equals(entry.getField(2))) {
+            return new InpatientRecord(entry.getLong(0), entry.getField(3), entry.getField(4),
+                entry.getField(5), entry.getInt(6), entry.getInt(7));
+        }
+        return new OutpatientRecord(entry.getLong(0), entry.getField(3), entry.getField(4),
+            entry.getField(5));
+    }
+}
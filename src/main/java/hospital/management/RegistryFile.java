@@ -0,0 +1,544 @@
+package hospital.management;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-only, memory-mapped file holding the patient and doctor registries.
+ * <p>
+ * The file has a fixed header, a table of fixed-size patient rows, a table
+ * of fixed-size doctor rows and a string heap. Each table is sorted by ID,
+ * and each row holds the numeric fields inline and an offset and length
+ * into the heap for every string, so a lookup by ID is a binary search on
+ * the mapping followed by reading one row. Opening a file only maps it and
+ * reserves the IDs it holds, so people created later never reuse them;
+ * patients and doctors are created when they are first looked up, and
+ * materializing the whole registry into a system is optional.
+ * <p>
+ * {@link SnapshotManager} writes one next to each snapshot, and a recovered
+ * system serves lookups by ID from it until a query needs every person.
+ * A new file can be written from an existing one plus the people loaded
+ * since: rows of people never loaded are copied byte for byte, so writing
+ * it does not create them.
+ * <p>
+ * Strings are stored as UTF-8, with a length of -1 for null. The file is
+ * mapped as a single buffer, so it must be smaller than 2 GB.
+ */
+public class RegistryFile {
+    private static final int MAGIC = 0x484D5352;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    /** id, age, then offset and length of name, contact, medical history and diagnosis. */
+    private static final int PATIENT_ROW = 8 + 4 + 4 * 8;
+    /** id, age, then offset and length of name, contact and specialization, then availability. */
+    private static final int DOCTOR_ROW = 8 + 4 + 3 * 8 + 4;
+
+    private final MappedByteBuffer buffer;
+    private final int patientCount;
+    private final int doctorCount;
+    private final int patientTable;
+    private final int doctorTable;
+    private final int heap;
+    private final ConcurrentMap<Long, Patient> patients;
+    private final ConcurrentMap<Long, Doctor> doctors;
+
+    /**
+     * Constructor to create a RegistryFile object over a mapped file.
+     *
+     * @param buffer The mapped file
+     * @throws IOException if the file is not a registry file
+     */
+    private RegistryFile(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a registry file");
+        }
+        this.buffer = buffer;
+        this.patientCount = buffer.getInt(8);
+        this.doctorCount = buffer.getInt(12);
+        long heapStart = HEADER_SIZE + (long) patientCount * PATIENT_ROW + (long) doctorCount * DOCTOR_ROW;
+        if (patientCount < 0 || doctorCount < 0 || heapStart > buffer.capacity()) {
+            throw new IOException("Truncated registry file");
+        }
+        this.patientTable = HEADER_SIZE;
+        this.doctorTable = patientTable + patientCount * PATIENT_ROW;
+        this.heap = (int) heapStart;
+        this.patients = new ConcurrentHashMap<>();
+        this.doctors = new ConcurrentHashMap<>();
+        if (patientCount > 0) {
+            Person.reserveIdsThrough(buffer.getLong(doctorTable - PATIENT_ROW));
+        }
+        if (doctorCount > 0) {
+            Person.reserveIdsThrough(buffer.getLong(heap - DOCTOR_ROW));
+        }
+    }
+
+    /**
+     * Maps a registry file for reading.
+     *
+     * @param file The file to open
+     * @return The opened registry
+     * @throws IOException if the file cannot be read or is not a registry file
+     */
+    public static RegistryFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Registry file too large to map: " + file);
+            }
+            return new RegistryFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the registries to a file, replacing it atomically.
+     *
+     * @param file     The file to write
+     * @param patients The patients to store
+     * @param doctors  The doctors to store
+     * @throws IOException if the file cannot be written or would exceed 2 GB
+     */
+    public static void write(Path file, Collection<Patient> patients, Collection<Doctor> doctors)
+            throws IOException {
+        write(file, null, patients, doctors);
+    }
+
+    /**
+     * Writes the registries to a file, replacing it atomically, merging an
+     * existing registry file with the people loaded from it or registered
+     * since. A person in both is written from the loaded object; the rows
+     * of people only in the existing file are copied without creating them.
+     *
+     * @param file     The file to write
+     * @param base     The existing registry file, or null for none
+     * @param patients The loaded patients to store
+     * @param doctors  The loaded doctors to store
+     * @throws IOException if the file cannot be written or would exceed 2 GB
+     */
+    public static void write(Path file, RegistryFile base, Collection<Patient> patients,
+                             Collection<Doctor> doctors) throws IOException {
+        List<Patient> sortedPatients = new ArrayList<>(patients);
+        sortedPatients.sort(Comparator.comparingLong(Person::getId));
+        List<Doctor> sortedDoctors = new ArrayList<>(doctors);
+        sortedDoctors.sort(Comparator.comparingLong(Person::getId));
+        int basePatients = base == null ? 0 : base.patientCount;
+        int baseDoctors = base == null ? 0 : base.doctorCount;
+        int patientCount = mergedCount(sortedPatients, base, base == null ? 0 : base.patientTable,
+            basePatients, PATIENT_ROW);
+        int doctorCount = mergedCount(sortedDoctors, base, base == null ? 0 : base.doctorTable,
+            baseDoctors, DOCTOR_ROW);
+        long heapStart = HEADER_SIZE + (long) patientCount * PATIENT_ROW + (long) doctorCount * DOCTOR_ROW;
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Region rows = new Region(channel, HEADER_SIZE);
+            Region strings = new Region(channel, heapStart);
+            int next = 0;
+            for (Patient patient : sortedPatients) {
+                while (next < basePatients && base.patientId(next) < patient.getId()) {
+                    base.copyPatient(next++, rows, strings);
+                }
+                if (next < basePatients && base.patientId(next) == patient.getId()) {
+                    next++;
+                }
+                rows.putLong(patient.getId());
+                rows.putInt(patient.getAge());
+                putString(rows, strings, patient.getName());
+                putString(rows, strings, patient.getContactDetails());
+                putString(rows, strings, patient.getMedicalHistory());
+                putString(rows, strings, patient.getDiagnosis());
+            }
+            while (next < basePatients) {
+                base.copyPatient(next++, rows, strings);
+            }
+            next = 0;
+            for (Doctor doctor : sortedDoctors) {
+                while (next < baseDoctors && base.doctorId(next) < doctor.getId()) {
+                    base.copyDoctor(next++, rows, strings);
+                }
+                if (next < baseDoctors && base.doctorId(next) == doctor.getId()) {
+                    next++;
+                }
+                rows.putLong(doctor.getId());
+                rows.putInt(doctor.getAge());
+                putString(rows, strings, doctor.getName());
+                putString(rows, strings, doctor.getContactDetails());
+                putString(rows, strings, doctor.getSpecialization());
+                rows.putInt(doctor.isAvailable() ? 1 : 0);
+            }
+            while (next < baseDoctors) {
+                base.copyDoctor(next++, rows, strings);
+            }
+            rows.flush();
+            strings.flush();
+            if (strings.position > Integer.MAX_VALUE) {
+                throw new IOException("Registry too large for one file");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(patientCount).putInt(doctorCount);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the number of patients in the file.
+     *
+     * @return The patient count
+     */
+    public int getPatientCount() {
+        return patientCount;
+    }
+
+    /**
+     * Gets the number of doctors in the file.
+     *
+     * @return The doctor count
+     */
+    public int getDoctorCount() {
+        return doctorCount;
+    }
+
+    /**
+     * Finds a patient by ID, creating it from the mapping on first lookup.
+     * Later lookups of the same ID return the same object.
+     *
+     * @param id The ID of the patient
+     * @return The patient, or null if not in the file
+     */
+    public Patient findPatient(long id) {
+        Patient cached = patients.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        int row = search(patientTable, patientCount, PATIENT_ROW, id);
+        return row < 0 ? null : patients.computeIfAbsent(id, key -> readPatient(row));
+    }
+
+    /**
+     * Finds a doctor by ID, creating it from the mapping on first lookup.
+     * Later lookups of the same ID return the same object.
+     *
+     * @param id The ID of the doctor
+     * @return The doctor, or null if not in the file
+     */
+    public Doctor findDoctor(long id) {
+        Doctor cached = doctors.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        int row = search(doctorTable, doctorCount, DOCTOR_ROW, id);
+        return row < 0 ? null : doctors.computeIfAbsent(id, key -> readDoctor(row));
+    }
+
+    /**
+     * Restores every patient and doctor into a system, in ID order.
+     *
+     * @param system The system to fill
+     */
+    public void restoreInto(HospitalManagementSystem system) {
+        for (int i = 0; i < doctorCount; i++) {
+            system.restoreDoctor(findDoctor(buffer.getLong(doctorTable + i * DOCTOR_ROW)));
+        }
+        for (int i = 0; i < patientCount; i++) {
+            system.restorePatient(findPatient(buffer.getLong(patientTable + i * PATIENT_ROW)));
+        }
+    }
+
+    /**
+     * Counts the people in a sorted list and a table of an existing file
+     * together, counting those in both once.
+     *
+     * @param people  The loaded people, sorted by ID
+     * @param base    The existing file, or null for none
+     * @param table   The offset of the table in the existing file
+     * @param count   The number of rows in the table
+     * @param rowSize The size of a row
+     * @return The number of distinct IDs
+     * @throws IOException if there are too many people for one file
+     */
+    private static int mergedCount(List<? extends Person> people, RegistryFile base, int table, int count,
+                                   int rowSize) throws IOException {
+        long merged = (long) people.size() + count;
+        for (Person person : people) {
+            if (base != null && base.search(table, count, rowSize, person.getId()) >= 0) {
+                merged--;
+            }
+        }
+        if (merged > Integer.MAX_VALUE) {
+            throw new IOException("Registry too large for one file");
+        }
+        return (int) merged;
+    }
+
+    /**
+     * Gets the ID of a patient by position in the table.
+     *
+     * @param index The position of the row
+     * @return The patient ID
+     */
+    private long patientId(int index) {
+        return buffer.getLong(patientTable + index * PATIENT_ROW);
+    }
+
+    /**
+     * Gets the ID of a doctor by position in the table.
+     *
+     * @param index The position of the row
+     * @return The doctor ID
+     */
+    private long doctorId(int index) {
+        return buffer.getLong(doctorTable + index * DOCTOR_ROW);
+    }
+
+    /**
+     * Copies a patient row and its strings to a new file.
+     *
+     * @param index   The position of the row
+     * @param rows    The row region of the new file
+     * @param strings The heap region of the new file
+     * @throws IOException if writing fails
+     */
+    private void copyPatient(int index, Region rows, Region strings) throws IOException {
+        int row = patientTable + index * PATIENT_ROW;
+        rows.putLong(buffer.getLong(row));
+        rows.putInt(buffer.getInt(row + 8));
+        for (int field = row + 12; field < row + PATIENT_ROW; field += 8) {
+            copyString(field, rows, strings);
+        }
+    }
+
+    /**
+     * Copies a doctor row and its strings to a new file.
+     *
+     * @param index   The position of the row
+     * @param rows    The row region of the new file
+     * @param strings The heap region of the new file
+     * @throws IOException if writing fails
+     */
+    private void copyDoctor(int index, Region rows, Region strings) throws IOException {
+        int row = doctorTable + index * DOCTOR_ROW;
+        rows.putLong(buffer.getLong(row));
+        rows.putInt(buffer.getInt(row + 8));
+        for (int field = row + 12; field < row + 36; field += 8) {
+            copyString(field, rows, strings);
+        }
+        rows.putInt(buffer.getInt(row + 36));
+    }
+
+    /**
+     * Copies a string referenced by an offset and length pair to a new file
+     * without decoding it.
+     *
+     * @param field   The offset of the pair
+     * @param rows    The row region of the new file
+     * @param strings The heap region of the new file
+     * @throws IOException if writing fails
+     */
+    private void copyString(int field, Region rows, Region strings) throws IOException {
+        int length = buffer.getInt(field + 4);
+        if (length < 0) {
+            rows.putInt(0);
+            rows.putInt(-1);
+            return;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heap + buffer.getInt(field), bytes);
+        rows.putInt((int) (strings.position - strings.start));
+        rows.putInt(length);
+        strings.put(bytes);
+    }
+
+    /**
+     * Finds the row holding an ID in a table sorted by ID.
+     *
+     * @param table   The offset of the table
+     * @param count   The number of rows
+     * @param rowSize The size of a row
+     * @param id      The ID to find
+     * @return The offset of the row, or -1 if not found
+     */
+    private int search(int table, int count, int rowSize, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int row = table + mid * rowSize;
+            long rowId = buffer.getLong(row);
+            if (rowId < id) {
+                low = mid + 1;
+            } else if (rowId > id) {
+                high = mid - 1;
+            } else {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a patient from a row.
+     *
+     * @param row The offset of the row
+     * @return The patient
+     */
+    private Patient readPatient(int row) {
+        return new Patient(buffer.getLong(row), getString(row + 12), buffer.getInt(row + 8),
+            getString(row + 20), getString(row + 28), getString(row + 36));
+    }
+
+    /**
+     * Creates a doctor from a row.
+     *
+     * @param row The offset of the row
+     * @return The doctor
+     */
+    private Doctor readDoctor(int row) {
+        return new Doctor(buffer.getLong(row), getString(row + 12), buffer.getInt(row + 8),
+            getString(row + 20), getString(row + 28), buffer.getInt(row + 36) != 0);
+    }
+
+    /**
+     * Reads a string referenced by an offset and length pair in a row.
+     *
+     * @param field The offset of the pair
+     * @return The string, or null
+     */
+    private String getString(int field) {
+        int length = buffer.getInt(field + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heap + buffer.getInt(field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a string to the heap and its offset and length pair to a row.
+     *
+     * @param rows    The row region
+     * @param strings The heap region
+     * @param value   The string, or null
+     * @throws IOException if writing fails
+     */
+    private static void putString(Region rows, Region strings, String value) throws IOException {
+        if (value == null) {
+            rows.putInt(0);
+            rows.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        rows.putInt((int) (strings.position - strings.start));
+        rows.putInt(bytes.length);
+        strings.put(bytes);
+    }
+
+    /**
+     * Buffered sequential writer for one region of a file.
+     */
+    private static class Region {
+        private final FileChannel channel;
+        private final long start;
+        private final ByteBuffer buffer;
+        private long position;
+        private long flushed;
+
+        /**
+         * Constructor to create a Region object.
+         *
+         * @param channel The file to write to
+         * @param start   The file offset the region starts at
+         */
+        Region(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+            this.buffer = ByteBuffer.allocate(1 << 16);
+            this.position = start;
+            this.flushed = start;
+        }
+
+        /**
+         * Writes a long.
+         *
+         * @param value The value
+         * @throws IOException if writing fails
+         */
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        /**
+         * Writes an int.
+         *
+         * @param value The value
+         * @throws IOException if writing fails
+         */
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        /**
+         * Writes bytes.
+         *
+         * @param bytes The bytes
+         * @throws IOException if writing fails
+         */
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    flushed += channel.write(large, flushed);
+                }
+            } else {
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+            position += bytes.length;
+        }
+
+        /**
+         * Flushes the buffer if it lacks room for a number of bytes.
+         *
+         * @param bytes The number of bytes about to be written
+         * @throws IOException if writing fails
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes buffered bytes to the file.
+         *
+         * @throws IOException if writing fails
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Search for the earliest free slots across a group of doctors.
+ * <p>
+ * Each doctor has a lazy stream of free slots in time order: candidate
+ * starts lie on a 15-minute grid, non-working minutes are skipped a word of
+ * the calendar bitmap at a time, and each candidate is checked against the
+ * calendar and the booking index with a few mask tests. The streams are
+ * merged through a priority queue keyed on the next start, so finding N
+ * slots costs one step per doctor to fill the queue and then O(log d) per
+ * slot, however many bookings the doctors have further out. A doctor's
+ * slots in the result never overlap each other, and the search stops a
+ * year after the start.
+ */
+class SlotSearch {
+    /** Spacing of candidate start times in minutes, which divides a day. */
+    static final int GRID_MINUTES = 15;
+    private static final int MAX_SEARCH_DAYS = 366;
+
+    private final DoctorSlotIndex slots;
+
+    /**
+     * Constructor to create a SlotSearch over a booking index.
+     *
+     * @param slots The index of booked minutes
+     */
+    SlotSearch(DoctorSlotIndex slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Finds the earliest free slots among some doctors.
+     *
+     * @param doctors         The doctors to search
+     * @param fromMinute      The earliest start in epoch minutes
+     * @param durationMinutes The length of each slot in minutes
+     * @param maxSlots        The most slots to return
+     * @return The slots ordered by start and then doctor ID
+     */
+    List<FreeSlot> find(Collection<Doctor> doctors, long fromMinute, int durationMinutes, int maxSlots) {
+        long limit = fromMinute + (long) MAX_SEARCH_DAYS * DoctorSlotIndex.MINUTES_PER_DAY;
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, doctors.size()),
+            Comparator.comparingLong((Cursor cursor) -> cursor.next)
+                .thenComparingLong(cursor -> cursor.doctor.getId()));
+        for (Doctor doctor : doctors) {
+            Cursor cursor = new Cursor(doctor, durationMinutes, limit);
+            if (cursor.advance(fromMinute)) {
+                queue.add(cursor);
+            }
+        }
+        List<FreeSlot> found = new ArrayList<>(Math.min(maxSlots, 64));
+        while (found.size() < maxSlots && !queue.isEmpty()) {
+            Cursor cursor = queue.poll();
+            found.add(new FreeSlot(cursor.doctor, cursor.next, durationMinutes));
+            if (cursor.advance(cursor.next + durationMinutes)) {
+                queue.add(cursor);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Rounds a minute up to the candidate grid.
+     *
+     * @param minute The minute in epoch minutes
+     * @return The first grid minute at or after it
+     */
+    private static long alignUp(long minute) {
+        return Math.floorDiv(minute + GRID_MINUTES - 1, GRID_MINUTES) * GRID_MINUTES;
+    }
+
+    /**
+     * Position in the free-slot stream of one doctor.
+     */
+    private final class Cursor {
+        private final Doctor doctor;
+        private final AvailabilityCalendar calendar;
+        private final int durationMinutes;
+        private final long limit;
+        private long next;
+
+        /**
+         * Constructor to create a Cursor object.
+         *
+         * @param doctor          The doctor
+         * @param durationMinutes The length of a slot in minutes
+         * @param limit           The minute no slot may start at or after
+         */
+        Cursor(Doctor doctor, int durationMinutes, long limit) {
+            this.doctor = doctor;
+            this.calendar = doctor.getCalendar();
+            this.durationMinutes = durationMinutes;
+            this.limit = limit;
+        }
+
+        /**
+         * Moves to the first free slot starting at or after a minute.
+         *
+         * @param from The earliest start in epoch minutes
+         * @return true if a slot was found before the limit, false otherwise
+         */
+        boolean advance(long from) {
+            long m = alignUp(from);
+            while (m < limit) {
+                if (calendar != null) {
+                    long working = calendar.nextWorkingMinute(m, limit);
+                    if (working < 0) {
+                        return false;
+                    }
+                    if (working != m) {
+                        m = alignUp(working);
+                        continue;
+                    }
+                }
+                if ((calendar == null || calendar.isAvailable(m, durationMinutes))
+                        && !slots.hasConflict(doctor, m, durationMinutes)) {
+                    next = m;
+                    return true;
+                }
+                m += GRID_MINUTES;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Insertion-ordered list that may be changed anywhere and hands out
+ * read-only snapshots. Changes cost the same as on an ArrayList, so adding
+ * an element does not copy the list. A snapshot is copied at most once per
+ * change, when it is first asked for, and shared until the next change, so
+ * snapshots are never affected by later changes.
+ * <p>
+ * Changes are synchronized on the list; callers that already serialize
+ * their changes, such as the system's doctor locks, take that monitor
+ * uncontended.
+ *
+ * @param <T> The type of element in the list
+ */
+class SnapshotArrayList<T> {
+    private final List<T> items;
+    private volatile List<T> snapshot;
+
+    /**
+     * Constructor to create an empty list.
+     */
+    SnapshotArrayList() {
+        this.items = new ArrayList<>();
+        this.snapshot = Collections.emptyList();
+    }
+
+    /**
+     * Appends an element.
+     *
+     * @param item The element to add
+     */
+    synchronized void add(T item) {
+        items.add(item);
+        snapshot = null;
+    }
+
+    /**
+     * Removes the first occurrence of an element.
+     *
+     * @param item The element to remove
+     * @return true if the element was in the list
+     */
+    synchronized boolean remove(T item) {
+        if (!items.remove(item)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * Removes every element matching a condition.
+     *
+     * @param filter Decides which elements to remove
+     * @return true if any element was removed
+     */
+    synchronized boolean removeIf(Predicate<? super T> filter) {
+        if (!items.removeIf(filter)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * Replaces the first occurrence of an element, keeping its position.
+     *
+     * @param original The element to replace
+     * @param item     The element to put in its place
+     * @return true if the original was in the list
+     */
+    synchronized boolean replace(T original, T item) {
+        int index = items.indexOf(original);
+        if (index < 0) {
+            return false;
+        }
+        items.set(index, item);
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * Gets a read-only snapshot of the current elements.
+     *
+     * @return An immutable list of the elements in order
+     */
+    List<T> snapshot() {
+        List<T> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(items));
+            }
+            return snapshot;
+        }
+    }
+}
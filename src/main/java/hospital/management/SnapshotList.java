@@ -0,0 +1,128 @@
+package hospital.management;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Append-only, insertion-ordered list that hands out read-only snapshots
+ * without copying. Elements are never removed or overwritten, so a
+ * snapshot is simply a view of the first elements of the backing array as
+ * it was when the snapshot was taken: growing the list copies into a new
+ * array and leaves the old one to the snapshots still using it. Taking a
+ * snapshot therefore costs O(1) even right after a change, and snapshots are
+ * never affected by later additions.
+ *
+ * @param <T> The type of element in the list
+ */
+class SnapshotList<T> {
+    private Object[] items;
+    private int size;
+    private volatile List<T> snapshot;
+
+    /**
+     * Constructor to create an empty list.
+     */
+    SnapshotList() {
+        this.items = new Object[16];
+        this.snapshot = List.of();
+    }
+
+    /**
+     * Appends an element.
+     *
+     * @param item The element to add
+     */
+    synchronized void add(T item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = item;
+        snapshot = null;
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return The size of the list
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets an element by position.
+     *
+     * @param index The position of the element
+     * @return The element
+     * @throws IndexOutOfBoundsException if the position is not in the list
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T get(int index) {
+        return (T) items[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Gets a read-only snapshot of the current elements.
+     *
+     * @return An immutable list of the elements in insertion order
+     */
+    List<T> snapshot() {
+        List<T> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = new Prefix<>(items, size);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Read-only view of the first elements of a backing array, which are
+     * never written again.
+     *
+     * @param <T> The type of element in the list
+     */
+    private static final class Prefix<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] items;
+        private final int size;
+
+        /**
+         * Constructor to create a Prefix view.
+         *
+         * @param items The backing array
+         * @param size  The number of elements in the view
+         */
+        Prefix(Object[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        /**
+         * Gets an element by position.
+         *
+         * @param index The position of the element
+         * @return The element
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) items[Objects.checkIndex(index, size)];
+        }
+
+        /**
+         * Gets the number of elements in the view.
+         *
+         * @return The size of the view
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
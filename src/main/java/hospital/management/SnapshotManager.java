@@ -0,0 +1,294 @@
+package hospital.management;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes binary snapshots of a hospital management system and restores it
+ * from the latest snapshot plus the journal entries written after it.
+ * Snapshots and journal segments share one directory.
+ * <p>
+ * A snapshot first rotates the journal while holding off changes between
+ * their append and their apply, so every entry up to the returned sequence
+ * number is durable and already applied in memory, then writes
+ * the current state without stopping bookings. Changes made while the
+ * snapshot is written may or may not be in it; they are also in the
+ * journal tail, and replaying them on recovery is idempotent. Once the
+ * snapshot is safely on disk, older snapshots and journal segments it
+ * covers are deleted, so startup reads one snapshot and a short tail
+ * instead of the whole history.
+ * <p>
+ * The archive is the exception: the journal is rotated and the archive is
+ * written while archiving and flushing to the history are held off, so the
+ * snapshot holds exactly the archived appointments journaled up to its
+ * sequence number. The on-disk history lives in a subdirectory; runs it
+ * holds that the journal never recorded are discarded on recovery.
+ * <p>
+ * A snapshot file holds a header with the covered sequence number, a frame
+ * with the last history run, one journal frame per archived appointment,
+ * staff member, doctor calendar, live appointment and medical record, and
+ * a trailer with the number of frames.
+ * Patients and doctors go to a {@link RegistryFile} written beside it and
+ * named after the same sequence number, so recovery maps them instead of
+ * reading them, and creates only those the snapshot or journal tail refers
+ * to. A snapshot of a recovered system merges the registry file it was
+ * recovered from with the people loaded since, so writing it loads no one;
+ * calendars and medical records only exist on loaded people and are taken
+ * from them.
+ */
+public class SnapshotManager {
+    private static final int MAGIC = 0x484D5353;
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String REGISTRY_PREFIX = "registry-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String HISTORY_DIRECTORY = "history";
+
+    private final Path directory;
+
+    /**
+     * Constructor to create a SnapshotManager object.
+     *
+     * @param directory The directory holding the snapshots and journal segments
+     */
+    public SnapshotManager(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Restores a system from the latest snapshot and the journal tail, and
+     * opens the journal for further changes and the appointment history.
+     * An empty directory gives an empty system.
+     *
+     * @param syncMode How new journal entries are made durable
+     * @return The restored system
+     * @throws IOException if the snapshot or journal cannot be read
+     */
+    public HospitalManagementSystem recover(Journal.SyncMode syncMode) throws IOException {
+        RecoveryState state = new RecoveryState();
+        long covered = 0;
+        List<Path> snapshots = list(SNAPSHOT_PREFIX);
+        if (!snapshots.isEmpty()) {
+            covered = load(snapshots.get(snapshots.size() - 1), state);
+        }
+        Journal.replay(directory, covered + 1, state::apply);
+        AppointmentHistory history = AppointmentHistory.open(directory.resolve(HISTORY_DIRECTORY));
+        history.discardRunsAfter(state.getLastHistoryRun());
+        HospitalManagementSystem system = state.build(Journal.open(directory, syncMode));
+        system.setAppointmentHistory(history);
+        return system;
+    }
+
+    /**
+     * Writes a snapshot of a system and deletes the snapshots and journal
+     * segments it replaces. Bookings continue while the snapshot is written.
+     *
+     * @param system The system to snapshot, which must have a journal in this directory
+     * @return The last journal sequence number covered by the snapshot
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if the system has no journal
+     */
+    public long snapshot(HospitalManagementSystem system) throws IOException {
+        Journal journal = system.getJournal();
+        if (journal == null) {
+            throw new IllegalStateException("System has no journal");
+        }
+        Lock archiveLock = system.getArchiveLock();
+        archiveLock.lock();
+        boolean locked = true;
+        long covered;
+        Path target;
+        try {
+            Lock journalLock = system.getJournalLock();
+            journalLock.lock();
+            try {
+                covered = journal.rotate();
+            } finally {
+                journalLock.unlock();
+            }
+            target = fileFor(SNAPSHOT_PREFIX, covered);
+            Path temp = directory.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(covered);
+                AppointmentHistory history = system.getAppointmentHistory();
+                write(out, JournalEntry.archiveFlushed(history == null ? 0 : history.getLastRun()));
+                long count = 1;
+                OffHeapAppointmentStore archive = system.getAppointmentArchive();
+                if (archive != null) {
+                    long archivedCount = archive.size();
+                    for (long row = 0; row < archivedCount; row++) {
+                        OffHeapAppointmentStore.View view = archive.get(row);
+                        write(out, JournalEntry.appointmentArchived(view.getId(), view.getPatientId(),
+                            view.getDoctorId(), view.getStartMinute(), view.getDurationMinutes()));
+                        count++;
+                    }
+                }
+                archiveLock.unlock();
+                locked = false;
+                for (Staff staff : system.getStaffMembers()) {
+                    write(out, JournalEntry.staffRegistered(staff));
+                    count++;
+                }
+                RegistryFile registry = system.getRegistry();
+                List<Doctor> doctors = system.getLoadedDoctors();
+                for (Doctor doctor : doctors) {
+                    if (doctor.getCalendar() != null) {
+                        write(out, JournalEntry.calendarSet(doctor, doctor.getCalendar()));
+                        count++;
+                    }
+                }
+                List<Patient> patients = system.getLoadedPatients();
+                RegistryFile.write(fileFor(REGISTRY_PREFIX, covered), registry, patients, doctors);
+                for (Appointment appointment : system.getAppointments()) {
+                    write(out, JournalEntry.appointmentBooked(appointment));
+                    count++;
+                }
+                for (Patient patient : patients) {
+                    for (MedicalRecord record : patient.getMedicalRecords()) {
+                        write(out, JournalEntry.medicalRecordAdded(patient, record));
+                        count++;
+                    }
+                }
+                out.writeInt(-1);
+                out.writeLong(count);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (locked) {
+                archiveLock.unlock();
+            }
+        }
+        Path registry = fileFor(REGISTRY_PREFIX, covered);
+        for (Path old : list(SNAPSHOT_PREFIX)) {
+            if (!old.equals(target)) {
+                Files.deleteIfExists(old);
+            }
+        }
+        for (Path old : list(REGISTRY_PREFIX)) {
+            if (!old.equals(registry)) {
+                Files.deleteIfExists(old);
+            }
+        }
+        journal.deleteSegmentsThrough(covered);
+        return covered;
+    }
+
+    /**
+     * Takes a snapshot periodically. A failed snapshot is reported and the
+     * next one is still attempted.
+     *
+     * @param system   The system to snapshot
+     * @param executor The executor that runs the snapshots
+     * @param period   The time between snapshots
+     * @param unit     The unit of the period
+     * @return The scheduled task, which can be cancelled
+     */
+    public ScheduledFuture<?> schedule(HospitalManagementSystem system, ScheduledExecutorService executor,
+                                       long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(system);
+            } catch (IOException | RuntimeException e) {
+                DisplayUtility.printMessage("Snapshot failed: " + e.getMessage(), false);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Writes one entry as a journal frame.
+     *
+     * @param out   The output to write to
+     * @param entry The entry to write
+     * @throws IOException if writing fails
+     */
+    private static void write(DataOutputStream out, JournalEntry entry) throws IOException {
+        out.write(Journal.frame(entry));
+    }
+
+    /**
+     * Applies every entry of a snapshot file, after opening the registry
+     * file saved with it.
+     *
+     * @param snapshot The snapshot file
+     * @param state    Receives the entries
+     * @return The last journal sequence number covered by the snapshot
+     * @throws IOException if the file or its registry cannot be read or is incomplete
+     */
+    private long load(Path snapshot, RecoveryState state) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a snapshot: " + snapshot);
+            }
+            long covered = in.readLong();
+            state.setRegistry(RegistryFile.open(fileFor(REGISTRY_PREFIX, covered)));
+            long count = 0;
+            JournalEntry entry;
+            while ((entry = Journal.readFrame(in)) != null) {
+                state.apply(entry);
+                count++;
+            }
+            if (in.readLong() != count) {
+                throw new IOException("Incomplete snapshot: " + snapshot);
+            }
+            return covered;
+        }
+    }
+
+    /**
+     * Gets the snapshot or registry file for a sequence number.
+     *
+     * @param prefix  The prefix of the kind of file
+     * @param covered The last journal sequence number covered
+     * @return The path of the file
+     */
+    private Path fileFor(String prefix, long covered) {
+        return directory.resolve(String.format("%s%020d%s", prefix, covered, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Lists the snapshot or registry files ordered by the sequence number they cover.
+     *
+     * @param prefix The prefix of the kind of file
+     * @return The files
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> list(String prefix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(prefix) && name.endsWith(SNAPSHOT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package hospital.management;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Set of elements ordered by ID that hands out read-only snapshots without
+ * copying, for data whose writers are already split across striped locks.
+ * <p>
+ * Writers never touch shared state: each change is appended to a buffer
+ * belonging to the lock stripe the writer already holds. Snapshots are
+ * views of a persistent weight-balanced tree, which is never modified;
+ * changes build a new version sharing all untouched nodes. Taking a
+ * snapshot collects the buffers, with every stripe lock held just long
+ * enough to swap them out, and applies them to the tree. A snapshot so
+ * costs O(1) when nothing changed and O(c log n) after c changes, and
+ * reading an element of it by position costs O(log n). Writers drain the
+ * buffers themselves once a stripe has buffered many changes, so memory
+ * stays bounded when nobody reads.
+ * <p>
+ * Since the buffers are collected while every stripe is locked, a snapshot
+ * holds exactly the changes completed before it was taken. Two versions of
+ * an element may share an ID, as an appointment does when it is moved, as
+ * long as the old version is removed before the new one is added. Removing
+ * a version only removes that exact object, and a version added and removed
+ * between two drains is skipped, so the changes buffered by different
+ * stripes may be applied in any order.
+ *
+ * @param <T> The type of element in the set
+ */
+class SnapshotSet<T> {
+    /** Buffered changes in one stripe that make its writer drain them. */
+    private static final int DRAIN_THRESHOLD = 4096;
+    /** Most times larger one subtree may be than its sibling. */
+    private static final int DELTA = 3;
+    /** Size ratio deciding between a single and a double rotation. */
+    private static final int RATIO = 2;
+
+    private final ReentrantLock[] locks;
+    private final ToLongFunction<T> ids;
+    private final List<Stripe<T>> stripes;
+    private Node<T> root;
+    private volatile List<T> snapshot;
+
+    /**
+     * Constructor to create an empty set.
+     *
+     * @param locks The striped locks guarding the writers
+     * @param ids   Gets the ID of an element
+     */
+    SnapshotSet(ReentrantLock[] locks, ToLongFunction<T> ids) {
+        this.locks = locks;
+        this.ids = ids;
+        this.stripes = new ArrayList<>(locks.length);
+        for (int i = 0; i < locks.length; i++) {
+            this.stripes.add(new Stripe<>());
+        }
+        this.snapshot = Collections.emptyList();
+    }
+
+    /**
+     * Adds an element. Any other version with the same ID must have been
+     * removed first. Must be called while holding the lock of the stripe.
+     *
+     * @param stripe The index of the lock stripe held
+     * @param item   The element to add
+     */
+    void add(int stripe, T item) {
+        stripes.get(stripe).added.add(item);
+    }
+
+    /**
+     * Removes an element, if this exact object is in the set.
+     * Must be called while holding the lock of the stripe.
+     *
+     * @param stripe The index of the lock stripe held
+     * @param item   The element to remove
+     */
+    void remove(int stripe, T item) {
+        stripes.get(stripe).removed.add(item);
+    }
+
+    /**
+     * Applies the buffered changes if a stripe has buffered many of them.
+     * Must be called without holding any of the striped locks.
+     *
+     * @param stripe The index of the stripe about to be written
+     */
+    void drainIfFull(int stripe) {
+        Stripe<T> buffers = stripes.get(stripe);
+        // Read without the lock: a stale size only delays the drain
+        if (buffers.added.size() + buffers.removed.size() >= DRAIN_THRESHOLD) {
+            drain();
+        }
+    }
+
+    /**
+     * Gets a read-only snapshot of the elements.
+     * Must be called without holding any of the striped locks.
+     *
+     * @return An immutable list of the elements in ID order
+     */
+    List<T> snapshot() {
+        drain();
+        return snapshot;
+    }
+
+    /**
+     * Collects the buffered changes of every stripe and applies them to
+     * the tree. Removals are applied first; an element both added and
+     * removed since the last drain is skipped.
+     */
+    private synchronized void drain() {
+        List<T> added = new ArrayList<>();
+        List<T> removed = new ArrayList<>();
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            for (Stripe<T> buffers : stripes) {
+                if (!buffers.added.isEmpty()) {
+                    added.addAll(buffers.added);
+                    buffers.added = new ArrayList<>();
+                }
+                if (!buffers.removed.isEmpty()) {
+                    removed.addAll(buffers.removed);
+                    buffers.removed = new ArrayList<>();
+                }
+            }
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Set<T> gone = Collections.newSetFromMap(new IdentityHashMap<>());
+        Node<T> tree = root;
+        for (T item : removed) {
+            gone.add(item);
+            tree = remove(tree, ids.applyAsLong(item), item);
+        }
+        for (T item : added) {
+            if (!gone.contains(item)) {
+                tree = put(tree, ids.applyAsLong(item), item);
+            }
+        }
+        root = tree;
+        snapshot = tree == null ? Collections.emptyList() : new View<>(tree);
+    }
+
+    /**
+     * Gets the number of elements in a tree.
+     *
+     * @param node The root of the tree, or null
+     * @return The size of the tree
+     */
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Adds an element to a tree, replacing the element with the same ID.
+     *
+     * @param node  The root of the tree, or null
+     * @param id    The ID of the element
+     * @param value The element
+     * @param <T>   The type of element
+     * @return The root of the new tree
+     */
+    private static <T> Node<T> put(Node<T> node, long id, T value) {
+        if (node == null) {
+            return new Node<>(id, value, null, null);
+        }
+        if (id < node.id) {
+            return balance(node.id, node.value, put(node.left, id, value), node.right);
+        }
+        if (id > node.id) {
+            return balance(node.id, node.value, node.left, put(node.right, id, value));
+        }
+        return new Node<>(id, value, node.left, node.right);
+    }
+
+    /**
+     * Removes an element from a tree if it is this exact object.
+     *
+     * @param node  The root of the tree, or null
+     * @param id    The ID of the element
+     * @param value The element
+     * @param <T>   The type of element
+     * @return The root of the new tree, or the same root if nothing was removed
+     */
+    private static <T> Node<T> remove(Node<T> node, long id, T value) {
+        if (node == null) {
+            return null;
+        }
+        if (id < node.id) {
+            Node<T> left = remove(node.left, id, value);
+            return left == node.left ? node : balance(node.id, node.value, left, node.right);
+        }
+        if (id > node.id) {
+            Node<T> right = remove(node.right, id, value);
+            return right == node.right ? node : balance(node.id, node.value, node.left, right);
+        }
+        if (node.value != value) {
+            return node;
+        }
+        return glue(node.left, node.right);
+    }
+
+    /**
+     * Joins two trees whose elements are all ordered between them.
+     *
+     * @param left  The tree of smaller IDs, or null
+     * @param right The tree of larger IDs, or null
+     * @param <T>   The type of element
+     * @return The root of the joined tree
+     */
+    private static <T> Node<T> glue(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.size > right.size) {
+            Node<T> max = left;
+            while (max.right != null) {
+                max = max.right;
+            }
+            return balance(max.id, max.value, removeMax(left), right);
+        }
+        Node<T> min = right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.id, min.value, left, removeMin(right));
+    }
+
+    /**
+     * Removes the element with the smallest ID from a tree.
+     *
+     * @param node The root of the tree
+     * @param <T>  The type of element
+     * @return The root of the new tree
+     */
+    private static <T> Node<T> removeMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.id, node.value, removeMin(node.left), node.right);
+    }
+
+    /**
+     * Removes the element with the largest ID from a tree.
+     *
+     * @param node The root of the tree
+     * @param <T>  The type of element
+     * @return The root of the new tree
+     */
+    private static <T> Node<T> removeMax(Node<T> node) {
+        if (node.right == null) {
+            return node.left;
+        }
+        return balance(node.id, node.value, node.left, removeMax(node.right));
+    }
+
+    /**
+     * Builds a node, rotating if one side has grown too heavy after a
+     * single insertion or removal.
+     *
+     * @param id    The ID of the element
+     * @param value The element
+     * @param left  The tree of smaller IDs, or null
+     * @param right The tree of larger IDs, or null
+     * @param <T>   The type of element
+     * @return The root of the balanced tree
+     */
+    private static <T> Node<T> balance(long id, T value, Node<T> left, Node<T> right) {
+        int sizeLeft = size(left);
+        int sizeRight = size(right);
+        if (sizeLeft + sizeRight > 1) {
+            if (sizeRight > DELTA * sizeLeft) {
+                if (size(right.left) < RATIO * size(right.right)) {
+                    return new Node<>(right.id, right.value, new Node<>(id, value, left, right.left), right.right);
+                }
+                Node<T> rl = right.left;
+                return new Node<>(rl.id, rl.value, new Node<>(id, value, left, rl.left),
+                    new Node<>(right.id, right.value, rl.right, right.right));
+            }
+            if (sizeLeft > DELTA * sizeRight) {
+                if (size(left.right) < RATIO * size(left.left)) {
+                    return new Node<>(left.id, left.value, left.left, new Node<>(id, value, left.right, right));
+                }
+                Node<T> lr = left.right;
+                return new Node<>(lr.id, lr.value, new Node<>(left.id, left.value, left.left, lr.left),
+                    new Node<>(id, value, lr.right, right));
+            }
+        }
+        return new Node<>(id, value, left, right);
+    }
+
+    /**
+     * Change buffers of one lock stripe, guarded by its lock.
+     *
+     * @param <T> The type of element
+     */
+    private static final class Stripe<T> {
+        private List<T> added = new ArrayList<>();
+        private List<T> removed = new ArrayList<>();
+    }
+
+    /**
+     * Immutable tree node holding the size of its subtree.
+     *
+     * @param <T> The type of element
+     */
+    private static final class Node<T> {
+        private final long id;
+        private final T value;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int size;
+
+        /**
+         * Constructor to create a Node object.
+         *
+         * @param id    The ID of the element
+         * @param value The element
+         * @param left  The tree of smaller IDs, or null
+         * @param right The tree of larger IDs, or null
+         */
+        Node(long id, T value, Node<T> left, Node<T> right) {
+            this.id = id;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    /**
+     * Read-only list view of one version of the tree.
+     *
+     * @param <T> The type of element
+     */
+    private static final class View<T> extends AbstractList<T> {
+        private final Node<T> root;
+
+        /**
+         * Constructor to create a View of a tree.
+         *
+         * @param root The root of the tree
+         */
+        View(Node<T> root) {
+            this.root = root;
+        }
+
+        /**
+         * Gets an element by position in ID order.
+         *
+         * @param index The position of the element
+         * @return The element
+         */
+        @Override
+        public T get(int index) {
+            Objects.checkIndex(index, root.size);
+            Node<T> node = root;
+            while (true) {
+                int sizeLeft = SnapshotSet.size(node.left);
+                if (index < sizeLeft) {
+                    node = node.left;
+                } else if (index > sizeLeft) {
+                    index -= sizeLeft + 1;
+                    node = node.right;
+                } else {
+                    return node.value;
+                }
+            }
+        }
+
+        /**
+         * Gets the number of elements.
+         *
+         * @return The size of the view
+         */
+        @Override
+        public int size() {
+            return root.size;
+        }
+
+        /**
+         * Iterates over the elements in ID order in O(n) overall.
+         *
+         * @return The iterator
+         */
+        @Override
+        public Iterator<T> iterator() {
+            Deque<Node<T>> path = new ArrayDeque<>();
+            for (Node<T> node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<T>() {
+                /**
+                 * Checks whether any elements are left.
+                 *
+                 * @return true if next will return an element
+                 */
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                /**
+                 * Gets the next element in ID order.
+                 *
+                 * @return The element
+                 */
+                @Override
+                public T next() {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<T> node = path.pop();
+                    for (Node<T> child = node.right; child != null; child = child.left) {
+                        path.push(child);
+                    }
+                    return node.value;
+                }
+            };
+        }
+    }
+}
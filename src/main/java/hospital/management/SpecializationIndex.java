@@ -0,0 +1,88 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index of doctors partitioned by normalized specialization.
+ * Specializations are compared without regard to case or repeated
+ * whitespace. Each partition keeps all of its doctors and, separately, the
+ * ones that are available, both ordered by ID, so listing the available
+ * doctors of a specialization costs time in proportion to the result rather
+ * than to the number of doctors. The index is told when a doctor's
+ * specialization or availability changes and re-reads both, so updates may
+ * arrive in any order. All methods are synchronized.
+ */
+class SpecializationIndex {
+    private final Map<String, Partition> partitions;
+    /** Doctor ID to the key of the partition holding the doctor. */
+    private final Map<Long, String> keys;
+
+    /**
+     * Constructor to create an empty specialization index.
+     */
+    SpecializationIndex() {
+        this.partitions = new HashMap<>();
+        this.keys = new HashMap<>();
+    }
+
+    /**
+     * Adds a doctor, or moves them to match their current specialization
+     * and availability.
+     *
+     * @param doctor The doctor to index
+     */
+    synchronized void update(Doctor doctor) {
+        String key = NameIndex.normalize(doctor.getSpecialization());
+        String oldKey = keys.put(doctor.getId(), key);
+        if (oldKey != null && !oldKey.equals(key)) {
+            Partition old = partitions.get(oldKey);
+            old.all.remove(doctor.getId());
+            old.available.remove(doctor.getId());
+            if (old.all.isEmpty()) {
+                partitions.remove(oldKey);
+            }
+        }
+        Partition partition = partitions.computeIfAbsent(key, k -> new Partition());
+        partition.all.put(doctor.getId(), doctor);
+        if (doctor.isAvailable()) {
+            partition.available.put(doctor.getId(), doctor);
+        } else {
+            partition.available.remove(doctor.getId());
+        }
+    }
+
+    /**
+     * Finds the doctors with a specialization.
+     *
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @return The doctors in ID order
+     */
+    synchronized List<Doctor> find(String specialization) {
+        Partition partition = partitions.get(NameIndex.normalize(specialization));
+        return partition == null ? new ArrayList<>() : new ArrayList<>(partition.all.values());
+    }
+
+    /**
+     * Finds the available doctors with a specialization.
+     *
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @return The available doctors in ID order
+     */
+    synchronized List<Doctor> findAvailable(String specialization) {
+        Partition partition = partitions.get(NameIndex.normalize(specialization));
+        return partition == null ? new ArrayList<>() : new ArrayList<>(partition.available.values());
+    }
+
+    /**
+     * Doctors of one specialization.
+     */
+    private static final class Partition {
+        private final NavigableMap<Long, Doctor> all = new TreeMap<>();
+        private final NavigableMap<Long, Doctor> available = new TreeMap<>();
+    }
+}
@@ -3,11 +3,12 @@ package hospital.management;
 /**
  * Represents a staff member in the hospital management system.
  * Inherits from Person and includes staff-specific attributes
- * such as role and department.
+ * such as role and department. Both are held as codes in the shared
+ * string dictionary.
  */
 public class Staff extends Person {
-    private String role;
-    private String department;
+    private int role;
+    private int department;
 
     /**
      * Constructor to create a Staff object.
@@ -19,9 +20,24 @@ public class Staff extends Person {
      * @param department     The department where the staff member works
      */
     public Staff(String name, int age, String contactDetails, String role, String department) {
-        super(name, age, contactDetails);
-        this.role = role;
-        this.department = department;
+        this(nextId(), name, age, contactDetails, role, department);
+    }
+
+    /**
+     * Constructor to create a Staff object with a known ID, used when
+     * restoring saved data.
+     *
+     * @param id             The ID of the staff member
+     * @param name           The name of the staff member
+     * @param age            The age of the staff member
+     * @param contactDetails The contact details of the staff member
+     * @param role           The role of the staff member
+     * @param department     The department where the staff member works
+     */
+    Staff(long id, String name, int age, String contactDetails, String role, String department) {
+        super(id, name, age, contactDetails);
+        this.role = StringDictionary.SHARED.encode(role);
+        this.department = StringDictionary.SHARED.encode(department);
     }
 
     /**
@@ -30,7 +46,7 @@ public class Staff extends Person {
      * @return The role
      */
     public String getRole() {
-        return role;
+        return StringDictionary.SHARED.decode(role);
     }
 
     /**
@@ -39,7 +55,18 @@ public class Staff extends Person {
      * @param role The role to set
      */
     public void setRole(String role) {
-        this.role = role;
+        this.role = StringDictionary.SHARED.encode(role);
+    }
+
+    /**
+     * Checks if the staff member has a role, comparing dictionary codes
+     * rather than strings.
+     *
+     * @param role The role to check, matched exactly
+     * @return true if the staff member has the role
+     */
+    public boolean hasRole(String role) {
+        return StringDictionary.SHARED.find(role) == this.role;
     }
 
     /**
@@ -48,7 +75,7 @@ public class Staff extends Person {
      * @return The department
      */
     public String getDepartment() {
-        return department;
+        return StringDictionary.SHARED.decode(department);
     }
 
     /**
@@ -57,7 +84,36 @@ public class Staff extends Person {
      * @param department The department to set
      */
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = StringDictionary.SHARED.encode(department);
+    }
+
+    /**
+     * Checks if the staff member works in a department, comparing
+     * dictionary codes rather than strings.
+     *
+     * @param department The department to check, matched exactly
+     * @return true if the staff member works in the department
+     */
+    public boolean isInDepartment(String department) {
+        return StringDictionary.SHARED.find(department) == this.department;
+    }
+
+    /**
+     * Gets the dictionary code of the role.
+     *
+     * @return The code in the shared dictionary
+     */
+    int getRoleCode() {
+        return role;
+    }
+
+    /**
+     * Gets the dictionary code of the department.
+     *
+     * @return The code in the shared dictionary
+     */
+    int getDepartmentCode() {
+        return department;
     }
 
     /**
@@ -68,8 +124,8 @@ public class Staff extends Person {
         String content = "Name: " + getName() + "\n" +
                         "Age: " + getAge() + "\n" +
                         "Contact: " + getContactDetails() + "\n" +
-                        "Role: " + role + "\n" +
-                        "Department: " + department;
+                        "Role: " + getRole() + "\n" +
+                        "Department: " + getDepartment();
         DisplayUtility.printBox("Staff Information", content);
     }
 }
@@ -0,0 +1,117 @@
+package hospital.management;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary assigning dense integer codes to distinct strings.
+ * Each distinct string is stored once; columns hold its code instead of a
+ * reference. Code 0 always stands for null. Adding codes is synchronized,
+ * while looking up the code of a known string or the string for a code
+ * does not lock.
+ * <p>
+ * SHARED holds only fields drawn from a small, fixed vocabulary: doctor
+ * specializations and staff roles and departments. Codes are never
+ * removed, so a field with open-ended values such as a diagnosis would
+ * make it grow without bound. Codes stay valid for the life of the
+ * process but are not saved: people are persisted with their strings, and
+ * a restarted process assigns codes afresh as it reads them.
+ */
+class StringDictionary {
+    /** Code stored for null. */
+    static final int NULL_CODE = 0;
+    /** Dictionary shared by all people for their low-cardinality fields. */
+    static final StringDictionary SHARED = new StringDictionary();
+
+    private final Map<String, Integer> codes;
+    private volatile String[] values;
+    private int size;
+
+    /**
+     * Constructor to create an empty StringDictionary object.
+     */
+    StringDictionary() {
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[16];
+        this.size = 1;
+    }
+
+    /**
+     * Gets the code of a string, adding it if it is new.
+     *
+     * @param value The string, or null
+     * @return The code
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer known = codes.get(value);
+        if (known != null) {
+            return known;
+        }
+        synchronized (this) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                String[] grown = new String[current.length * 2];
+                System.arraycopy(current, 0, grown, 0, size);
+                current = grown;
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gets the code of a string without adding it.
+     *
+     * @param value The string, or null
+     * @return The code, or -1 if the string has no code
+     */
+    int find(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the string for a code.
+     *
+     * @param code A code returned by encode
+     * @return The string, or null for NULL_CODE
+     */
+    String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Gets the number of distinct strings, not counting null.
+     *
+     * @return The number of strings
+     */
+    synchronized int size() {
+        return size - 1;
+    }
+
+    /**
+     * Estimates the heap used by the stored strings and the code map.
+     *
+     * @return The estimated size in bytes
+     */
+    synchronized long estimateBytes() {
+        long bytes = 16L + 4L * values.length;
+        for (int i = 1; i < size; i++) {
+            // String header and byte array, plus a map entry and a boxed code
+            bytes += 24 + 16 + values[i].length() + 32 + 16;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,307 @@
+package hospital.management;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Priority waitlists of patients, one per doctor and one per normalized
+ * specialization. Each waitlist is split by the length of appointment
+ * wanted, and each part is a concurrent skip list ordered by priority,
+ * highest first, and then by when the patient joined. The next patient
+ * for a freed slot is the best of the heads of the parts that fit in it,
+ * so it is found and removed in O(d + log n) for d distinct lengths, which
+ * stays small since appointments come in a few standard lengths. Patients
+ * asking for a longer appointment than the freed slot are never looked at
+ * and keep their place. Each entry stands for one wanted appointment and
+ * is used up when it is booked.
+ * <p>
+ * A patient waiting for a doctor and for the doctor's specialization is
+ * waiting for the same appointment, so when one entry is taken the
+ * patient's other entries that the same doctor could serve are taken with
+ * it. The entries of each patient are also kept together, guarded by one
+ * monitor per patient, so taking them is atomic with respect to other
+ * polls and removing a patient does not scan every waitlist.
+ */
+class Waitlist {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry entry) -> entry.priority)
+        .reversed().thenComparingLong(entry -> entry.order);
+
+    private final Map<Long, NavigableMap<Integer, NavigableSet<Entry>>> byDoctor;
+    private final Map<String, NavigableMap<Integer, NavigableSet<Entry>>> bySpecialization;
+    private final Map<Long, Set<Entry>> byPatient;
+    private final AtomicLong nextOrder;
+
+    /**
+     * Constructor to create empty waitlists.
+     */
+    Waitlist() {
+        this.byDoctor = new ConcurrentHashMap<>();
+        this.bySpecialization = new ConcurrentHashMap<>();
+        this.byPatient = new ConcurrentHashMap<>();
+        this.nextOrder = new AtomicLong();
+    }
+
+    /**
+     * Adds a patient to a doctor's waitlist.
+     *
+     * @param patient         The waiting patient
+     * @param doctor          The doctor
+     * @param priority        The priority, higher served first
+     * @param durationMinutes The length of appointment wanted in minutes
+     */
+    void add(Patient patient, Doctor doctor, int priority, int durationMinutes) {
+        add(byDoctor.computeIfAbsent(doctor.getId(), id -> new ConcurrentSkipListMap<>()),
+            patient, priority, durationMinutes);
+    }
+
+    /**
+     * Adds a patient to a specialization's waitlist.
+     *
+     * @param patient         The waiting patient
+     * @param specialization  The specialization, ignoring case and extra whitespace
+     * @param priority        The priority, higher served first
+     * @param durationMinutes The length of appointment wanted in minutes
+     */
+    void add(Patient patient, String specialization, int priority, int durationMinutes) {
+        add(bySpecialization.computeIfAbsent(NameIndex.normalize(specialization),
+            key -> new ConcurrentSkipListMap<>()), patient, priority, durationMinutes);
+    }
+
+    /**
+     * Adds a patient to the part of a waitlist for their length of appointment.
+     *
+     * @param waitlist        The waitlist, by length of appointment
+     * @param patient         The waiting patient
+     * @param priority        The priority, higher served first
+     * @param durationMinutes The length of appointment wanted in minutes
+     */
+    private void add(NavigableMap<Integer, NavigableSet<Entry>> waitlist, Patient patient, int priority,
+                     int durationMinutes) {
+        NavigableSet<Entry> list = waitlist.computeIfAbsent(durationMinutes,
+            minutes -> new ConcurrentSkipListSet<>(ORDER));
+        Entry entry = new Entry(patient, priority, durationMinutes, nextOrder.incrementAndGet(), waitlist, list);
+        Set<Entry> entries = entriesOf(patient);
+        synchronized (entries) {
+            entries.add(entry);
+            list.add(entry);
+        }
+    }
+
+    /**
+     * Removes and returns the next patient for a freed slot: the highest
+     * priority entry that fits, from the doctor's waitlist or the waitlist
+     * of the doctor's specialization, earliest joined on a tie. The
+     * patient's other entries on those two waitlists are removed with it.
+     *
+     * @param doctor      The doctor whose slot was freed
+     * @param freeMinutes The length of the freed slot in minutes
+     * @return The entry, or null if no waiting patient fits
+     */
+    Entry poll(Doctor doctor, int freeMinutes) {
+        NavigableMap<Integer, NavigableSet<Entry>> doctorList = byDoctor.get(doctor.getId());
+        NavigableMap<Integer, NavigableSet<Entry>> specializationList = bySpecialization.get(
+            NameIndex.normalize(doctor.getSpecialization()));
+        while (true) {
+            Entry best = firstFitting(firstFitting(null, doctorList, freeMinutes), specializationList, freeMinutes);
+            if (best == null) {
+                return null;
+            }
+            Set<Entry> entries = entriesOf(best.patient);
+            synchronized (entries) {
+                if (!best.list.remove(best)) {
+                    continue;
+                }
+                entries.remove(best);
+                best.taken = new ArrayList<>();
+                for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+                    Entry other = it.next();
+                    if ((other.waitlist == doctorList || other.waitlist == specializationList)
+                            && other.list.remove(other)) {
+                        it.remove();
+                        best.taken.add(other);
+                    }
+                }
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Puts back an entry taken by poll that could not be booked, together
+     * with the entries taken with it, in their original places.
+     *
+     * @param entry The entry
+     */
+    void restore(Entry entry) {
+        Set<Entry> entries = entriesOf(entry.patient);
+        synchronized (entries) {
+            entries.add(entry);
+            entry.list.add(entry);
+            for (Entry other : entry.taken) {
+                entries.add(other);
+                other.list.add(other);
+            }
+            entry.taken = List.of();
+        }
+    }
+
+    /**
+     * Removes every waitlist entry of a patient.
+     *
+     * @param patient The patient
+     * @return The number of entries removed
+     */
+    int remove(Patient patient) {
+        Set<Entry> entries = byPatient.get(patient.getId());
+        if (entries == null) {
+            return 0;
+        }
+        int removed = 0;
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry.patient == patient && entry.list.remove(entry)) {
+                    removed++;
+                }
+            }
+            entries.removeIf(entry -> entry.patient == patient);
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the entries of a patient, creating the set on first use.
+     * Changes to the set and removals of its entries from their waitlists
+     * are made while holding its monitor.
+     *
+     * @param patient The patient
+     * @return The patient's entries
+     */
+    private Set<Entry> entriesOf(Patient patient) {
+        return byPatient.computeIfAbsent(patient.getId(), id -> new HashSet<>());
+    }
+
+    /**
+     * Gets the number of patients waiting for a doctor.
+     *
+     * @param doctor The doctor
+     * @return The number of entries on the doctor's own waitlist
+     */
+    int size(Doctor doctor) {
+        return size(byDoctor.get(doctor.getId()));
+    }
+
+    /**
+     * Gets the number of patients waiting for a specialization.
+     *
+     * @param specialization The specialization, ignoring case and extra whitespace
+     * @return The number of entries on the specialization's waitlist
+     */
+    int size(String specialization) {
+        return size(bySpecialization.get(NameIndex.normalize(specialization)));
+    }
+
+    /**
+     * Counts the entries of a waitlist.
+     *
+     * @param waitlist The waitlist, by length of appointment, or null
+     * @return The number of entries
+     */
+    private static int size(NavigableMap<Integer, NavigableSet<Entry>> waitlist) {
+        int size = 0;
+        if (waitlist != null) {
+            for (NavigableSet<Entry> list : waitlist.values()) {
+                size += list.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Finds the first entry of a waitlist asking for no more than a length,
+     * looking only at the head of each part that fits.
+     *
+     * @param best        The best entry found so far, or null
+     * @param waitlist    The waitlist, by length of appointment, or null
+     * @param freeMinutes The length available in minutes
+     * @return The better of best and the first fitting entry, or null if neither exists
+     */
+    private static Entry firstFitting(Entry best, NavigableMap<Integer, NavigableSet<Entry>> waitlist,
+                                      int freeMinutes) {
+        if (waitlist == null) {
+            return best;
+        }
+        for (NavigableSet<Entry> list : waitlist.headMap(freeMinutes, true).values()) {
+            Iterator<Entry> it = list.iterator();
+            if (it.hasNext()) {
+                Entry head = it.next();
+                if (best == null || ORDER.compare(head, best) < 0) {
+                    best = head;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One waiting patient.
+     */
+    static final class Entry {
+        private final Patient patient;
+        private final int priority;
+        private final int durationMinutes;
+        private final long order;
+        private final NavigableMap<Integer, NavigableSet<Entry>> waitlist;
+        private final NavigableSet<Entry> list;
+        private List<Entry> taken;
+
+        /**
+         * Constructor to create an Entry object.
+         *
+         * @param patient         The waiting patient
+         * @param priority        The priority, higher served first
+         * @param durationMinutes The length of appointment wanted in minutes
+         * @param order           The position in joining order
+         * @param waitlist        The waitlist holding the entry
+         * @param list            The part of the waitlist holding the entry
+         */
+        Entry(Patient patient, int priority, int durationMinutes, long order,
+              NavigableMap<Integer, NavigableSet<Entry>> waitlist, NavigableSet<Entry> list) {
+            this.patient = patient;
+            this.priority = priority;
+            this.durationMinutes = durationMinutes;
+            this.order = order;
+            this.waitlist = waitlist;
+            this.list = list;
+            this.taken = List.of();
+        }
+
+        /**
+         * Gets the waiting patient.
+         *
+         * @return The patient
+         */
+        Patient getPatient() {
+            return patient;
+        }
+
+        /**
+         * Gets the length of appointment wanted.
+         *
+         * @return The duration in minutes
+         */
+        int getDurationMinutes() {
+            return durationMinutes;
+        }
+    }
+}
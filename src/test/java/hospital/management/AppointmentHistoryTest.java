@@ -0,0 +1,128 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Range queries over the on-disk appointment history, checked against a
+ * plain scan of the same appointments.
+ */
+class AppointmentHistoryTest {
+    private static final int DOCTORS = 20;
+    private static final int PATIENTS = 60;
+    private static final int DAYS = 90;
+    private static final long FIRST_MINUTE = Appointment.toEpochDay("2020-01-01") * 24 * 60;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Doctor and patient range queries return exactly the matching
+     * appointments in start order, across several runs, after compaction
+     * and after reopening the history.
+     *
+     * @throws IOException if the history cannot be written or read
+     */
+    @Test
+    void rangeQueriesMatchAScan() throws IOException {
+        Random random = new Random(18);
+        List<long[]> all = new ArrayList<>();
+        AppointmentHistory history = AppointmentHistory.open(directory, 8);
+        long id = 1;
+        for (int run = 0; run < 3; run++) {
+            try (OffHeapAppointmentStore store = new OffHeapAppointmentStore()) {
+                for (int i = 0; i < 3000; i++) {
+                    long[] row = {id++, 1 + random.nextInt(PATIENTS), 1 + random.nextInt(DOCTORS),
+                        FIRST_MINUTE + random.nextInt(DAYS * 24 * 60)};
+                    store.add(row[0], row[1], row[2], row[3], 30, OffHeapAppointmentStore.Status.COMPLETED);
+                    all.add(row);
+                }
+                history.publishRun(history.writeRun(store));
+            }
+        }
+        assertEquals(3, history.getRunCount());
+        assertEquals(all.size(), history.size());
+        checkQueries(history, all, random);
+
+        assertEquals(3, history.compact());
+        assertEquals(1, history.getRunCount());
+        checkQueries(history, all, random);
+
+        history.close();
+        history = AppointmentHistory.open(directory, 8);
+        assertEquals(all.size(), history.size());
+        checkQueries(history, all, random);
+        history.close();
+    }
+
+    /**
+     * A narrow range query reads only the pages that can hold it, not the
+     * whole run.
+     *
+     * @throws IOException if the history cannot be written or read
+     */
+    @Test
+    void narrowQueriesReadFewPages() throws IOException {
+        AppointmentHistory history = AppointmentHistory.open(directory, 1);
+        try (OffHeapAppointmentStore store = new OffHeapAppointmentStore()) {
+            for (int i = 0; i < 100_000; i++) {
+                store.add(i + 1, 1 + i % PATIENTS, 1 + i % DOCTORS, FIRST_MINUTE + i * 30L, 30,
+                    OffHeapAppointmentStore.Status.COMPLETED);
+            }
+            history.publishRun(history.writeRun(store));
+        }
+        long before = history.getPagesRead();
+        List<AppointmentHistory.Entry> day = history.findByDoctor(3, FIRST_MINUTE + 24 * 60 * 30,
+            FIRST_MINUTE + 24 * 60 * 31);
+        assertEquals(48 / DOCTORS + 1, day.size(), "Appointments of doctor 3 on one day");
+        assertTrue(history.getPagesRead() - before <= 3, "Pages read: " + (history.getPagesRead() - before));
+        history.close();
+    }
+
+    /**
+     * Runs random doctor and patient range queries and compares them with
+     * a scan.
+     *
+     * @param history The history to query
+     * @param all     Every appointment as id, patient, doctor and start
+     * @param random  The source of query ranges
+     * @throws IOException if a page cannot be read
+     */
+    private static void checkQueries(AppointmentHistory history, List<long[]> all, Random random)
+            throws IOException {
+        for (int query = 0; query < 200; query++) {
+            boolean byDoctor = query % 2 == 0;
+            long key = 1 + random.nextInt(byDoctor ? DOCTORS : PATIENTS);
+            long from = FIRST_MINUTE + random.nextInt(DAYS * 24 * 60);
+            long to = from + random.nextInt(20 * 24 * 60);
+            List<AppointmentHistory.Entry> found = byDoctor
+                ? history.findByDoctor(key, from, to)
+                : history.findByPatient(key, from, to);
+            List<long[]> expected = new ArrayList<>();
+            for (long[] row : all) {
+                if (row[byDoctor ? 2 : 1] == key && row[3] >= from && row[3] < to) {
+                    expected.add(row);
+                }
+            }
+            expected.sort(Comparator.<long[]>comparingLong(row -> row[3]).thenComparingLong(row -> row[0]));
+            assertEquals(expected.size(), found.size());
+            for (int i = 0; i < expected.size(); i++) {
+                AppointmentHistory.Entry entry = found.get(i);
+                assertEquals(expected.get(i)[0], entry.getId());
+                assertEquals(expected.get(i)[1], entry.getPatientId());
+                assertEquals(expected.get(i)[2], entry.getDoctorId());
+                assertEquals(expected.get(i)[3], entry.getStartMinute());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Restart round trips of archived appointments and the on-disk history.
+ */
+class ArchiveRecoveryTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Appointments booked after a restart never reuse the ID of an archived
+     * appointment or one in the history, so archiving them loses nothing.
+     *
+     * @throws Exception if the snapshot, journal or history cannot be used
+     */
+    @Test
+    void restartedSystemDoesNotReuseArchivedIds() throws Exception {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.setAppointmentArchive(new OffHeapAppointmentStore());
+        system.registerStaff(Fixtures.STAFF, false);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Set<Long> ids = new HashSet<>();
+        ids.add(system.bookAppointmentSilent(patient, doctor, "2020-01-01", "09:00").getId());
+        ids.add(system.bookAppointmentSilent(patient, doctor, "2020-01-01", "10:00").getId());
+        assertEquals(2, system.archiveAppointmentsBefore("2021-01-01"));
+        assertEquals(2, system.flushArchiveToHistory());
+        ids.add(system.bookAppointmentSilent(patient, doctor, "2020-01-02", "09:00").getId());
+        assertEquals(1, system.archiveAppointmentsBefore("2021-01-01"));
+        system.getJournal().close();
+
+        for (int restart = 0; restart < 2; restart++) {
+            restartIdCounters();
+            system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+            assertEquals(ids.size() - 2, system.getAppointmentArchive().size());
+            patient = system.findPatientById(patient.getId());
+            doctor = system.findDoctorById(doctor.getId());
+            Appointment booked = system.bookAppointmentSilent(patient, doctor, "2020-01-0" + (3 + restart),
+                "09:00");
+            assertNotNull(booked);
+            assertTrue(ids.add(booked.getId()), "Reused appointment ID " + booked.getId());
+            assertEquals(1, system.archiveAppointmentsBefore("2021-01-01"));
+            system.getJournal().close();
+        }
+
+        restartIdCounters();
+        system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(ids.size() - 2, system.getAppointmentArchive().size());
+        List<Appointment> history = system.getPatientAppointmentHistory(system.findPatientById(patient.getId()));
+        Set<Long> recovered = new HashSet<>();
+        for (Appointment appointment : history) {
+            recovered.add(appointment.getId());
+        }
+        assertEquals(ids, recovered);
+        system.getJournal().close();
+        system.getAppointmentHistory().close();
+    }
+
+    /**
+     * Resets the appointment ID counter, as a new process would start with it.
+     *
+     * @throws ReflectiveOperationException if the counter cannot be reached
+     */
+    private static void restartIdCounters() throws ReflectiveOperationException {
+        Field counter = Appointment.class.getDeclaredField("NEXT_ID");
+        counter.setAccessible(true);
+        ((AtomicLong) counter.get(null)).set(1);
+    }
+}
@@ -0,0 +1,73 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for doctor shift calendars and the checks made against them.
+ */
+class AvailabilityCalendarTest {
+    /**
+     * Weekly shifts, extra shifts and days off combine as expected.
+     */
+    @Test
+    void shiftsAndExceptionsCombine() {
+        AvailabilityCalendar calendar = AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, "09:00", "17:00")
+            .withShift("2030-01-10", "10:00", "12:00")
+            .withDayOff("2030-01-08");
+        // 2030-01-07 is a Monday
+        assertTrue(calendar.isAvailable(minute("2030-01-07", 9 * 60), 8 * 60));
+        assertFalse(calendar.isAvailable(minute("2030-01-07", 16 * 60 + 45), 30));
+        assertFalse(calendar.isAvailable(minute("2030-01-08", 10 * 60), 30));
+        assertTrue(calendar.isAvailable(minute("2030-01-09", 12 * 60), 30));
+        assertTrue(calendar.isAvailable(minute("2030-01-10", 10 * 60), 2 * 60));
+        assertFalse(calendar.isAvailable(minute("2030-01-10", 12 * 60), 30));
+        assertFalse(calendar.isAvailable(minute("2030-01-11", 10 * 60), 30));
+    }
+
+    /**
+     * Bookings outside a doctor's hours are refused, and the system alone
+     * decides whether a doctor may update a diagnosis now.
+     */
+    @Test
+    void systemChecksHoursForBookingsAndDiagnoses() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        assertTrue(system.setDoctorCalendar(doctor, AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, "09:00", "12:00")));
+
+        assertNotNull(system.bookAppointmentSilent(patient, doctor, "2030-01-07", "09:00"));
+        assertNull(system.bookAppointmentSilent(patient, doctor, "2030-01-07", "12:00"));
+        assertNull(system.bookAppointmentSilent(patient, doctor, "2030-01-08", "09:00"));
+
+        assertTrue(system.setDoctorCalendar(doctor, AvailabilityCalendar.empty()));
+        assertFalse(system.updatePatientDiagnosis(doctor, patient, "Lupus"));
+        assertEquals("Checkup", patient.getDiagnosis());
+        assertTrue(doctor.updatePatientDiagnosis(patient, "Lupus"));
+        assertEquals("Lupus", patient.getDiagnosis());
+
+        assertTrue(system.setDoctorCalendar(doctor, null));
+        assertTrue(system.updatePatientDiagnosis(doctor, patient, "Flu"));
+        assertEquals("Flu", patient.getDiagnosis());
+    }
+
+    /**
+     * Converts a date and minute of the day into minutes since the epoch.
+     *
+     * @param date        The date (YYYY-MM-DD)
+     * @param minuteOfDay The minute of the day
+     * @return The minute since the epoch
+     */
+    private static long minute(String date, int minuteOfDay) {
+        return Appointment.toEpochDay(date) * 24 * 60 + minuteOfDay;
+    }
+}
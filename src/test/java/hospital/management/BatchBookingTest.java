@@ -0,0 +1,100 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for booking a batch of appointments in one call.
+ */
+class BatchBookingTest {
+    private final HospitalManagementSystem system = Fixtures.newSystem();
+    private final Patient ada = Fixtures.patient(system, "Ada");
+    private final Patient alan = Fixtures.patient(system, "Alan");
+    private final Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+    private final Doctor wilson = Fixtures.doctor(system, "Wilson", "Oncology");
+    private final Appointment existing = system.bookAppointmentSilent(alan, house, "2030-01-01", "10:00");
+
+    /**
+     * Builds a batch with two valid requests, one clashing with an existing
+     * appointment, one clashing with an earlier request of the batch, and
+     * one with an unreadable time.
+     *
+     * @return The requests
+     */
+    private List<BookingRequest> mixedBatch() {
+        List<BookingRequest> requests = new ArrayList<>();
+        requests.add(new BookingRequest(ada, house, "2030-01-01", "09:00"));
+        requests.add(new BookingRequest(ada, wilson, "2030-01-01", "11:00"));
+        requests.add(new BookingRequest(ada, house, "2030-01-01", "10:15"));
+        requests.add(new BookingRequest(alan, wilson, "2030-01-01", "11:15"));
+        requests.add(new BookingRequest(alan, wilson, "2030-01-01", "25:00"));
+        return requests;
+    }
+
+    /**
+     * Statuses of a batch's results, in request order.
+     *
+     * @param results The results
+     * @return The statuses
+     */
+    private static List<BookingResult.Status> statuses(BookingResult[] results) {
+        List<BookingResult.Status> statuses = new ArrayList<>();
+        for (BookingResult result : results) {
+            statuses.add(result.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * An all-or-nothing batch with a failing request books nothing, marks
+     * its valid requests NOT_COMMITTED and frees the slots they reserved.
+     */
+    @Test
+    void failingAllOrNothingBatchBooksNothing() {
+        BookingResult[] results = system.bookAppointments(mixedBatch(), true);
+
+        assertEquals(List.of(BookingResult.Status.NOT_COMMITTED, BookingResult.Status.NOT_COMMITTED,
+            BookingResult.Status.SLOT_TAKEN, BookingResult.Status.SLOT_TAKEN,
+            BookingResult.Status.INVALID_TIME), statuses(results));
+        assertEquals(List.of(existing), system.getAppointments());
+        assertTrue(ada.getAppointments().isEmpty());
+        assertTrue(wilson.getAppointments().isEmpty());
+        assertNotNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "09:00"));
+        assertNotNull(system.bookAppointmentSilent(alan, wilson, "2030-01-01", "11:00"));
+    }
+
+    /**
+     * Without all-or-nothing, the same batch books its valid requests and
+     * reports the others.
+     */
+    @Test
+    void partialBatchBooksEveryValidRequest() {
+        BookingResult[] results = system.bookAppointments(mixedBatch(), false);
+
+        assertEquals(List.of(BookingResult.Status.BOOKED, BookingResult.Status.BOOKED,
+            BookingResult.Status.SLOT_TAKEN, BookingResult.Status.SLOT_TAKEN,
+            BookingResult.Status.INVALID_TIME), statuses(results));
+        assertEquals(3, system.getAppointments().size());
+        assertEquals(List.of(results[0].getAppointment(), results[1].getAppointment()), ada.getAppointments());
+        assertEquals(List.of(results[1].getAppointment()), wilson.getAppointments());
+    }
+
+    /**
+     * An all-or-nothing batch whose requests are all valid books them all.
+     */
+    @Test
+    void validAllOrNothingBatchBooksEverything() {
+        List<BookingRequest> requests = mixedBatch().subList(0, 2);
+        BookingResult[] results = system.bookAppointments(requests, true);
+
+        assertEquals(List.of(BookingResult.Status.BOOKED, BookingResult.Status.BOOKED), statuses(results));
+        assertEquals(3, system.getAppointments().size());
+        assertEquals(2, ada.getAppointments().size());
+    }
+}
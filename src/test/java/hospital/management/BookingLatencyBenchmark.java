@@ -0,0 +1,192 @@
+package hospital.management;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures booking latency as the number of existing appointments grows,
+ * to show that the conflict check does not depend on it. Two scenarios are
+ * run: bookings spread over 1,000 doctors, and every booking going to a
+ * single doctor, whose own calendar then holds all of them. Run with the
+ * largest number of appointments as the only argument (default 1,000,000;
+ * 10,000,000 needs a heap of about 8 GB):
+ * <pre>
+ * java -cp target/classes:target/test-classes hospital.management.BookingLatencyBenchmark 10000000
+ * </pre>
+ * Each scenario fills one system to 1,000, 10,000 and so on up to the
+ * largest number of appointments, about ten per patient, and at each size
+ * prints the mean time of booking further appointments.
+ * <p>
+ * It then compares the two booking paths under contention: threads all
+ * trying to book the same slots of one doctor, once through
+ * {@link HospitalManagementSystem#bookAppointmentSilent}, which claims the
+ * slot under the doctor's lock, and once through
+ * {@link HospitalManagementSystem#tryBookAppointment}, whose losers never
+ * take the lock. For each number of threads it prints the mean time per
+ * attempt.
+ */
+public class BookingLatencyBenchmark {
+    private static final int SLOTS_PER_DAY = 48;
+    private static final int MEASURED = 20_000;
+    private static final int CONTENDED_SLOTS = 20_000;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2030, 1, 1);
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The largest number of appointments, optionally
+     */
+    public static void main(String[] args) {
+        long largest = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        for (int doctors : new int[] {1000, 1}) {
+            System.out.printf("%d doctor(s)%n%12s %14s%n", doctors, "appointments", "ns per booking");
+            run(doctors, largest);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Contention for one doctor%n%8s %14s %14s%n", "threads", "locked ns", "optimistic ns");
+        for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+            contend(threads, true);
+            contend(threads, false);
+            System.out.printf("%8d %14d %14d%n", threads, contend(threads, true), contend(threads, false));
+        }
+    }
+
+    /**
+     * Lets several threads book the same slots of one doctor in the same
+     * order, so they compete for each slot, and checks that no slot is
+     * booked twice and, on the locked path, that none is left free.
+     *
+     * @param threadCount The number of competing threads
+     * @param locked      True to book through the locked path, false for the optimistic one
+     * @return The mean time per booking attempt in nanoseconds
+     * @throws IllegalStateException if too many or, on the locked path, too few slots are booked
+     */
+    private static long contend(int threadCount, boolean locked) {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor[] doctor = {Fixtures.doctor(system, "Doctor", "General")};
+        Patient[] patients = new Patient[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            patients[t] = Fixtures.patient(system, "Patient " + t);
+        }
+        AtomicLong booked = new AtomicLong();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            Patient[] patient = {patients[t]};
+            threads[t] = new Thread(() -> {
+                for (int k = 0; k < CONTENDED_SLOTS; k++) {
+                    Booking booking = new Booking(k, patient, doctor);
+                    if (booking.attempt(system, locked)) {
+                        booked.incrementAndGet();
+                    }
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (booked.get() > CONTENDED_SLOTS || locked && booked.get() < CONTENDED_SLOTS) {
+            throw new IllegalStateException(booked.get() + " of " + CONTENDED_SLOTS + " slots booked");
+        }
+        return elapsed / ((long) CONTENDED_SLOTS * threadCount);
+    }
+
+    /**
+     * Fills one system step by step and times further bookings at each size.
+     *
+     * @param doctorCount The number of doctors the bookings are spread over
+     * @param largest     The largest number of appointments to fill it with
+     */
+    private static void run(int doctorCount, long largest) {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Patient[] patients = new Patient[(int) Math.max(1000, largest / 10)];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = Fixtures.patient(system, "Patient " + i);
+        }
+        Doctor[] doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctors[i] = Fixtures.doctor(system, "Doctor " + i, "General");
+        }
+        long booked = 0;
+        for (long size = 1000; size <= largest; size *= 10) {
+            while (booked < size) {
+                Booking booking = new Booking(booked++, patients, doctors);
+                booking.book(system);
+            }
+            long elapsed = 0;
+            for (int round = 0; round < 2; round++) {
+                Booking[] bookings = new Booking[MEASURED / 2];
+                for (int k = 0; k < bookings.length; k++) {
+                    bookings[k] = new Booking(booked++, patients, doctors);
+                }
+                long begin = System.nanoTime();
+                for (Booking booking : bookings) {
+                    booking.book(system);
+                }
+                elapsed = System.nanoTime() - begin;
+            }
+            System.out.printf("%12d %14d%n", size, elapsed / (MEASURED / 2));
+        }
+    }
+
+    /**
+     * One booking, numbered in the order the system is filled. The doctors
+     * take turns, and each doctor's bookings fill their slots in order.
+     */
+    private static final class Booking {
+        private final Patient patient;
+        private final Doctor doctor;
+        private final String date;
+        private final String time;
+
+        /**
+         * Constructor to create the booking with a given number.
+         *
+         * @param number   The number of the booking
+         * @param patients The patients, who take turns
+         * @param doctors  The doctors, who take turns
+         */
+        Booking(long number, Patient[] patients, Doctor[] doctors) {
+            long slot = number / doctors.length;
+            this.patient = patients[(int) (number % patients.length)];
+            this.doctor = doctors[(int) (number % doctors.length)];
+            this.date = FIRST_DATE.plusDays(slot / SLOTS_PER_DAY).toString();
+            this.time = Fixtures.time((int) (slot % SLOTS_PER_DAY) * 30);
+        }
+
+        /**
+         * Books the appointment.
+         *
+         * @param system The system to book in
+         * @throws IllegalStateException if the booking fails
+         */
+        void book(HospitalManagementSystem system) {
+            if (!attempt(system, true)) {
+                throw new IllegalStateException("Booking failed on " + date + " at " + time);
+            }
+        }
+
+        /**
+         * Tries to book the appointment.
+         *
+         * @param system The system to book in
+         * @param locked True to book through the locked path, false for the optimistic one
+         * @return true if the appointment was booked, false otherwise
+         */
+        boolean attempt(HospitalManagementSystem system, boolean locked) {
+            if (locked) {
+                return system.bookAppointmentSilent(patient, doctor, date, time) != null;
+            }
+            return system.tryBookAppointment(patient, doctor, date, time).isBooked();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package hospital.management;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures importing patients from a generated CSV file. Run with the
+ * number of rows as the only argument (default 1,000,000; 5,000,000 needs
+ * a heap of about 6 GB, since every imported patient stays in memory):
+ * <pre>
+ * java -Xmx6g -cp target/classes:target/test-classes hospital.management.BulkImportBenchmark 5000000
+ * </pre>
+ * The file is written to a temporary directory and deleted afterwards. The
+ * import uses one parsing thread per processor and no journal, and prints
+ * the rows per second and peak heap from its report.
+ */
+public class BulkImportBenchmark {
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of rows, optionally
+     * @throws IOException if the file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        Path file = Files.createTempFile("bulk-import-benchmark", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("name,age,contactDetails,medicalHistory,diagnosis\n");
+                for (long i = 0; i < rows; i++) {
+                    writer.write("Patient " + i + "," + (i % 100) + ",p" + i + "@example.com,None,"
+                        + (i % 3 == 0 ? "\"Flu, seasonal\"" : "Checkup") + "\n");
+                }
+            }
+            System.out.printf("%d rows, %d MB file%n", rows, Files.size(file) >> 20);
+            HospitalManagementSystem system = Fixtures.newSystem();
+            ImportReport report = new BulkImporter(system, Fixtures.STAFF).importFile(file, BulkImporter.Kind.PATIENT);
+            System.out.printf("%d imported in %d ms: %.0f rows/s, peak heap %d MB%n", report.getImported(),
+                report.getElapsedNanos() / 1_000_000, report.getRowsPerSecond(), report.getPeakHeapBytes() >> 20);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for importing people from CSV and JSON Lines files.
+ */
+class BulkImporterTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Valid rows spread over several chunks are all registered, and invalid
+     * rows are reported with their line numbers instead of stopping the import.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    void csvImportRegistersValidRowsAndReportsInvalidOnes() throws IOException {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Path file = directory.resolve("patients.csv");
+        Files.writeString(file, String.join("\n",
+            "name,age,contactDetails,medicalHistory,diagnosis",
+            "Ada,36,ada@example.com,None,Checkup",
+            "\"Hopper, Grace\",45,grace@example.com,\"Asthma, mild\",Flu",
+            "",
+            "Alan,old,alan@example.com,None,Checkup",
+            "Edsger,72,edsger@example.com,None",
+            "Barbara,51,barbara@example.com,,",
+            "Ken,200,ken@example.com,None,Checkup",
+            "Dennis,70,dennis@example.com,None,Checkup"), StandardCharsets.UTF_8);
+
+        ImportReport report = new BulkImporter(system, Fixtures.STAFF, 2, 2)
+            .importFile(file, BulkImporter.Kind.PATIENT);
+
+        assertEquals(7, report.getRowsRead());
+        assertEquals(4, report.getImported());
+        assertEquals(3, report.getInvalid());
+        assertEquals(0, report.getSkipped());
+        assertEquals(3, report.getErrors().size());
+        assertTrue(report.getErrors().get(0).startsWith("Line 5: "), report.getErrors().get(0));
+        assertTrue(report.getErrors().get(1).startsWith("Line 6: "), report.getErrors().get(1));
+        assertTrue(report.getErrors().get(2).startsWith("Line 8: "), report.getErrors().get(2));
+        Set<String> names = new TreeSet<>();
+        for (Patient patient : system.getPatients()) {
+            names.add(patient.getName());
+        }
+        assertEquals(Set.of("Ada", "Hopper, Grace", "Barbara", "Dennis"), names);
+    }
+
+    /**
+     * A .jsonl file is read as JSON Lines, and a doctor's availability
+     * must be true or false.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    @Test
+    void jsonLinesImportRegistersDoctors() throws IOException {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Path file = directory.resolve("doctors.jsonl");
+        Files.writeString(file, String.join("\n",
+            "{\"name\":\"House\",\"age\":50,\"contactDetails\":\"house@example.com\","
+                + "\"specialization\":\"Diagnostics\",\"availability\":\"true\"}",
+            "{\"name\":\"Wilson\",\"age\":48,\"contactDetails\":\"wilson@example.com\","
+                + "\"specialization\":\"Oncology\",\"availability\":\"maybe\"}"), StandardCharsets.UTF_8);
+
+        ImportReport report = new BulkImporter(system, Fixtures.STAFF).importFile(file, BulkImporter.Kind.DOCTOR);
+
+        assertEquals(2, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getInvalid());
+        assertEquals(1, system.getDoctors().size());
+        assertEquals("Diagnostics", system.getDoctors().get(0).getSpecialization());
+    }
+
+    /**
+     * A CSV file without a header and an import by an unregistered
+     * registrar are rejected.
+     */
+    @Test
+    void missingHeaderAndUnregisteredRegistrarAreRejected() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        BulkImporter importer = new BulkImporter(system, Fixtures.STAFF);
+        assertThrows(IOException.class,
+            () -> importer.importFrom(new StringReader("\n\n"), BulkImporter.Kind.PATIENT, DataFormat.CSV));
+
+        BulkImporter stranger = new BulkImporter(system,
+            new Staff("Stranger", 30, "stranger@example.com", "Porter", "Facilities"));
+        assertThrows(IllegalStateException.class, () -> stranger.importFrom(
+            new StringReader("name,age,contactDetails\n"), BulkImporter.Kind.PATIENT, DataFormat.CSV));
+    }
+}
@@ -0,0 +1,118 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for reading the journal as a change feed.
+ */
+class ChangeFeedTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Reading from the start or from an offset returns the changes in the
+     * order they were made, one sequence number after another.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void readReturnsChangesInOrderFromAnOffset() throws IOException {
+        HospitalManagementSystem system = Fixtures.newSystem(Journal.open(directory, Journal.SyncMode.GROUP_COMMIT));
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Appointment appointment = system.bookAppointmentSilent(patient, doctor, "2030-01-01", "09:00");
+        assertTrue(system.cancelAppointment(patient, 0));
+        ChangeFeed feed = new ChangeFeed(system);
+
+        List<JournalEntry> all = feed.read(1, 100);
+        assertEquals(List.of(MutationType.STAFF_REGISTERED, MutationType.PATIENT_REGISTERED,
+            MutationType.DOCTOR_REGISTERED, MutationType.APPOINTMENT_BOOKED,
+            MutationType.APPOINTMENT_CANCELLED), types(all));
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i + 1, all.get(i).getSequence());
+        }
+        assertEquals(5, feed.getLastSequence());
+
+        List<JournalEntry> tail = feed.read(4, 1);
+        assertEquals(1, tail.size());
+        assertEquals(MutationType.APPOINTMENT_BOOKED, tail.get(0).getType());
+        assertEquals(appointment.getId(), tail.get(0).getLong(0));
+        assertTrue(feed.read(6, 10).isEmpty());
+        system.getJournal().close();
+    }
+
+    /**
+     * A poll with nothing new waits for the next change and returns it.
+     *
+     * @throws Exception if the journal cannot be used or the wait is interrupted
+     */
+    @Test
+    void pollWaitsForTheNextChange() throws Exception {
+        HospitalManagementSystem system = Fixtures.newSystem(Journal.open(directory, Journal.SyncMode.GROUP_COMMIT));
+        ChangeFeed feed = new ChangeFeed(system);
+        long next = feed.getLastSequence() + 1;
+        Thread writer = new Thread(() -> Fixtures.patient(system, "Ada"));
+        writer.start();
+
+        List<JournalEntry> entries = feed.poll(next, 10, 10, TimeUnit.SECONDS);
+        writer.join();
+        assertEquals(List.of(MutationType.PATIENT_REGISTERED), types(entries));
+        assertTrue(feed.poll(next + 1, 10, 10, TimeUnit.MILLISECONDS).isEmpty());
+        system.getJournal().close();
+    }
+
+    /**
+     * A committed offset is saved, and a snapshot keeps the segments holding
+     * the entries after it while deleting them once the consumer is removed.
+     *
+     * @throws IOException if the journal or snapshot cannot be used
+     */
+    @Test
+    void committedOffsetsKeepEntriesAcrossSnapshots() throws IOException {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Fixtures.patient(system, "Ada");
+        Fixtures.doctor(system, "House", "Diagnostics");
+        ChangeFeed feed = new ChangeFeed(system);
+        feed.commit("billing", 1);
+        manager.snapshot(system);
+
+        assertEquals(1, new ChangeFeed(system.getJournal()).getCommittedSequence("billing"));
+        assertEquals(0, feed.getCommittedSequence("audit"));
+        assertEquals(List.of(MutationType.PATIENT_REGISTERED, MutationType.DOCTOR_REGISTERED),
+            types(feed.read(2, 10)));
+
+        feed.removeConsumer("billing");
+        Fixtures.patient(system, "Late");
+        manager.snapshot(system);
+        assertEquals(5, feed.getFirstSequence());
+        assertThrows(IllegalArgumentException.class, () -> feed.read(2, 10));
+        system.getJournal().close();
+    }
+
+    /**
+     * Gets the mutation types of entries.
+     *
+     * @param entries The entries
+     * @return Their types, in order
+     */
+    private static List<MutationType> types(List<JournalEntry> entries) {
+        List<MutationType> types = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            types.add(entry.getType());
+        }
+        return types;
+    }
+}
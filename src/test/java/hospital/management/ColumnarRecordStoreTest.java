@@ -0,0 +1,81 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the column-oriented medical record store and its views.
+ */
+class ColumnarRecordStoreTest {
+    /**
+     * Views show the fields of the records copied in, keep their IDs and
+     * types, and write changes through to the columns.
+     */
+    @Test
+    void viewsReadAndWriteTheColumns() {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        Patient patient = new Patient("Ada", 36, "ada@example.com", "None", "Checkup");
+        InpatientRecord inpatient = new InpatientRecord("Pneumonia", "Antibiotics", 12, 5);
+        OutpatientRecord outpatient = new OutpatientRecord("Flu", "Rest", "2030-01-01");
+        int first = store.add(patient, inpatient);
+        int second = store.add(patient, outpatient);
+
+        MedicalRecord view = store.get(first);
+        InpatientRecord stay = assertInstanceOf(InpatientRecord.class, view);
+        assertEquals(inpatient.getId(), stay.getId());
+        assertEquals("Pneumonia", stay.getDiagnosis());
+        assertEquals("Antibiotics", stay.getTreatmentPlan());
+        assertEquals(12, stay.getRoomNumber());
+        assertEquals(5, stay.getDurationOfStay());
+        assertInstanceOf(OutpatientRecord.class, store.get(second));
+        assertEquals("2030-01-01", store.get(second).getRecordDate());
+        assertEquals(patient.getId(), store.getPatientId(second));
+
+        stay.setDiagnosis(null);
+        stay.setDurationOfStay(7);
+        InpatientRecord again = (InpatientRecord) store.get(first);
+        assertNull(again.getDiagnosis());
+        assertEquals(7, again.getDurationOfStay());
+        assertEquals(stay, again);
+        assertEquals(stay.hashCode(), again.hashCode());
+        assertNotEquals(store.get(first), store.get(second));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(2));
+    }
+
+    /**
+     * Scans over a column give the same answers as the records would, also
+     * after the columns have grown past their initial capacity.
+     */
+    @Test
+    void scansCoverEveryRowAfterGrowing() {
+        ColumnarRecordStore store = new ColumnarRecordStore();
+        Patient ada = new Patient("Ada", 36, "ada@example.com", "None", "Checkup");
+        Patient alan = new Patient("Alan", 41, "alan@example.com", "None", "Checkup");
+        int rows = 5000;
+        for (int i = 0; i < rows; i++) {
+            Patient owner = i % 5 == 0 ? ada : alan;
+            if (i % 2 == 0) {
+                store.add(owner, new InpatientRecord("Fracture", "Cast", i % 300, 2));
+            } else {
+                store.add(owner, new OutpatientRecord(i % 3 == 0 ? "Flu" : "Cold", "Rest", "2030-01-01"));
+            }
+        }
+
+        assertEquals(rows, store.size());
+        assertEquals(rows / 2, store.countByDiagnosis("Fracture"));
+        assertEquals(833, store.countByDiagnosis("Flu"));
+        assertEquals(0, store.countByDiagnosis("Measles"));
+        assertEquals(2L * rows / 2, store.getTotalDaysOfStay());
+        List<MedicalRecord> adaRecords = store.getByPatient(ada);
+        assertEquals(rows / 5, adaRecords.size());
+        assertEquals(store.get(0), adaRecords.get(0));
+        assertEquals(store.get(5), adaRecords.get(1));
+    }
+}
@@ -0,0 +1,160 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress tests for booking from several threads at once.
+ */
+class ConcurrentBookingTest {
+    private static final int THREADS = 8;
+    private static final int DOCTORS = 16;
+    private static final int SLOTS = 48;
+
+    /**
+     * Threads booking and cancelling the same slots never double book a
+     * doctor, and every booked appointment is visible through its patient,
+     * its doctor and the global list.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void parallelBookingsNeverDoubleBookAndStayConsistent() throws Exception {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor[] doctors = new Doctor[DOCTORS];
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors[i] = Fixtures.doctor(system, "Doctor " + i, "General");
+        }
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        runInParallel(thread -> {
+            Patient patient = Fixtures.patient(system, "Patient " + thread);
+            for (int round = 0; round < 4; round++) {
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    Doctor doctor = doctors[(slot + thread) % DOCTORS];
+                    String time = Fixtures.time(8 * 60 + slot * 15);
+                    if (system.bookAppointmentSilent(patient, doctor, "2030-01-0" + (round + 1), time) != null) {
+                        booked.incrementAndGet();
+                    }
+                }
+                List<Appointment> own = system.getPatientAppointments(patient);
+                for (int i = own.size() - 1; i >= 0; i -= 3) {
+                    if (system.cancelAppointment(patient, i)) {
+                        cancelled.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        List<Appointment> all = system.getAppointments();
+        assertEquals(booked.get() - cancelled.get(), all.size());
+        int fromDoctors = 0;
+        for (Doctor doctor : doctors) {
+            List<Appointment> schedule = doctor.getAppointments();
+            assertEquals(system.getDoctorAppointments(doctor), schedule);
+            fromDoctors += schedule.size();
+            for (int i = 0; i < schedule.size(); i++) {
+                for (int j = i + 1; j < schedule.size(); j++) {
+                    assertFalse(schedule.get(i).overlaps(schedule.get(j)),
+                        "Double booking of " + doctor.getName());
+                }
+            }
+        }
+        assertEquals(all.size(), fromDoctors);
+        for (Appointment appointment : all) {
+            assertTrue(appointment.getPatient().getAppointments().contains(appointment));
+            assertTrue(appointment.getDoctor().getAppointments().contains(appointment));
+        }
+    }
+
+    /**
+     * Threads racing for one doctor's day through the optimistic path get
+     * each slot exactly once.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void racingOptimisticBookingsGetEachSlotOnce() throws Exception {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor doctor = Fixtures.doctor(system, "Contested", "General");
+        AtomicInteger won = new AtomicInteger();
+        runInParallel(thread -> {
+            Patient patient = Fixtures.patient(system, "Racer " + thread);
+            for (int minute = 0; minute < 24 * 60; minute += 10) {
+                BookingResult result = system.tryBookAppointment(patient, doctor, "2030-01-01",
+                    Fixtures.time(minute));
+                if (result.isBooked()) {
+                    won.incrementAndGet();
+                }
+            }
+        });
+
+        List<Appointment> schedule = system.getDoctorAppointments(doctor);
+        assertEquals(won.get(), schedule.size());
+        Set<Long> starts = new HashSet<>();
+        long lastEnd = Long.MIN_VALUE;
+        List<Appointment> ordered = new ArrayList<>(schedule);
+        ordered.sort((a, b) -> Long.compare(a.getStartMinute(), b.getStartMinute()));
+        for (Appointment appointment : ordered) {
+            assertTrue(starts.add(appointment.getStartMinute()));
+            assertTrue(appointment.getStartMinute() >= lastEnd, "Overlapping optimistic bookings");
+            lastEnd = appointment.getEndMinute();
+        }
+    }
+
+    /**
+     * Runs a task on every thread at once and waits for all of them.
+     *
+     * @param task The task, given the number of its thread
+     * @throws Exception if a task fails
+     */
+    static void runInParallel(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(number);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Work done by one thread of a stress test.
+     */
+    @FunctionalInterface
+    interface ThreadTask {
+        /**
+         * Runs the work.
+         *
+         * @param thread The number of the thread
+         * @throws Exception if the work fails
+         */
+        void run(int thread) throws Exception;
+    }
+}
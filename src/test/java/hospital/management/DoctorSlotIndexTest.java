@@ -0,0 +1,173 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for conflict detection in the per-doctor slot index.
+ */
+class DoctorSlotIndexTest {
+    private final DoctorSlotIndex index = new DoctorSlotIndex();
+    private final Patient patient = new Patient("Pat", 40, "pat@example.com", "None", "Checkup");
+    private final Doctor doctor = new Doctor("Doc", 50, "doc@example.com", "Cardiology", true);
+
+    /**
+     * Creates an unbooked appointment with the fixture patient.
+     *
+     * @param doctor   The doctor
+     * @param date     The date (YYYY-MM-DD)
+     * @param time     The time (HH:mm)
+     * @param duration The length in minutes
+     * @return The appointment
+     */
+    private Appointment appointment(Doctor doctor, String date, String time, int duration) {
+        return new Appointment(date, time, duration, patient, doctor);
+    }
+
+    /**
+     * Overlapping intervals conflict; intervals that only touch do not.
+     */
+    @Test
+    void overlappingIntervalsConflictAndAdjacentOnesDoNot() {
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "10:00", 30)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-01", "10:29", 30)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-01", "09:31", 30)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-01", "09:00", 120)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "10:30", 30)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "09:30", 30)));
+    }
+
+    /**
+     * A failed reservation leaves nothing behind, so the free part of the
+     * interval can still be booked.
+     */
+    @Test
+    void failedReservationSetsNoBits() {
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "12:00", 15)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-01", "11:00", 90)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "11:00", 60)));
+    }
+
+    /**
+     * The same time written in different forms is the same slot.
+     */
+    @Test
+    void timeFormsAreParsedToTheSameMinute() {
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "10:00 AM", 30)));
+        assertTrue(index.hasConflict(appointment(doctor, "2030-01-01", "10:00am", 30)));
+        assertTrue(index.hasConflict(appointment(doctor, "2030-01-01", "10:15", 30)));
+        assertFalse(index.hasConflict(appointment(doctor, "2030-01-01", "10:00 PM", 30)));
+    }
+
+    /**
+     * Releasing an appointment frees exactly its interval.
+     */
+    @Test
+    void releaseFreesTheInterval() {
+        Appointment first = appointment(doctor, "2030-01-01", "10:00", 30);
+        Appointment second = appointment(doctor, "2030-01-01", "10:30", 30);
+        assertTrue(index.tryReserve(first));
+        assertTrue(index.tryReserve(second));
+        index.release(first);
+        assertFalse(index.hasConflict(first));
+        assertTrue(index.hasConflict(second));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "10:00", 30)));
+    }
+
+    /**
+     * Intervals crossing a word boundary and midnight are checked on both sides.
+     */
+    @Test
+    void intervalsAcrossWordsAndMidnightAreChecked() {
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "23:45", 30)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-02", "00:00", 15)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-02", "00:15", 15)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-03", "01:00", 200)));
+        assertFalse(index.tryReserve(appointment(doctor, "2030-01-03", "04:19", 1)));
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-03", "04:20", 1)));
+    }
+
+    /**
+     * Each doctor has their own bookings.
+     */
+    @Test
+    void doctorsAreIndependent() {
+        Doctor other = new Doctor("Other", 50, "other@example.com", "Cardiology", true);
+        assertTrue(index.tryReserve(appointment(doctor, "2030-01-01", "10:00", 30)));
+        assertTrue(index.tryReserve(appointment(other, "2030-01-01", "10:00", 30)));
+    }
+
+    /**
+     * A move may reuse the minutes of the appointment it replaces.
+     */
+    @Test
+    void reservationMayOverlapTheHeldAppointment() {
+        Appointment held = appointment(doctor, "2030-01-01", "10:00", 30);
+        assertTrue(index.tryReserve(held));
+        Appointment moved = appointment(doctor, "2030-01-01", "10:15", 30);
+        assertFalse(index.tryReserve(moved));
+        assertTrue(index.tryReserve(moved, held));
+        index.release(held, moved);
+        assertFalse(index.hasConflict(appointment(doctor, "2030-01-01", "10:00", 15)));
+        assertTrue(index.hasConflict(appointment(doctor, "2030-01-01", "10:44", 1)));
+    }
+
+    /**
+     * Threads racing for the same slots with {@link DoctorSlotIndex#reserve}
+     * never all lose: every slot goes to exactly one of them.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void racingReservationsLeaveNoSlotFree() throws Exception {
+        int slots = 2000;
+        AtomicIntegerArray winners = new AtomicIntegerArray(slots);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int k = 0; k < slots; k++) {
+                    // Overlapping but different intervals, so claims collide part way
+                    Appointment appointment = appointment(doctor, LocalDate.of(2030, 1, 1).plusDays(k / 20).toString(),
+                        Fixtures.time(k % 20 * 60 + offset), 30);
+                    if (index.reserve(appointment)) {
+                        winners.incrementAndGet(k);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int k = 0; k < slots; k++) {
+            assertEquals(1, winners.get(k), "slot " + k);
+        }
+    }
+
+    /**
+     * The system refuses an overlapping booking of a doctor and accepts it
+     * again once the first is cancelled.
+     */
+    @Test
+    void systemRejectsDoubleBooking() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Patient first = Fixtures.patient(system, "First");
+        Patient second = Fixtures.patient(system, "Second");
+        Doctor booked = Fixtures.doctor(system, "Booked", "Cardiology");
+        assertNotNull(system.bookAppointmentSilent(first, booked, "2030-01-01", "10:00"));
+        assertNull(system.bookAppointmentSilent(second, booked, "2030-01-01", "10:15 AM"));
+        assertTrue(system.cancelAppointment(first, 0));
+        assertNotNull(system.bookAppointmentSilent(second, booked, "2030-01-01", "10:15 AM"));
+    }
+}
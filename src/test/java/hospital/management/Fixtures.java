@@ -0,0 +1,75 @@
+package hospital.management;
+
+/**
+ * Helpers shared by the tests and benchmarks for building a populated
+ * hospital management system without console output.
+ */
+final class Fixtures {
+    /** The staff member every fixture registers people with. */
+    static final Staff STAFF = new Staff("Front Desk", 30, "desk@example.com", "Receptionist", "Admissions");
+
+    /**
+     * Not instantiable.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a system with the fixture staff member registered.
+     *
+     * @return The system
+     */
+    static HospitalManagementSystem newSystem() {
+        return newSystem(null);
+    }
+
+    /**
+     * Creates a system writing to a journal with the fixture staff member
+     * registered.
+     *
+     * @param journal The journal, or null for none
+     * @return The system
+     */
+    static HospitalManagementSystem newSystem(Journal journal) {
+        HospitalManagementSystem system = new HospitalManagementSystem(journal);
+        system.registerStaff(STAFF, false);
+        return system;
+    }
+
+    /**
+     * Creates and registers a patient.
+     *
+     * @param system The system to register with
+     * @param name   The name of the patient
+     * @return The patient
+     */
+    static Patient patient(HospitalManagementSystem system, String name) {
+        Patient patient = new Patient(name, 40, name + "@example.com", "None", "Checkup");
+        system.registerPatient(STAFF, patient, false);
+        return patient;
+    }
+
+    /**
+     * Creates and registers an available doctor.
+     *
+     * @param system         The system to register with
+     * @param name           The name of the doctor
+     * @param specialization The specialization of the doctor
+     * @return The doctor
+     */
+    static Doctor doctor(HospitalManagementSystem system, String name, String specialization) {
+        Doctor doctor = new Doctor(name, 50, name + "@example.com", specialization, true);
+        system.registerDoctor(STAFF, doctor, false);
+        return doctor;
+    }
+
+    /**
+     * Formats a minute of the day as a booking time.
+     *
+     * @param minuteOfDay The minute of the day
+     * @return The time (HH:mm)
+     */
+    static String time(int minuteOfDay) {
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+}
@@ -0,0 +1,303 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the write-ahead journal and for journaling in the system.
+ */
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * A system rebuilt from the journal alone has every acknowledged change,
+     * without the journal having been closed.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void acknowledgedChangesSurviveACrash() throws IOException {
+        Journal journal = Journal.open(directory, Journal.SyncMode.GROUP_COMMIT);
+        HospitalManagementSystem system = Fixtures.newSystem(journal);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Appointment kept = system.bookAppointmentSilent(patient, doctor, "2030-01-01", "09:00");
+        system.bookAppointmentSilent(patient, doctor, "2030-01-01", "10:00");
+        assertTrue(system.cancelAppointment(patient, 1));
+        assertTrue(system.updatePatientDiagnosis(doctor, patient, "Lupus"));
+        assertTrue(system.addMedicalRecord(patient, new OutpatientRecord("Lupus", "Rest", "2030-01-01"), false));
+
+        HospitalManagementSystem recovered = new SnapshotManager(directory).recover(Journal.SyncMode.GROUP_COMMIT);
+
+        Patient restored = recovered.findPatientById(patient.getId());
+        assertNotNull(restored);
+        assertEquals("Lupus", restored.getDiagnosis());
+        assertEquals(1, restored.getMedicalRecords().size());
+        List<Appointment> appointments = recovered.getPatientAppointments(restored);
+        assertEquals(1, appointments.size());
+        assertEquals(kept.getId(), appointments.get(0).getId());
+        assertEquals(kept.getStartMinute(), appointments.get(0).getStartMinute());
+        assertNotNull(recovered.findDoctorById(doctor.getId()));
+        recovered.getJournal().close();
+    }
+
+    /**
+     * A torn frame at the end of a segment ends the replay, keeping the
+     * entries before it.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        List<JournalEntry> written = appendEntries(3);
+        Path segment = lastSegment();
+        byte[] next = Journal.frame(written.get(0));
+        Files.write(segment, Arrays.copyOf(next, next.length / 2), StandardOpenOption.APPEND);
+
+        assertEquals(3, replay().size());
+    }
+
+    /**
+     * A corrupt length field is treated as a torn tail instead of being
+     * trusted for an allocation.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void corruptFrameLengthIsATornTail() throws IOException {
+        appendEntries(2);
+        for (int length : new int[] {Integer.MAX_VALUE, Journal.MAX_FRAME_LENGTH + 1, 1 << 20}) {
+            Path segment = lastSegment();
+            try (DataOutputStream out = new DataOutputStream(
+                    Files.newOutputStream(segment, StandardOpenOption.APPEND))) {
+                out.writeInt(length);
+                out.writeLong(0);
+            }
+            assertEquals(2, replay().size());
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 12);
+            }
+        }
+    }
+
+    /**
+     * A change whose journal entry cannot be written is not applied, and a
+     * claimed slot or ID is released again.
+     *
+     * @throws IOException if the journal cannot be opened
+     */
+    @Test
+    void failedAppendLeavesNoChangeVisible() throws IOException {
+        Journal journal = Journal.open(directory, Journal.SyncMode.PER_OPERATION);
+        HospitalManagementSystem system = Fixtures.newSystem(journal);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Appointment booked = system.bookAppointmentSilent(patient, doctor, "2030-01-01", "09:00");
+        journal.close();
+
+        assertThrows(UncheckedIOException.class,
+            () -> system.bookAppointmentSilent(patient, doctor, "2030-01-01", "10:00"));
+        assertThrows(UncheckedIOException.class, () -> system.cancelAppointment(patient, 0));
+        assertThrows(UncheckedIOException.class,
+            () -> system.updatePatientDiagnosis(doctor, patient, "Lupus"));
+        assertThrows(UncheckedIOException.class, () -> system.addMedicalRecord(patient,
+            new OutpatientRecord("Lupus", "Rest", "2030-01-01"), false));
+        Patient late = new Patient("Late", 40, "late@example.com", "None", "Checkup");
+        assertThrows(UncheckedIOException.class, () -> system.registerPatient(Fixtures.STAFF, late, false));
+
+        assertEquals(List.of(booked), system.getPatientAppointments(patient));
+        assertEquals(List.of(booked), doctor.getAppointments());
+        assertEquals("Checkup", patient.getDiagnosis());
+        assertTrue(patient.getMedicalRecords().isEmpty());
+        assertNull(system.findPatientById(late.getId()));
+        assertTrue(system.findEarliestSlots("Diagnostics", "2030-01-01", 30, 100).stream()
+            .anyMatch(slot -> slot.getStartMinute() == booked.getStartMinute() + 60));
+    }
+
+    /**
+     * A person being registered cannot be found by ID, and so cannot be
+     * booked, until their registration is in the journal.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void registrationIsPublishedOnlyAfterItIsJournaled() throws IOException {
+        HospitalManagementSystem system = Fixtures.newSystem(
+            Journal.open(directory, Journal.SyncMode.GROUP_COMMIT));
+        List<Patient> foundWhileJournaling = new ArrayList<>();
+        Patient patient = new Patient("Ada", 40, "ada@example.com", "None", "Checkup") {
+            @Override
+            public String getContactDetails() {
+                // Only the journal entry reads the contact details during registration
+                foundWhileJournaling.add(system.findPatientById(getId()));
+                return super.getContactDetails();
+            }
+        };
+
+        assertTrue(system.registerPatient(Fixtures.STAFF, patient, false));
+        assertEquals(1, foundWhileJournaling.size());
+        assertNull(foundWhileJournaling.get(0));
+        assertSame(patient, system.findPatientById(patient.getId()));
+        system.getJournal().close();
+    }
+
+    /**
+     * A diagnosis update the doctor rejects is refused before it is
+     * journaled, so it does not come back on replay.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void rejectedDiagnosisIsNotJournaled() throws IOException {
+        Journal journal = Journal.open(directory, Journal.SyncMode.GROUP_COMMIT);
+        HospitalManagementSystem system = Fixtures.newSystem(journal);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = new Doctor("House", 50, "house@example.com", "Diagnostics", true) {
+            @Override
+            boolean acceptsDiagnosis(Patient patient, String newDiagnosis) {
+                return super.acceptsDiagnosis(patient, newDiagnosis) && !newDiagnosis.equals("Lupus");
+            }
+        };
+        system.registerDoctor(Fixtures.STAFF, doctor, false);
+        long before = journal.getLastSequence();
+
+        assertFalse(system.updatePatientDiagnosis(doctor, patient, "   "));
+        assertFalse(system.updatePatientDiagnosis(doctor, patient, "Lupus"));
+        assertEquals(before, journal.getLastSequence());
+        assertTrue(system.updatePatientDiagnosis(doctor, patient, "Sarcoidosis"));
+        journal.close();
+
+        HospitalManagementSystem recovered = new SnapshotManager(directory).recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals("Sarcoidosis", recovered.findPatientById(patient.getId()).getDiagnosis());
+        recovered.getJournal().close();
+    }
+
+    /**
+     * A write that fails, here because the thread is interrupted, fails the
+     * journal: later appends and rotations throw the same exception instead
+     * of writing after a frame that may be torn.
+     *
+     * @throws IOException if the journal cannot be opened
+     */
+    @Test
+    void failedWriteFailsEveryLaterAppend() throws IOException {
+        Journal journal = Journal.open(directory, Journal.SyncMode.PER_OPERATION);
+        JournalEntry entry = diagnosisEntry();
+        journal.append(entry);
+
+        IOException failure;
+        Thread.currentThread().interrupt();
+        try {
+            failure = assertThrows(IOException.class, () -> journal.append(entry));
+        } finally {
+            Thread.interrupted();
+        }
+        assertSame(failure, assertThrows(IOException.class, () -> journal.append(entry)));
+        assertSame(failure, assertThrows(IOException.class, journal::rotate));
+        assertEquals(1, journal.getLastSequence());
+        assertEquals(1, replay().size());
+    }
+
+    /**
+     * A rotation that cannot create the next segment fails the journal, so
+     * entries appended afterwards are refused rather than buffered for a
+     * closed segment.
+     *
+     * @throws IOException if the journal cannot be used
+     */
+    @Test
+    void failedRotationFailsEveryLaterAppend() throws IOException {
+        Journal journal = Journal.open(directory, Journal.SyncMode.GROUP_COMMIT);
+        JournalEntry entry = diagnosisEntry();
+        journal.awaitDurable(journal.append(entry));
+        Path blocker = directory.resolve(String.format("journal-%020d.log", 2));
+        Files.createDirectory(blocker);
+
+        IOException failure = assertThrows(IOException.class, journal::rotate);
+        Files.delete(blocker);
+        assertSame(failure, assertThrows(IOException.class, () -> journal.append(entry)));
+        assertSame(failure, assertThrows(IOException.class, () -> journal.awaitDurable(2)));
+        assertEquals(1, journal.getLastSequence());
+        assertEquals(1, replay().size());
+    }
+
+    /**
+     * Creates a diagnosis entry for a patient and doctor who are not registered anywhere.
+     *
+     * @return The entry
+     */
+    private static JournalEntry diagnosisEntry() {
+        Doctor doctor = new Doctor("House", 50, "house@example.com", "Diagnostics", true);
+        Patient patient = new Patient("Ada", 40, "ada@example.com", "None", "Checkup");
+        return JournalEntry.diagnosisUpdated(doctor, patient, "Lupus");
+    }
+
+    /**
+     * Appends diagnosis entries to a fresh journal and closes it.
+     *
+     * @param count The number of entries
+     * @return The appended entries
+     * @throws IOException if the journal cannot be written
+     */
+    private List<JournalEntry> appendEntries(int count) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        Doctor doctor = new Doctor("House", 50, "house@example.com", "Diagnostics", true);
+        Patient patient = new Patient("Ada", 40, "ada@example.com", "None", "Checkup");
+        try (Journal journal = Journal.open(directory, Journal.SyncMode.PER_OPERATION)) {
+            for (int i = 0; i < count; i++) {
+                JournalEntry entry = JournalEntry.diagnosisUpdated(doctor, patient, "Diagnosis " + i);
+                journal.append(entry);
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads every entry of the journal.
+     *
+     * @return The entries in order
+     * @throws IOException if the journal cannot be read
+     */
+    private List<JournalEntry> replay() throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        Journal.replay(directory, 1, entries::add);
+        return entries;
+    }
+
+    /**
+     * Finds the newest segment that holds entries.
+     *
+     * @return The segment file
+     * @throws IOException if the directory cannot be listed
+     */
+    private Path lastSegment() throws IOException {
+        List<Path> segments = Journal.listSegments(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (Files.size(segments.get(i)) > 0) {
+                return segments.get(i);
+            }
+        }
+        throw new IOException("No journal entries");
+    }
+}
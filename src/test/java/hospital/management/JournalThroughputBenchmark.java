@@ -0,0 +1,92 @@
+package hospital.management;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures journaled booking throughput with an fsync per operation
+ * against group commit, with several threads booking at once. Run with the
+ * number of threads and of bookings per thread as arguments (default 16
+ * and 500):
+ * <pre>
+ * java -cp target/classes:target/test-classes hospital.management.JournalThroughputBenchmark 16 500
+ * </pre>
+ * The journal is written to a temporary directory, so the numbers depend
+ * on how fast the disk holding it can fsync.
+ */
+public class JournalThroughputBenchmark {
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of threads and of bookings per thread, optionally
+     * @throws Exception if the journal cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        System.out.printf("%14s %14s%n", "mode", "bookings/s");
+        for (Journal.SyncMode mode : Journal.SyncMode.values()) {
+            System.out.printf("%14s %14.0f%n", mode, run(mode, threads, perThread));
+        }
+    }
+
+    /**
+     * Books appointments from several threads into a journaled system.
+     *
+     * @param mode      How the journal makes entries durable
+     * @param threads   The number of booking threads
+     * @param perThread The number of bookings each thread makes
+     * @return The bookings acknowledged per second
+     * @throws Exception if the journal cannot be written
+     */
+    private static double run(Journal.SyncMode mode, int threads, int perThread) throws Exception {
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        try (Journal journal = Journal.open(directory, mode)) {
+            HospitalManagementSystem system = Fixtures.newSystem(journal);
+            Doctor[] doctors = new Doctor[threads];
+            Patient[] patients = new Patient[threads];
+            for (int i = 0; i < threads; i++) {
+                doctors[i] = Fixtures.doctor(system, "Doctor " + i, "General");
+                patients[i] = Fixtures.patient(system, "Patient " + i);
+            }
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                workers[i] = new Thread(() -> {
+                    for (int k = 0; k < perThread; k++) {
+                        String date = String.format("2030-%02d-%02d", 1 + k / (28 * 48) % 12, 1 + k / 48 % 28);
+                        system.bookAppointmentSilent(patients[thread], doctors[thread], date,
+                            Fixtures.time(k % 48 * 30));
+                    }
+                });
+            }
+            long begin = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            return threads * (double) perThread * 1e9 / (System.nanoTime() - begin);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     *
+     * @param directory The directory
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
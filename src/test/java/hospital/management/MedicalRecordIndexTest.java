@@ -0,0 +1,70 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for looking up medical records by patient, type and date.
+ */
+class MedicalRecordIndexTest {
+    private final Patient patient = new Patient("Ada", 36, "ada@example.com", "None", "Checkup");
+
+    /**
+     * A redated record moves to its new day in range lookups and keeps its
+     * place in the order records were added; a redate naming the wrong old
+     * date is ignored.
+     */
+    @Test
+    void redateRefilesTheRecord() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        OutpatientRecord january = new OutpatientRecord("Flu", "Rest", "2030-01-10");
+        OutpatientRecord february = new OutpatientRecord("Cold", "Tea", "2030-02-10");
+        OutpatientRecord undated = new OutpatientRecord("Sprain", "Ice", "soon");
+        index.add(patient, january);
+        index.add(patient, february);
+        index.add(patient, undated);
+        assertEquals(List.of(january), index.get(patient, MedicalRecord.class, "2030-01-01", "2030-01-31"));
+
+        january.setVisitDate("2030-03-01");
+        index.redate(patient, january, "2030-01-10");
+        assertTrue(index.get(patient, MedicalRecord.class, "2030-01-01", "2030-01-31").isEmpty());
+        assertEquals(List.of(january), index.get(patient, MedicalRecord.class, "2030-03-01", "2030-03-01"));
+        assertEquals(List.of(undated, february, january), index.get(patient, MedicalRecord.class, null, null));
+        assertEquals(List.of(february, january), index.get(patient, MedicalRecord.class, "2030-01-01", null));
+        assertEquals(List.of(january, february, undated), index.get(patient));
+
+        index.redate(patient, january, "2030-02-10");
+        assertEquals(List.of(undated, february, january), index.get(patient, MedicalRecord.class, null, null));
+    }
+
+    /**
+     * Changing the date of a record held by the system refiles it, and
+     * lookups filter by record type.
+     */
+    @Test
+    void systemRefilesRecordsWhenTheirDateChanges() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Patient ada = Fixtures.patient(system, "Ada");
+        InpatientRecord stay = new InpatientRecord("Pneumonia", "Antibiotics", 12, 5);
+        OutpatientRecord visit = new OutpatientRecord("Flu", "Rest", "2030-01-10");
+        system.addMedicalRecord(ada, stay, false);
+        system.addMedicalRecord(ada, visit, false);
+        stay.setRecordDate("2030-01-20");
+
+        assertEquals(List.of(visit, stay),
+            system.getPatientMedicalRecords(ada, MedicalRecord.class, "2030-01-01", "2030-01-31"));
+        assertEquals(List.of(stay),
+            system.getPatientMedicalRecords(ada, InpatientRecord.class, "2030-01-01", "2030-01-31"));
+
+        visit.setVisitDate("2030-02-05");
+        assertEquals(List.of(stay),
+            system.getPatientMedicalRecords(ada, MedicalRecord.class, "2030-01-01", "2030-01-31"));
+        assertEquals(List.of(visit),
+            system.getPatientMedicalRecords(ada, OutpatientRecord.class, "2030-02-01", "2030-02-28"));
+        assertEquals(List.of(stay, visit), system.getPatientMedicalRecords(ada));
+    }
+}
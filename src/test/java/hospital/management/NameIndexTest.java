@@ -0,0 +1,71 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the name index and the name lookups of the system.
+ */
+class NameIndexTest {
+    /**
+     * Persons sharing a name stay in ID order when one of them is renamed
+     * away and back, so the first match does not change.
+     */
+    @Test
+    void renameKeepsPersonsInIdOrder() {
+        NameIndex<Patient> index = new NameIndex<>();
+        Patient first = new Patient("Ada Lovelace", 36, "ada@example.com", "None", "Checkup");
+        Patient second = new Patient("Ada  Lovelace", 37, "ada2@example.com", "None", "Checkup");
+        index.add(second, second.getName());
+        index.add(first, first.getName());
+        assertEquals(List.of(first, second), index.findExact("ada lovelace"));
+
+        index.rename(first, "Ada Lovelace", "Ada King");
+        index.rename(first, "Ada King", "Ada Lovelace");
+        assertSame(first, index.findFirst("ADA LOVELACE"));
+        assertEquals(List.of(first, second), index.findByPrefix("ada", 0, 10));
+        assertEquals(List.of(second), index.findByPrefix("ada", 1, 10));
+    }
+
+    /**
+     * A person is indexed once under each name, whichever of adding and
+     * renaming is seen first, and only under the name a rename gives.
+     */
+    @Test
+    void racingAddAndRenameIndexOnce() {
+        NameIndex<Staff> index = new NameIndex<>();
+        Staff nurse = new Staff("Joy", 35, "joy@example.com", "Nurse", "Emergency");
+        // The rename is indexed before the registration reads the new name
+        index.rename(nurse, "Joy", "Joy Smith");
+        index.add(nurse, "Joy Smith");
+        assertEquals(List.of(nurse), index.findExact("Joy Smith"));
+        assertTrue(index.findExact("Joy").isEmpty());
+
+        index.rename(nurse, "Joy Smith", "Joy Jones");
+        assertNull(index.findFirst("Joy Smith"));
+        assertSame(nurse, index.findFirst("joy jones"));
+    }
+
+    /**
+     * Renaming a registered person moves them in the system's lookups.
+     */
+    @Test
+    void systemLookupsFollowRenames() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Patient first = Fixtures.patient(system, "Grace");
+        Patient second = Fixtures.patient(system, "Grace");
+
+        first.setName("Grace Hopper");
+        assertSame(second, system.findPatientByName("grace"));
+        assertSame(first, system.findPatientByName("Grace  Hopper"));
+        first.setName("Grace");
+        assertSame(first, system.findPatientByName("Grace"));
+        assertEquals(List.of(first, second), system.findPatientsByName("GRACE"));
+    }
+}
@@ -0,0 +1,131 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for moving a doctor's appointments to substitutes.
+ */
+class ReassignmentTest {
+    private final HospitalManagementSystem system = Fixtures.newSystem();
+    private final Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+    private final Doctor cameron = Fixtures.doctor(system, "Cameron", "Diagnostics");
+    private final Doctor foreman = Fixtures.doctor(system, "Foreman", "Diagnostics");
+    private final Patient other = Fixtures.patient(system, "Other");
+
+    /**
+     * Books House every half hour of 2030-01-01 from 08:00 to 17:30, one
+     * patient each, and gives Cameron and Foreman that morning only.
+     *
+     * @return House's appointments on that day, in time order
+     */
+    private List<Appointment> bookHouse() {
+        AvailabilityCalendar mornings = AvailabilityCalendar.empty().withShift("2030-01-01", "08:00", "12:00");
+        system.setDoctorCalendar(cameron, mornings);
+        system.setDoctorCalendar(foreman, mornings);
+        List<Appointment> booked = new ArrayList<>();
+        for (int slot = 0; slot < 20; slot++) {
+            Patient patient = Fixtures.patient(system, "Patient " + slot);
+            booked.add(system.bookAppointmentSilent(patient, house, "2030-01-01", Fixtures.time(8 * 60 + slot * 30)));
+        }
+        return booked;
+    }
+
+    /**
+     * Checks that no doctor has overlapping appointments and that every
+     * appointment is listed by its patient and its doctor.
+     */
+    private void assertConsistent() {
+        for (Doctor doctor : system.getDoctors()) {
+            List<Appointment> schedule = doctor.getAppointments();
+            for (int i = 0; i < schedule.size(); i++) {
+                for (int j = i + 1; j < schedule.size(); j++) {
+                    assertFalse(schedule.get(i).overlaps(schedule.get(j)), "Double booking of " + doctor.getName());
+                }
+            }
+        }
+        for (Appointment appointment : system.getAppointments()) {
+            assertTrue(appointment.getPatient().getAppointments().contains(appointment));
+            assertTrue(appointment.getDoctor().getAppointments().contains(appointment));
+        }
+    }
+
+    /**
+     * Appointments go to substitutes whose hours fit and whose slot is
+     * free, keeping their ID, time and patient; the rest stay with the
+     * doctor, as do appointments outside the date range.
+     */
+    @Test
+    void appointmentsMoveToFreeSubstitutes() {
+        List<Appointment> booked = bookHouse();
+        Appointment nextDay = system.bookAppointmentSilent(other, house, "2030-01-02", "09:00");
+        assertNotNull(system.bookAppointmentSilent(other, cameron, "2030-01-01", "09:00"));
+        assertNotNull(system.bookAppointmentSilent(other, foreman, "2030-01-01", "09:15"));
+        Fixtures.doctor(system, "Chase", "Diagnostics").setAvailability(false);
+        Fixtures.doctor(system, "Wilson", "Oncology");
+        int total = system.getAppointments().size();
+
+        ReassignmentReport report = system.reassignAppointments(house, "2030-01-01", "2030-01-01");
+
+        assertEquals(7, report.getMoved().size());
+        assertEquals(13, report.getUnplaced().size());
+        assertFalse(report.isComplete());
+        assertEquals(booked.get(2), report.getUnplaced().get(0));
+        for (Appointment moved : report.getMoved()) {
+            assertNotEquals(house, moved.getDoctor());
+            assertTrue(moved.getDoctor() == cameron || moved.getDoctor() == foreman);
+            Appointment original = booked.stream()
+                .filter(appointment -> appointment.getId() == moved.getId()).findFirst().get();
+            assertEquals(original.getStartMinute(), moved.getStartMinute());
+            assertSame(original.getPatient(), moved.getPatient());
+            assertEquals(List.of(moved), moved.getPatient().getAppointments());
+        }
+        assertEquals(14, house.getAppointments().size());
+        assertTrue(house.getAppointments().contains(nextDay));
+        assertEquals(total, system.getAppointments().size());
+        assertConsistent();
+    }
+
+    /**
+     * Bookings racing a reassignment for the substitutes' slots never
+     * double book anyone, and each appointment ends up either moved or
+     * still with the doctor.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void racingBookingsNeverDoubleBookSubstitutes() throws Exception {
+        List<Appointment> booked = bookHouse();
+        AtomicReference<ReassignmentReport> report = new AtomicReference<>();
+        AtomicInteger won = new AtomicInteger();
+        ConcurrentBookingTest.runInParallel(thread -> {
+            if (thread == 0) {
+                report.set(system.reassignAppointments(house, "2030-01-01", "2030-01-01"));
+                return;
+            }
+            Patient patient = Fixtures.patient(system, "Racer " + thread);
+            for (int minute = 8 * 60; minute < 12 * 60; minute += 15) {
+                Doctor doctor = (minute / 15 + thread) % 2 == 0 ? cameron : foreman;
+                if (system.tryBookAppointment(patient, doctor, "2030-01-01", Fixtures.time(minute)).isBooked()) {
+                    won.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(booked.size(), report.get().getMoved().size() + report.get().getUnplaced().size());
+        assertEquals(booked.size() - report.get().getMoved().size(), house.getAppointments().size());
+        assertEquals(booked.size() + won.get(), system.getAppointments().size());
+        assertConsistent();
+    }
+}
@@ -0,0 +1,115 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for exporting medical records and appointments.
+ */
+class RecordExporterTest {
+    @TempDir
+    Path directory;
+
+    private final HospitalManagementSystem system = Fixtures.newSystem();
+    private final Patient ada = Fixtures.patient(system, "Ada");
+    private final Patient alan = Fixtures.patient(system, "Alan");
+    private final RecordExporter exporter = new RecordExporter(system);
+
+    /**
+     * Reads the lines of an exported file.
+     *
+     * @param file The file
+     * @return The lines
+     * @throws IOException if the file cannot be read
+     */
+    private static List<String> lines(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Every record is exported as CSV in the order it was added, with a
+     * header, quoted fields where needed and empty inpatient columns for
+     * outpatient records.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void recordsExportAsCsv() throws IOException {
+        InpatientRecord stay = new InpatientRecord("Pneumonia, severe", "Say \"ah\"", 12, 5);
+        OutpatientRecord visit = new OutpatientRecord("Flu", "Rest", "2030-02-01");
+        OutpatientRecord cold = new OutpatientRecord("Cold", "Tea", "2030-03-01");
+        system.addMedicalRecord(ada, stay, false);
+        system.addMedicalRecord(ada, visit, false);
+        system.addMedicalRecord(alan, cold, false);
+        Path file = directory.resolve("records.csv");
+        Files.writeString(file, "left over from an earlier export\n".repeat(10));
+
+        assertEquals(3, exporter.exportMedicalRecords(file, DataFormat.CSV, ExportFilter.all()));
+        assertEquals(List.of(
+            "id,patientId,type,diagnosis,treatmentPlan,recordDate,roomNumber,durationOfStay",
+            stay.getId() + "," + ada.getId() + ",INPATIENT,\"Pneumonia, severe\",\"Say \"\"ah\"\"\","
+                + stay.getRecordDate() + ",12,5",
+            visit.getId() + "," + ada.getId() + ",OUTPATIENT,Flu,Rest,2030-02-01,,",
+            cold.getId() + "," + alan.getId() + ",OUTPATIENT,Cold,Tea,2030-03-01,,"), lines(file));
+    }
+
+    /**
+     * A filter selects one patient's records in a date range, written as
+     * JSON Lines with numbers unquoted and missing values as null.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void filteredRecordsExportAsJsonLines() throws IOException {
+        system.addMedicalRecord(ada, new OutpatientRecord("Checkup", "None", "2030-01-01"), false);
+        OutpatientRecord visit = new OutpatientRecord("Flu", "Rest", "2030-02-01");
+        system.addMedicalRecord(ada, visit, false);
+        system.addMedicalRecord(alan, new OutpatientRecord("Cold", "Tea", "2030-02-01"), false);
+        Path file = directory.resolve("records.jsonl");
+
+        ExportFilter filter = new ExportFilter(ada, "2030-01-15", "2030-02-28");
+        assertEquals(1, exporter.exportMedicalRecords(file, DataFormat.JSONL, filter));
+        assertEquals(List.of("{\"id\":" + visit.getId() + ",\"patientId\":" + ada.getId()
+            + ",\"type\":\"OUTPATIENT\",\"diagnosis\":\"Flu\",\"treatmentPlan\":\"Rest\","
+            + "\"recordDate\":\"2030-02-01\",\"roomNumber\":null,\"durationOfStay\":null}"), lines(file));
+    }
+
+    /**
+     * Appointments in the archive are exported before the live ones, and
+     * the date range applies to both.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    void appointmentsExportArchivedThenLive() throws IOException {
+        Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+        try (OffHeapAppointmentStore archive = new OffHeapAppointmentStore()) {
+            system.setAppointmentArchive(archive);
+            Appointment old = system.bookAppointmentSilent(ada, house, "2020-01-01", "09:00");
+            Appointment older = system.bookAppointmentSilent(alan, house, "2019-06-01", "09:00");
+            Appointment live = system.bookAppointmentSilent(alan, house, "2030-01-01", "14:30");
+            system.bookAppointmentSilent(ada, house, "2031-01-01", "09:00");
+            assertEquals(2, system.archiveAppointmentsBefore("2021-01-01"));
+            Path file = directory.resolve("appointments.csv");
+
+            ExportFilter filter = new ExportFilter(null, "2020-01-01", "2030-12-31");
+            assertEquals(2, exporter.exportAppointments(file, DataFormat.CSV, filter));
+            assertEquals(List.of("id,patientId,doctorId,date,time,durationMinutes",
+                old.getId() + "," + ada.getId() + "," + house.getId() + ",2020-01-01,09:00,30",
+                live.getId() + "," + alan.getId() + "," + house.getId() + ",2030-01-01,14:30,30"), lines(file));
+            assertEquals(1, exporter.exportAppointments(file, DataFormat.CSV,
+                new ExportFilter(alan, "2019-01-01", "2019-12-31")));
+            assertEquals(older.getId() + "," + alan.getId() + "," + house.getId() + ",2019-06-01,09:00,30",
+                lines(file).get(1));
+            system.setAppointmentArchive(null);
+        }
+    }
+}
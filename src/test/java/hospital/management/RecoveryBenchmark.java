@@ -0,0 +1,81 @@
+package hospital.management;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures cold start from a snapshot plus a short journal tail. Run with
+ * the number of patients and of appointments as arguments (default 100,000
+ * and 1,000,000; 1,000,000 and 10,000,000 needs a heap of about 8 GB):
+ * <pre>
+ * java -cp target/classes:target/test-classes hospital.management.RecoveryBenchmark 1000000 10000000
+ * </pre>
+ * The state is written to a temporary directory, which is left behind
+ * with its path printed so it can be recovered again.
+ */
+public class RecoveryBenchmark {
+    private static final int DOCTORS = 1000;
+    private static final int TAIL = 10_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of patients and of appointments, optionally
+     * @throws Exception if the snapshot or journal cannot be used
+     */
+    public static void main(String[] args) throws Exception {
+        int patientCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long appointmentCount = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        Path directory = Files.createTempDirectory("recovery-benchmark");
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < patientCount; i++) {
+            patients.add(new Patient("Patient " + i, 40, "p" + i + "@example.com", "None", "Checkup"));
+        }
+        system.registerPatients(Fixtures.STAFF, patients);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors.add(new Doctor("Doctor " + i, 50, "d" + i + "@example.com", "General", true));
+        }
+        system.registerDoctors(Fixtures.STAFF, doctors);
+        List<BookingRequest> batch = new ArrayList<>();
+        for (long n = 0; n < appointmentCount + TAIL; n++) {
+            if (n == appointmentCount) {
+                book(system, batch);
+                manager.snapshot(system);
+            }
+            long perDoctor = n / DOCTORS;
+            batch.add(new BookingRequest(patients.get((int) (n % patientCount)), doctors.get((int) (n % DOCTORS)),
+                LocalDate.of(2030, 1, 1).plusDays(perDoctor / 48).toString(),
+                Fixtures.time((int) (perDoctor % 48) * 30), 30));
+            if (batch.size() == 10_000) {
+                book(system, batch);
+            }
+        }
+        book(system, batch);
+        system.getJournal().close();
+
+        long begin = System.nanoTime();
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("Recovered %d appointments and %d patients in %d ms from %s%n",
+            recovered.getAppointments().size(), patientCount, elapsed / 1_000_000, directory);
+        recovered.getJournal().close();
+    }
+
+    /**
+     * Books a batch of requests and empties it.
+     *
+     * @param system The system to book in
+     * @param batch  The requests
+     */
+    private static void book(HospitalManagementSystem system, List<BookingRequest> batch) {
+        system.bookAppointments(batch, false);
+        batch.clear();
+    }
+}
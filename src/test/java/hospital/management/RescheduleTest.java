@@ -0,0 +1,70 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for moving booked appointments to another time.
+ */
+class RescheduleTest {
+    private final HospitalManagementSystem system = Fixtures.newSystem();
+    private final Patient ada = Fixtures.patient(system, "Ada");
+    private final Patient alan = Fixtures.patient(system, "Alan");
+    private final Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+
+    /**
+     * A moved appointment keeps its ID and patient, replaces the old one in
+     * place in every list, may overlap its own old time and frees the
+     * minutes it no longer uses; the object passed in is unchanged.
+     */
+    @Test
+    void movedAppointmentReplacesTheOldOneEverywhere() {
+        Appointment first = system.bookAppointmentSilent(ada, house, "2030-01-01", "10:00 AM");
+        Appointment second = system.bookAppointmentSilent(ada, house, "2030-01-01", "14:00");
+
+        Appointment moved = system.rescheduleAppointment(first, "2030-01-01", "10:15am", 60);
+
+        assertNotNull(moved);
+        assertEquals(first.getId(), moved.getId());
+        assertEquals(ada, moved.getPatient());
+        assertEquals(Appointment.toEpochMinute("2030-01-01", "10:15"), moved.getStartMinute());
+        assertEquals(60, moved.getDurationMinutes());
+        assertEquals(Appointment.toEpochMinute("2030-01-01", "10:00"), first.getStartMinute());
+        assertEquals(List.of(moved, second), ada.getAppointments());
+        assertEquals(List.of(moved, second), house.getAppointments());
+        assertEquals(List.of(moved, second), system.getAppointments());
+        assertNotNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "09:45"));
+        assertNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "11:00"));
+        assertNotNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "11:15"));
+    }
+
+    /**
+     * A move to a taken, unreadable or off-hours time, or of an appointment
+     * that is no longer booked, fails and leaves the booking as it was.
+     */
+    @Test
+    void failedMovesLeaveTheBookingAsItWas() {
+        system.setDoctorCalendar(house, AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, "09:00", "17:00"));
+        Appointment booked = system.bookAppointmentSilent(ada, house, "2030-01-01", "10:00");
+        assertNotNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "11:00"));
+
+        assertNull(system.rescheduleAppointment(booked, "2030-01-01", "10:45", 30));
+        assertNull(system.rescheduleAppointment(booked, "2030-01-01", "half past ten", 30));
+        assertNull(system.rescheduleAppointment(booked, "2030-01-01", "16:45", 30));
+        assertNull(system.rescheduleAppointment(booked, "2030-01-05", "10:00", 30));
+        assertEquals(List.of(booked), ada.getAppointments());
+        assertNull(system.bookAppointmentSilent(alan, house, "2030-01-01", "10:15"));
+
+        Appointment moved = system.rescheduleAppointment(booked, "2030-01-02", "10:00", 30);
+        assertNotNull(moved);
+        assertNull(system.rescheduleAppointment(booked, "2030-01-03", "10:00", 30));
+        assertEquals(List.of(moved), ada.getAppointments());
+    }
+}
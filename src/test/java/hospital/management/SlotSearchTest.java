@@ -0,0 +1,100 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for finding the earliest free slots of a specialization.
+ */
+class SlotSearchTest {
+    private final HospitalManagementSystem system = Fixtures.newSystem();
+    private final Patient patient = Fixtures.patient(system, "Ada");
+    private final Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+    private final Doctor cameron = Fixtures.doctor(system, "Cameron", "Diagnostics");
+
+    /**
+     * Gives House weekday mornings with Wednesday 2030-01-02 off, and
+     * Cameron a single half hour on Tuesday 2030-01-01.
+     */
+    private void setCalendars() {
+        system.setDoctorCalendar(house, AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, "09:00", "12:00")
+            .withDayOff("2030-01-02"));
+        system.setDoctorCalendar(cameron, AvailabilityCalendar.empty()
+            .withShift("2030-01-01", "10:15", "10:45"));
+    }
+
+    /**
+     * Describes slots as doctor, date and time.
+     *
+     * @param slots The slots
+     * @return One description per slot, in order
+     */
+    private static List<String> describe(List<FreeSlot> slots) {
+        List<String> described = new ArrayList<>();
+        for (FreeSlot slot : slots) {
+            described.add(slot.getDoctor().getName() + " " + slot.getDate() + " " + slot.getTime());
+        }
+        return described;
+    }
+
+    /**
+     * Slots come in order of start time and then doctor ID, start on the
+     * 15-minute grid after booked minutes, do not overlap for one doctor,
+     * and leave out unavailable doctors and other specializations.
+     */
+    @Test
+    void slotsAreOrderedByTimeThenDoctor() {
+        setCalendars();
+        Doctor chase = Fixtures.doctor(system, "Chase", "Diagnostics");
+        chase.setAvailability(false);
+        Fixtures.doctor(system, "Wilson", "Oncology");
+        assertNotNull(system.bookAppointmentSilent(patient, house, "2030-01-01", "09:45"));
+
+        List<FreeSlot> slots = system.findEarliestSlots("  diagnostics ", "2030-01-01", 30, 5);
+
+        assertEquals(List.of("House 2030-01-01 09:00", "House 2030-01-01 10:15", "Cameron 2030-01-01 10:15",
+            "House 2030-01-01 10:45", "House 2030-01-01 11:15"), describe(slots));
+    }
+
+    /**
+     * The search skips days off, weekends and days whose free time is too
+     * short, and a found slot can be booked.
+     */
+    @Test
+    void searchSkipsDaysWithoutRoom() {
+        setCalendars();
+        assertNotNull(system.bookAppointmentSilent(patient, house, "2030-01-01", "09:00"));
+
+        assertEquals(List.of("House 2030-01-03 09:00"),
+            describe(system.findEarliestSlots("Diagnostics", "2030-01-02", 30, 1)));
+        assertEquals(List.of("House 2030-01-07 09:00"),
+            describe(system.findEarliestSlots("Diagnostics", "2030-01-05", 30, 1)));
+        FreeSlot longest = system.findEarliestSlot("Diagnostics", "2030-01-01", 180);
+        assertEquals("House 2030-01-03 09:00", describe(List.of(longest)).get(0));
+        BookingResult[] results = system.bookAppointments(List.of(longest.toBookingRequest(patient)), true);
+        assertTrue(results[0].isBooked());
+        assertEquals("House 2030-01-04 09:00",
+            describe(List.of(system.findEarliestSlot("Diagnostics", "2030-01-03", 180))).get(0));
+    }
+
+    /**
+     * A specialization no available doctor has gives no slot, and bad
+     * arguments are rejected.
+     */
+    @Test
+    void noDoctorMeansNoSlot() {
+        assertNull(system.findEarliestSlot("Surgery", "2030-01-01", 30));
+        assertThrows(IllegalArgumentException.class, () -> system.findEarliestSlots("Diagnostics", "2030-01-01", 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> system.findEarliestSlots("Diagnostics", "2030-13-01", 30, 1));
+    }
+}
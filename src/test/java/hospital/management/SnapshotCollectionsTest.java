@@ -0,0 +1,115 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the collections that hand out read-only snapshots.
+ */
+class SnapshotCollectionsTest {
+    /**
+     * Snapshots of an append-only list are read-only and keep their size
+     * while the list grows past its capacity.
+     */
+    @Test
+    void snapshotListIsUnaffectedByLaterAdditions() {
+        SnapshotList<Integer> list = new SnapshotList<>();
+        for (int i = 0; i < 3; i++) {
+            list.add(i);
+        }
+        List<Integer> before = list.snapshot();
+        for (int i = 3; i < 1000; i++) {
+            list.add(i);
+        }
+
+        assertEquals(List.of(0, 1, 2), before);
+        assertEquals(1000, list.snapshot().size());
+        assertEquals(999, list.snapshot().get(999));
+        assertThrows(UnsupportedOperationException.class, () -> before.add(3));
+    }
+
+    /**
+     * A snapshot of a changeable list is shared until the next change and
+     * is not affected by it.
+     */
+    @Test
+    void snapshotArrayListCopiesOncePerChange() {
+        SnapshotArrayList<String> list = new SnapshotArrayList<>();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        List<String> before = list.snapshot();
+        assertSame(before, list.snapshot());
+
+        assertTrue(list.remove("b"));
+        assertTrue(list.replace("c", "d"));
+        assertTrue(list.removeIf("a"::equals));
+        assertEquals(List.of("a", "b", "c"), before);
+        assertEquals(List.of("d"), list.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> list.snapshot().clear());
+    }
+
+    /**
+     * Random changes made through several stripes give snapshots in ID
+     * order that match a sorted map, old snapshots stay unchanged, and a
+     * remove only removes the exact version it names.
+     */
+    @Test
+    void snapshotSetMatchesASortedMap() {
+        ReentrantLock[] locks = new ReentrantLock[4];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        SnapshotSet<long[]> set = new SnapshotSet<>(locks, item -> item[0]);
+        TreeMap<Long, long[]> expected = new TreeMap<>();
+        Random random = new Random(42);
+        List<long[]> previous = set.snapshot();
+        List<long[]> previousExpected = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(2000);
+            int stripe = (int) (id % locks.length);
+            long[] current = expected.get(id);
+            locks[stripe].lock();
+            try {
+                if (current != null) {
+                    set.remove(stripe, current);
+                    expected.remove(id);
+                }
+                if (current == null || random.nextBoolean()) {
+                    long[] item = {id, step};
+                    set.add(stripe, item);
+                    expected.put(id, item);
+                }
+            } finally {
+                locks[stripe].unlock();
+            }
+            set.drainIfFull(stripe);
+            if (step % 1000 == 999) {
+                assertEquals(previousExpected, previous);
+                previous = set.snapshot();
+                previousExpected = new ArrayList<>(expected.values());
+                assertEquals(previousExpected, previous);
+            }
+        }
+
+        long[] stale = {expected.firstKey(), -1};
+        int stripe = (int) (stale[0] % locks.length);
+        locks[stripe].lock();
+        try {
+            set.remove(stripe, stale);
+        } finally {
+            locks[stripe].unlock();
+        }
+        assertEquals(new ArrayList<>(expected.values()), set.snapshot());
+    }
+}
@@ -0,0 +1,278 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Round trips through snapshots and the journal tail written after them.
+ */
+class SnapshotManagerTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Changes made before and after a snapshot are all restored, including
+     * cancellations in the tail of appointments saved in the snapshot.
+     *
+     * @throws IOException if the snapshot or journal cannot be used
+     */
+    @Test
+    void snapshotAndJournalTailRestoreEveryChange() throws IOException {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Doctor onCall = Fixtures.doctor(system, "Wilson", "Oncology");
+        system.setDoctorCalendar(doctor, AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, "08:00", "18:00"));
+        for (int hour = 8; hour < 12; hour++) {
+            system.bookAppointmentSilent(patient, doctor, "2030-01-07", Fixtures.time(hour * 60));
+        }
+        system.addMedicalRecord(patient, new OutpatientRecord("Flu", "Rest", "2030-01-01"), false);
+        manager.snapshot(system);
+
+        assertTrue(system.cancelAppointment(patient, 0));
+        system.bookAppointmentSilent(patient, doctor, "2030-01-07", "14:00");
+        assertTrue(system.updatePatientDiagnosis(onCall, patient, "Lupus"));
+        Patient late = Fixtures.patient(system, "Late");
+        Map<Long, Long> expected = startsById(system.getAppointments());
+        system.getJournal().close();
+
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(expected, startsById(recovered.getAppointments()));
+        Patient restored = recovered.findPatientById(patient.getId());
+        assertEquals("Lupus", restored.getDiagnosis());
+        assertEquals(1, restored.getMedicalRecords().size());
+        assertNotNull(recovered.findPatientById(late.getId()));
+        assertNotNull(recovered.findDoctorById(doctor.getId()).getCalendar());
+        assertNotNull(recovered.findStaffById(Fixtures.STAFF.getId()));
+        recovered.getJournal().close();
+
+        HospitalManagementSystem again = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(expected, startsById(again.getAppointments()));
+        again.getJournal().close();
+    }
+
+    /**
+     * Bookings acknowledged while a snapshot is being written are restored,
+     * whether they ended up in the snapshot or in the journal tail.
+     *
+     * @throws Exception if the snapshot, journal or booking thread fails
+     */
+    @Test
+    void bookingsDuringASnapshotAreKept() throws Exception {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Patient patient = Fixtures.patient(system, "Ada");
+        Doctor[] doctors = new Doctor[8];
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = Fixtures.doctor(system, "Doctor " + i, "General");
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread booking = new Thread(() -> {
+            for (int day = 1; day <= 28 && !done.get(); day++) {
+                for (int slot = 0; slot < 48; slot++) {
+                    system.bookAppointmentSilent(patient, doctors[slot % doctors.length],
+                        String.format("2030-02-%02d", day), Fixtures.time(slot * 30));
+                }
+            }
+        });
+        booking.start();
+        for (int i = 0; i < 3; i++) {
+            manager.snapshot(system);
+        }
+        done.set(true);
+        booking.join();
+        Map<Long, Long> expected = startsById(system.getAppointments());
+        system.getJournal().close();
+
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(expected, startsById(recovered.getAppointments()));
+        recovered.getJournal().close();
+    }
+
+    /**
+     * A snapshot started between a change's journal append and its apply
+     * waits for the apply. Otherwise it would cover the entry, delete the
+     * segment holding it and save state without the change.
+     *
+     * @throws Exception if the snapshot, journal or snapshot thread fails
+     */
+    @Test
+    void snapshotWaitsForAJournaledChangeToBeApplied() throws Exception {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Patient patient = Fixtures.patient(system, "Ada");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread snapshot = new Thread(() -> {
+            try {
+                manager.snapshot(system);
+            } catch (IOException | RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        MedicalRecord record = new OutpatientRecord("Flu", "Rest", "2030-01-01") {
+            @Override
+            void setChangeListener(MedicalRecordChangeListener listener) {
+                // Called while the record is applied, after its entry was appended
+                snapshot.start();
+                try {
+                    snapshot.join(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.setChangeListener(listener);
+            }
+        };
+
+        assertTrue(system.addMedicalRecord(patient, record, false));
+        snapshot.join();
+        assertNull(failure.get());
+        system.getJournal().close();
+
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(1, recovered.findPatientById(patient.getId()).getMedicalRecords().size());
+        recovered.getJournal().close();
+    }
+
+    /**
+     * Registrations, diagnoses, medical records and calendars acknowledged
+     * while snapshots are taken over and over are all restored.
+     *
+     * @throws Exception if the snapshot, journal or a changing thread fails
+     */
+    @Test
+    void changesRacingSnapshotsAreKept() throws Exception {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        AvailabilityCalendar calendar = AvailabilityCalendar.empty()
+            .withWeeklyShift(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, "08:00", "18:00");
+        int threads = 4;
+        int changes = 150;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] writers = new Thread[threads];
+        Patient[][] registered = new Patient[threads][changes];
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < changes; i++) {
+                    Patient patient = Fixtures.patient(system, "Patient " + writer + "-" + i);
+                    registered[writer][i] = patient;
+                    system.updatePatientDiagnosis(doctor, patient, "Diagnosis " + i);
+                    system.addMedicalRecord(patient, new OutpatientRecord("Flu", "Rest", "2030-01-01"), false);
+                    if (writer == 0) {
+                        Doctor other = Fixtures.doctor(system, "Doctor " + i, "General");
+                        system.setDoctorCalendar(other, calendar);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        Thread snapshots = new Thread(() -> {
+            while (!done.get()) {
+                try {
+                    manager.snapshot(system);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        snapshots.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        snapshots.join();
+        system.getJournal().close();
+
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < changes; i++) {
+                Patient restored = recovered.findPatientById(registered[t][i].getId());
+                assertNotNull(restored);
+                assertEquals("Diagnosis " + i, restored.getDiagnosis());
+                assertEquals(1, restored.getMedicalRecords().size());
+            }
+        }
+        assertEquals(changes, recovered.findDoctorsBySpecialization("General").stream()
+            .filter(other -> other.getCalendar() != null).count());
+        recovered.getJournal().close();
+    }
+
+    /**
+     * A snapshot of a recovered system leaves people who were never looked
+     * up in the registry file, yet the next recovery still has everyone,
+     * with changes to the people that were loaded.
+     *
+     * @throws IOException if the snapshot or journal cannot be used
+     */
+    @Test
+    void snapshotOfARecoveredSystemLoadsNoOne() throws IOException {
+        SnapshotManager manager = new SnapshotManager(directory);
+        HospitalManagementSystem system = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        system.registerStaff(Fixtures.STAFF, false);
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Patient[] patients = new Patient[200];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = Fixtures.patient(system, "Patient " + i);
+        }
+        manager.snapshot(system);
+        system.getJournal().close();
+
+        HospitalManagementSystem recovered = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertTrue(recovered.getLoadedPatients().isEmpty());
+        Patient changed = recovered.findPatientById(patients[7].getId());
+        Doctor restoredDoctor = recovered.findDoctorById(doctor.getId());
+        assertTrue(recovered.updatePatientDiagnosis(restoredDoctor, changed, "Lupus"));
+        Patient late = new Patient("Late", 40, "late@example.com", "None", "Checkup");
+        assertTrue(recovered.registerPatient(recovered.findStaffById(Fixtures.STAFF.getId()), late, false));
+        manager.snapshot(recovered);
+        assertEquals(List.of(changed, late), recovered.getLoadedPatients());
+        recovered.getJournal().close();
+        for (Path segment : Journal.listSegments(directory)) {
+            Files.delete(segment);
+        }
+
+        HospitalManagementSystem again = manager.recover(Journal.SyncMode.GROUP_COMMIT);
+        assertEquals(patients.length + 1, again.getPatients().size());
+        assertEquals("Lupus", again.findPatientById(patients[7].getId()).getDiagnosis());
+        assertEquals("Patient 150", again.findPatientById(patients[150].getId()).getName());
+        assertNotNull(again.findPatientById(late.getId()));
+        again.getJournal().close();
+    }
+
+    /**
+     * Maps appointments by ID to their start minute.
+     *
+     * @param appointments The appointments
+     * @return The start minute of each appointment, by ID
+     */
+    private static Map<Long, Long> startsById(List<Appointment> appointments) {
+        Map<Long, Long> starts = new TreeMap<>();
+        for (Appointment appointment : appointments) {
+            starts.put(appointment.getId(), appointment.getStartMinute());
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,90 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for keeping the specialization index up to date as doctors change.
+ */
+class SpecializationIndexTest {
+    /**
+     * Changing a registered doctor's specialization or availability moves
+     * them between the lookups, which stay in ID order.
+     */
+    @Test
+    void lookupsFollowSpecializationAndAvailability() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor house = Fixtures.doctor(system, "House", "Diagnostics");
+        Doctor cameron = Fixtures.doctor(system, "Cameron", "Diagnostics");
+        Doctor wilson = Fixtures.doctor(system, "Wilson", "Oncology");
+        assertEquals(List.of(house, cameron), system.findDoctorsBySpecialization("diagnostics"));
+
+        house.setSpecialization("  ONCOLOGY");
+        assertEquals(List.of(cameron), system.findDoctorsBySpecialization("Diagnostics"));
+        assertEquals(List.of(house, wilson), system.findDoctorsBySpecialization("Oncology"));
+        assertEquals(List.of(house, wilson), system.getAvailableDoctors("oncology"));
+
+        wilson.setAvailability(false);
+        assertEquals(List.of(house), system.getAvailableDoctors("Oncology"));
+        assertEquals(List.of(house, wilson), system.findDoctorsBySpecialization("Oncology"));
+        wilson.setAvailability(true);
+        assertEquals(List.of(house, wilson), system.getAvailableDoctors("Oncology"));
+
+        cameron.setSpecialization("Surgery");
+        assertTrue(system.findDoctorsBySpecialization("Diagnostics").isEmpty());
+        assertEquals(List.of(cameron), system.getAvailableDoctors("Surgery"));
+    }
+
+    /**
+     * A doctor who is not registered is not indexed when they change.
+     */
+    @Test
+    void unregisteredDoctorsAreNotIndexed() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor stranger = new Doctor("Stranger", 50, "stranger@example.com", "Surgery", false);
+        stranger.setAvailability(true);
+        stranger.setSpecialization("Cardiology");
+        assertTrue(system.findDoctorsBySpecialization("Cardiology").isEmpty());
+        assertTrue(system.getAvailableDoctors("Surgery").isEmpty());
+    }
+
+    /**
+     * Threads changing doctors' specializations and availability at once
+     * leave the index matching a scan of every doctor.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void concurrentChangesLeaveTheIndexConsistent() throws Exception {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        String[] specializations = {"Cardiology", "Neurology", "Oncology"};
+        Doctor[] doctors = new Doctor[32];
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = Fixtures.doctor(system, "Doctor " + i, specializations[i % 3]);
+        }
+        ConcurrentBookingTest.runInParallel(thread -> {
+            for (int round = 0; round < 500; round++) {
+                Doctor doctor = doctors[(thread * 7 + round) % doctors.length];
+                if (round % 2 == 0) {
+                    doctor.setSpecialization(specializations[(thread + round) % 3]);
+                } else {
+                    doctor.setAvailability(!doctor.isAvailable());
+                }
+            }
+        });
+
+        for (String specialization : specializations) {
+            List<Doctor> all = system.getDoctors().stream()
+                .filter(doctor -> doctor.getSpecialization().equals(specialization))
+                .collect(Collectors.toList());
+            assertEquals(all, system.findDoctorsBySpecialization(specialization));
+            assertEquals(all.stream().filter(Doctor::isAvailable).collect(Collectors.toList()),
+                system.getAvailableDoctors(specialization));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package hospital.management;
+
+/**
+ * Measures the heap used by dictionary-encoded fields against the String
+ * copies the same fields held before. Run with the number of patients and
+ * of doctors as arguments (default 1,000,000 and 50,000; the default needs
+ * a heap of about 1 GB):
+ * <pre>
+ * java -Xmx1g -cp target/classes:target/test-classes hospital.management.StringDictionaryMemoryBenchmark
+ * </pre>
+ * Every value is a fresh String, as if read from input, drawn from a small
+ * set. Doctors and as many staff members are created with encoded
+ * specializations, roles and departments; patients keep their diagnosis
+ * as a String. The benchmark then keeps a String copy of every encoded
+ * value, which is what the fields referred to before, and prints the heap
+ * used by the people and by the copies.
+ */
+public class StringDictionaryMemoryBenchmark {
+    private static final String[] SPECIALIZATIONS = values("Specialization", 40);
+    private static final String[] ROLES = values("Role", 30);
+    private static final String[] DEPARTMENTS = values("Department", 20);
+    private static final String[] DIAGNOSES = values("Diagnosis", 200);
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of patients and of doctors, optionally
+     */
+    public static void main(String[] args) {
+        int patientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int doctorCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        long before = usedHeap();
+        Patient[] patients = new Patient[patientCount];
+        for (int i = 0; i < patientCount; i++) {
+            patients[i] = new Patient("Patient " + i, 40, "p" + i + "@example.com", "None",
+                fresh(DIAGNOSES, i));
+        }
+        long patientBytes = usedHeap() - before;
+        before = usedHeap();
+        Doctor[] doctors = new Doctor[doctorCount];
+        Staff[] staff = new Staff[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctors[i] = new Doctor("Doctor " + i, 50, "d" + i + "@example.com", fresh(SPECIALIZATIONS, i), true);
+            staff[i] = new Staff("Staff " + i, 30, "s" + i + "@example.com", fresh(ROLES, i), fresh(DEPARTMENTS, i));
+        }
+        long encodedBytes = usedHeap() - before;
+        before = usedHeap();
+        String[][] copies = new String[3][doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            copies[0][i] = fresh(SPECIALIZATIONS, i);
+            copies[1][i] = fresh(ROLES, i);
+            copies[2][i] = fresh(DEPARTMENTS, i);
+        }
+        long copyBytes = usedHeap() - before;
+
+        System.out.printf("%d patients with String diagnoses: %d MB (%d bytes each)%n",
+            patientCount, patientBytes >> 20, patientBytes / patientCount);
+        System.out.printf("%d doctors and %d staff, encoded: %d MB%n",
+            doctorCount, doctorCount, encodedBytes >> 20);
+        System.out.printf("String copies the encoded fields replace: %d MB (%d bytes per person)%n",
+            copyBytes >> 20, copyBytes / (2L * doctorCount));
+        System.out.printf("Dictionary size: %d values%n", StringDictionary.SHARED.size());
+        // Keep everything reachable until it has been measured
+        System.out.println(patients.length + doctors.length + staff.length + copies.length > 0 ? "" : "-");
+    }
+
+    /**
+     * Builds a set of distinct values.
+     *
+     * @param prefix The common prefix of the values
+     * @param count  The number of values
+     * @return The values
+     */
+    private static String[] values(String prefix, int count) {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = prefix + " " + i;
+        }
+        return values;
+    }
+
+    /**
+     * Makes a new String equal to one of a set of values, as parsing input would.
+     *
+     * @param values The values
+     * @param i      The number of the person the value is for
+     * @return A new String equal to a value
+     */
+    private static String fresh(String[] values, int i) {
+        return new String(values[i % values.length].toCharArray());
+    }
+
+    /**
+     * Measures the heap in use after collecting garbage.
+     *
+     * @return The bytes in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
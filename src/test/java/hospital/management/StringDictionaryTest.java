@@ -0,0 +1,97 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the string dictionary and the lookups that compare its codes.
+ */
+class StringDictionaryTest {
+    /**
+     * Equal strings get one code, null is code 0 and an unknown string has
+     * no code until it is added.
+     */
+    @Test
+    void equalStringsShareOneCode() {
+        StringDictionary dictionary = new StringDictionary();
+        int code = dictionary.encode("Cardiology");
+        assertEquals(code, dictionary.encode(new String("Cardiology")));
+        assertNotEquals(code, dictionary.encode("Oncology"));
+        assertEquals(StringDictionary.NULL_CODE, dictionary.encode(null));
+        assertNull(dictionary.decode(StringDictionary.NULL_CODE));
+        assertEquals("Cardiology", dictionary.decode(code));
+        assertEquals(-1, dictionary.find("Neurology"));
+        assertEquals(code, dictionary.find("Cardiology"));
+        assertEquals(2, dictionary.size());
+    }
+
+    /**
+     * Threads adding the same strings at once get the same codes, and
+     * every code decodes to its string.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    void concurrentEncodingAssignsOneCodePerString() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        Set<Integer> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        int code = dictionary.encode("value-" + i);
+                        assertEquals("value-" + i, dictionary.decode(code));
+                        codes.add(code);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1000, codes.size());
+        assertEquals(1000, dictionary.size());
+    }
+
+    /**
+     * Staff lookups match exactly through the shared dictionary, doctor
+     * specializations ignore case and extra whitespace in both lookups, and
+     * a value the dictionary has never seen matches no one.
+     */
+    @Test
+    void lookupsCompareSharedCodes() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Staff nurse = new Staff("Joy", 35, "joy@example.com", "Nurse", "Emergency");
+        system.registerStaff(nurse, false);
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+
+        assertEquals(List.of(nurse), system.findStaffMembersByRole("Nurse"));
+        assertEquals(List.of(nurse), system.findStaffMembersByDepartment("Emergency"));
+        assertTrue(system.findStaffMembersByRole("nurse").isEmpty());
+        assertTrue(system.findStaffMembersByRole("Role never used " + System.nanoTime()).isEmpty());
+        assertTrue(doctor.hasSpecialization("Diagnostics"));
+        assertTrue(doctor.hasSpecialization("  DIAGNOSTICS "));
+        assertEquals(List.of(doctor), system.findDoctorsBySpecialization("  DIAGNOSTICS "));
+        assertFalse(doctor.hasSpecialization("Surgery " + System.nanoTime()));
+        nurse.setRole("Charge Nurse");
+        assertTrue(nurse.hasRole("Charge Nurse"));
+        assertTrue(system.findStaffMembersByRole("Nurse").isEmpty());
+    }
+}
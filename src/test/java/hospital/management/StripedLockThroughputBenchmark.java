@@ -0,0 +1,90 @@
+package hospital.management;
+
+import java.time.LocalDate;
+
+/**
+ * Measures booking throughput by number of threads, each booking for
+ * doctors of their own, with the system's per-doctor lock striping against
+ * every call serialized behind one global lock, as a deployment had to do
+ * before. Run with the number of bookings per thread as the only argument
+ * (default 50,000):
+ * <pre>
+ * java -cp target/classes:target/test-classes hospital.management.StripedLockThroughputBenchmark 50000
+ * </pre>
+ * Thread counts go from 1 up to twice the number of available cores. No
+ * journal is used, so the numbers show the locking alone.
+ */
+public class StripedLockThroughputBenchmark {
+    private static final int DOCTORS_PER_THREAD = 8;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2030, 1, 1);
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of bookings per thread, optionally
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d core(s)%n%8s %16s %16s%n", cores, "threads", "striped/s", "global lock/s");
+        for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+            run(threads, perThread, false);
+            run(threads, perThread, true);
+            System.out.printf("%8d %16.0f %16.0f%n", threads,
+                run(threads, perThread, false), run(threads, perThread, true));
+        }
+    }
+
+    /**
+     * Books appointments from several threads into a fresh system.
+     *
+     * @param threadCount The number of booking threads
+     * @param perThread   The number of bookings each thread makes
+     * @param global      True to serialize every booking behind one lock
+     * @return The bookings made per second
+     * @throws InterruptedException if interrupted while waiting for the threads
+     * @throws IllegalStateException if a booking fails
+     */
+    private static double run(int threadCount, int perThread, boolean global) throws InterruptedException {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Object globalLock = new Object();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            Doctor[] doctors = new Doctor[DOCTORS_PER_THREAD];
+            for (int d = 0; d < DOCTORS_PER_THREAD; d++) {
+                doctors[d] = Fixtures.doctor(system, "Doctor " + t + "-" + d, "General");
+            }
+            Patient patient = Fixtures.patient(system, "Patient " + t);
+            threads[t] = new Thread(() -> {
+                for (int k = 0; k < perThread; k++) {
+                    int slot = k / DOCTORS_PER_THREAD;
+                    String date = FIRST_DATE.plusDays(slot / 48).toString();
+                    String time = Fixtures.time(slot % 48 * 30);
+                    Appointment appointment;
+                    if (global) {
+                        synchronized (globalLock) {
+                            appointment = system.bookAppointmentSilent(patient, doctors[k % DOCTORS_PER_THREAD],
+                                date, time);
+                        }
+                    } else {
+                        appointment = system.bookAppointmentSilent(patient, doctors[k % DOCTORS_PER_THREAD],
+                            date, time);
+                    }
+                    if (appointment == null) {
+                        throw new IllegalStateException("Booking failed on " + date + " at " + time);
+                    }
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        return (double) threadCount * perThread * 1_000_000_000L / elapsed;
+    }
+}
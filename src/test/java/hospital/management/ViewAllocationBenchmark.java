@@ -0,0 +1,132 @@
+package hospital.management;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures the bytes allocated per call by the read-only views the system
+ * and patients hand out, against copying the same lists into a new
+ * ArrayList as the getters did before. Run with the number of patients as
+ * the only argument (default 100,000):
+ * <pre>
+ * java -cp target/classes:target/test-classes hospital.management.ViewAllocationBenchmark 1000000
+ * </pre>
+ * Every patient has one appointment and one medical record. Each getter
+ * is called repeatedly with nothing changing in between, which is how the
+ * menu pickers use them, and once more with a booking before every call.
+ */
+public class ViewAllocationBenchmark {
+    private static final int DOCTORS = 1000;
+    private static final int CALLS = 1000;
+    /** Sizes of the lists returned, kept so the calls are not optimized away. */
+    private static volatile long sink;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of patients, optionally
+     */
+    public static void main(String[] args) {
+        int patientCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        HospitalManagementSystem system = Fixtures.newSystem();
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors.add(Fixtures.doctor(system, "Doctor " + i, "General"));
+        }
+        List<BookingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < patientCount; i++) {
+            Patient patient = Fixtures.patient(system, "Patient " + i);
+            system.addMedicalRecord(patient, new OutpatientRecord("Flu", "Rest", "2030-01-01"), false);
+            requests.add(request(patient, doctors, i));
+        }
+        system.bookAppointments(requests, false);
+        Patient patient = system.getPatients().get(0);
+
+        System.out.printf("%-34s %14s %14s%n", "bytes per call", "view", "ArrayList copy");
+        report("getPatients", system::getPatients);
+        report("getDoctors", system::getDoctors);
+        report("getAppointments", system::getAppointments);
+        report("getMedicalRecords", system::getMedicalRecords);
+        report("Patient.getMedicalRecords", patient::getMedicalRecords);
+        int[] booked = {patientCount};
+        List<Patient> patients = system.getPatients();
+        report("getAppointments after a booking", () -> {
+            int n = booked[0]++;
+            system.bookAppointmentSilent(patients.get(n % patientCount), doctors.get(n % DOCTORS),
+                date(n), time(n));
+            return system.getAppointments();
+        });
+    }
+
+    /**
+     * Prints the bytes allocated per call by a getter, and per call by the
+     * getter followed by a copy of its result.
+     *
+     * @param name   The name of the getter
+     * @param getter The getter
+     */
+    private static void report(String name, Supplier<List<?>> getter) {
+        long view = 0;
+        long copy = 0;
+        for (int round = 0; round < 2; round++) {
+            view = allocatedPerCall(getter);
+            copy = allocatedPerCall(() -> new ArrayList<>(getter.get()));
+        }
+        System.out.printf("%-34s %14d %14d%n", name, view, copy);
+    }
+
+    /**
+     * Measures the bytes the current thread allocates per call of an action.
+     *
+     * @param action The action
+     * @return The mean bytes allocated per call
+     */
+    private static long allocatedPerCall(Supplier<List<?>> action) {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        long sizes = 0;
+        for (int i = 0; i < CALLS; i++) {
+            sizes += action.get().size();
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        sink = sizes;
+        return allocated / CALLS;
+    }
+
+    /**
+     * Creates the booking request of a patient.
+     *
+     * @param patient The patient
+     * @param doctors The doctors, who take turns
+     * @param n       The number of the booking
+     * @return The request
+     */
+    private static BookingRequest request(Patient patient, List<Doctor> doctors, int n) {
+        return new BookingRequest(patient, doctors.get(n % DOCTORS), date(n), time(n), 30);
+    }
+
+    /**
+     * Gives the date of a booking; each doctor's bookings fill their days in order.
+     *
+     * @param n The number of the booking
+     * @return The date (YYYY-MM-DD)
+     */
+    private static String date(int n) {
+        return LocalDate.of(2030, 1, 1).plusDays(n / DOCTORS / 48).toString();
+    }
+
+    /**
+     * Gives the time of a booking.
+     *
+     * @param n The number of the booking
+     * @return The time (HH:mm)
+     */
+    private static String time(int n) {
+        return Fixtures.time(n / DOCTORS % 48 * 30);
+    }
+}
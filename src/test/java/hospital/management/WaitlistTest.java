@@ -0,0 +1,72 @@
+package hospital.management;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for waitlist backfill on cancellation.
+ */
+class WaitlistTest {
+    /**
+     * A patient waiting for both a doctor and the doctor's specialization
+     * is booked once, and the next freed slot goes to the next patient.
+     */
+    @Test
+    void patientOnTwoWaitlistsIsBackfilledOnce() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Patient first = Fixtures.patient(system, "First");
+        Patient second = Fixtures.patient(system, "Second");
+        system.bookAppointmentSilent(first, doctor, "2030-01-07", "09:00");
+        system.bookAppointmentSilent(second, doctor, "2030-01-07", "10:00");
+        Patient both = Fixtures.patient(system, "Both");
+        Patient next = Fixtures.patient(system, "Next");
+        assertTrue(system.joinWaitlist(both, doctor, 5, 30));
+        assertTrue(system.joinWaitlist(both, "diagnostics", 5, 30));
+        assertTrue(system.joinWaitlist(next, doctor, 1, 30));
+
+        assertTrue(system.cancelAppointment(first, 0));
+        assertEquals(1, system.getPatientAppointments(both).size());
+        assertEquals(1, system.getWaitlistSize(doctor));
+        assertEquals(0, system.getWaitlistSize("Diagnostics"));
+
+        assertTrue(system.cancelAppointment(second, 0));
+        assertEquals(1, system.getPatientAppointments(both).size());
+        List<Appointment> nextBooked = system.getPatientAppointments(next);
+        assertEquals(1, nextBooked.size());
+        assertEquals("10:00", nextBooked.get(0).getTime());
+        assertEquals(0, system.getWaitlistSize(doctor));
+    }
+
+    /**
+     * Patients wanting a longer appointment than the freed slot keep their
+     * place while a shorter request behind them is served, and higher
+     * priority is served first.
+     */
+    @Test
+    void onlyFittingEntriesAreServedInPriorityOrder() {
+        HospitalManagementSystem system = Fixtures.newSystem();
+        Doctor doctor = Fixtures.doctor(system, "House", "Diagnostics");
+        Patient booked = Fixtures.patient(system, "Booked");
+        system.bookAppointmentSilent(booked, doctor, "2030-01-07", "09:00");
+        Patient longer = Fixtures.patient(system, "Longer");
+        Patient low = Fixtures.patient(system, "Low");
+        Patient high = Fixtures.patient(system, "High");
+        system.joinWaitlist(longer, doctor, 9, 60);
+        system.joinWaitlist(low, doctor, 1, 30);
+        system.joinWaitlist(high, doctor, 5, 15);
+
+        assertTrue(system.cancelAppointment(booked, 0));
+        assertEquals(1, system.getPatientAppointments(high).size());
+        assertEquals(15, system.getPatientAppointments(high).get(0).getDurationMinutes());
+        assertTrue(system.getPatientAppointments(longer).isEmpty());
+        assertTrue(system.getPatientAppointments(low).isEmpty());
+        assertEquals(2, system.getWaitlistSize(doctor));
+        assertEquals(2, system.leaveWaitlists(longer) + system.leaveWaitlists(low));
+        assertEquals(0, system.getWaitlistSize(doctor));
+    }
+}